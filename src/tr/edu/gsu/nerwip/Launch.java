@@ -38,6 +38,7 @@ import tr.edu.gsu.nerwip.evaluation.Evaluator;
 import tr.edu.gsu.nerwip.evaluation.measure.AbstractMeasure;
 import tr.edu.gsu.nerwip.evaluation.measure.LilleMeasure;
 import tr.edu.gsu.nerwip.recognition.AbstractRecognizer;
+import tr.edu.gsu.nerwip.recognition.BatchProcessor;
 import tr.edu.gsu.nerwip.recognition.combiner.AbstractCombiner.SubeeMode;
 import tr.edu.gsu.nerwip.recognition.combiner.svmbased.SvmCombiner;
 import tr.edu.gsu.nerwip.recognition.combiner.svmbased.SvmCombiner.CombineMode;
@@ -148,6 +149,13 @@ public class Launch
 		applyStanford();			// Stanford Named Entity Recognizer
 		applySubee();				// Subee (Freebase-based custom tool)
 		
+		///////////////////////////////////////////////
+		// How to apply a standalone NER tool to a whole corpus
+		///////////////////////////////////////////////
+		// The articles are processed in parallel, using several threads.
+		// Problems met with specific articles do not stop the process.
+		applyToCorpus();
+		
 		///////////////////////////////////////////////
 		// How to evaluate the standalone tools performances
 		///////////////////////////////////////////////
@@ -428,14 +436,16 @@ public class Launch
 	{	logger.log("Start testing Illinois");
 		logger.increaseOffset();
 		
-		// get the first article in the corpus
-		Article article = getFirstArticle();
-		
 		IllinoisModelName modelName = IllinoisModelName.CONLL_MODEL;
 		boolean trim = true;
 		boolean ignorePronouns = false;
 		boolean exclusionOn = false;
 		Illinois illinois = new Illinois(modelName, true, trim, ignorePronouns, exclusionOn);
+		illinois.warmUp(); // load the model while the article is retrieved
+		
+		// get the first article in the corpus
+		Article article = getFirstArticle();
+		
 		illinois.setCacheEnabled(false);
 		illinois.process(article);
 		
@@ -453,15 +463,17 @@ public class Launch
 	{	logger.log("Start testing LingPipe");
 		logger.increaseOffset();
 
-		// get the first article in the corpus
-		Article article = getFirstArticle();
-		
 		LingPipeModelName chunkingMethod = LingPipeModelName.APPROX_DICTIONARY;
 		boolean splitSentences = true;
 		boolean trim = true;
 		boolean ignorePronouns = false;
 		boolean exclusionOn = false;
 		LingPipe lingPipe = new LingPipe(chunkingMethod, true, splitSentences, trim, ignorePronouns, exclusionOn);
+		lingPipe.warmUp(); // load the model while the article is retrieved
+		
+		// get the first article in the corpus
+		Article article = getFirstArticle();
+		
 		lingPipe.setCacheEnabled(false);
 		lingPipe.process(article);
 		
@@ -502,13 +514,15 @@ public class Launch
 	{	logger.log("Start testing OpenNlp");
 		logger.increaseOffset();
 		
-		// get the first article in the corpus
-		Article article = getFirstArticle();
-		
 		OpenNlpModelName modelName = OpenNlpModelName.ORIGINAL_MODEL;
 		boolean ignorePronouns = false;
 		boolean exclusionOn = false;
 		OpenNlp openNlp = new OpenNlp(modelName, true, ignorePronouns, exclusionOn);
+		openNlp.warmUp(); // load the model while the article is retrieved
+		
+		// get the first article in the corpus
+		Article article = getFirstArticle();
+		
 		openNlp.setCacheEnabled(false);
 		openNlp.process(article);
 		
@@ -526,13 +540,15 @@ public class Launch
 	{	logger.log("Start testing Stanford");
 		logger.increaseOffset();
 	
-		// get the first article in the corpus
-		Article article = getFirstArticle();
-	
 		StanfordModelName modelName = StanfordModelName.CONLLMUC_MODEL;
 		boolean ignorePronouns = false;
 		boolean exclusionOn = false;
 		Stanford stanford = new Stanford(modelName, true, ignorePronouns, exclusionOn);
+		stanford.warmUp(); // load the model while the article is retrieved
+		
+		// get the first article in the corpus
+		Article article = getFirstArticle();
+		
 		stanford.setCacheEnabled(false);
 		stanford.process(article);
 			
@@ -565,6 +581,33 @@ public class Launch
 		logger.decreaseOffset();
 	}
 
+	/**
+	 * Applies our Wikipedia Dater NER tool to the
+	 * whole corpus, using several threads.
+	 * 
+	 * @throws Exception
+	 * 		Something went wrong... 
+	 */
+	private static void applyToCorpus() throws Exception
+	{	logger.log("Start applying WikipediaDater to the corpus");
+		logger.increaseOffset();
+		
+		// get all the articles in the corpus
+		ArticleList folders = ArticleLists.getArticleList();
+		
+		// the articles already processed are not processed again (cache)
+		WikipediaDater wikipediaDater = new WikipediaDater();
+		int threadNbr = Runtime.getRuntime().availableProcessors();
+		BatchProcessor processor = new BatchProcessor(wikipediaDater, folders, threadNbr);
+		processor.process();
+		
+		// possibly display the articles which could not be processed
+		for(File folder: processor.getFailures().keySet())
+			logger.log("Could not process "+folder.getName());
+		
+		logger.decreaseOffset();
+	}
+
 	/////////////////////////////////////////////////////////////////
 	// EVALUATING STANDALONE TOOLS	/////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -744,9 +787,6 @@ public class Launch
 	{	logger.log("Start testing VoteCombiner");
 		logger.increaseOffset();
 		
-		// get the first article in the corpus
-		Article article = getFirstArticle();
-
 		boolean loadModelOnDemand = true;
 		boolean specific = true;
 		VoteMode voteMode = VoteMode.UNIFORM;
@@ -754,6 +794,11 @@ public class Launch
 		boolean existVote = true;
 		SubeeMode subeeMode = SubeeMode.NONE;
 		VoteCombiner voteCombiner = new VoteCombiner(loadModelOnDemand, specific, voteMode, useRecall, existVote, subeeMode);
+		voteCombiner.warmUp(); // load the models while the article is retrieved
+		
+		// get the first article in the corpus
+		Article article = getFirstArticle();
+		
 		voteCombiner.setCacheEnabled(false);
 		voteCombiner.process(article);
 		
@@ -771,15 +816,17 @@ public class Launch
 	{	logger.log("Start testing VoteCombiner");
 		logger.increaseOffset();
 		
-		// get the first article in the corpus
-		Article article = getFirstArticle();
-
 		boolean loadModelOnDemand = true;
 		boolean specific = true;
 		boolean useCategories = true;
 		CombineMode combineMode = CombineMode.CHUNK_SINGLE;
 		SubeeMode subeeMode = SubeeMode.NONE;
 		SvmCombiner svmCombiner = new SvmCombiner(loadModelOnDemand, specific, useCategories, combineMode, subeeMode);
+		svmCombiner.warmUp(); // load the models while the article is retrieved
+		
+		// get the first article in the corpus
+		Article article = getFirstArticle();
+		
 		svmCombiner.setCacheEnabled(false);
 		svmCombiner.process(article);
 		
@@ -25,7 +25,9 @@ package tr.edu.gsu.nerwip.data.article;
  */
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -34,8 +36,10 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.jdom.Element;
 import org.xml.sax.SAXException;
@@ -205,16 +209,22 @@ public class Article
 	/////////////////////////////////////////////////////////////////
 	/** Original source code of the web page */
 	private String originalPage = null;
+	/** Whether the original source code was loaded (or does not need to be) */
+	private volatile boolean originalPageLoaded = true;
 	
 	/**
 	 * Returns the original source code
-	 * of this page.
+	 * of this page. When the article was read
+	 * from the corpus, the code is loaded on
+	 * the first call.
 	 * 
 	 * @return
 	 * 		Original source code of this page.
 	 */
 	public String getOriginalPage()
-	{	return originalPage;
+	{	if(!originalPageLoaded)
+			loadOriginalPage();
+		return originalPage;
 	}
 
 	/**
@@ -224,8 +234,20 @@ public class Article
 	 * @param originalPage
 	 * 		New original source code of this page.
 	 */
-	public void setOriginalPage(String originalPage)
+	public synchronized void setOriginalPage(String originalPage)
 	{	this.originalPage = originalPage;
+		originalPageLoaded = true;
+	}
+	
+	/**
+	 * Loads the original source code of this page,
+	 * if it was not loaded yet. The file is optional.
+	 */
+	private synchronized void loadOriginalPage()
+	{	if(!originalPageLoaded)
+		{	originalPage = loadContent(FileNames.FI_ORIGINAL_PAGE, originalFile);
+			originalPageLoaded = true;
+		}
 	}
 
 	/////////////////////////////////////////////////////////////////
@@ -270,16 +292,22 @@ public class Article
 	/////////////////////////////////////////////////////////////////
 	/** Raw text */
 	private String rawText = null;
+	/** Whether the raw text was loaded (or does not need to be) */
+	private volatile boolean rawTextLoaded = true;
 
 	/**
 	 * Returns the raw text
-	 * of this page.
+	 * of this page. When the article was read
+	 * from the corpus, the text is loaded on
+	 * the first call.
 	 * 
 	 * @return
 	 * 		Raw text of this page.
 	 */
 	public String getRawText()
-	{	return rawText;
+	{	if(!rawTextLoaded)
+			loadRawText();
+		return rawText;
 	}
 
 	/**
@@ -289,8 +317,71 @@ public class Article
 	 * @param rawText
 	 * 		New raw text of this page.
 	 */
-	public void setRawText(String rawText)
+	public synchronized void setRawText(String rawText)
 	{	this.rawText = rawText;
+		rawTextLoaded = true;
+		annotations = new HashMap<String,TextAnnotation>();
+	}
+	
+	/**
+	 * Loads the raw text of this page,
+	 * if it was not loaded yet.
+	 */
+	private synchronized void loadRawText()
+	{	if(!rawTextLoaded)
+		{	rawText = loadContent(FileNames.FI_RAW_TEXT, rawFile);
+			rawTextLoaded = true;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ANNOTATIONS		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** 
+	 * Segmentations of the raw text, indexed by segmenter name. The map is 
+	 * never modified once published: it is replaced by an updated copy.
+	 */
+	private volatile Map<String,TextAnnotation> annotations = new HashMap<String,TextAnnotation>();
+
+	/**
+	 * Returns the segmentation of the raw text of this page
+	 * performed by the specified segmenter. It is computed
+	 * on the first call, and then shared by all the tools 
+	 * using a segmenter with the same name, until the raw
+	 * text is changed.
+	 * <br/>
+	 * The segmentation is performed without holding the lock
+	 * of the article, so that segmenting the text with one 
+	 * segmenter does not block the threads using another one.
+	 * If several threads segment the text at the same time, 
+	 * they all end up using the first published result.
+	 * 
+	 * @param segmenter
+	 * 		Segmenter used to split the raw text.
+	 * @return
+	 * 		Sentences and tokens of the raw text.
+	 */
+	public TextAnnotation getAnnotation(TextSegmenter segmenter)
+	{	String name = segmenter.getSegmenterName();
+		TextAnnotation result = annotations.get(name);
+		if(result==null)
+		{	String text = getRawText();
+			TextAnnotation annotation = segmenter.segment(text);
+			
+			synchronized(this)
+			{	result = annotations.get(name);
+				if(result==null)
+				{	result = annotation;
+					// not published if the text was changed meanwhile
+					if(text==rawText)
+					{	Map<String,TextAnnotation> map = new HashMap<String,TextAnnotation>(annotations);
+						map.put(name,result);
+						annotations = map;
+					}
+				}
+			}
+		}
+		return result;
 	}
 
 	/////////////////////////////////////////////////////////////////
@@ -298,16 +389,22 @@ public class Article
 	/////////////////////////////////////////////////////////////////
 	/** Raw text with hyperlinks */
 	private String linkedText = null;
+	/** Whether the linked text was loaded (or does not need to be) */
+	private volatile boolean linkedTextLoaded = true;
 
 	/**
 	 * Returns the linked text
-	 * of this page.
+	 * of this page. When the article was read
+	 * from the corpus, the text is loaded on
+	 * the first call.
 	 * 
 	 * @return
 	 * 		Linked text of this page.
 	 */
 	public String getLinkedText()
-	{	return linkedText;
+	{	if(!linkedTextLoaded)
+			loadLinkedText();
+		return linkedText;
 	}
 
 	/**
@@ -317,8 +414,20 @@ public class Article
 	 * @param linkedText
 	 * 		New linkedText of this page.
 	 */
-	public void setLinkedText(String linkedText)
+	public synchronized void setLinkedText(String linkedText)
 	{	this.linkedText = linkedText;
+		linkedTextLoaded = true;
+	}
+	
+	/**
+	 * Loads the linked text of this page,
+	 * if it was not loaded yet.
+	 */
+	private synchronized void loadLinkedText()
+	{	if(!linkedTextLoaded)
+		{	linkedText = loadContent(FileNames.FI_LINKED_TEXT, linkedFile);
+			linkedTextLoaded = true;
+		}
 	}
 
 	/////////////////////////////////////////////////////////////////
@@ -346,6 +455,20 @@ public class Article
 //		File propertiesFile = new File(folderPath + File.separator + FileNames.FI_PROPERTIES);
 		
 		boolean result = rawFile.exists() && linkedFile.exists() /*&& originalFile.exists()*/;
+		
+		// possibly look in the packed corpus
+		if(!result)
+		{	try
+			{	CorpusPack pack = CorpusPack.getPack();
+				if(pack!=null)
+					result = pack.contains(CorpusPack.getPath(name,FileNames.FI_RAW_TEXT))
+						&& pack.contains(CorpusPack.getPath(name,FileNames.FI_LINKED_TEXT));
+			}
+			catch(IOException e)
+			{	e.printStackTrace();
+			}
+		}
+		
 		return result;
 	}
 	
@@ -353,6 +476,11 @@ public class Article
 	 * Reads an article from file. The location
 	 * of the article is automatically inferred
 	 * from its name/title.
+	 * <br/>
+	 * Only the properties are actually read: the
+	 * texts and original page are loaded the first
+	 * time they are accessed. The existence of the
+	 * text files is checked, though. 
 	 * 
 	 * @param name
 	 * 		Name/title of the article.
@@ -368,28 +496,156 @@ public class Article
 	 */
 	public static Article read(String name) throws ParseException, SAXException, IOException
 	{	Article result = new Article(name);
+		result.readFiles(false);
+		return result;
+	}
+	
+	/**
+	 * Reads only the metadata of an article (title, URL,
+	 * date, categories), which is enough to compute statistics
+	 * over the corpus. Unlike {@link #read(String)}, nothing
+	 * is created if the properties file is missing, and the text
+	 * files are not checked. The texts can still be accessed, 
+	 * they are loaded on demand.
+	 * 
+	 * @param name
+	 * 		Name/title of the article.
+	 * @return
+	 * 		The corresponding Article object.
+	 * 
+	 * @throws ParseException
+	 * 		Problem while accessing the article files.
+	 * @throws SAXException
+	 * 		Problem while accessing the article files.
+	 * @throws IOException
+	 * 		Problem while accessing the article files.
+	 */
+	public static Article readMetadata(String name) throws ParseException, SAXException, IOException
+	{	Article result = new Article(name);
+		result.readFiles(true);
+		return result;
+	}
+	
+	/**
+	 * Reads the properties of this article, and prepares
+	 * the loading of its content. The files are read from
+	 * the packed corpus if it contains this article (cf. 
+	 * {@link CorpusPack}), and from the article folder
+	 * otherwise.
+	 * 
+	 * @param metadataOnly
+	 * 		Whether only the metadata are needed.
+	 * 
+	 * @throws ParseException
+	 * 		Problem while accessing the article files.
+	 * @throws SAXException
+	 * 		Problem while accessing the article files.
+	 * @throws IOException
+	 * 		Problem while accessing the article files.
+	 */
+	private void readFiles(boolean metadataOnly) throws ParseException, SAXException, IOException
+	{	// possibly use the packed version
+		CorpusPack corpusPack = CorpusPack.getPack();
+		if(corpusPack!=null && corpusPack.contains(CorpusPack.getPath(name,FileNames.FI_RAW_TEXT)))
+			pack = corpusPack;
 		
 		// properties
-		if(result.propertiesFile.exists())
-			result.readProperties();
-		else
+		if(pack!=null)
+		{	// the packed corpus is never modified
+			String propertiesPath = CorpusPack.getPath(name,FileNames.FI_PROPERTIES);
+			InputStream propertiesStream = pack.getStream(propertiesPath);
+			if(propertiesStream!=null)
+			{	String schemaPath = FileNames.FO_SCHEMA+File.separator+FileNames.FI_PROPERTY_SCHEMA;
+				File schemaFile = new File(schemaPath);
+				Element root = XmlTools.getRootFromStream(propertiesStream,propertiesPath,schemaFile);
+				readProperties(root);
+			}
+		}
+		else if(propertiesFile.exists())
+			readProperties();
+		else if(!metadataOnly)
 			// if the file does not exist, we create it
-			result.writeProperties();
+			writeProperties();
 		
-		// original page
-		if(result.originalFile.exists())
-		{	String originalPage = FileTools.readTextFile(result.originalFile);
-			result.setOriginalPage(originalPage);
+		// check the text files
+		if(!metadataOnly)
+		{	checkContent(FileNames.FI_RAW_TEXT, rawFile);
+			checkContent(FileNames.FI_LINKED_TEXT, linkedFile);
 		}
 		
-		// raw text
-		String rawText = FileTools.readTextFile(result.rawFile);
-		result.setRawText(rawText);
-
-		// raw text with hyperlinks
-		String linkedText = FileTools.readTextFile(result.linkedFile);
-		result.setLinkedText(linkedText);
-		
+		// the content will be loaded on demand
+		originalPageLoaded = false;
+		rawTextLoaded = false;
+		linkedTextLoaded = false;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LAZY LOADING		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Packed corpus containing this article, or {@code null} if it is read from its folder */
+	private CorpusPack pack = null;
+	
+	/**
+	 * Checks that the specified content file of this
+	 * article exists, either in the packed corpus
+	 * or in the article folder.
+	 * 
+	 * @param fileName
+	 * 		Name of the file, in the article folder.
+	 * @param file
+	 * 		The file itself, in the article folder.
+	 * 
+	 * @throws FileNotFoundException
+	 * 		The file does not exist.
+	 */
+	private void checkContent(String fileName, File file) throws FileNotFoundException
+	{	boolean exists;
+		if(pack!=null)
+			exists = pack.contains(CorpusPack.getPath(name,fileName));
+		else
+			exists = file.exists();
+		if(!exists)
+			throw new FileNotFoundException(file.getPath());
+	}
+	
+	/**
+	 * Loads the specified content file of this
+	 * article, either from the packed corpus
+	 * or from the article folder.
+	 * 
+	 * @param fileName
+	 * 		Name of the file, in the article folder.
+	 * @param file
+	 * 		The file itself, in the article folder.
+	 * @return
+	 * 		Content of the file, or {@code null} if it does not exist.
+	 * 
+	 * @throws IllegalStateException
+	 * 		Problem while reading an existing file.
+	 */
+	private String loadContent(String fileName, File file)
+	{	String result = null;
+		try
+		{	if(pack!=null)
+			{	try
+				{	result = pack.getText(CorpusPack.getPath(name,fileName));
+				}
+				catch(IOException e)
+				{	// the pack may have been closed since the article was read
+					if(!pack.isClosed())
+						throw e;
+					if(!file.exists())
+						throw new IllegalStateException("The packed corpus containing "+name+" was closed, and "+file.getPath()+" does not exist");
+					pack = null;
+				}
+			}
+			
+			if(pack==null && file.exists())
+				result = FileTools.readTextFile(file);
+		}
+		catch(IOException e)
+		{	throw new IllegalStateException("Problem while loading "+file.getPath(),e);
+		}
 		return result;
 	}
 	
@@ -411,8 +667,23 @@ public class Article
 
 		// load file
 		Element root = XmlTools.getRootFromFile(propertiesFile,schemaFile);
-		
-		// type of biography
+		readProperties(root);
+	}
+	
+	/**
+	 * Initializes the properties of this article 
+	 * using the specified XML element.
+	 * 
+	 * @param root
+	 * 		Root of the XML properties document.
+	 * 
+	 * @throws ParseException
+	 * 		Problem while parsing the date.
+	 * @throws IOException
+	 * 		Problem while parsing the URL.
+	 */
+	private void readProperties(Element root) throws ParseException, IOException
+	{	// type of biography
 		Element titleElt = root.getChild(XmlNames.ELT_TITLE);
 		if(titleElt!=null)
 		{	String titleStr = titleElt.getTextTrim();
@@ -431,8 +702,9 @@ public class Article
 		Element dateElt = root.getChild(XmlNames.ELT_DATE);
 		if(dateElt!=null)
 		{	String dateStr = dateElt.getTextTrim();
-			Date date = DATE_FORMAT.parse(dateStr);
-			this.date = date;
+			synchronized(DATE_FORMAT)
+			{	this.date = DATE_FORMAT.parse(dateStr);
+			}
 		}
 		
 		// categories of biography
@@ -467,10 +739,10 @@ public class Article
 //			FileTools.writeTextFile(originalFile,originalPage);
 
 		// raw text only
-		FileTools.writeTextFile(rawFile,rawText);
+		FileTools.writeTextFile(rawFile,getRawText());
 		
 		// raw text with hyperlinks
-		FileTools.writeTextFile(linkedFile,linkedText);
+		FileTools.writeTextFile(linkedFile,getLinkedText());
 		
 		// properties
 		writeProperties();
@@ -512,7 +784,10 @@ public class Article
 		
 		// retrieval date
 		if(date!=null)
-		{	String dateStr = DATE_FORMAT.format(date);
+		{	String dateStr;
+			synchronized(DATE_FORMAT)
+			{	dateStr = DATE_FORMAT.format(date);
+			}
 			Element dateElt = new Element(XmlNames.ELT_DATE);
 			dateElt.setText(dateStr);
 			root.addContent(dateElt);
@@ -551,9 +826,7 @@ public class Article
 	 * 		Problem while accessing the file.
 	 */
 	public Entities getReferenceEntities() throws SAXException, IOException, ParseException
-	{	String path = folderPath + File.separator + FileNames.FI_ENTITY_LIST;
-		File file = new File(path);
-		Entities result = Entities.readFromXml(file);
+	{	Entities result = readEntities(FileNames.FI_ENTITY_LIST);
 		return result;
 	}
 	
@@ -575,9 +848,51 @@ public class Article
 	 * 		Problem while accessing the file.
 	 */
 	public Entities getEstimatedEntities(AbstractRecognizer recognizer) throws SAXException, IOException, ParseException
-	{	String path = folderPath + File.separator + recognizer.getFolder() + File.separator + FileNames.FI_ENTITY_LIST;
+	{	Entities result = readEntities(recognizer.getFolder(), FileNames.FI_ENTITY_LIST);
+		return result;
+	}
+	
+	/**
+	 * Reads the specified entity file of this article.
+	 * It is read from the packed corpus if it contains it, 
+	 * and from the article folder otherwise. However, if 
+	 * the file was modified in the article folder after 
+	 * the pack was built, this more recent version is used.
+	 * 
+	 * @param names
+	 * 		Path of the file, relatively to the article folder
+	 * 		(subfolder names, then file name).
+	 * @return
+	 * 		The list of entities.
+	 * 		
+	 * @throws IOException
+	 * 		Problem while accessing the file.
+	 * @throws SAXException
+	 * 		Problem while accessing the file.
+	 * @throws ParseException 
+	 * 		Problem while accessing the file.
+	 */
+	private Entities readEntities(String... names) throws SAXException, IOException, ParseException
+	{	Entities result;
+		String path = folderPath;
+		for(String n: names)
+			path = path + File.separator + n;
 		File file = new File(path);
-		Entities result = Entities.readFromXml(file);
+		
+		// look in the packed corpus, unless the folder contains a more recent version
+		InputStream stream = null;
+		String packPath = CorpusPack.getPath(name) + CorpusPack.SEPARATOR + CorpusPack.getPath(names);
+		CorpusPack pack = CorpusPack.getPack();
+		if(pack!=null && !(file.exists() && file.lastModified()>pack.getLastModified()))
+			stream = pack.getStream(packPath);
+		
+		if(stream!=null)
+			result = Entities.readFromXml(stream, packPath);
+		
+		// otherwise, use the article folder
+		else
+			result = Entities.readFromXml(file);
+		
 		return result;
 	}
 }
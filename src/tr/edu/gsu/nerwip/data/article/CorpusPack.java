@@ -0,0 +1,676 @@
+package tr.edu.gsu.nerwip.data.article;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import tr.edu.gsu.nerwip.tools.file.FileNames;
+import tr.edu.gsu.nerwip.tools.file.FileTools;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+
+/**
+ * Packed version of the corpus: all the files of the output folder
+ * (one folder per article, plus one subfolder per NER tool) are
+ * concatenated in a single data file ({@link FileNames#FI_CORPUS_DATA}), 
+ * and an index file ({@link FileNames#FI_CORPUS_INDEX}) gives the position 
+ * of each one of them. This avoids listing and opening a huge number 
+ * of small files, which is slow on network filesystems.
+ * <br/>
+ * The data file is accessed through memory-mapped I/O. It is mapped
+ * by segments of {@link #SEGMENT_SIZE} bytes, and the packer makes
+ * sure no file spans two segments.
+ * <br/>
+ * A packed file is identified by its path relatively to the output folder,
+ * using {@code /} as a separator, e.g. {@code Alain_Poher/raw.txt}. 
+ * Files are processed as raw bytes, so the packed corpus can 
+ * contain any kind of file.
+ * <br/>
+ * The packed corpus is disabled by default. Once enabled through
+ * {@link #setEnabled(boolean)}, the {@link Article} methods first look
+ * for the requested files in the pack (located in the output folder),
+ * and then in the regular folders if the pack does not contain them.
+ * The pack is read-only: new files are written in the regular folders.
+ * An entity file rewritten in its folder after the pack was built
+ * (e.g. by a recognizer) takes precedence over its packed version, 
+ * but the pack must be rebuilt to include it.
+ * Use {@link #pack(File, File, File)} and {@link #unpack(File, File, File)}
+ * to switch between both representations.
+ * <br/>
+ * A pack can be read concurrently by several threads.
+ * 
+ * @author Vincent Labatut
+ */
+public class CorpusPack
+{	
+	/**
+	 * Opens the specified packed corpus.
+	 * 
+	 * @param dataFile
+	 * 		File containing the packed data.
+	 * @param indexFile
+	 * 		File containing the index of the packed data.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the files.
+	 */
+	public CorpusPack(File dataFile, File indexFile) throws IOException
+	{	// read the index
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+		long dataSize;
+		try
+		{	int magic = in.readInt();
+			if(magic!=MAGIC_NUMBER)
+				throw new IOException("Not a corpus index file: "+indexFile);
+			int version = in.readUnsignedByte();
+			if(version!=FORMAT_VERSION)
+				throw new IOException("Unsupported version of the corpus index format: "+version);
+			dataSize = in.readLong();
+			int count = in.readInt();
+			TreeSet<String> articles = new TreeSet<String>();
+			for(int i=0;i<count;i++)
+			{	String path = in.readUTF();
+				long offset = in.readLong();
+				int length = in.readInt();
+				entries.put(path, new long[]{offset,length});
+				int pos = path.indexOf(SEPARATOR);
+				if(pos>0)
+					articles.add(path.substring(0,pos));
+			}
+			articleNames = Collections.unmodifiableList(new ArrayList<String>(articles));
+		}
+		catch(EOFException e)
+		{	throw new IOException("Truncated corpus index file "+indexFile,e);
+		}
+		finally
+		{	in.close();
+		}
+		
+		// open the data file
+		RandomAccessFile raf = new RandomAccessFile(dataFile, "r");
+		channel = raf.getChannel();
+		if(channel.size()!=dataSize)
+		{	channel.close();
+			throw new IOException("The corpus data file "+dataFile+" does not match its index "+indexFile);
+		}
+		int segmentNbr = (int)((dataSize+SEGMENT_SIZE-1)/SEGMENT_SIZE);
+		segments = new MappedByteBuffer[segmentNbr];
+		lastModified = dataFile.lastModified();
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+	
+	/////////////////////////////////////////////////////////////////
+	// FORMAT			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Magic number identifying the index files ("NERP") */
+	private static final int MAGIC_NUMBER = 0x4E455250;
+	/** Current version of the format */
+	private static final int FORMAT_VERSION = 1;
+	/** Size of the mapped segments of the data file (1 GB) */
+	public static final int SEGMENT_SIZE = 1 << 30;
+	/** Separator used in the paths of the packed files */
+	public static final String SEPARATOR = "/";
+	
+	/////////////////////////////////////////////////////////////////
+	// DEFAULT PACK		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Whether the packed corpus should be used */
+	private static boolean enabled = false;
+	/** Pack located in the output folder, if already opened */
+	private static CorpusPack defaultPack = null;
+	/** Whether we already tried to open the default pack */
+	private static boolean defaultPackOpened = false;
+	
+	/**
+	 * Enables/disables the use of the packed corpus
+	 * located in the output folder. It is disabled 
+	 * by default, i.e. only the regular folders are used.
+	 * <br/>
+	 * When disabling it, the current pack is closed, so that
+	 * its data file is released. The articles already read 
+	 * from it then load their remaining content from their 
+	 * folder (cf. {@link #isClosed()}).
+	 * 
+	 * @param enabled
+	 * 		{@code true} to use the packed corpus.
+	 */
+	public static synchronized void setEnabled(boolean enabled)
+	{	CorpusPack.enabled = enabled;
+		if(defaultPack!=null)
+		{	defaultPack.close();
+			defaultPack = null;
+		}
+		defaultPackOpened = false;
+	}
+	
+	/**
+	 * Indicates whether the packed corpus
+	 * is used.
+	 * 
+	 * @return
+	 * 		{@code true} iff the packed corpus is used.
+	 */
+	public static synchronized boolean isEnabled()
+	{	return enabled;
+	}
+	
+	/**
+	 * Returns the packed corpus located in the output folder,
+	 * opening it if necessary. Returns {@code null} if the
+	 * packed corpus is disabled, or if there is no pack.
+	 * 
+	 * @return
+	 * 		The default packed corpus, or {@code null} if not available.
+	 * 
+	 * @throws IOException
+	 * 		Problem while opening the packed corpus.
+	 */
+	public static synchronized CorpusPack getPack() throws IOException
+	{	if(enabled && !defaultPackOpened)
+		{	File dataFile = new File(FileNames.FO_OUTPUT + File.separator + FileNames.FI_CORPUS_DATA);
+			File indexFile = new File(FileNames.FO_OUTPUT + File.separator + FileNames.FI_CORPUS_INDEX);
+			if(dataFile.exists() && indexFile.exists())
+			{	defaultPack = new CorpusPack(dataFile, indexFile);
+				logger.log("Using the packed corpus "+dataFile+" ("+defaultPack.getFileCount()+" files, "+defaultPack.getArticleNames().size()+" articles)");
+			}
+			else
+				logger.log("No packed corpus found in "+FileNames.FO_OUTPUT+", using the regular folders");
+			defaultPackOpened = true;
+		}
+		return defaultPack;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// INDEX			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Position and length of each packed file, indexed by path */
+	private final Map<String,long[]> entries = new HashMap<String,long[]>();
+	/** Sorted names of the packed articles */
+	private final List<String> articleNames;
+	
+	/**
+	 * Builds the path of a packed file, from the names
+	 * of its folders and its own name.
+	 * 
+	 * @param names
+	 * 		Folder names, followed by the file name.
+	 * @return
+	 * 		Path of the file, in the pack.
+	 */
+	public static String getPath(String... names)
+	{	StringBuilder result = new StringBuilder();
+		for(String name: names)
+		{	if(result.length()>0)
+				result.append(SEPARATOR);
+			result.append(name);
+		}
+		return result.toString();
+	}
+	
+	/**
+	 * Indicates whether the specified file
+	 * is contained in this pack.
+	 * 
+	 * @param path
+	 * 		Path of the file, relatively to the output folder.
+	 * @return
+	 * 		{@code true} iff the pack contains the file.
+	 */
+	public boolean contains(String path)
+	{	return entries.containsKey(path);
+	}
+	
+	/**
+	 * Returns the number of files
+	 * contained in this pack.
+	 * 
+	 * @return
+	 * 		Number of packed files.
+	 */
+	public int getFileCount()
+	{	return entries.size();
+	}
+	
+	/**
+	 * Returns the sorted names of the articles
+	 * contained in this pack.
+	 * 
+	 * @return
+	 * 		List of article names.
+	 */
+	public List<String> getArticleNames()
+	{	return articleNames;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ACCESS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Channel used to map the data file */
+	private final FileChannel channel;
+	/** Segments of the data file, mapped on demand */
+	private final MappedByteBuffer segments[];
+	/** Whether this pack was closed */
+	private boolean closed = false;
+	/** Last modification date of the data file when it was opened */
+	private final long lastModified;
+	
+	/**
+	 * Returns the last modification date of the 
+	 * data file, i.e. the time the pack was built.
+	 * 
+	 * @return
+	 * 		Date in ms, as in {@link File#lastModified()}.
+	 */
+	public long getLastModified()
+	{	return lastModified;
+	}
+	
+	/**
+	 * Indicates whether this pack was closed,
+	 * in which case it cannot be read anymore.
+	 * 
+	 * @return
+	 * 		{@code true} iff the pack was closed.
+	 */
+	public synchronized boolean isClosed()
+	{	return closed;
+	}
+	
+	/**
+	 * Returns the specified segment of the data
+	 * file, mapping it if necessary.
+	 * 
+	 * @param index
+	 * 		Number of the segment.
+	 * @return
+	 * 		The mapped segment.
+	 * 
+	 * @throws IOException
+	 * 		Problem while mapping the segment.
+	 */
+	private synchronized MappedByteBuffer getSegment(int index) throws IOException
+	{	if(closed)
+			throw new IOException("The packed corpus was closed");
+		MappedByteBuffer result = segments[index];
+		if(result==null)
+		{	long start = (long)index * SEGMENT_SIZE;
+			long size = Math.min(SEGMENT_SIZE, channel.size()-start);
+			result = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+			segments[index] = result;
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns a buffer containing the specified file,
+	 * or {@code null} if it is not packed. The buffer
+	 * directly accesses the mapped data, nothing is copied.
+	 * 
+	 * @param path
+	 * 		Path of the file, relatively to the output folder.
+	 * @return
+	 * 		A buffer containing the file, or {@code null}.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the data file.
+	 */
+	public ByteBuffer getBuffer(String path) throws IOException
+	{	ByteBuffer result = null;
+		long entry[] = entries.get(path);
+		if(entry!=null)
+		{	long offset = entry[0];
+			int length = (int)entry[1];
+			int index = (int)(offset / SEGMENT_SIZE);
+			int position = (int)(offset % SEGMENT_SIZE);
+			ByteBuffer segment = getSegment(index).duplicate();
+			segment.position(position);
+			segment.limit(position+length);
+			result = segment.slice();
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns a stream allowing to read the specified file,
+	 * or {@code null} if it is not packed.
+	 * 
+	 * @param path
+	 * 		Path of the file, relatively to the output folder.
+	 * @return
+	 * 		A stream on the file content, or {@code null}.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the data file.
+	 */
+	public InputStream getStream(String path) throws IOException
+	{	InputStream result = null;
+		ByteBuffer buffer = getBuffer(path);
+		if(buffer!=null)
+			result = new BufferInputStream(buffer);
+		return result;
+	}
+	
+	/**
+	 * Returns the content of the specified text file, or
+	 * {@code null} if it is not packed. The text is decoded 
+	 * like in {@link FileTools#readTextFile(File)}.
+	 * 
+	 * @param path
+	 * 		Path of the file, relatively to the output folder.
+	 * @return
+	 * 		Content of the file, or {@code null}.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the data file.
+	 */
+	public String getText(String path) throws IOException
+	{	String result = null;
+		InputStream stream = getStream(path);
+		if(stream!=null)
+			result = FileTools.readTextStream(stream);
+		return result;
+	}
+	
+	/**
+	 * Releases the data file. The pack cannot be
+	 * used anymore after this: the articles which
+	 * were read from it then use their folder instead.
+	 */
+	public synchronized void close()
+	{	closed = true;
+		try
+		{	channel.close();
+		}
+		catch(IOException e)
+		{	e.printStackTrace();
+		}
+		Arrays.fill(segments, null);
+	}
+	
+	/**
+	 * Stream reading the content of a buffer.
+	 */
+	private static class BufferInputStream extends InputStream
+	{	
+		/**
+		 * Builds a stream on the specified buffer.
+		 * 
+		 * @param buffer
+		 * 		Buffer to read.
+		 */
+		public BufferInputStream(ByteBuffer buffer)
+		{	this.buffer = buffer;
+		}
+		
+		/** Buffer read by this stream */
+		private final ByteBuffer buffer;
+		
+		@Override
+		public int read()
+		{	int result = -1;
+			if(buffer.hasRemaining())
+				result = buffer.get() & 0xFF;
+			return result;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length)
+		{	int result = -1;
+			if(length==0)
+				result = 0;
+			else if(buffer.hasRemaining())
+			{	result = Math.min(length, buffer.remaining());
+				buffer.get(bytes, offset, result);
+			}
+			return result;
+		}
+		
+		@Override
+		public long skip(long n)
+		{	int result = (int)Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position()+result);
+			return result;
+		}
+		
+		@Override
+		public int available()
+		{	return buffer.remaining();
+		}
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PACKING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Size of the buffer used to copy the files */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * Packs all the files contained in the specified folder
+	 * and its subfolders. The regular files are kept. The
+	 * pack files themselves are ignored if they are located
+	 * in the folder.
+	 * 
+	 * @param folder
+	 * 		Folder to pack (generally {@link FileNames#FO_OUTPUT}).
+	 * @param dataFile
+	 * 		File to contain the packed data.
+	 * @param indexFile
+	 * 		File to contain the index of the packed data.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the files.
+	 */
+	public static void pack(File folder, File dataFile, File indexFile) throws IOException
+	{	logger.log("Packing folder "+folder+" into "+dataFile);
+		logger.increaseOffset();
+		
+		// list the files
+		List<String> paths = new ArrayList<String>();
+		List<File> files = new ArrayList<File>();
+		listFiles(folder, null, paths, files, dataFile, indexFile);
+		logger.log("Files found: "+files.size());
+		
+		// copy their contents
+		long offsets[] = new long[files.size()];
+		int lengths[] = new int[files.size()];
+		long position = 0;
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(dataFile), BUFFER_SIZE);
+		try
+		{	byte buffer[] = new byte[BUFFER_SIZE];
+			for(int i=0;i<files.size();i++)
+			{	File file = files.get(i);
+				long length = file.length();
+				if(length>SEGMENT_SIZE)
+					throw new IOException("File too large to be packed: "+file);
+				
+				// a file cannot span two segments
+				long remaining = SEGMENT_SIZE - (position % SEGMENT_SIZE);
+				if(length>remaining)
+				{	for(long j=0;j<remaining;j++)
+						out.write(0);
+					position = position + remaining;
+				}
+				
+				// copy the file
+				offsets[i] = position;
+				InputStream in = new FileInputStream(file);
+				try
+				{	long copied = 0;
+					int read;
+					while(copied<length && (read=in.read(buffer,0,(int)Math.min(buffer.length,length-copied)))>0)
+					{	out.write(buffer,0,read);
+						copied = copied + read;
+					}
+					if(copied!=length)
+						throw new IOException("File modified while being packed: "+file);
+				}
+				finally
+				{	in.close();
+				}
+				lengths[i] = (int)length;
+				position = position + length;
+			}
+		}
+		finally
+		{	out.close();
+		}
+		
+		// record the index
+		DataOutputStream index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+		try
+		{	index.writeInt(MAGIC_NUMBER);
+			index.writeByte(FORMAT_VERSION);
+			index.writeLong(position);
+			index.writeInt(paths.size());
+			for(int i=0;i<paths.size();i++)
+			{	index.writeUTF(paths.get(i));
+				index.writeLong(offsets[i]);
+				index.writeInt(lengths[i]);
+			}
+		}
+		finally
+		{	index.close();
+		}
+		
+		logger.log("Packed size: "+position+" bytes");
+		logger.decreaseOffset();
+	}
+	
+	/**
+	 * Recursively lists the files to be packed, by
+	 * alphabetical order, so that the files of the
+	 * same article are contiguous in the pack.
+	 * 
+	 * @param folder
+	 * 		Folder to process.
+	 * @param prefix
+	 * 		Path of the folder in the pack ({@code null} for the root).
+	 * @param paths
+	 * 		List completed with the paths of the files in the pack.
+	 * @param files
+	 * 		List completed with the files themselves.
+	 * @param dataFile
+	 * 		Pack data file, to be ignored.
+	 * @param indexFile
+	 * 		Pack index file, to be ignored.
+	 */
+	private static void listFiles(File folder, String prefix, List<String> paths, List<File> files, File dataFile, File indexFile)
+	{	File content[] = folder.listFiles();
+		if(content!=null)
+		{	Arrays.sort(content);
+			for(File file: content)
+			{	String path;
+				if(prefix==null)
+					path = file.getName();
+				else
+					path = prefix + SEPARATOR + file.getName();
+				if(file.isDirectory())
+					listFiles(file, path, paths, files, dataFile, indexFile);
+				else if(!file.getAbsoluteFile().equals(dataFile.getAbsoluteFile())
+						&& !file.getAbsoluteFile().equals(indexFile.getAbsoluteFile()))
+				{	paths.add(path);
+					files.add(file);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Extracts all the files contained in the specified
+	 * pack, and writes them in the specified folder,
+	 * possibly replacing existing files.
+	 * 
+	 * @param dataFile
+	 * 		File containing the packed data.
+	 * @param indexFile
+	 * 		File containing the index of the packed data.
+	 * @param folder
+	 * 		Folder to receive the files (generally {@link FileNames#FO_OUTPUT}).
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the files.
+	 */
+	public static void unpack(File dataFile, File indexFile, File folder) throws IOException
+	{	logger.log("Unpacking "+dataFile+" into folder "+folder);
+		logger.increaseOffset();
+		
+		CorpusPack pack = new CorpusPack(dataFile, indexFile);
+		try
+		{	List<String> paths = new ArrayList<String>(pack.entries.keySet());
+			Collections.sort(paths);
+			byte bytes[] = new byte[BUFFER_SIZE];
+			for(String path: paths)
+			{	File file = new File(folder, path.replace(SEPARATOR, File.separator));
+				File parent = file.getParentFile();
+				if(!parent.exists())
+					parent.mkdirs();
+				ByteBuffer buffer = pack.getBuffer(path);
+				OutputStream out = new FileOutputStream(file);
+				try
+				{	while(buffer.hasRemaining())
+					{	int length = Math.min(bytes.length, buffer.remaining());
+						buffer.get(bytes, 0, length);
+						out.write(bytes, 0, length);
+					}
+				}
+				finally
+				{	out.close();
+				}
+			}
+			logger.log("Files extracted: "+paths.size());
+		}
+		finally
+		{	pack.close();
+		}
+		
+		logger.decreaseOffset();
+	}
+}
@@ -0,0 +1,261 @@
+package tr.edu.gsu.nerwip.data.article;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Immutable segmentation of a text into sentences and tokens, 
+ * represented by their spans (start and end positions, the end
+ * being exclusive). It also associates each sentence to 
+ * its tokens.
+ * <br/>
+ * An annotation is built once for each article and each 
+ * {@link TextSegmenter}, and is then shared by all the
+ * tools relying on the same segmentation (cf. 
+ * {@link Article#getAnnotation(TextSegmenter)}).
+ * 
+ * @author Vincent Labatut
+ */
+public class TextAnnotation
+{	
+	/**
+	 * Builds a new annotation. Sentences and tokens must
+	 * be sorted and must not overlap. A token is supposed to 
+	 * belong to the sentence containing its first character,
+	 * if any.
+	 * 
+	 * @param text
+	 * 		Annotated text.
+	 * @param sentenceStarts
+	 * 		Start positions of the sentences.
+	 * @param sentenceEnds
+	 * 		End positions of the sentences.
+	 * @param tokenStarts
+	 * 		Start positions of the tokens.
+	 * @param tokenEnds
+	 * 		End positions of the tokens.
+	 */
+	public TextAnnotation(String text, int[] sentenceStarts, int[] sentenceEnds, int[] tokenStarts, int[] tokenEnds)
+	{	this.text = text;
+		this.sentenceStarts = sentenceStarts.clone();
+		this.sentenceEnds = sentenceEnds.clone();
+		this.tokenStarts = tokenStarts.clone();
+		this.tokenEnds = tokenEnds.clone();
+		
+		buildSentenceIndex();
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// TEXT				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Annotated text */
+	private final String text;
+	
+	/**
+	 * Returns the annotated text.
+	 * 
+	 * @return
+	 * 		Annotated text.
+	 */
+	public String getText()
+	{	return text;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// SENTENCES		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Start positions of the sentences */
+	private final int[] sentenceStarts;
+	/** End positions of the sentences */
+	private final int[] sentenceEnds;
+	/** Index of the first token of each sentence */
+	private int[] sentenceFirstTokens;
+	/** Index following the last token of each sentence */
+	private int[] sentenceLastTokens;
+	
+	/**
+	 * Returns the number of sentences.
+	 * 
+	 * @return
+	 * 		Number of sentences.
+	 */
+	public int getSentenceCount()
+	{	return sentenceStarts.length;
+	}
+	
+	/**
+	 * Returns the start position of the specified sentence.
+	 * 
+	 * @param sentence
+	 * 		Index of the sentence.
+	 * @return
+	 * 		Position of its first character.
+	 */
+	public int getSentenceStart(int sentence)
+	{	return sentenceStarts[sentence];
+	}
+	
+	/**
+	 * Returns the end position of the specified sentence.
+	 * 
+	 * @param sentence
+	 * 		Index of the sentence.
+	 * @return
+	 * 		Position following its last character.
+	 */
+	public int getSentenceEnd(int sentence)
+	{	return sentenceEnds[sentence];
+	}
+	
+	/**
+	 * Returns the text of the specified sentence.
+	 * 
+	 * @param sentence
+	 * 		Index of the sentence.
+	 * @return
+	 * 		String of the sentence.
+	 */
+	public String getSentenceString(int sentence)
+	{	String result = text.substring(sentenceStarts[sentence], sentenceEnds[sentence]);
+		return result;
+	}
+	
+	/**
+	 * Returns the index of the first token
+	 * belonging to the specified sentence.
+	 * 
+	 * @param sentence
+	 * 		Index of the sentence.
+	 * @return
+	 * 		Index of its first token.
+	 */
+	public int getSentenceFirstToken(int sentence)
+	{	return sentenceFirstTokens[sentence];
+	}
+	
+	/**
+	 * Returns the index following the last token
+	 * belonging to the specified sentence.
+	 * 
+	 * @param sentence
+	 * 		Index of the sentence.
+	 * @return
+	 * 		Index following its last token.
+	 */
+	public int getSentenceLastToken(int sentence)
+	{	return sentenceLastTokens[sentence];
+	}
+	
+	/**
+	 * Returns the strings of the tokens 
+	 * belonging to the specified sentence.
+	 * 
+	 * @param sentence
+	 * 		Index of the sentence.
+	 * @return
+	 * 		Array containing the tokens of the sentence.
+	 */
+	public String[] getSentenceTokenStrings(int sentence)
+	{	int first = sentenceFirstTokens[sentence];
+		int last = sentenceLastTokens[sentence];
+		String[] result = new String[last-first];
+		for(int t=first;t<last;t++)
+			result[t-first] = getTokenString(t);
+		return result;
+	}
+	
+	/**
+	 * Associates each sentence to its tokens.
+	 */
+	private void buildSentenceIndex()
+	{	sentenceFirstTokens = new int[sentenceStarts.length];
+		sentenceLastTokens = new int[sentenceStarts.length];
+		int t = 0;
+		for(int s=0;s<sentenceStarts.length;s++)
+		{	// skip the tokens located before the sentence
+			while(t<tokenStarts.length && tokenStarts[t]<sentenceStarts[s])
+				t++;
+			sentenceFirstTokens[s] = t;
+			// tokens starting in the sentence
+			while(t<tokenStarts.length && tokenStarts[t]<sentenceEnds[s])
+				t++;
+			sentenceLastTokens[s] = t;
+		}
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// TOKENS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Start positions of the tokens */
+	private final int[] tokenStarts;
+	/** End positions of the tokens */
+	private final int[] tokenEnds;
+	
+	/**
+	 * Returns the number of tokens.
+	 * 
+	 * @return
+	 * 		Number of tokens.
+	 */
+	public int getTokenCount()
+	{	return tokenStarts.length;
+	}
+	
+	/**
+	 * Returns the start position of the specified token.
+	 * 
+	 * @param token
+	 * 		Index of the token.
+	 * @return
+	 * 		Position of its first character.
+	 */
+	public int getTokenStart(int token)
+	{	return tokenStarts[token];
+	}
+	
+	/**
+	 * Returns the end position of the specified token.
+	 * 
+	 * @param token
+	 * 		Index of the token.
+	 * @return
+	 * 		Position following its last character.
+	 */
+	public int getTokenEnd(int token)
+	{	return tokenEnds[token];
+	}
+	
+	/**
+	 * Returns the text of the specified token.
+	 * 
+	 * @param token
+	 * 		Index of the token.
+	 * @return
+	 * 		String of the token.
+	 */
+	public String getTokenString(int token)
+	{	String result = text.substring(tokenStarts[token], tokenEnds[token]);
+		return result;
+	}
+}
@@ -0,0 +1,55 @@
+package tr.edu.gsu.nerwip.data.article;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+/**
+ * Splits a text into sentences and tokens, in order
+ * to build a {@link TextAnnotation}. Annotations are
+ * cached by the {@link Article} objects, using the name
+ * of the segmenter: two segmenters with the same name
+ * must therefore produce exactly the same annotations.
+ * 
+ * @author Vincent Labatut
+ */
+public interface TextSegmenter
+{	
+	/**
+	 * Returns a name identifying the segmentation scheme
+	 * (method and models) implemented by this segmenter.
+	 * 
+	 * @return
+	 * 		Name of the segmentation scheme.
+	 */
+	public String getSegmenterName();
+	
+	/**
+	 * Splits the specified text into sentences and tokens.
+	 * 
+	 * @param text
+	 * 		Text to process.
+	 * @return
+	 * 		The corresponding annotation.
+	 */
+	public TextAnnotation segment(String text);
+}
@@ -360,6 +360,24 @@ public abstract class AbstractEntity<T> implements Comparable<AbstractEntity<?>>
 		return result;
 	}
 
+	/**
+	 * Checks if this entity overlaps with <i>at least</i>
+	 * one of the entities in the specified index. Inclusion 
+	 * and perfect match are also allowed. This is faster
+	 * than {@link #overlapsWithOne(List)} when performing 
+	 * many checks against the same entities.
+	 * 
+	 * @param index
+	 * 		Index of the entities to be compared with this one. 
+	 * @return
+	 * 		{@code true} only if this entity partially overlaps
+	 * 		with at least one of the indexed entities.
+	 */
+	public boolean overlapsWithOne(EntityIndex index)
+	{	boolean result = index.isOverlapping(this);
+		return result;
+	}
+
 //	/**
 //	 * Checks if the specified entity is strictly contained
 //	 * in this entity. Perfect matches are not allowed.
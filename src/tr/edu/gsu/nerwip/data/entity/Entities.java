@@ -24,20 +24,24 @@ package tr.edu.gsu.nerwip.data.entity;
  * If not, see <http://www.gnu.org/licenses/>.
  */
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 
-import org.jdom.Attribute;
 import org.jdom.Element;
 import org.xml.sax.SAXException;
 
@@ -198,6 +202,10 @@ public class Entities
 	 */
 	public void addEntity(AbstractEntity<?> entity)
 	{	entities.add(entity);
+		if(index!=null && indexedNbr==entities.size()-1)
+		{	index.add(entity);
+			indexedNbr++;
+		}
 	}
 	
 	/**
@@ -208,7 +216,8 @@ public class Entities
 	 * 		Entities to add to the list.
 	 */
 	public void addEntities(Entities entities)
-	{	this.entities.addAll(entities.getEntities());
+	{	for(AbstractEntity<?> entity: entities.getEntities())
+			addEntity(entity);
 	}
 
 	/**
@@ -220,6 +229,7 @@ public class Entities
 	 */
 	public void removeEntity(AbstractEntity<?> entity)
 	{	entities.remove(entity);
+		index = null;
 	}
 
 	
@@ -248,7 +258,8 @@ public class Entities
 	 * 		to update the entity string values.
 	 */
 	public void rightShiftEntityPositions(int start, int length, String text)
-	{	for(AbstractEntity<?> entity: entities)
+	{	index = null;
+		for(AbstractEntity<?> entity: entities)
 		{	// start position
 			int startPos = entity.getStartPos();
 			if(start<=startPos)
@@ -280,7 +291,8 @@ public class Entities
 	 * 		to update the entity string values.
 	 */
 	public void leftShiftEntityPositions(int start, int length, String text)
-	{	Iterator<AbstractEntity<?>> it = entities.iterator();
+	{	index = null;
+		Iterator<AbstractEntity<?>> it = entities.iterator();
 		while(it.hasNext())
 		{	AbstractEntity<?> entity = it.next();
 			
@@ -309,9 +321,21 @@ public class Entities
 	/////////////////////////////////////////////////////////////////
 	// ENTITY COMPARISON	/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	/** Index of the entities, built on the first overlap check and then kept up-to-date by {@link #addEntity(AbstractEntity)} */
+	private EntityIndex index = null;
+	/** Number of entities of the list contained in the index */
+	private int indexedNbr = 0;
+	
 	/**
 	 * Checks if the specified entity overlaps (spatially) with one
 	 * of the entities present in this Entities object.
+	 * <br/>
+	 * The check relies on an index, built on the first call and 
+	 * updated when entities are added through this object. It is
+	 * rebuilt if the list was modified otherwise (e.g. removal, or
+	 * direct modification through {@link #getEntities()}). However, 
+	 * the positions of the entities must not be modified directly 
+	 * between two checks.
 	 * 
 	 * @param entity
 	 * 		Entity of interest.
@@ -319,10 +343,57 @@ public class Entities
 	 * 		{@code true} iff it intersects an existing entity.
 	 */
 	public boolean isEntityOverlapping(AbstractEntity<?> entity)
-	{	boolean result = entity.overlapsWithOne(entities);
+	{	if(index==null || indexedNbr!=entities.size())
+		{	index = buildIndex();
+			indexedNbr = entities.size();
+		}
+		boolean result = index.isOverlapping(entity);
+		return result;
+	}
+	
+	/**
+	 * Builds an index containing the entities
+	 * of this object, allowing to perform
+	 * many overlap checks efficiently. The 
+	 * index is not updated when this object 
+	 * is modified.
+	 * 
+	 * @return
+	 * 		An index of these entities.
+	 */
+	public EntityIndex buildIndex()
+	{	EntityIndex result = new EntityIndex(entities);
 		return result;
 	}
 	
+	/**
+	 * Cursor used when sweeping simultaneously
+	 * the sorted entity lists of several NER tools.
+	 */
+	private static class OverlapCursor
+	{	/** NER tool which detected the entities */
+		AbstractRecognizer recognizer;
+		/** Position of the recognizer in the original map (used to break ties) */
+		int rank;
+		/** Sorted entities detected by the tool */
+		List<AbstractEntity<?>> entities;
+		/** Position of the current entity in the list */
+		int index = 0;
+	}
+	
+	/** Orders the cursors depending on the position of their current entity */
+	private static final Comparator<OverlapCursor> CURSOR_COMPARATOR = new Comparator<OverlapCursor>()
+	{	@Override
+		public int compare(OverlapCursor c1, OverlapCursor c2)
+		{	AbstractEntity<?> e1 = c1.entities.get(c1.index);
+			AbstractEntity<?> e2 = c2.entities.get(c2.index);
+			int result = e1.compareTo(e2);
+			if(result==0)
+				result = c1.rank - c2.rank;
+			return result;
+		}
+	};
+	
 	/**
 	 * Takes the output of several NER tools,
 	 * and compare the resulting entities.
@@ -330,6 +401,12 @@ public class Entities
 	 * overlapping entities, i.e. entites detected
 	 * by distinct NER tools, and which are considered
 	 * to be the same entity.
+	 * <br/>
+	 * The sorted lists are swept simultaneously (k-way merge),
+	 * using a priority queue containing the current entity
+	 * of each tool: the first entity of the queue is grouped
+	 * with all the current entities overlapping it, and the
+	 * corresponding tools move to their next entity. 
 	 * 
 	 * @param entities
 	 * 		Entities detected by several tools.
@@ -339,114 +416,219 @@ public class Entities
 	public static List<Map<AbstractRecognizer,AbstractEntity<?>>> identifyOverlaps(Map<AbstractRecognizer,Entities> entities)
 	{	List<Map<AbstractRecognizer,AbstractEntity<?>>> result = new ArrayList<Map<AbstractRecognizer,AbstractEntity<?>>>();
 		
-		// sort all entities
-		for(Entities e: entities.values())
+		// sort all entities and init cursors
+		PriorityQueue<OverlapCursor> queue = new PriorityQueue<OverlapCursor>(Math.max(1,entities.size()),CURSOR_COMPARATOR);
+		int rank = 0;
+		for(Entry<AbstractRecognizer,Entities> entry: entities.entrySet())
+		{	Entities e = entry.getValue();
 			e.sortByPosition();
-		
-		// init iterators
-		Map<AbstractRecognizer,Iterator<AbstractEntity<?>>> iterators = new HashMap<AbstractRecognizer, Iterator<AbstractEntity<?>>>();
-		for(AbstractRecognizer recognizer: entities.keySet())
-		{	Entities e = entities.get(recognizer);
-			Iterator<AbstractEntity<?>> it = e.getEntities().iterator();
-			if(it.hasNext())
-				iterators.put(recognizer,it);
-		}
-		
-		// init current entities
-		Map<AbstractEntity<?>,AbstractRecognizer> current = new HashMap<AbstractEntity<?>, AbstractRecognizer>();
-		for(AbstractRecognizer recognizer: iterators.keySet())
-		{	Iterator<AbstractEntity<?>> it = iterators.get(recognizer);
-			AbstractEntity<?> entity = it.next();
-			current.put(entity,recognizer);
+			if(!e.entities.isEmpty())
+			{	OverlapCursor cursor = new OverlapCursor();
+				cursor.recognizer = entry.getKey();
+				cursor.rank = rank;
+				cursor.entities = e.entities;
+				queue.add(cursor);
+			}
+			rank++;
 		}
 		
 		// detect overlapping entities
-		while(iterators.size()>1)
-		{	// init map
-			Map<AbstractRecognizer,AbstractEntity<?>> map = new HashMap<AbstractRecognizer, AbstractEntity<?>>();
-			
-			// identify the first entity
-			Iterator<AbstractEntity<?>> it = current.keySet().iterator();
-			AbstractEntity<?> first = it.next();
-			while(it.hasNext())
-			{	AbstractEntity<?> entity = it.next();
-				if(entity.precedes(first))
-					first = entity;
-			}
+		List<OverlapCursor> moved = new ArrayList<OverlapCursor>(queue.size());
+		while(!queue.isEmpty())
+		{	Map<AbstractRecognizer,AbstractEntity<?>> map = new HashMap<AbstractRecognizer, AbstractEntity<?>>();
 			
-			// compare other entities to the the first one
-			it = current.keySet().iterator();
-			Map<AbstractEntity<?>,AbstractRecognizer> newCurrent = new HashMap<AbstractEntity<?>, AbstractRecognizer>();
-			while(it.hasNext())
-			{	AbstractEntity<?> entity = it.next();
-				AbstractRecognizer recognizer = current.get(entity);
-				
+			// the first entity overlaps all current entities starting before its end
+			OverlapCursor cursor = queue.poll();
+			AbstractEntity<?> first = cursor.entities.get(cursor.index);
+			map.put(cursor.recognizer,first);
+			moved.add(cursor);
+			while(!queue.isEmpty())
+			{	cursor = queue.peek();
+				AbstractEntity<?> entity = cursor.entities.get(cursor.index);
 				if(entity.overlapsWith(first))
-				{	// update map
-					map.put(recognizer,entity);
-					
-					// update iterator and entity list
-					Iterator<AbstractEntity<?>> i = iterators.get(recognizer);
-					if(i.hasNext())
-					{	AbstractEntity<?> newEntity = i.next();
-						newCurrent.put(newEntity,recognizer);
-					}
-					else
-						iterators.remove(recognizer);
+				{	queue.poll();
+					map.put(cursor.recognizer,entity);
+					moved.add(cursor);
 				}
 				else
-					newCurrent.put(entity,recognizer);
+					break;
 			}
 			
-			// update entity list
-			current = newCurrent;
+			// move the concerned tools to their next entity
+			for(OverlapCursor c: moved)
+			{	c.index++;
+				if(c.index<c.entities.size())
+					queue.add(c);
+			}
+			moved.clear();
 			
 			result.add(map);
 		}
 		
-		// add the remaining entities
-		if(!iterators.isEmpty())
-		{	Entry<AbstractRecognizer,Iterator<AbstractEntity<?>>> entry = iterators.entrySet().iterator().next();
-			AbstractRecognizer recognizer = entry.getKey();
-			Iterator<AbstractEntity<?>> it = entry.getValue();
-			while(it.hasNext())
-			{	Map<AbstractRecognizer,AbstractEntity<?>> map = new HashMap<AbstractRecognizer, AbstractEntity<?>>();
-				AbstractEntity<?> entity = it.next();
-				map.put(recognizer,entity);
-				result.add(map);
-			}
-		}
-		
 		return result;
 	}
 
 	/////////////////////////////////////////////////////////////////
 	// FILE ACCESS		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	/** Whether the XML files should be validated against their schema when read */
+	private static boolean xmlValidation = false;
+	
+	/**
+	 * Changes the default behavior of {@link #readFromXml(File)}
+	 * regarding validation. By default, the files are not validated,
+	 * which is much faster.
+	 * 
+	 * @param xmlValidation
+	 * 		{@code true} to validate the XML files against their schema.
+	 */
+	public static void setXmlValidation(boolean xmlValidation)
+	{	Entities.xmlValidation = xmlValidation;
+	}
+	
+	/**
+	 * Indicates whether the XML files are validated
+	 * against their schema by {@link #readFromXml(File)}.
+	 * 
+	 * @return
+	 * 		{@code true} iff the XML files are validated.
+	 */
+	public static boolean isXmlValidation()
+	{	return xmlValidation;
+	}
+	
 	/**
 	 * Reads the specified XML file, and 
-	 * builds the corresponding Entities object,
-	 * which contains both entities and meta-data.
+	 * builds the corresponding Entities object.
+	 * The file is validated only if this was required
+	 * through {@link #setXmlValidation(boolean)}.
 	 * 
 	 * @param dataFile
 	 * 		The XML file to be read.
 	 * @return
-	 * 		The list of entities and meta-data stored in the file.
+	 * 		The Entities object corresponding to the file.
 	 * 
 	 * @throws SAXException
-	 * 		Problem while reading the file.
+	 * 		Problem while parsing the file.
 	 * @throws IOException
 	 * 		Problem while reading the file.
 	 * @throws ParseException 
 	 * 		Problem while parsing the date.
 	 */
 	public static Entities readFromXml(File dataFile) throws SAXException, IOException, ParseException
+	{	Entities result = readFromXml(dataFile, xmlValidation);
+		return result;
+	}
+	
+	/**
+	 * Reads the specified XML file, and 
+	 * builds the corresponding Entities object.
+	 * <br/>
+	 * Without validation, the file is streamed and the entities
+	 * are built on the fly (cf. {@link EntitiesXmlCodec}). With validation,
+	 * the whole document is loaded and checked against its schema first.
+	 * 
+	 * @param dataFile
+	 * 		The XML file to be read.
+	 * @param validate
+	 * 		Whether the file should be validated against its schema.
+	 * @return
+	 * 		The Entities object corresponding to the file.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the file.
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 * @throws ParseException 
+	 * 		Problem while parsing the date.
+	 */
+	public static Entities readFromXml(File dataFile, boolean validate) throws SAXException, IOException, ParseException
+	{	InputStream stream = new BufferedInputStream(new FileInputStream(dataFile));
+		Entities result = readFromXml(stream, dataFile.toString(), validate);
+		return result;
+	}
+	
+	/**
+	 * Reads an XML document from the specified stream, and 
+	 * builds the corresponding Entities object. The document 
+	 * is validated only if this was required through 
+	 * {@link #setXmlValidation(boolean)}. The stream is closed.
+	 * 
+	 * @param stream
+	 * 		The stream containing the XML document.
+	 * @param name
+	 * 		Name of the document, used when reporting errors.
+	 * @return
+	 * 		The Entities object corresponding to the document.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the document.
+	 * @throws IOException
+	 * 		Problem while reading the document.
+	 * @throws ParseException 
+	 * 		Problem while parsing the date.
+	 */
+	public static Entities readFromXml(InputStream stream, String name) throws SAXException, IOException, ParseException
+	{	Entities result = readFromXml(stream, name, xmlValidation);
+		return result;
+	}
+	
+	/**
+	 * Reads an XML document from the specified stream, and 
+	 * builds the corresponding Entities object. The stream 
+	 * is closed.
+	 * 
+	 * @param stream
+	 * 		The stream containing the XML document.
+	 * @param name
+	 * 		Name of the document, used when reporting errors.
+	 * @param validate
+	 * 		Whether the document should be validated against its schema.
+	 * @return
+	 * 		The Entities object corresponding to the document.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the document.
+	 * @throws IOException
+	 * 		Problem while reading the document.
+	 * @throws ParseException 
+	 * 		Problem while parsing the date.
+	 */
+	public static Entities readFromXml(InputStream stream, String name, boolean validate) throws SAXException, IOException, ParseException
+	{	Entities result;
+		if(validate)
+			result = readFromValidatedXml(stream, name);
+		else
+			result = EntitiesXmlCodec.readEntities(stream, name);
+		return result;
+	}
+	
+	/**
+	 * Reads an XML document from the specified stream, 
+	 * validates it against the entities schema, and builds 
+	 * the corresponding Entities object.
+	 * 
+	 * @param stream
+	 * 		The stream containing the XML document.
+	 * @param name
+	 * 		Name of the document, used when reporting errors.
+	 * @return
+	 * 		The Entities object corresponding to the document.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the file.
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 * @throws ParseException 
+	 * 		Problem while parsing the date.
+	 */
+	private static Entities readFromValidatedXml(InputStream stream, String name) throws SAXException, IOException, ParseException
 	{	// schema file
 		String schemaPath = FileNames.FO_SCHEMA+File.separator+FileNames.FI_ENTITY_SCHEMA;
 		File schemaFile = new File(schemaPath);
 
 		// load file
-		Element element = XmlTools.getRootFromFile(dataFile,schemaFile);
+		Element element = XmlTools.getRootFromStream(stream,name,schemaFile);
 		
 		// get source
 		String sourceStr = element.getAttributeValue(XmlNames.ATT_SOURCE);
@@ -471,7 +653,8 @@ public class Entities
 
 	/**
 	 * Write this Entities object under the form of
-	 * a XML file using our own format.
+	 * a XML file using our own format. The file is
+	 * directly streamed (cf. {@link EntitiesXmlCodec}).
 	 * 
 	 * @param dataFile
 	 * 		File to contain the entities.
@@ -480,30 +663,70 @@ public class Entities
 	 * 		Problem while writing the file.
 	 */
 	public void writeToXml(File dataFile) throws IOException
-	{	// schema file
-		String schemaPath = FileNames.FO_SCHEMA+File.separator+FileNames.FI_ENTITY_SCHEMA;
-		File schemaFile = new File(schemaPath);
-		
-		// build xml document
-		Element element = new Element(XmlNames.ELT_ENTITIES);
-		
-		// insert source attribute
-		Attribute sourceAttr = new Attribute(XmlNames.ATT_SOURCE, source.toString());
-		element.setAttribute(sourceAttr);
-		
-		// insert date attribute
-		String dateStr = TimeFormatting.formatDate(date);
-		Attribute dateAttr = new Attribute(XmlNames.ATT_DATE, dateStr);
-		element.setAttribute(dateAttr);
-		
-		// insert entity elements
-		Collections.sort(entities);
-		for(AbstractEntity<?> entity: entities)
-		{	Element entityElt = entity.exportAsElement();
-			element.addContent(entityElt);
-		}
-		
-		// record file
-		XmlTools.makeFileFromRoot(dataFile,schemaFile,element);
+	{	EntitiesXmlCodec.writeEntities(this, dataFile);
+	}
+
+	/**
+	 * Reads the specified binary file, and 
+	 * builds the corresponding Entities object
+	 * (cf. {@link EntitiesBinaryCodec}).
+	 * 
+	 * @param dataFile
+	 * 		The binary file to be read.
+	 * @return
+	 * 		The Entities object corresponding to the file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 */
+	public static Entities readFromBinary(File dataFile) throws IOException
+	{	Entities result = EntitiesBinaryCodec.readEntities(dataFile);
+		return result;
+	}
+	
+	/**
+	 * Write this Entities object under the form of
+	 * a compact binary file (cf. {@link EntitiesBinaryCodec}).
+	 * 
+	 * @param dataFile
+	 * 		File to contain the entities.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the file.
+	 */
+	public void writeToBinary(File dataFile) throws IOException
+	{	EntitiesBinaryCodec.writeEntities(this, dataFile);
+	}
+	
+	/**
+	 * Encodes this object using our XML format,
+	 * without writing it (cf. {@link EntitiesXmlCodec#encodeEntities(Entities, File)}).
+	 * 
+	 * @param dataFile
+	 * 		The file which will contain the entities.
+	 * @return
+	 * 		Content of the XML file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while encoding the entities.
+	 */
+	public byte[] encodeToXml(File dataFile) throws IOException
+	{	byte result[] = EntitiesXmlCodec.encodeEntities(this, dataFile);
+		return result;
+	}
+	
+	/**
+	 * Encodes this object using the binary format,
+	 * without writing it (cf. {@link EntitiesBinaryCodec#encodeEntities(Entities)}).
+	 * 
+	 * @return
+	 * 		Content of the binary file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while encoding the entities.
+	 */
+	public byte[] encodeToBinary() throws IOException
+	{	byte result[] = EntitiesBinaryCodec.encodeEntities(this);
+		return result;
 	}
 }
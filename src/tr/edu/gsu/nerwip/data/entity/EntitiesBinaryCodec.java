@@ -0,0 +1,509 @@
+package tr.edu.gsu.nerwip.data.entity;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.SAXException;
+
+import tr.edu.gsu.nerwip.recognition.RecognizerName;
+import tr.edu.gsu.nerwip.tools.file.FileNames;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+
+/**
+ * Reader and writer for a compact binary representation
+ * of the entities, meant to be used instead of the XML
+ * files when a large number of results must be stored
+ * and read back (cf. {@link FileNames#FI_ENTITY_BINARY}).
+ * <br/>
+ * The file contains:
+ * <ul>
+ * 		<li>a header: magic number and format version;</li>
+ * 		<li>a table of all the distinct strings of the file (source,
+ * 			entity types, entity strings and values), each one recorded
+ * 			only once;</li>
+ * 		<li>the date of the entities (in ms, {@code -1} for no date);</li>
+ * 		<li>the entities, sorted by position, each one described by
+ * 			its type, its start position (relatively to the previous entity),
+ * 			its length, its string and its value (indices in the string table).</li>
+ * </ul>
+ * All integers except the header are recorded as variable-length
+ * unsigned integers (7 bits per byte). The types are recorded by
+ * name, so the files do not depend on the order of the {@link EntityType}
+ * constants.
+ * <br/>
+ * Both formats contain the same information, and can be converted
+ * into each other (cf. {@link #convertFolder(File, boolean)}), with
+ * one exception: the XML format records the date only with a day precision.
+ * <br/>
+ * All the methods can be called concurrently.
+ * 
+ * @author Vincent Labatut
+ */
+public class EntitiesBinaryCodec
+{	
+	/////////////////////////////////////////////////////////////////
+	// LOGGING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+	
+	/////////////////////////////////////////////////////////////////
+	// FORMAT			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Magic number identifying the files ("NERB") */
+	private static final int MAGIC_NUMBER = 0x4E455242;
+	/** Current version of the format */
+	private static final int FORMAT_VERSION = 1;
+	
+	/////////////////////////////////////////////////////////////////
+	// READING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Reads the specified binary file, and 
+	 * builds the corresponding Entities object.
+	 * 
+	 * @param dataFile
+	 * 		The binary file to be read.
+	 * @return
+	 * 		The Entities object corresponding to the file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the file, or invalid file.
+	 */
+	public static Entities readEntities(File dataFile) throws IOException
+	{	Entities result;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(dataFile)));
+		try
+		{	result = readEntities(in);
+		}
+		catch(EOFException e)
+		{	throw new IOException("Truncated entity file "+dataFile,e);
+		}
+		catch(IllegalArgumentException e)
+		{	throw new IOException("Invalid entity file "+dataFile,e);
+		}
+		catch(IndexOutOfBoundsException e)
+		{	throw new IOException("Invalid entity file "+dataFile,e);
+		}
+		finally
+		{	in.close();
+		}
+		return result;
+	}
+	
+	/**
+	 * Reads the entities from the specified stream.
+	 * 
+	 * @param in
+	 * 		The stream to read.
+	 * @return
+	 * 		The Entities object corresponding to the stream.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the stream, or invalid content.
+	 */
+	private static Entities readEntities(DataInputStream in) throws IOException
+	{	// header
+		int magic = in.readInt();
+		if(magic!=MAGIC_NUMBER)
+			throw new IOException("Not a binary entity file");
+		int version = in.readUnsignedByte();
+		if(version!=FORMAT_VERSION)
+			throw new IOException("Unsupported version of the binary entity format: "+version);
+		
+		// string table
+		int stringNbr = readInt(in);
+		String strings[] = new String[stringNbr];
+		for(int i=0;i<stringNbr;i++)
+		{	int length = readInt(in);
+			byte bytes[] = new byte[length];
+			in.readFully(bytes);
+			strings[i] = new String(bytes,"UTF-8");
+		}
+		
+		// source and date
+		RecognizerName source = RecognizerName.valueOf(strings[readInt(in)]);
+		long time = in.readLong();
+		Date date = null;
+		if(time>=0)
+			date = new Date(time);
+		Entities result = new Entities(source, date);
+		
+		// entities
+		int entityNbr = readInt(in);
+		List<AbstractEntity<?>> entities = result.getEntities();
+		int startPos = 0;
+		for(int i=0;i<entityNbr;i++)
+		{	EntityType type = EntityType.valueOf(strings[readInt(in)]);
+			startPos = startPos + readInt(in);
+			int endPos = startPos + readInt(in);
+			String valueStr = strings[readInt(in)];
+			int valueIdx = readInt(in);
+			String valueString = null;
+			if(valueIdx>0)
+				valueString = strings[valueIdx-1];
+			
+			AbstractEntity<?> entity = null;
+			switch(type)
+			{	case DATE:
+					tr.edu.gsu.nerwip.tools.time.Date value = null;
+					if(valueString!=null)
+						value = tr.edu.gsu.nerwip.tools.time.Date.importFromString(valueString);
+					entity = new EntityDate(startPos, endPos, source, valueStr, value);
+					break;
+				case LOCATION:
+					entity = new EntityLocation(startPos, endPos, source, valueStr, valueString);
+					break;
+				case ORGANIZATION:
+					entity = new EntityOrganization(startPos, endPos, source, valueStr, valueString);
+					break;
+				case PERSON:
+					entity = new EntityPerson(startPos, endPos, source, valueStr, valueString);
+					break;
+			}
+			entities.add(entity);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Reads a variable-length unsigned integer.
+	 * 
+	 * @param in
+	 * 		The stream to read.
+	 * @return
+	 * 		The integer read.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the stream.
+	 */
+	private static int readInt(DataInputStream in) throws IOException
+	{	int result = 0;
+		int shift = 0;
+		int b;
+		do
+		{	if(shift>28)
+				throw new IOException("Malformed integer in binary entity file");
+			b = in.readUnsignedByte();
+			result = result | ((b & 0x7F) << shift);
+			shift = shift + 7;
+		}
+		while((b & 0x80)!=0);
+		if(result<0)
+			throw new IOException("Malformed integer in binary entity file");
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// WRITING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Writes the specified Entities object under the form 
+	 * of a binary file. The entities are sorted beforehand.
+	 * 
+	 * @param entities
+	 * 		Entities to record.
+	 * @param dataFile
+	 * 		File to contain the entities.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the file.
+	 */
+	public static void writeEntities(Entities entities, File dataFile) throws IOException
+	{	OutputStream stream = new BufferedOutputStream(new FileOutputStream(dataFile));
+		writeEntities(entities, stream);
+	}
+	
+	/**
+	 * Encodes the specified Entities object using the binary
+	 * format, exactly like {@link #writeEntities(Entities, File)}
+	 * would write it, but in memory. This allows recording
+	 * the file later (or from another thread) without
+	 * depending on the state of the Entities object.
+	 * 
+	 * @param entities
+	 * 		Entities to record.
+	 * @return
+	 * 		Content of the binary file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while encoding the entities.
+	 */
+	public static byte[] encodeEntities(Entities entities) throws IOException
+	{	ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		writeEntities(entities, stream);
+		byte result[] = stream.toByteArray();
+		return result;
+	}
+	
+	/**
+	 * Writes the specified Entities object using the binary
+	 * format, then closes the stream. The entities are sorted 
+	 * beforehand.
+	 * 
+	 * @param entities
+	 * 		Entities to record.
+	 * @param stream
+	 * 		Stream used to write the entities.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the entities.
+	 */
+	private static void writeEntities(Entities entities, OutputStream stream) throws IOException
+	{	List<AbstractEntity<?>> list = entities.getEntities();
+		Collections.sort(list);
+		
+		// build the string table
+		Map<String,Integer> indices = new HashMap<String,Integer>();
+		List<String> strings = new ArrayList<String>();
+		int sourceIdx = getIndex(entities.getSource().toString(), indices, strings);
+		int entityData[][] = new int[list.size()][];
+		for(int i=0;i<list.size();i++)
+		{	AbstractEntity<?> entity = list.get(i);
+			int typeIdx = getIndex(entity.getType().toString(), indices, strings);
+			int strIdx = getIndex(entity.getStringValue(), indices, strings);
+			int valueIdx = 0;
+			String valueString = EntitiesXmlCodec.getValueString(entity);
+			if(valueString!=null)
+				valueIdx = getIndex(valueString, indices, strings) + 1;
+			entityData[i] = new int[]{typeIdx, strIdx, valueIdx};
+		}
+		
+		// write the file
+		DataOutputStream out = new DataOutputStream(stream);
+		try
+		{	// header
+			out.writeInt(MAGIC_NUMBER);
+			out.writeByte(FORMAT_VERSION);
+			
+			// string table
+			writeInt(out, strings.size());
+			for(String string: strings)
+			{	byte bytes[] = string.getBytes("UTF-8");
+				writeInt(out, bytes.length);
+				out.write(bytes);
+			}
+			
+			// source and date
+			writeInt(out, sourceIdx);
+			Date date = entities.getDate();
+			if(date==null)
+				out.writeLong(-1);
+			else
+				out.writeLong(date.getTime());
+			
+			// entities
+			writeInt(out, list.size());
+			int prevStart = 0;
+			for(int i=0;i<list.size();i++)
+			{	AbstractEntity<?> entity = list.get(i);
+				int startPos = entity.getStartPos();
+				int endPos = entity.getEndPos();
+				if(startPos<prevStart || endPos<startPos)
+					throw new IOException("Invalid position for entity "+entity);
+				writeInt(out, entityData[i][0]);
+				writeInt(out, startPos-prevStart);
+				writeInt(out, endPos-startPos);
+				writeInt(out, entityData[i][1]);
+				writeInt(out, entityData[i][2]);
+				prevStart = startPos;
+			}
+		}
+		finally
+		{	out.close();
+		}
+	}
+	
+	/**
+	 * Returns the index of the specified string in
+	 * the string table, adding it if needed.
+	 * 
+	 * @param string
+	 * 		String of interest.
+	 * @param indices
+	 * 		Map of the strings already in the table.
+	 * @param strings
+	 * 		String table.
+	 * @return
+	 * 		Index of the string in the table.
+	 */
+	private static int getIndex(String string, Map<String,Integer> indices, List<String> strings)
+	{	Integer result = indices.get(string);
+		if(result==null)
+		{	result = strings.size();
+			strings.add(string);
+			indices.put(string,result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Writes a variable-length unsigned integer.
+	 * 
+	 * @param out
+	 * 		The stream to write.
+	 * @param value
+	 * 		The integer to write (must be positive).
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the stream.
+	 */
+	private static void writeInt(DataOutputStream out, int value) throws IOException
+	{	int v = value;
+		while((v & ~0x7F)!=0)
+		{	out.writeByte((v & 0x7F) | 0x80);
+			v = v >>> 7;
+		}
+		out.writeByte(v);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// CONVERSION		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Converts an XML entity file into a binary one.
+	 * 
+	 * @param xmlFile
+	 * 		The existing XML file.
+	 * @param binaryFile
+	 * 		The binary file to create.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the XML file.
+	 * @throws IOException
+	 * 		Problem while accessing the files.
+	 * @throws ParseException 
+	 * 		Problem while parsing the date.
+	 */
+	public static void convertXmlToBinary(File xmlFile, File binaryFile) throws SAXException, IOException, ParseException
+	{	Entities entities = Entities.readFromXml(xmlFile);
+		writeEntities(entities, binaryFile);
+	}
+	
+	/**
+	 * Converts a binary entity file into an XML one.
+	 * 
+	 * @param binaryFile
+	 * 		The existing binary file.
+	 * @param xmlFile
+	 * 		The XML file to create.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the files.
+	 */
+	public static void convertBinaryToXml(File binaryFile, File xmlFile) throws IOException
+	{	Entities entities = readEntities(binaryFile);
+		entities.writeToXml(xmlFile);
+	}
+	
+	/**
+	 * Converts all the entity files contained in the specified
+	 * folder and its subfolders, either from XML to binary or 
+	 * the opposite. The source files are kept.
+	 * 
+	 * @param folder
+	 * 		Root of the folder tree to process (e.g. {@link FileNames#FO_OUTPUT}).
+	 * @param toBinary
+	 * 		{@code true} to convert XML files into binary ones, 
+	 * 		{@code false} for the opposite.
+	 * @return
+	 * 		Number of converted files.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing an XML file.
+	 * @throws IOException
+	 * 		Problem while accessing the files.
+	 * @throws ParseException 
+	 * 		Problem while parsing a date.
+	 */
+	public static int convertFolder(File folder, boolean toBinary) throws SAXException, IOException, ParseException
+	{	logger.log("Converting the entity files of "+folder+" to "+(toBinary?"binary":"XML"));
+		int result = convertFolderRec(folder, toBinary);
+		logger.log("Converted files: "+result);
+		return result;
+	}
+	
+	/**
+	 * Recursively converts the entity files contained 
+	 * in the specified folder.
+	 * 
+	 * @param folder
+	 * 		Folder to process.
+	 * @param toBinary
+	 * 		{@code true} to convert XML files into binary ones, 
+	 * 		{@code false} for the opposite.
+	 * @return
+	 * 		Number of converted files.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing an XML file.
+	 * @throws IOException
+	 * 		Problem while accessing the files.
+	 * @throws ParseException 
+	 * 		Problem while parsing a date.
+	 */
+	private static int convertFolderRec(File folder, boolean toBinary) throws SAXException, IOException, ParseException
+	{	int result = 0;
+		File xmlFile = new File(folder, FileNames.FI_ENTITY_LIST);
+		File binaryFile = new File(folder, FileNames.FI_ENTITY_BINARY);
+		if(toBinary && xmlFile.isFile())
+		{	convertXmlToBinary(xmlFile, binaryFile);
+			result++;
+		}
+		else if(!toBinary && binaryFile.isFile())
+		{	convertBinaryToXml(binaryFile, xmlFile);
+			result++;
+		}
+		
+		File files[] = folder.listFiles();
+		if(files!=null)
+		{	for(File file: files)
+			{	if(file.isDirectory())
+					result = result + convertFolderRec(file, toBinary);
+			}
+		}
+		return result;
+	}
+}
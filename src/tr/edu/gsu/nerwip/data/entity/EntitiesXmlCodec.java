@@ -0,0 +1,647 @@
+package tr.edu.gsu.nerwip.data.entity;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jdom.IllegalDataException;
+import org.jdom.Verifier;
+import org.xml.sax.SAXException;
+
+import tr.edu.gsu.nerwip.recognition.RecognizerName;
+import tr.edu.gsu.nerwip.tools.file.FileNames;
+import tr.edu.gsu.nerwip.tools.time.TimeFormatting;
+import tr.edu.gsu.nerwip.tools.xml.XmlNames;
+import tr.edu.gsu.nerwip.tools.xml.XmlTools;
+
+/**
+ * Streaming reader and writer for the XML files
+ * containing the entities (cf. {@code entities.xsd}).
+ * <br/>
+ * The reader goes through the file with a StAX parser and
+ * directly builds the entities, without any intermediary
+ * DOM or JDOM tree. It does not validate the file: use
+ * {@link Entities#readFromXml(File, boolean)} for this.
+ * <br/>
+ * The writer directly outputs the entities. The produced
+ * files are byte-for-byte identical to those obtained
+ * through {@link XmlTools#makeFileFromRoot(File, File, org.jdom.Element)},
+ * i.e. the JDom pretty format (tab indentation, UTF-8 encoding, 
+ * {@code \r\n} line separator, trimmed texts, no escaping of
+ * non-ASCII characters), so both methods
+ * can be used interchangeably.
+ * <br/>
+ * All the methods can be called concurrently.
+ * 
+ * @author Vincent Labatut
+ */
+public class EntitiesXmlCodec
+{	
+	/////////////////////////////////////////////////////////////////
+	// READING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Factory used to create the StAX parsers (thread-safe once configured) */
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+	
+	/** Configures the StAX parser factory */
+	static
+	{	INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+	
+	/**
+	 * Reads the specified XML file, and 
+	 * builds the corresponding Entities object,
+	 * without validating the file.
+	 * 
+	 * @param dataFile
+	 * 		The XML file to be read.
+	 * @return
+	 * 		The Entities object corresponding to the file.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the file.
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 * @throws ParseException 
+	 * 		Problem while parsing the date.
+	 */
+	public static Entities readEntities(File dataFile) throws SAXException, IOException, ParseException
+	{	InputStream in = new BufferedInputStream(new FileInputStream(dataFile));
+		Entities result = readEntities(in, dataFile.toString());
+		return result;
+	}
+	
+	/**
+	 * Reads an XML document from the specified stream, and 
+	 * builds the corresponding Entities object, without 
+	 * validating the document. The stream is closed.
+	 * 
+	 * @param stream
+	 * 		The stream containing the XML document.
+	 * @param name
+	 * 		Name of the document, used when reporting errors.
+	 * @return
+	 * 		The Entities object corresponding to the document.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the document.
+	 * @throws IOException
+	 * 		Problem while reading the document.
+	 * @throws ParseException 
+	 * 		Problem while parsing the date.
+	 */
+	public static Entities readEntities(InputStream stream, String name) throws SAXException, IOException, ParseException
+	{	Entities result;
+		try
+		{	XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(stream);
+			try
+			{	result = readEntities(reader);
+			}
+			finally
+			{	reader.close();
+			}
+		}
+		catch(XMLStreamException e)
+		{	throw new SAXException("Problem while parsing "+name,e);
+		}
+		catch(IllegalArgumentException e)
+		{	throw new SAXException("Problem while parsing "+name,e);
+		}
+		finally
+		{	stream.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the entities through the specified parser, 
+	 * which must be placed at the start of the document.
+	 * 
+	 * @param reader
+	 * 		The StAX parser.
+	 * @return
+	 * 		The Entities object corresponding to the document.
+	 * 
+	 * @throws XMLStreamException
+	 * 		Problem while parsing the document.
+	 * @throws ParseException 
+	 * 		Problem while parsing the date.
+	 */
+	private static Entities readEntities(XMLStreamReader reader) throws XMLStreamException, ParseException
+	{	// root element
+		reader.nextTag();
+		checkElement(reader, XmlNames.ELT_ENTITIES);
+		
+		// get source
+		String sourceStr = reader.getAttributeValue(null, XmlNames.ATT_SOURCE);
+		RecognizerName source = RecognizerName.valueOf(sourceStr);
+		
+		// get date
+		String dateStr = reader.getAttributeValue(null, XmlNames.ATT_DATE);
+		Date date = TimeFormatting.parseDate(dateStr);
+		
+		// get entities
+		Entities result = new Entities(source, date);
+		List<AbstractEntity<?>> entities = result.getEntities();
+		while(reader.nextTag()==XMLStreamConstants.START_ELEMENT)
+		{	AbstractEntity<?> entity = readEntity(reader, source);
+			entities.add(entity);
+		}
+		Collections.sort(entities);
+		
+		return result;
+	}
+	
+	/**
+	 * Reads a single entity, the parser being positioned
+	 * on its start tag. When the method returns, the parser
+	 * is positioned on the end tag of the entity.
+	 * 
+	 * @param reader
+	 * 		The StAX parser.
+	 * @param source
+	 * 		Name of the NER tool which detected the entity.
+	 * @return
+	 * 		The entity read.
+	 * 
+	 * @throws XMLStreamException
+	 * 		Problem while parsing the entity.
+	 */
+	private static AbstractEntity<?> readEntity(XMLStreamReader reader, RecognizerName source) throws XMLStreamException
+	{	checkElement(reader, XmlNames.ELT_ENTITY);
+		
+		// attributes
+		String typeStr = getRequiredAttribute(reader, XmlNames.ATT_TYPE);
+		EntityType type = EntityType.valueOf(typeStr);
+		String startStr = getRequiredAttribute(reader, XmlNames.ATT_START);
+		int startPos = Integer.parseInt(startStr);
+		String endStr = getRequiredAttribute(reader, XmlNames.ATT_END);
+		int endPos = Integer.parseInt(endStr);
+		
+		// string
+		reader.nextTag();
+		checkElement(reader, XmlNames.ELT_STRING);
+		String valueStr = reader.getElementText();
+		
+		// value (optional)
+		String valueString = null;
+		if(reader.nextTag()==XMLStreamConstants.START_ELEMENT)
+		{	checkElement(reader, XmlNames.ELT_VALUE);
+			valueString = reader.getElementText();
+			reader.nextTag();
+		}
+		
+		// build the entity
+		AbstractEntity<?> result = null;
+		switch(type)
+		{	case DATE:
+				tr.edu.gsu.nerwip.tools.time.Date value = null;
+				if(valueString!=null)
+					value = tr.edu.gsu.nerwip.tools.time.Date.importFromString(valueString);
+				result = new EntityDate(startPos, endPos, source, valueStr, value);
+				break;
+			case LOCATION:
+				result = new EntityLocation(startPos, endPos, source, valueStr, valueString);
+				break;
+			case ORGANIZATION:
+				result = new EntityOrganization(startPos, endPos, source, valueStr, valueString);
+				break;
+			case PERSON:
+				result = new EntityPerson(startPos, endPos, source, valueStr, valueString);
+				break;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Checks that the parser is positioned on a start
+	 * tag with the specified name.
+	 * 
+	 * @param reader
+	 * 		The StAX parser.
+	 * @param name
+	 * 		The expected element name.
+	 * 
+	 * @throws XMLStreamException
+	 * 		The current element is not the expected one.
+	 */
+	private static void checkElement(XMLStreamReader reader, String name) throws XMLStreamException
+	{	if(!name.equals(reader.getLocalName()))
+			throw new XMLStreamException("Found element <"+reader.getLocalName()+"> instead of <"+name+">",reader.getLocation());
+	}
+	
+	/**
+	 * Returns the value of the specified attribute
+	 * for the current element.
+	 * 
+	 * @param reader
+	 * 		The StAX parser.
+	 * @param name
+	 * 		The attribute name.
+	 * @return
+	 * 		The attribute value.
+	 * 
+	 * @throws XMLStreamException
+	 * 		The attribute is missing.
+	 */
+	private static String getRequiredAttribute(XMLStreamReader reader, String name) throws XMLStreamException
+	{	String result = reader.getAttributeValue(null, name);
+		if(result==null)
+			throw new XMLStreamException("Missing attribute '"+name+"' in element <"+reader.getLocalName()+">",reader.getLocation());
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// WRITING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Line separator used in the XML files (same as JDom) */
+	private static final String LINE_SEPARATOR = "\r\n";
+	/** Indentation used in the XML files (one level) */
+	private static final String INDENT = "\t";
+	/** Prefix used for the XML schema instance namespace */
+	private static final String XSI_PREFIX = "xsi";
+	/** Attribute used to indicate the schema in the XML files */
+	private static final String ATT_SCHEMA_LOCATION = "noNamespaceSchemaLocation";
+	
+	/**
+	 * Writes the specified Entities object under the form 
+	 * of a XML file using our own format. The entities
+	 * are sorted beforehand.
+	 * 
+	 * @param entities
+	 * 		Entities to record.
+	 * @param dataFile
+	 * 		File to contain the entities.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the file.
+	 */
+	public static void writeEntities(Entities entities, File dataFile) throws IOException
+	{	// sort the entities and check their texts (before opening the file, like JDom)
+		List<AbstractEntity<?>> list = prepareEntities(entities);
+		String schemaLocation = getSchemaLocation(dataFile);
+		
+		// write the file
+		OutputStream stream = new BufferedOutputStream(new FileOutputStream(dataFile));
+		writeEntities(entities, list, schemaLocation, stream);
+	}
+	
+	/**
+	 * Encodes the specified Entities object using our XML
+	 * format, exactly like {@link #writeEntities(Entities, File)}
+	 * would write it, but in memory. This allows recording
+	 * the file later (or from another thread) without
+	 * depending on the state of the Entities object.
+	 * 
+	 * @param entities
+	 * 		Entities to record.
+	 * @param dataFile
+	 * 		File which will contain the entities (used to locate the schema).
+	 * @return
+	 * 		Content of the XML file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while encoding the entities.
+	 */
+	public static byte[] encodeEntities(Entities entities, File dataFile) throws IOException
+	{	List<AbstractEntity<?>> list = prepareEntities(entities);
+		String schemaLocation = getSchemaLocation(dataFile);
+		
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		writeEntities(entities, list, schemaLocation, stream);
+		byte result[] = stream.toByteArray();
+		return result;
+	}
+	
+	/**
+	 * Returns the location of the entity schema,
+	 * relatively to the specified data file.
+	 * 
+	 * @param dataFile
+	 * 		File which will contain the entities.
+	 * @return
+	 * 		Location of the schema.
+	 */
+	private static String getSchemaLocation(File dataFile)
+	{	String schemaPath = FileNames.FO_SCHEMA+File.separator+FileNames.FI_ENTITY_SCHEMA;
+		File schemaFile = new File(schemaPath);
+		String result = XmlTools.getSchemaLocation(dataFile, schemaFile);
+		return result;
+	}
+	
+	/**
+	 * Sorts the specified entities, and checks
+	 * their texts can be recorded in XML.
+	 * 
+	 * @param entities
+	 * 		Entities to record.
+	 * @return
+	 * 		Sorted list of entities.
+	 * 
+	 * @throws IllegalDataException
+	 * 		One of the texts contains an illegal character.
+	 */
+	private static List<AbstractEntity<?>> prepareEntities(Entities entities)
+	{	List<AbstractEntity<?>> result = entities.getEntities();
+		Collections.sort(result);
+		for(AbstractEntity<?> entity: result)
+		{	checkText(entity.getStringValue());
+			checkText(getValueString(entity));
+		}
+		return result;
+	}
+	
+	/**
+	 * Writes the specified entities using our XML format,
+	 * then closes the stream.
+	 * 
+	 * @param entities
+	 * 		Entities to record.
+	 * @param list
+	 * 		Sorted list of the entities.
+	 * @param schemaLocation
+	 * 		Location of the schema.
+	 * @param stream
+	 * 		Stream used to write the entities.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the entities.
+	 */
+	private static void writeEntities(Entities entities, List<AbstractEntity<?>> list, String schemaLocation, OutputStream stream) throws IOException
+	{	Writer writer = new BufferedWriter(new OutputStreamWriter(stream,"UTF-8"));
+		try
+		{	// declaration
+			writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+			writer.write(LINE_SEPARATOR);
+			
+			// root element
+			writer.write("<"+XmlNames.ELT_ENTITIES);
+			writer.write(" xmlns:"+XSI_PREFIX+"=\""+XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI+"\"");
+			writeAttribute(writer, XmlNames.ATT_SOURCE, entities.getSource().toString());
+			writeAttribute(writer, XmlNames.ATT_DATE, TimeFormatting.formatDate(entities.getDate()));
+			writeAttribute(writer, XSI_PREFIX+":"+ATT_SCHEMA_LOCATION, schemaLocation);
+			if(list.isEmpty())
+				writer.write(" />");
+			else
+			{	writer.write(">");
+				for(AbstractEntity<?> entity: list)
+				{	writer.write(LINE_SEPARATOR);
+					writeEntity(writer, entity);
+				}
+				writer.write(LINE_SEPARATOR);
+				writer.write("</"+XmlNames.ELT_ENTITIES+">");
+			}
+			// JDom ends the document with two line separators
+			writer.write(LINE_SEPARATOR);
+			writer.write(LINE_SEPARATOR);
+		}
+		finally
+		{	writer.close();
+		}
+	}
+	
+	/**
+	 * Writes a single entity, indented
+	 * at the first level.
+	 * 
+	 * @param writer
+	 * 		Writer used to record the file.
+	 * @param entity
+	 * 		Entity to record.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the entity.
+	 */
+	private static void writeEntity(Writer writer, AbstractEntity<?> entity) throws IOException
+	{	writer.write(INDENT+"<"+XmlNames.ELT_ENTITY);
+		writeAttribute(writer, XmlNames.ATT_START, Integer.toString(entity.getStartPos()));
+		writeAttribute(writer, XmlNames.ATT_END, Integer.toString(entity.getEndPos()));
+		writeAttribute(writer, XmlNames.ATT_TYPE, entity.getType().toString());
+		writer.write(">");
+		
+		// string
+		writer.write(LINE_SEPARATOR);
+		writeTextElement(writer, XmlNames.ELT_STRING, entity.getStringValue());
+		
+		// value
+		String valueString = getValueString(entity);
+		if(valueString!=null)
+		{	writer.write(LINE_SEPARATOR);
+			writeTextElement(writer, XmlNames.ELT_VALUE, valueString);
+		}
+		
+		writer.write(LINE_SEPARATOR);
+		writer.write(INDENT+"</"+XmlNames.ELT_ENTITY+">");
+	}
+	
+	/**
+	 * Returns the string representation of the value
+	 * of the specified entity, as recorded in the file.
+	 * 
+	 * @param entity
+	 * 		Entity of interest.
+	 * @return
+	 * 		String representing its value, or {@code null} if it has no value.
+	 */
+	static String getValueString(AbstractEntity<?> entity)
+	{	String result = null;
+		Object value = entity.getValue();
+		if(value!=null)
+		{	if(value instanceof tr.edu.gsu.nerwip.tools.time.Date)
+				result = ((tr.edu.gsu.nerwip.tools.time.Date)value).exportToString();
+			else
+				result = value.toString();
+		}
+		return result;
+	}
+	
+	/**
+	 * Checks that the specified text can be recorded
+	 * in an XML file.
+	 * 
+	 * @param text
+	 * 		Text to check (possibly {@code null}).
+	 * 
+	 * @throws IllegalDataException
+	 * 		The text contains characters forbidden in XML.
+	 */
+	private static void checkText(String text)
+	{	if(text!=null)
+		{	String reason = Verifier.checkCharacterData(text);
+			if(reason!=null)
+				throw new IllegalDataException("The data \""+text+"\" is not legal for a JDOM character content: "+reason+".");
+		}
+	}
+	
+	/**
+	 * Writes an attribute of the current start tag.
+	 * 
+	 * @param writer
+	 * 		Writer used to record the file.
+	 * @param name
+	 * 		Name of the attribute.
+	 * @param value
+	 * 		Value of the attribute.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the attribute.
+	 */
+	private static void writeAttribute(Writer writer, String name, String value) throws IOException
+	{	writer.write(" ");
+		writer.write(name);
+		writer.write("=\"");
+		writeEscaped(writer, value, true);
+		writer.write("\"");
+	}
+	
+	/**
+	 * Writes an element containing only text, indented
+	 * at the second level. Like JDom, the text is trimmed, 
+	 * and the element is written as an empty tag if 
+	 * the text contains only whitespaces.
+	 * 
+	 * @param writer
+	 * 		Writer used to record the file.
+	 * @param name
+	 * 		Name of the element.
+	 * @param text
+	 * 		Content of the element.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the element.
+	 */
+	private static void writeTextElement(Writer writer, String name, String text) throws IOException
+	{	writer.write(INDENT+INDENT+"<"+name);
+		if(text==null || isAllWhitespace(text))
+			writer.write(" />");
+		else
+		{	writer.write(">");
+			writeEscaped(writer, text.trim(), false);
+			writer.write("</"+name+">");
+		}
+	}
+	
+	/**
+	 * Checks whether the specified string contains
+	 * only XML whitespaces (or nothing at all).
+	 * 
+	 * @param text
+	 * 		The string to check.
+	 * @return
+	 * 		{@code true} iff the string is blank.
+	 */
+	private static boolean isAllWhitespace(String text)
+	{	boolean result = true;
+		int i = 0;
+		while(result && i<text.length())
+		{	result = Verifier.isXMLWhitespace(text.charAt(i));
+			i++;
+		}
+		return result;
+	}
+	
+	/**
+	 * Writes the specified string, escaping the characters
+	 * exactly like the JDom outputter does with UTF-8.
+	 * 
+	 * @param writer
+	 * 		Writer used to record the file.
+	 * @param text
+	 * 		The string to write.
+	 * @param attribute
+	 * 		{@code true} for an attribute value, 
+	 * 		{@code false} for an element content.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the string.
+	 */
+	private static void writeEscaped(Writer writer, String text, boolean attribute) throws IOException
+	{	int length = text.length();
+		int from = 0;
+		for(int i=0;i<length;i++)
+		{	char c = text.charAt(i);
+			String entity = null;
+			switch(c)
+			{	case '<':
+					entity = "&lt;";
+					break;
+				case '>':
+					entity = "&gt;";
+					break;
+				case '&':
+					entity = "&amp;";
+					break;
+				case '\r':
+					entity = "&#xD;";
+					break;
+				case '"':
+					if(attribute)
+						entity = "&quot;";
+					break;
+				case '\t':
+					if(attribute)
+						entity = "&#x9;";
+					break;
+				case '\n':
+					if(attribute)
+						entity = "&#xA;";
+					else
+						entity = LINE_SEPARATOR;
+					break;
+			}
+			if(entity!=null)
+			{	writer.write(text, from, i-from);
+				writer.write(entity);
+				from = i + 1;
+			}
+		}
+		writer.write(text, from, length-from);
+	}
+}
@@ -0,0 +1,515 @@
+package tr.edu.gsu.nerwip.data.entity;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index allowing to quickly find the entities overlapping
+ * a given position range. It takes the form of an interval
+ * tree (a balanced binary search tree sorted by starting
+ * position, each node also storing the greatest ending position
+ * of its subtree). Insertion, removal and querying are performed
+ * in logarithmic time (plus the number of returned entities), 
+ * instead of the linear time needed to scan a whole list.
+ * <br/>
+ * Two entities are considered as overlapping in the same sense
+ * as in {@link AbstractEntity#overlapsWith(AbstractEntity)}.
+ * <br/>
+ * The positions of the entities must not be modified while
+ * they are indexed. Entities are identified by reference,
+ * and the index keeps track of their insertion order.
+ * 
+ * @author Vincent Labatut
+ */
+public class EntityIndex
+{	
+	/**
+	 * Builds an empty index.
+	 */
+	public EntityIndex()
+	{	//
+	}
+	
+	/**
+	 * Builds an index containing the
+	 * specified entities.
+	 * 
+	 * @param entities
+	 * 		Entities to index.
+	 */
+	public EntityIndex(Collection<? extends AbstractEntity<?>> entities)
+	{	for(AbstractEntity<?> entity: entities)
+			add(entity);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// NODES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Node of the interval tree.
+	 */
+	private static class Node
+	{	/** Indexed entity */
+		AbstractEntity<?> entity;
+		/** Starting position of the entity */
+		int start;
+		/** Ending position of the entity */
+		int end;
+		/** Insertion rank of the entity */
+		long rank;
+		/** Greatest ending position in the subtree */
+		int maxEnd;
+		/** Height of the subtree */
+		int height = 1;
+		/** Left child */
+		Node left = null;
+		/** Right child */
+		Node right = null;
+	}
+	
+	/** Root of the tree */
+	private Node root = null;
+	/** Nodes of the tree, indexed by entity (by reference) */
+	private final Map<AbstractEntity<?>,Node> nodes = new IdentityHashMap<AbstractEntity<?>,Node>();
+	/** Number of insertions performed since the creation of this index */
+	private long insertions = 0;
+	
+	/** Used to sort the nodes by insertion order */
+	private static final Comparator<Node> RANK_COMPARATOR = new Comparator<Node>()
+	{	@Override
+		public int compare(Node n1, Node n2)
+		{	int result = Long.compare(n1.rank,n2.rank);
+			return result;
+		}
+	};
+	
+	/////////////////////////////////////////////////////////////////
+	// ACCESS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Returns the number of entities
+	 * contained in this index.
+	 * 
+	 * @return
+	 * 		Number of indexed entities.
+	 */
+	public int size()
+	{	return nodes.size();
+	}
+	
+	/**
+	 * Checks whether this index is empty.
+	 * 
+	 * @return
+	 * 		{@code true} iff the index contains no entity.
+	 */
+	public boolean isEmpty()
+	{	return nodes.isEmpty();
+	}
+	
+	/**
+	 * Checks whether the specified entity
+	 * (the object itself) is indexed.
+	 * 
+	 * @param entity
+	 * 		Entity of interest.
+	 * @return
+	 * 		{@code true} iff the entity is in the index.
+	 */
+	public boolean contains(AbstractEntity<?> entity)
+	{	return nodes.containsKey(entity);
+	}
+	
+	/**
+	 * Returns all the indexed entities,
+	 * by order of insertion.
+	 * 
+	 * @return
+	 * 		List of the indexed entities.
+	 */
+	public List<AbstractEntity<?>> getEntities()
+	{	List<Node> temp = new ArrayList<Node>(nodes.values());
+		Collections.sort(temp,RANK_COMPARATOR);
+		List<AbstractEntity<?>> result = new ArrayList<AbstractEntity<?>>(temp.size());
+		for(Node node: temp)
+			result.add(node.entity);
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// INSERTION		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Adds the specified entity to this index.
+	 * Nothing happens if the entity object
+	 * was already indexed.
+	 * 
+	 * @param entity
+	 * 		Entity to index.
+	 */
+	public void add(AbstractEntity<?> entity)
+	{	if(!nodes.containsKey(entity))
+		{	Node node = new Node();
+			node.entity = entity;
+			node.start = entity.getStartPos();
+			node.end = entity.getEndPos();
+			node.maxEnd = node.end;
+			node.rank = insertions;
+			insertions++;
+			
+			nodes.put(entity,node);
+			root = insert(root,node);
+		}
+	}
+	
+	/**
+	 * Inserts the specified node in the specified subtree.
+	 * 
+	 * @param tree
+	 * 		Root of the subtree.
+	 * @param node
+	 * 		Node to insert.
+	 * @return
+	 * 		New root of the subtree.
+	 */
+	private Node insert(Node tree, Node node)
+	{	Node result = node;
+		if(tree!=null)
+		{	if(compare(node,tree)<0)
+				tree.left = insert(tree.left,node);
+			else
+				tree.right = insert(tree.right,node);
+			result = balance(tree);
+		}
+		return result;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// REMOVAL			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Removes the specified entity (the object
+	 * itself) from this index.
+	 * 
+	 * @param entity
+	 * 		Entity to remove.
+	 * @return
+	 * 		{@code true} iff the entity was indexed.
+	 */
+	public boolean remove(AbstractEntity<?> entity)
+	{	Node node = nodes.remove(entity);
+		boolean result = node!=null;
+		if(result)
+			root = delete(root,node);
+		return result;
+	}
+	
+	/**
+	 * Removes the specified node from the specified subtree.
+	 * 
+	 * @param tree
+	 * 		Root of the subtree.
+	 * @param node
+	 * 		Node to remove.
+	 * @return
+	 * 		New root of the subtree.
+	 */
+	private Node delete(Node tree, Node node)
+	{	Node result = null;
+		if(tree!=null)
+		{	int cmp = compare(node,tree);
+			if(cmp<0)
+			{	tree.left = delete(tree.left,node);
+				result = balance(tree);
+			}
+			else if(cmp>0)
+			{	tree.right = delete(tree.right,node);
+				result = balance(tree);
+			}
+			else if(tree.left==null)
+				result = tree.right;
+			else if(tree.right==null)
+				result = tree.left;
+			else
+			{	// replace by the smallest node of the right subtree
+				Node min = tree.right;
+				while(min.left!=null)
+					min = min.left;
+				min.right = deleteMin(tree.right);
+				min.left = tree.left;
+				result = balance(min);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Removes the smallest node of the specified subtree.
+	 * 
+	 * @param tree
+	 * 		Root of the subtree.
+	 * @return
+	 * 		New root of the subtree.
+	 */
+	private Node deleteMin(Node tree)
+	{	Node result;
+		if(tree.left==null)
+			result = tree.right;
+		else
+		{	tree.left = deleteMin(tree.left);
+			result = balance(tree);
+		}
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// QUERIES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Returns all the indexed entities overlapping
+	 * the specified one, by order of insertion.
+	 * 
+	 * @param entity
+	 * 		Entity of interest.
+	 * @return
+	 * 		List of the overlapping entities (possibly empty).
+	 */
+	public List<AbstractEntity<?>> getOverlappingEntities(AbstractEntity<?> entity)
+	{	List<Node> temp = new ArrayList<Node>();
+		collect(root,entity.getStartPos(),entity.getEndPos(),temp);
+		Collections.sort(temp,RANK_COMPARATOR);
+		List<AbstractEntity<?>> result = new ArrayList<AbstractEntity<?>>(temp.size());
+		for(Node node: temp)
+			result.add(node.entity);
+		return result;
+	}
+	
+	/**
+	 * Returns the first inserted entity overlapping
+	 * the specified one. This corresponds to what
+	 * a scan of the list of entities, by order of 
+	 * insertion, would return. 
+	 * 
+	 * @param entity
+	 * 		Entity of interest.
+	 * @return
+	 * 		The overlapping entity, or {@code null} if none does.
+	 */
+	public AbstractEntity<?> getFirstOverlappingEntity(AbstractEntity<?> entity)
+	{	List<Node> temp = new ArrayList<Node>();
+		collect(root,entity.getStartPos(),entity.getEndPos(),temp);
+		AbstractEntity<?> result = null;
+		if(!temp.isEmpty())
+		{	Node first = Collections.min(temp,RANK_COMPARATOR);
+			result = first.entity;
+		}
+		return result;
+	}
+	
+	/**
+	 * Checks whether at least one of the indexed
+	 * entities overlaps the specified one.
+	 * 
+	 * @param entity
+	 * 		Entity of interest.
+	 * @return
+	 * 		{@code true} iff some entity overlaps.
+	 */
+	public boolean isOverlapping(AbstractEntity<?> entity)
+	{	boolean result = find(root,entity.getStartPos(),entity.getEndPos());
+		return result;
+	}
+	
+	/**
+	 * Retrieves the nodes of the specified subtree
+	 * overlapping the specified position range.
+	 * 
+	 * @param tree
+	 * 		Root of the subtree.
+	 * @param start
+	 * 		Starting position of the range.
+	 * @param end
+	 * 		Ending position of the range.
+	 * @param result
+	 * 		List completed with the overlapping nodes.
+	 */
+	private void collect(Node tree, int start, int end, List<Node> result)
+	{	if(tree!=null && tree.maxEnd>=start)
+		{	collect(tree.left,start,end,result);
+			// nodes located in the right subtree start after the current one
+			if(tree.start<=end)
+			{	if(tree.end>=start)
+					result.add(tree);
+				collect(tree.right,start,end,result);
+			}
+		}
+	}
+	
+	/**
+	 * Checks whether at least one node of the specified subtree
+	 * overlaps the specified position range.
+	 * 
+	 * @param tree
+	 * 		Root of the subtree.
+	 * @param start
+	 * 		Starting position of the range.
+	 * @param end
+	 * 		Ending position of the range.
+	 * @return
+	 * 		{@code true} iff an overlapping node was found.
+	 */
+	private boolean find(Node tree, int start, int end)
+	{	boolean result = false;
+		if(tree!=null && tree.maxEnd>=start)
+		{	result = find(tree.left,start,end);
+			if(!result && tree.start<=end)
+				result = tree.end>=start || find(tree.right,start,end);
+		}
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// BALANCING		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Compares two nodes, based on their positions
+	 * then on their insertion ranks.
+	 * 
+	 * @param node1
+	 * 		First node.
+	 * @param node2
+	 * 		Second node.
+	 * @return
+	 * 		Negative, zero or positive integer, depending on the order of the nodes.
+	 */
+	private int compare(Node node1, Node node2)
+	{	int result = node1.start - node2.start;
+		if(result==0)
+		{	result = node1.end - node2.end;
+			if(result==0)
+				result = Long.compare(node1.rank,node2.rank);
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the height of the specified subtree.
+	 * 
+	 * @param tree
+	 * 		Root of the subtree.
+	 * @return
+	 * 		Height of the subtree ({@code 0} if empty).
+	 */
+	private int height(Node tree)
+	{	int result = 0;
+		if(tree!=null)
+			result = tree.height;
+		return result;
+	}
+	
+	/**
+	 * Updates the height and greatest ending position
+	 * of the specified node, from those of its children.
+	 * 
+	 * @param tree
+	 * 		Node to update.
+	 */
+	private void update(Node tree)
+	{	tree.height = 1 + Math.max(height(tree.left),height(tree.right));
+		tree.maxEnd = tree.end;
+		if(tree.left!=null)
+			tree.maxEnd = Math.max(tree.maxEnd,tree.left.maxEnd);
+		if(tree.right!=null)
+			tree.maxEnd = Math.max(tree.maxEnd,tree.right.maxEnd);
+	}
+	
+	/**
+	 * Restores the balance of the specified subtree
+	 * (AVL property), whose children are supposed to
+	 * be balanced themselves.
+	 * 
+	 * @param tree
+	 * 		Root of the subtree.
+	 * @return
+	 * 		New root of the subtree.
+	 */
+	private Node balance(Node tree)
+	{	Node result = tree;
+		update(tree);
+		int diff = height(tree.left) - height(tree.right);
+		if(diff>1)
+		{	if(height(tree.left.left)<height(tree.left.right))
+				tree.left = rotateLeft(tree.left);
+			result = rotateRight(tree);
+		}
+		else if(diff<-1)
+		{	if(height(tree.right.right)<height(tree.right.left))
+				tree.right = rotateRight(tree.right);
+			result = rotateLeft(tree);
+		}
+		return result;
+	}
+	
+	/**
+	 * Performs a right rotation of the specified subtree.
+	 * 
+	 * @param tree
+	 * 		Root of the subtree.
+	 * @return
+	 * 		New root of the subtree.
+	 */
+	private Node rotateRight(Node tree)
+	{	Node result = tree.left;
+		tree.left = result.right;
+		result.right = tree;
+		update(tree);
+		update(result);
+		return result;
+	}
+	
+	/**
+	 * Performs a left rotation of the specified subtree.
+	 * 
+	 * @param tree
+	 * 		Root of the subtree.
+	 * @return
+	 * 		New root of the subtree.
+	 */
+	private Node rotateLeft(Node tree)
+	{	Node result = tree.right;
+		tree.right = result.left;
+		result.left = tree;
+		update(tree);
+		update(result);
+		return result;
+	}
+}
@@ -41,10 +41,12 @@ import tr.edu.gsu.nerwip.data.entity.Entities;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.evaluation.measure.AbstractMeasure;
 import tr.edu.gsu.nerwip.recognition.AbstractRecognizer;
+import tr.edu.gsu.nerwip.recognition.CacheManifest;
 import tr.edu.gsu.nerwip.recognition.ConverterException;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
 import tr.edu.gsu.nerwip.retrieval.ArticleRetriever;
 import tr.edu.gsu.nerwip.retrieval.reader.ReaderException;
+import tr.edu.gsu.nerwip.tools.file.AsyncFileWriter;
 import tr.edu.gsu.nerwip.tools.file.FileNames;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
@@ -146,6 +148,8 @@ public class Evaluator
 	/////////////////////////////////////////////////////////////////
 	/** Whether or not the evaluator should use caching */
 	protected boolean cache = true;
+	/** Key of the evaluated types, in the cache manifests */
+	private static final String KEY_TYPES = "types";
 	
 	/**
 	 * Changes the caching flag.
@@ -154,6 +158,11 @@ public class Evaluator
 	 * If it is the case, then they will be
 	 * simply loaded. Otherwise, the regular
 	 * evaluation process will take place.
+	 * The results are also recomputed when the
+	 * article text, the recognizer configuration
+	 * or model, the reference entities or the
+	 * evaluated types changed since they were
+	 * recorded (cf. {@link CacheManifest}).
 	 * <br>
 	 * This cache parameter does not affect
 	 * whether or not the recognizers caches
@@ -250,6 +259,17 @@ public class Evaluator
 			File resultsFile = new File(resultsPath);
 			boolean processNeeded = !resultsFile.exists(); 
 			
+			// check if they were computed from the current inputs
+			CacheManifest manifest = null;
+			File manifestFile = new File(resultsPath + FileNames.EX_MANIFEST);
+			if(CacheManifest.isEnabled())
+			{	manifest = CacheManifest.build(recognizer,article);
+				manifest.put(CacheManifest.KEY_REFERENCE, CacheManifest.computeHash(refEntities));
+				manifest.put(KEY_TYPES, types.toString());
+				if(!processNeeded)
+					processNeeded = !manifest.isUpToDate(manifestFile);
+			}
+			
 			// process results
 			if(!cache || processNeeded)
 			{	logger.log("Processing results");
@@ -258,6 +278,8 @@ public class Evaluator
 				
 				logger.log("Writing results to cache");
 				res.writeNumbers(resultsFolder,name);
+				if(manifest!=null)
+					manifest.write(manifestFile);
 				result.add(res);
 			}
 			
@@ -301,6 +323,11 @@ public class Evaluator
 			measures.add(measure);
 		}
 		
+		// load the models while the first articles are retrieved
+		logger.log("Warm up the NER tools");
+		for(AbstractRecognizer recognizer: recognizers)
+			recognizer.warmUp();
+		
 		// process each article
 		logger.log("Process each article individually");
 		logger.increaseOffset();
@@ -319,6 +346,9 @@ public class Evaluator
 		}
 		logger.decreaseOffset();
 		
+		// wait for the recognizers results to be recorded
+		AsyncFileWriter.flush();
+		
 		// record the results
 		writeResults();
 		logger.decreaseOffset();
@@ -32,6 +32,7 @@ import org.xml.sax.SAXException;
 
 import tr.edu.gsu.nerwip.data.article.Article;
 import tr.edu.gsu.nerwip.data.entity.Entities;
+import tr.edu.gsu.nerwip.tools.file.AsyncFileWriter;
 import tr.edu.gsu.nerwip.tools.file.FileNames;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
@@ -41,7 +42,7 @@ import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
  * some format compatible with Nerwip.
  * <br/>
  * It also allows to read/write our own XML based
- * format.
+ * format, as well as its binary equivalent.
  * 
  * @author Yasa Akbulut
  * @author Vincent Labatut
@@ -133,6 +134,8 @@ public abstract class AbstractConverter
 	/**
 	 * Write the XML results obtained for the specified article.
 	 * This method is meant for both internal and external tools.
+	 * The file is recorded through {@link AsyncFileWriter}, so it
+	 * is possibly recorded later, in the background.
 	 * 
 	 * @param article
 	 * 		Concerned article.
@@ -150,7 +153,8 @@ public abstract class AbstractConverter
 		if(!folder.exists())
 			folder.mkdirs();
 		
-		entities.writeToXml(file);
+		byte content[] = entities.encodeToXml(file);
+		AsyncFileWriter.write(file,content);
 	}
 	
 	/**
@@ -172,12 +176,209 @@ public abstract class AbstractConverter
 	 */
 	public Entities readXmlResults(Article article) throws SAXException, IOException, ParseException
 	{	File dataFile = getXmlFile(article);
+		AsyncFileWriter.waitFor(dataFile);
 		
 		Entities result = Entities.readFromXml(dataFile);
 		
 		return result;
 	}
 
+	/////////////////////////////////////////////////////////////////
+	// BINARY			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Returns the binary file associated to the specified
+	 * article.
+	 * 
+	 * @param article
+	 * 		Article to process.
+	 * @return
+	 * 		A {@code File} object representing the associated binary result file.
+	 */
+	public File getBinaryFile(Article article)
+	{	String resultsFolder = article.getFolderPath();
+		if(nerFolder!=null)
+			resultsFolder = resultsFolder + File.separator + nerFolder;
+		String filePath = resultsFolder + File.separator + FileNames.FI_ENTITY_BINARY;
+		
+		File result = new File(filePath);
+		return result;
+	}
+	
+	/**
+	 * Write the results obtained for the specified article,
+	 * using the compact binary format.
+	 * 
+	 * @param article
+	 * 		Concerned article.
+	 * @param entities
+	 * 		List of the detected entities.
+	 * @throws IOException
+	 * 		Problem while writing the file.
+	 */
+	public void writeBinaryResults(Article article, Entities entities) throws IOException
+	{	// data file
+		File file = getBinaryFile(article);
+		
+		// check folder
+		File folder = file.getParentFile();
+		if(!folder.exists())
+			folder.mkdirs();
+		
+		byte content[] = entities.encodeToBinary();
+		AsyncFileWriter.write(file,content);
+	}
+	
+	/**
+	 * Read the binary representation of the results
+	 * previously processed by the associated NER
+	 * tool, for the specified article.
+	 * 
+	 * @param article
+	 * 		Article to process.
+	 * @return
+	 * 		The list of entities stored in the file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 */
+	public Entities readBinaryResults(Article article) throws IOException
+	{	File dataFile = getBinaryFile(article);
+		AsyncFileWriter.waitFor(dataFile);
+		
+		Entities result = Entities.readFromBinary(dataFile);
+		
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// RESULTS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Indicates whether some results were previously recorded 
+	 * for the specified article, in the specified format.
+	 * In binary mode, existing XML results are also accepted:
+	 * they are converted when read (cf. {@link #readResults(Article, boolean)}).
+	 * 
+	 * @param article
+	 * 		Article to process.
+	 * @param binary
+	 * 		{@code true} for the binary format, {@code false} for XML.
+	 * @return
+	 * 		{@code true} iff the results can be read.
+	 */
+	public boolean hasResults(Article article, boolean binary)
+	{	boolean result = AsyncFileWriter.exists(getXmlFile(article));
+		if(binary && !result)
+			result = AsyncFileWriter.exists(getBinaryFile(article));
+		return result;
+	}
+	
+	/**
+	 * Write the results obtained for the specified article,
+	 * in the specified format.
+	 * 
+	 * @param article
+	 * 		Concerned article.
+	 * @param entities
+	 * 		List of the detected entities.
+	 * @param binary
+	 * 		{@code true} for the binary format, {@code false} for XML.
+	 * @throws IOException
+	 * 		Problem while writing the file.
+	 */
+	public void writeResults(Article article, Entities entities, boolean binary) throws IOException
+	{	if(binary)
+			writeBinaryResults(article, entities);
+		else
+			writeXmlResults(article, entities);
+	}
+	
+	/**
+	 * Read the results previously processed by the 
+	 * associated NER tool for the specified article,
+	 * in the specified format.
+	 * <br/>
+	 * In binary mode, if there is no binary file but 
+	 * an XML file, the latter is read and converted,
+	 * so that the binary file is used next time.
+	 * 
+	 * @param article
+	 * 		Article to process.
+	 * @param binary
+	 * 		{@code true} for the binary format, {@code false} for XML.
+	 * @return
+	 * 		The list of entities stored in the file.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while reading the file.
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 * @throws ParseException 
+	 * 		Problem while parsing a date. 
+	 */
+	public Entities readResults(Article article, boolean binary) throws SAXException, IOException, ParseException
+	{	Entities result;
+		if(binary)
+		{	if(AsyncFileWriter.exists(getBinaryFile(article)))
+				result = readBinaryResults(article);
+			else
+			{	result = readXmlResults(article);
+				writeBinaryResults(article, result);
+			}
+		}
+		else
+			result = readXmlResults(article);
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// MANIFEST			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Returns the file describing the inputs the results of
+	 * the specified article were computed from (cf. {@link CacheManifest}).
+	 * 
+	 * @param article
+	 * 		Article to process.
+	 * @return
+	 * 		A {@code File} object representing the associated manifest file.
+	 */
+	public File getManifestFile(Article article)
+	{	String resultsFolder = article.getFolderPath();
+		if(nerFolder!=null)
+			resultsFolder = resultsFolder + File.separator + nerFolder;
+		String filePath = resultsFolder + File.separator + FileNames.FI_ENTITY_MANIFEST;
+		File result = new File(filePath);
+		return result;
+	}
+	
+	/**
+	 * Indicates whether some results were previously recorded 
+	 * for the specified article (cf. {@link #hasResults(Article, boolean)}),
+	 * and were computed from the inputs described by the specified
+	 * manifest. If the manifest is {@code null}, only the existence
+	 * of the results is checked.
+	 * 
+	 * @param article
+	 * 		Article to process.
+	 * @param binary
+	 * 		{@code true} for the binary format, {@code false} for XML.
+	 * @param manifest
+	 * 		Inputs of the results, or {@code null} to ignore them.
+	 * @return
+	 * 		{@code true} iff the results can be read and are up to date.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the manifest file.
+	 */
+	public boolean hasUpToDateResults(Article article, boolean binary, CacheManifest manifest) throws IOException
+	{	boolean result = hasResults(article,binary);
+		if(result && manifest!=null)
+			result = manifest.isUpToDate(getManifestFile(article));
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// RAW				/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -24,18 +24,18 @@ package tr.edu.gsu.nerwip.recognition;
  * If not, see <http://www.gnu.org/licenses/>.
  */
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
 import tr.edu.gsu.nerwip.data.article.Article;
 import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
 import tr.edu.gsu.nerwip.data.entity.Entities;
+import tr.edu.gsu.nerwip.data.entity.EntityIndex;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
-import tr.edu.gsu.nerwip.tools.string.StringTools;
 
 /**
  * This class is used to represent or implement NER tools.
@@ -139,7 +139,9 @@ public abstract class AbstractRecognizer
 	 * method will first check if the results already
 	 * exist as a file. In this case, they will be loaded
 	 * from this file. Otherwise, the process will be
-	 * conducted normally, then recorded.
+	 * conducted normally, then recorded. Results computed
+	 * from a different text, configuration or model are
+	 * not reused (cf. {@link CacheManifest}).
 	 * 
 	 * @param enabled
 	 * 		If {@code true}, the (possibly) cached files are used.
@@ -147,6 +149,52 @@ public abstract class AbstractRecognizer
 	public void setCacheEnabled(boolean enabled)
 	{	this.cache = enabled;
 	}
+	
+	/**
+	 * Returns the files containing the model used by
+	 * this NER tool, if any. Their checksums are recorded
+	 * in the cache manifests (cf. {@link CacheManifest}), 
+	 * so that the cached results are recomputed when
+	 * the model changes.
+	 * <br/>
+	 * By default, this method returns an empty list. 
+	 * It must be overridden by model-based tools.
+	 * 
+	 * @return
+	 * 		List of the model files.
+	 */
+	public List<File> getModelFiles()
+	{	List<File> result = new ArrayList<File>();
+		return result;
+	}
+	
+	/** Whether the results are recorded using the binary format rather than XML */
+	protected boolean binaryResults = false;
+	
+	/**
+	 * Indicates whether the results of this NER tool are 
+	 * recorded using the compact binary format, or XML.
+	 *  
+	 * @return
+	 * 		{@code true} iff the binary format is used.
+	 */
+	public boolean doesUseBinaryResults()
+	{	return binaryResults;
+	}
+	
+	/**
+	 * Changes the format used to record the results of this
+	 * NER tool. If {@code true}, the {@link #process(Article) process}
+	 * method records them using the compact binary format instead 
+	 * of XML. Results previously cached as XML files are still 
+	 * used, and converted when read.
+	 * 
+	 * @param enabled
+	 * 		If {@code true}, the binary format is used.
+	 */
+	public void setBinaryResults(boolean enabled)
+	{	this.binaryResults = enabled;
+	}
 
 	/////////////////////////////////////////////////////////////////
 	// PROCESSING		/////////////////////////////////////////////
@@ -165,6 +213,33 @@ public abstract class AbstractRecognizer
 	 */
 	public abstract Entities process(Article article) throws RecognizerException;
 
+	/**
+	 * Indicates whether or not this NER tool can be applied
+	 * simultaneously to several articles, from distinct threads.
+	 * By default, we consider it cannot, since most of the
+	 * underlying tools rely on stateful objects. Recognizers
+	 * known to be safe should override this method.
+	 * 
+	 * @return
+	 * 		{@code true} iff {@link #process(Article)} can be
+	 * 		called concurrently on this object.
+	 */
+	public boolean isThreadSafe()
+	{	return false;
+	}
+
+	/**
+	 * Starts preparing this NER tool in the background
+	 * (e.g. loading its model), so that this preparation
+	 * overlaps other operations such as reading the corpus.
+	 * The method returns immediately. By default, there is
+	 * nothing to prepare: recognizers using external data
+	 * should override this method.
+	 */
+	public void warmUp()
+	{	// nothing to do by default
+	}
+
 	/////////////////////////////////////////////////////////////////
 	// FILTERING NOISE 		/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -174,13 +249,31 @@ public abstract class AbstractRecognizer
 	protected boolean ignorePronouns = true;
 	/** Whether or not numbers should be ignored */
 	protected boolean ignoreNumbers = true;
+	/** Filter used to identify stop-words, pronouns and numbers (shared between recognizers) */
+	protected NoiseFilter noiseFilter = NoiseFilter.getDefaultFilter();
 	
-	/** List of forbidden words, used for filtering entities */	
-	private static final List<String> EXCLUSION_LIST = Arrays.asList(
-		"a", "an",
-		"i", "in",
-		"the"
-	);
+	/**
+	 * Changes the filter used to identify stop-words, pronouns
+	 * and numbers, for instance to handle another language
+	 * (cf. {@link NoiseFilter#getFilter(String)}).
+	 * 
+	 * @param noiseFilter
+	 * 		New noise filter.
+	 */
+	public void setNoiseFilter(NoiseFilter noiseFilter)
+	{	this.noiseFilter = noiseFilter;
+	}
+	
+	/**
+	 * Returns the filter used to identify 
+	 * stop-words, pronouns and numbers.
+	 * 
+	 * @return
+	 * 		The current noise filter.
+	 */
+	public NoiseFilter getNoiseFilter()
+	{	return noiseFilter;
+	}
 	
 	/**
 	 * Enables/disables the removal of stop words 
@@ -204,27 +297,6 @@ public abstract class AbstractRecognizer
 	{	return exclusionOn;
 	}
 	
-	/**
-	 * Determines if a string represents
-	 * a stop-word.
-	 * 
-	 * @param text
-	 * 		String to check.
-	 * @return
-	 * 		{@code true} iff the string is a stop-word.
-	 */
-	private boolean isExcluded(String text)
-	{	boolean result = false;
-		Iterator<String> it = EXCLUSION_LIST.iterator();
-		
-		while(it.hasNext() && !result)
-		{	String word = it.next();
-			result = word.equalsIgnoreCase(text);
-		}
-		
-		return result;
-	}
-
 	/**
 	 * Enables/disables the removal of pronouns
 	 * should be ignored.
@@ -247,37 +319,6 @@ public abstract class AbstractRecognizer
 	{	return ignorePronouns;
 	}
 
-	/** List of pronouns, used for filtering entities */	
-	private static final List<String> PRONOUN_LIST = Arrays.asList(
-		"i", "me", "my", "mine",
-		"you", "your", "yours",
-		"he", "him", "himself", "his",
-		"she", "her", "herself", "hers", 
-		"it", "its",
-		"they", "them", "their"
-	);
-	
-	/**
-	 * Determines if a string represents
-	 * a pronoun.
-	 * 
-	 * @param text
-	 * 		String to check.
-	 * @return
-	 * 		{@code true} iff the string is a pronoun.
-	 */
-	private boolean isPronoun(String text)
-	{	boolean result = false;
-		Iterator<String> it = PRONOUN_LIST.iterator();
-		
-		while(it.hasNext() && !result)
-		{	String pronoun = it.next();
-			result = pronoun.equalsIgnoreCase(text);
-		}
-		
-		return result;
-	}
-
 	/**
 	 * Disables/enables the removal of purely
 	 * numerical entities.
@@ -318,19 +359,19 @@ public abstract class AbstractRecognizer
 			String entityStr = entity.getStringValue();
 			
 			// is it a stop-word?
-			if(exclusionOn && isExcluded(entityStr))
+			if(exclusionOn && noiseFilter.isStopWord(entityStr))
 			{	logger.log("Entity '"+entityStr+"' is a stop-word >> filtered.)");
 				it.remove();
 			}
 			
 			// is it a pronoun?
-			else if(ignorePronouns && (entityStr.length()<=1 || isPronoun(entityStr)))
+			else if(ignorePronouns && (entityStr.length()<=1 || noiseFilter.isPronoun(entityStr)))
 			{	logger.log("Entity '"+entityStr+"' is a pronoun >> filtered.)");
 				it.remove();
 			}
 			
 			// is it a pure number?
-			else if(ignoreNumbers && StringTools.hasNoLetter(entityStr))
+			else if(ignoreNumbers && noiseFilter.isNumber(entityStr))
 			{	logger.log("Entity '"+entityStr+"' is a number (no letter) >> filtered.)");
 				it.remove();
 			}
@@ -494,6 +535,9 @@ public abstract class AbstractRecognizer
 	/**
 	 * Checks whether a part of the specified entity was already detected as another
 	 * entity. Returns the concerned entity.
+	 * <br/>
+	 * This method scans the whole list: when it must be called
+	 * repeatedly on a growing list, use an {@link EntityIndex} instead.
 	 * 
 	 * @param entity
 	 * 		Newly detected entity.
@@ -532,6 +576,10 @@ public abstract class AbstractRecognizer
 	/**
 	 * Gets a list of entities and detects the overlapping ones.
 	 * Only keeps the longest ones amongst them.
+	 * <br/>
+	 * The entities kept so far are stored in an {@link EntityIndex},
+	 * so that the overlapping ones are found without scanning
+	 * the whole list.
 	 * 
 	 * @param entities
 	 * 		List to be filtered.
@@ -542,11 +590,10 @@ public abstract class AbstractRecognizer
 		if(!noOverlap)
 			logger.log("Overlapping entities are allowed.)");
 		else
-		{	List<AbstractEntity<?>> temp = new ArrayList<AbstractEntity<?>>(entities);
-			entities.clear();
+		{	EntityIndex index = new EntityIndex();
 			
-			for(AbstractEntity<?> entity1: temp)
-			{	AbstractEntity<?> entity2 = positionAlreadyUsed(entity1, entities);
+			for(AbstractEntity<?> entity1: entities)
+			{	AbstractEntity<?> entity2 = index.getFirstOverlappingEntity(entity1);
 				boolean pass = false;
 				while(!pass && entity2!=null)
 				{	// process both entity lengths
@@ -555,19 +602,23 @@ public abstract class AbstractRecognizer
 					// keep the longest one
 					if(length1>length2)
 					{	logger.log("New entity "+entity1+" intersects with old entity "+entity2+" >> keep the new one");
-						entities.remove(entity2);
+						index.remove(entity2);
 					}
 					else
 					{	logger.log("New entity "+entity1+" intersects with old entity "+entity2+" >> keep the old one");
 						pass = true;
 					}
 					// check next overlapping entity
-					entity2 = positionAlreadyUsed(entity1, entities);
+					entity2 = index.getFirstOverlappingEntity(entity1);
 				}
 				
 				if(!pass)
-					entities.add(entity1);
+					index.add(entity1);
 			}
+			
+			List<AbstractEntity<?>> temp = index.getEntities();
+			entities.clear();
+			entities.addAll(temp);
 		}
 		
 		logger.decreaseOffset();
@@ -0,0 +1,320 @@
+package tr.edu.gsu.nerwip.recognition;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import tr.edu.gsu.nerwip.data.article.Article;
+import tr.edu.gsu.nerwip.data.entity.Entities;
+import tr.edu.gsu.nerwip.evaluation.ArticleList;
+import tr.edu.gsu.nerwip.retrieval.ArticleRetriever;
+import tr.edu.gsu.nerwip.tools.file.AsyncFileWriter;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+import tr.edu.gsu.nerwip.tools.time.TimeFormatting;
+
+/**
+ * This class applies a NER tool to a whole list of articles,
+ * using a pool of worker threads. Each article is retrieved
+ * and processed independently, so a problem with one of them
+ * does not stop the others: the corresponding exception is
+ * recorded, and can be consulted once the process is over.
+ * <br/>
+ * The caching behavior is the one of the recognizer itself:
+ * if its cache is enabled, articles already processed are
+ * simply loaded, which allows resuming an interrupted run.
+ * <br/>
+ * If the recognizer is not thread-safe (cf. {@link AbstractRecognizer#isThreadSafe()}),
+ * its {@code process} method is never called concurrently. The retrieval
+ * of the articles is still performed in parallel, though.
+ * 
+ * @author Vincent Labatut
+ */
+public class BatchProcessor
+{	
+	/**
+	 * Builds a new batch processor,
+	 * using as many threads as there
+	 * are available processors.
+	 * 
+	 * @param recognizer
+	 * 		NER tool to apply.
+	 * @param folders
+	 * 		Articles to process.
+	 */
+	public BatchProcessor(AbstractRecognizer recognizer, ArticleList folders)
+	{	this(recognizer,folders,Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Builds a new batch processor,
+	 * using the specified number of threads.
+	 * 
+	 * @param recognizer
+	 * 		NER tool to apply.
+	 * @param folders
+	 * 		Articles to process.
+	 * @param threadNbr
+	 * 		Number of worker threads.
+	 */
+	public BatchProcessor(AbstractRecognizer recognizer, ArticleList folders, int threadNbr)
+	{	this.recognizer = recognizer;
+		this.folders = folders;
+		setThreadNumber(threadNbr);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	protected static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+
+	/////////////////////////////////////////////////////////////////
+	// OPTIONS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Applied NER tool */
+	private AbstractRecognizer recognizer;
+	/** Articles to process */
+	private ArticleList folders;
+	/** Number of worker threads */
+	private int threadNbr;
+	
+	/**
+	 * Returns the NER tool applied
+	 * by this processor.
+	 * 
+	 * @return
+	 * 		Applied NER tool.
+	 */
+	public AbstractRecognizer getRecognizer()
+	{	return recognizer;
+	}
+	
+	/**
+	 * Changes the number of worker
+	 * threads used during the process.
+	 * 
+	 * @param threadNbr
+	 * 		New number of threads (at least 1).
+	 */
+	public void setThreadNumber(int threadNbr)
+	{	if(threadNbr<1)
+			throw new IllegalArgumentException("The number of threads must be positive ("+threadNbr+")");
+		this.threadNbr = threadNbr;
+	}
+	
+	/**
+	 * Returns the number of worker threads
+	 * used during the process.
+	 * 
+	 * @return
+	 * 		Number of threads.
+	 */
+	public int getThreadNumber()
+	{	return threadNbr;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// RESULTS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Problems met during the last process, for each concerned article */
+	private final Map<File,Exception> failures = new LinkedHashMap<File,Exception>();
+	/** Number of articles successfully processed during the last process */
+	private int processedNbr = 0;
+	/** Duration of the last process (in ms) */
+	private long duration = 0;
+	
+	/**
+	 * Returns the problems met during the last
+	 * process, indexed by article folder.
+	 * 
+	 * @return
+	 * 		Map of the articles which could not be processed.
+	 */
+	public Map<File,Exception> getFailures()
+	{	return Collections.unmodifiableMap(failures);
+	}
+	
+	/**
+	 * Returns the number of articles successfully
+	 * processed during the last process.
+	 * 
+	 * @return
+	 * 		Number of processed articles.
+	 */
+	public int getProcessedNumber()
+	{	return processedNbr;
+	}
+	
+	/**
+	 * Returns the duration of the last
+	 * process, expressed in ms.
+	 * 
+	 * @return
+	 * 		Duration of the last process.
+	 */
+	public long getDuration()
+	{	return duration;
+	}
+	
+	/**
+	 * Returns the throughput of the last process,
+	 * expressed in articles per second (failed
+	 * articles are not counted).
+	 * 
+	 * @return
+	 * 		Number of articles processed per second.
+	 */
+	public double getThroughput()
+	{	double result = 0;
+		if(duration>0)
+			result = processedNbr * 1000.0 / duration;
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PROCESS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Retrieves the article contained in the
+	 * specified folder, and applies the NER
+	 * tool to it.
+	 * 
+	 * @param folder
+	 * 		Folder containing the article.
+	 * @return
+	 * 		Entities detected in the article.
+	 * 
+	 * @throws Exception
+	 * 		Problem while retrieving or processing the article.
+	 */
+	private Entities processArticle(File folder) throws Exception
+	{	// get article
+		String name = folder.getName();
+		URL url = new URL("http://en.wikipedia.org/wiki/"+name); // fake url, enough here
+		ArticleRetriever retriever = new ArticleRetriever();
+		Article article = retriever.process(url);
+		
+		// apply the NER tool
+		Entities result;
+		if(recognizer.isThreadSafe())
+			result = recognizer.process(article);
+		else
+		{	synchronized(recognizer)
+			{	result = recognizer.process(article);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Applies the NER tool to all the articles,
+	 * using the pool of worker threads. Problems 
+	 * met for specific articles are recorded
+	 * (cf. {@link #getFailures()}) but do not
+	 * interrupt the process.
+	 * <br/>
+	 * Once all articles are processed, the method waits
+	 * until all the results are actually recorded
+	 * (cf. {@link AsyncFileWriter#flush()}).
+	 * 
+	 * @throws InterruptedException
+	 * 		The current thread was interrupted while waiting for the workers.
+	 * @throws IOException
+	 * 		Some results could not be recorded.
+	 */
+	public void process() throws InterruptedException, IOException
+	{	logger.log("Apply "+recognizer.getName()+" to "+folders.size()+" articles ("+folders.getName()+"), using "+threadNbr+" threads");
+		logger.increaseOffset();
+		if(!recognizer.isThreadSafe())
+			logger.log("WARNING: this recognizer is not thread-safe, so it will be applied to one article at a time");
+		
+		// init
+		failures.clear();
+		processedNbr = 0;
+		long startTime = System.currentTimeMillis();
+		
+		// submit all articles
+		ExecutorService executor = Executors.newFixedThreadPool(threadNbr);
+		List<Future<Entities>> futures = new ArrayList<Future<Entities>>();
+		try
+		{	for(final File folder: folders)
+			{	Future<Entities> future = executor.submit(new Callable<Entities>()
+				{	@Override
+					public Entities call() throws Exception
+					{	return processArticle(folder);
+					}
+				});
+				futures.add(future);
+			}
+			
+			// collect the results
+			for(int i=0;i<futures.size();i++)
+			{	File folder = folders.get(i);
+				Future<Entities> future = futures.get(i);
+				try
+				{	future.get();
+					processedNbr++;
+				}
+				catch(ExecutionException e)
+				{	Throwable cause = e.getCause();
+					Exception ex;
+					if(cause instanceof Exception)
+						ex = (Exception)cause;
+					else
+						ex = e;
+					logger.log("ERROR: could not process article "+folder.getName()+": "+ex.getMessage());
+					failures.put(folder,ex);
+				}
+			}
+		}
+		finally
+		{	executor.shutdownNow();
+		}
+		
+		// wait for the results to be recorded
+		AsyncFileWriter.flush();
+		
+		// display stats
+		duration = System.currentTimeMillis() - startTime;
+		logger.log("Processed "+processedNbr+" articles in "+TimeFormatting.formatDuration(duration)+" ("+String.format("%.2f",getThroughput())+" articles/s)");
+		if(!failures.isEmpty())
+			logger.log("Failed to process "+failures.size()+" articles");
+		
+		logger.decreaseOffset();
+	}
+}
@@ -0,0 +1,384 @@
+package tr.edu.gsu.nerwip.recognition;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Scanner;
+import java.util.TreeMap;
+
+import tr.edu.gsu.nerwip.data.article.Article;
+import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
+import tr.edu.gsu.nerwip.data.entity.Entities;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ModelSnapshots;
+import tr.edu.gsu.nerwip.tools.file.AsyncFileWriter;
+import tr.edu.gsu.nerwip.tools.file.FileTools;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+
+/**
+ * Describes the inputs a cached result was computed from,
+ * so that it is recomputed only when these inputs change.
+ * <br/>
+ * A manifest is recorded next to each cached result
+ * (for instance, the entities detected by a recognizer
+ * for a given article). It contains a hash of the article
+ * text, the configuration of the recognizer (as returned
+ * by {@link AbstractRecognizer#getFolder()}) and a checksum 
+ * of each of its model files (cf. {@link AbstractRecognizer#getModelFiles()}).
+ * Other entries can be added when the result depends on something
+ * else (e.g. the reference entities, for an evaluation). 
+ * <br/>
+ * Results cached before the manifests were introduced have
+ * no manifest: they are assumed to be up to date, and their
+ * manifest is created the first time they are checked. 
+ * <br/>
+ * Manifests can be disabled (cf. {@link #setEnabled(boolean)}), 
+ * in which case only the existence of the cached results
+ * is considered.
+ * 
+ * @author Vincent Labatut
+ */
+public class CacheManifest
+{	
+	/**
+	 * Builds an empty manifest.
+	 */
+	public CacheManifest()
+	{	//
+	}
+	
+	/**
+	 * Builds the manifest describing the results of
+	 * the specified recognizer for the specified article.
+	 * 
+	 * @param recognizer
+	 * 		Recognizer producing the results.
+	 * @param article
+	 * 		Article processed by the recognizer.
+	 * @return
+	 * 		The corresponding manifest.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading a model file.
+	 */
+	public static CacheManifest build(AbstractRecognizer recognizer, Article article) throws IOException
+	{	CacheManifest result = new CacheManifest();
+		
+		result.put(KEY_TEXT, computeHash(article.getRawText()));
+		result.put(KEY_FOLDER, recognizer.getFolder());
+		List<File> modelFiles = recognizer.getModelFiles();
+		for(File file: modelFiles)
+			result.put(KEY_MODEL+" "+file.getPath(), getChecksum(file));
+		
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+	
+	/////////////////////////////////////////////////////////////////
+	// ENABLED			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Whether the manifests should be used */
+	private static volatile boolean enabled = true;
+	
+	/**
+	 * Enables/disables the manifests. When disabled,
+	 * a cached result is used as soon as it exists, 
+	 * and no manifest is recorded.
+	 * 
+	 * @param enabled
+	 * 		{@code true} to use the manifests.
+	 */
+	public static void setEnabled(boolean enabled)
+	{	CacheManifest.enabled = enabled;
+	}
+	
+	/**
+	 * Indicates whether the manifests are used.
+	 * 
+	 * @return
+	 * 		{@code true} iff the manifests are used.
+	 */
+	public static boolean isEnabled()
+	{	return enabled;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ENTRIES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Key of the hash of the article text */
+	public static final String KEY_TEXT = "text";
+	/** Key of the recognizer configuration */
+	public static final String KEY_FOLDER = "folder";
+	/** Prefix of the keys of the model checksums */
+	public static final String KEY_MODEL = "model";
+	/** Key of the hash of the reference entities */
+	public static final String KEY_REFERENCE = "reference";
+	/** Separator between keys and values, in the manifest file */
+	private static final String SEPARATOR = "\t";
+	/** Entries of this manifest, sorted by key */
+	private final Map<String,String> entries = new TreeMap<String,String>();
+	
+	/**
+	 * Adds a new entry to this manifest,
+	 * or replaces an existing one.
+	 * 
+	 * @param key
+	 * 		Name of the entry.
+	 * @param value
+	 * 		Value of the entry.
+	 */
+	public void put(String key, String value)
+	{	entries.put(key,value);
+	}
+	
+	/**
+	 * Returns the value of the specified entry.
+	 * 
+	 * @param key
+	 * 		Name of the entry.
+	 * @return
+	 * 		Value of the entry, or {@code null} if it does not exist.
+	 */
+	public String get(String key)
+	{	String result = entries.get(key);
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// HASHES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Value used for missing files */
+	private static final String MISSING = "missing";
+	/** Checksums already processed, indexed by file path, size and date */
+	private static final Map<String,String> CHECKSUMS = new HashMap<String,String>();
+	
+	/**
+	 * Processes the SHA-1 hash of the specified text.
+	 * 
+	 * @param text
+	 * 		Text of interest.
+	 * @return
+	 * 		Hexadecimal representation of its hash.
+	 */
+	public static String computeHash(String text)
+	{	String result;
+		if(text==null)
+			result = MISSING;
+		else
+		{	try
+			{	MessageDigest digest = MessageDigest.getInstance("SHA-1");
+				byte hash[] = digest.digest(text.getBytes("UTF-8"));
+				StringBuilder sb = new StringBuilder();
+				for(byte b: hash)
+					sb.append(String.format("%02x",b));
+				result = sb.toString();
+			}
+			catch(NoSuchAlgorithmException e)
+			{	// every JVM must support SHA-1
+				throw new IllegalStateException(e);
+			}
+			catch(UnsupportedEncodingException e)
+			{	// every JVM must support UTF-8
+				throw new IllegalStateException(e);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Processes a hash of the specified entities, 
+	 * based on their types, positions and strings.
+	 * 
+	 * @param entities
+	 * 		Entities of interest.
+	 * @return
+	 * 		Hexadecimal representation of their hash.
+	 */
+	public static String computeHash(Entities entities)
+	{	StringBuilder sb = new StringBuilder();
+		for(AbstractEntity<?> entity: entities.getEntities())
+		{	sb.append(entity.getType()).append(SEPARATOR);
+			sb.append(entity.getStartPos()).append(SEPARATOR);
+			sb.append(entity.getEndPos()).append(SEPARATOR);
+			sb.append(entity.getStringValue()).append('\n');
+		}
+		String result = computeHash(sb.toString());
+		return result;
+	}
+	
+	/**
+	 * Returns the checksum of the specified (model) file.
+	 * Checksums are processed only once for a given version
+	 * of a file, since model files can be large.
+	 * 
+	 * @param file
+	 * 		File of interest.
+	 * @return
+	 * 		Hexadecimal representation of its checksum.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 */
+	public static String getChecksum(File file) throws IOException
+	{	String result;
+		if(!file.exists())
+			result = MISSING;
+		else
+		{	String key = file.getAbsolutePath() + SEPARATOR + file.length() + SEPARATOR + file.lastModified();
+			synchronized(CHECKSUMS)
+			{	result = CHECKSUMS.get(key);
+			}
+			if(result==null)
+			{	result = ModelSnapshots.computeChecksum(file);
+				synchronized(CHECKSUMS)
+				{	CHECKSUMS.put(key,result);
+				}
+			}
+		}
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// FILES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Reads a previously recorded manifest.
+	 * 
+	 * @param file
+	 * 		Manifest file.
+	 * @return
+	 * 		The manifest, or {@code null} if the file does not exist.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 */
+	public static CacheManifest read(File file) throws IOException
+	{	CacheManifest result = null;
+		
+		AsyncFileWriter.waitFor(file);
+		if(file.exists())
+		{	result = new CacheManifest();
+			Scanner scanner = FileTools.openTextFileRead(file);
+			try
+			{	while(scanner.hasNextLine())
+				{	String line = scanner.nextLine();
+					int pos = line.lastIndexOf(SEPARATOR);
+					if(pos>0)
+					{	String key = line.substring(0,pos);
+						String value = line.substring(pos+SEPARATOR.length());
+						result.put(key,value);
+					}
+				}
+			}
+			finally
+			{	scanner.close();
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Records this manifest in the specified file
+	 * (possibly in the background, cf. {@link AsyncFileWriter}).
+	 * The folder is created if needed.
+	 * 
+	 * @param file
+	 * 		Manifest file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the file.
+	 */
+	public void write(File file) throws IOException
+	{	File folder = file.getParentFile();
+		if(folder!=null && !folder.exists())
+			folder.mkdirs();
+		
+		StringBuilder sb = new StringBuilder();
+		for(Entry<String,String> entry: entries.entrySet())
+			sb.append(entry.getKey()).append(SEPARATOR).append(entry.getValue()).append("\n");
+		AsyncFileWriter.write(file,sb.toString());
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// CHECK			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Checks whether the cached results described by the
+	 * specified manifest file were computed from the inputs
+	 * described by this manifest. 
+	 * <br/>
+	 * If the manifest file does not exist, the cached results
+	 * are considered up to date (they were produced before 
+	 * manifests were introduced), and this manifest is recorded.
+	 * 
+	 * @param file
+	 * 		Manifest file of the cached results.
+	 * @return
+	 * 		{@code true} iff the cached results can be used.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the file.
+	 */
+	public boolean isUpToDate(File file) throws IOException
+	{	boolean result;
+		
+		CacheManifest recorded = read(file);
+		if(recorded==null)
+		{	logger.log("No cache manifest found: the cached results are assumed to be up to date");
+			write(file);
+			result = true;
+		}
+		else
+		{	result = entries.equals(recorded.entries);
+			if(!result)
+			{	for(Entry<String,String> entry: entries.entrySet())
+				{	String key = entry.getKey();
+					if(!entry.getValue().equals(recorded.get(key)))
+						logger.log("Cached results outdated: '"+key+"' changed");
+				}
+				for(String key: recorded.entries.keySet())
+				{	if(!entries.containsKey(key))
+						logger.log("Cached results outdated: '"+key+"' removed");
+				}
+			}
+		}
+		
+		return result;
+	}
+}
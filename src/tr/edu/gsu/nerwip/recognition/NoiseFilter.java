@@ -0,0 +1,419 @@
+package tr.edu.gsu.nerwip.recognition;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import tr.edu.gsu.nerwip.tools.file.FileNames;
+import tr.edu.gsu.nerwip.tools.file.FileTools;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+import tr.edu.gsu.nerwip.tools.string.StringTools;
+
+/**
+ * Identifies the detected entities which are just noise: stop-words,
+ * pronouns and numbers. It is used by {@link AbstractRecognizer#filterNoise}.
+ * <br/>
+ * The stop-words and pronouns of a language are read from the files
+ * {@link FileNames#FI_STOP_WORDS} and {@link FileNames#FI_PRONOUNS}, located
+ * in the subfolder of {@link FileNames#FO_NOISE} named after the language code
+ * (one word by line). The lists are then compiled into hash tables, so that 
+ * checking a string does not require scanning the lists, nor allocating any 
+ * object. The comparison ignores case, exactly like {@link String#equalsIgnoreCase(String)}.
+ * <br/>
+ * The filters are immutable, and shared by all the recognizers 
+ * (cf. {@link #getFilter(String)}).
+ * 
+ * @author Vincent Labatut
+ */
+public class NoiseFilter
+{	
+	/**
+	 * Builds a new filter using the specified lists.
+	 * 
+	 * @param language
+	 * 		Code of the language of the lists.
+	 * @param stopWords
+	 * 		List of stop-words.
+	 * @param pronouns
+	 * 		List of pronouns.
+	 */
+	public NoiseFilter(String language, List<String> stopWords, List<String> pronouns)
+	{	this.language = language;
+		this.stopWords = new WordTable(stopWords);
+		this.pronouns = new WordTable(pronouns);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+	
+	/////////////////////////////////////////////////////////////////
+	// LANGUAGE			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Code of the default language (English) */
+	public static final String DEFAULT_LANGUAGE = "en";
+	/** Code of the language of this filter */
+	private final String language;
+	
+	/**
+	 * Returns the code of the language
+	 * handled by this filter.
+	 * 
+	 * @return
+	 * 		Code of the language.
+	 */
+	public String getLanguage()
+	{	return language;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// SHARED FILTERS	/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Filters already loaded, indexed by language */
+	private static final Map<String,NoiseFilter> FILTERS = new HashMap<String,NoiseFilter>();
+	/** English stop-words, used when the corresponding file is missing */
+	private static final List<String> DEFAULT_STOP_WORDS = Arrays.asList(
+		"a", "an",
+		"i", "in",
+		"the"
+	);
+	/** English pronouns, used when the corresponding file is missing */
+	private static final List<String> DEFAULT_PRONOUNS = Arrays.asList(
+		"i", "me", "my", "mine",
+		"you", "your", "yours",
+		"he", "him", "himself", "his",
+		"she", "her", "herself", "hers", 
+		"it", "its",
+		"they", "them", "their"
+	);
+	
+	/**
+	 * Returns the filter associated to the specified
+	 * language. It is loaded the first time, and then
+	 * shared by all the recognizers.
+	 * 
+	 * @param language
+	 * 		Code of the language (e.g. {@code "en"}).
+	 * @return
+	 * 		The corresponding filter.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 		No list could be found for this language.
+	 */
+	public static NoiseFilter getFilter(String language)
+	{	NoiseFilter result;
+		synchronized(FILTERS)
+		{	result = FILTERS.get(language);
+			if(result==null)
+			{	List<String> stopWords = loadList(language, FileNames.FI_STOP_WORDS, DEFAULT_STOP_WORDS);
+				List<String> pronouns = loadList(language, FileNames.FI_PRONOUNS, DEFAULT_PRONOUNS);
+				result = new NoiseFilter(language, stopWords, pronouns);
+				FILTERS.put(language, result);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the filter associated to the default
+	 * language (cf. {@link #DEFAULT_LANGUAGE}).
+	 * 
+	 * @return
+	 * 		The default filter.
+	 */
+	public static NoiseFilter getDefaultFilter()
+	{	NoiseFilter result = getFilter(DEFAULT_LANGUAGE);
+		return result;
+	}
+	
+	/**
+	 * Reads a list of words for the specified language.
+	 * 
+	 * @param language
+	 * 		Code of the language.
+	 * @param fileName
+	 * 		Name of the file containing the list.
+	 * @param defaultList
+	 * 		List used for English, if the file is missing.
+	 * @return
+	 * 		The list of words.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 		The file is missing and there is no default list.
+	 */
+	private static List<String> loadList(String language, String fileName, List<String> defaultList)
+	{	List<String> result = new ArrayList<String>();
+		String path = FileNames.FO_NOISE + File.separator + language + File.separator + fileName;
+		try
+		{	Scanner scanner = FileTools.openTextFileRead(path);
+			while(scanner.hasNextLine())
+			{	String word = scanner.nextLine().trim();
+				if(!word.isEmpty())
+					result.add(word);
+			}
+			scanner.close();
+			logger.log("Read "+result.size()+" words from "+path);
+		}
+		catch(FileNotFoundException e)
+		{	if(language.equals(DEFAULT_LANGUAGE))
+			{	logger.log("WARNING: could not find file "+path+", using the predefined list");
+				result.addAll(defaultList);
+			}
+			else
+				throw new IllegalArgumentException("Could not find file "+path+" for language '"+language+"'",e);
+		}
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// FILTERING		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Stop-words of this language */
+	private final WordTable stopWords;
+	/** Pronouns of this language */
+	private final WordTable pronouns;
+	
+	/**
+	 * Determines if a string represents
+	 * a stop-word.
+	 * 
+	 * @param text
+	 * 		String to check.
+	 * @return
+	 * 		{@code true} iff the string is a stop-word.
+	 */
+	public boolean isStopWord(String text)
+	{	boolean result = stopWords.contains(text);
+		return result;
+	}
+	
+	/**
+	 * Determines if a string represents
+	 * a pronoun.
+	 * 
+	 * @param text
+	 * 		String to check.
+	 * @return
+	 * 		{@code true} iff the string is a pronoun.
+	 */
+	public boolean isPronoun(String text)
+	{	boolean result = pronouns.contains(text);
+		return result;
+	}
+	
+	/**
+	 * Determines if a string represents
+	 * a number, i.e. it contains no letter
+	 * (cf. {@link StringTools#hasNoLetter(String)}).
+	 * 
+	 * @param text
+	 * 		String to check.
+	 * @return
+	 * 		{@code true} iff the string is a number.
+	 */
+	public boolean isNumber(String text)
+	{	boolean result = StringTools.hasNoLetter(text);
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// WORD TABLE		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Case-insensitive set of words, implemented as an open-addressing
+	 * hash table. Its size is chosen so that, when possible, the words
+	 * do not collide: a lookup then needs a single comparison.
+	 */
+	private static class WordTable
+	{	
+		/**
+		 * Builds a table containing the specified words.
+		 * 
+		 * @param words
+		 * 		Words of the table.
+		 */
+		public WordTable(List<String> words)
+		{	// folded versions of the words
+			List<String> folded = new ArrayList<String>();
+			for(String word: words)
+			{	String f = fold(word);
+				if(!folded.contains(f))
+					folded.add(f);
+			}
+			
+			// look for a collision-free size, up to a limit
+			int size = Integer.highestOneBit(Math.max(1,2*folded.size()-1)) << 1;
+			int maxSize = Math.max(size, Integer.highestOneBit(Math.max(1,folded.size())) << MAX_GROWTH);
+			while(size<maxSize && hasCollisions(folded,size))
+				size = size << 1;
+			
+			// fill the table
+			table = new String[size];
+			int maxLength = 0;
+			for(String word: folded)
+			{	int pos = hash(word) & (size-1);
+				while(table[pos]!=null)
+					pos = (pos+1) & (size-1);
+				table[pos] = word;
+				maxLength = Math.max(maxLength, word.length());
+			}
+			this.maxLength = maxLength;
+		}
+		
+		/** Maximal growth of the table, as a power of two of the number of words */
+		private static final int MAX_GROWTH = 6;
+		/** Folded words, at their hashed positions */
+		private final String table[];
+		/** Length of the longest word */
+		private final int maxLength;
+		
+		/**
+		 * Checks whether the specified words can be stored
+		 * in a table of the specified size without collision.
+		 * 
+		 * @param words
+		 * 		Folded words.
+		 * @param size
+		 * 		Size of the table (a power of two).
+		 * @return
+		 * 		{@code true} iff two words have the same position.
+		 */
+		private static boolean hasCollisions(List<String> words, int size)
+		{	boolean used[] = new boolean[size];
+			boolean result = false;
+			for(String word: words)
+			{	int pos = hash(word) & (size-1);
+				result = result || used[pos];
+				used[pos] = true;
+			}
+			return result;
+		}
+		
+		/**
+		 * Folds the case of a character, so that two characters are 
+		 * equal once folded iff they are equal according to 
+		 * {@link String#equalsIgnoreCase(String)}.
+		 * 
+		 * @param c
+		 * 		Character to fold.
+		 * @return
+		 * 		Folded character.
+		 */
+		private static char fold(char c)
+		{	char result = Character.toLowerCase(Character.toUpperCase(c));
+			return result;
+		}
+		
+		/**
+		 * Folds the case of a whole string
+		 * (cf. {@link #fold(char)}).
+		 * 
+		 * @param word
+		 * 		String to fold.
+		 * @return
+		 * 		Folded string.
+		 */
+		private static String fold(String word)
+		{	char chars[] = new char[word.length()];
+			for(int i=0;i<chars.length;i++)
+				chars[i] = fold(word.charAt(i));
+			String result = new String(chars);
+			return result;
+		}
+		
+		/**
+		 * Processes the hash of the folded version of the
+		 * specified string, without building it.
+		 * 
+		 * @param text
+		 * 		String to hash.
+		 * @return
+		 * 		Hash of the folded string.
+		 */
+		private static int hash(String text)
+		{	int result = 0;
+			for(int i=0;i<text.length();i++)
+				result = 31*result + fold(text.charAt(i));
+			// spread the bits, since only the lowest ones are used
+			result = result ^ (result>>>16);
+			return result;
+		}
+		
+		/**
+		 * Checks whether the table contains the specified
+		 * string, ignoring case.
+		 * 
+		 * @param text
+		 * 		String to look for.
+		 * @return
+		 * 		{@code true} iff the string is in the table.
+		 */
+		public boolean contains(String text)
+		{	boolean result = false;
+			if(text.length()<=maxLength)
+			{	int mask = table.length - 1;
+				int pos = hash(text) & mask;
+				String word = table[pos];
+				while(word!=null && !result)
+				{	result = word.length()==text.length() && matches(word,text);
+					pos = (pos+1) & mask;
+					word = table[pos];
+				}
+			}
+			return result;
+		}
+		
+		/**
+		 * Compares a folded word and a string
+		 * of the same length, ignoring case.
+		 * 
+		 * @param word
+		 * 		Folded word.
+		 * @param text
+		 * 		String to compare.
+		 * @return
+		 * 		{@code true} iff they are equal.
+		 */
+		private static boolean matches(String word, String text)
+		{	boolean result = true;
+			int i = 0;
+			while(result && i<word.length())
+			{	result = word.charAt(i)==fold(text.charAt(i));
+				i++;
+			}
+			return result;
+		}
+	}
+}
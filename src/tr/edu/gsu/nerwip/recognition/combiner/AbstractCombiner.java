@@ -35,19 +35,29 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.xml.sax.SAXException;
 
 import tr.edu.gsu.nerwip.data.article.Article;
+import tr.edu.gsu.nerwip.data.article.TextAnnotation;
 import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
 import tr.edu.gsu.nerwip.data.entity.Entities;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.recognition.AbstractConverter;
 import tr.edu.gsu.nerwip.recognition.AbstractRecognizer;
+import tr.edu.gsu.nerwip.recognition.CacheManifest;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
 import tr.edu.gsu.nerwip.recognition.internal.modelless.subee.Subee;
+import tr.edu.gsu.nerwip.tools.file.AsyncFileWriter;
 import tr.edu.gsu.nerwip.tools.file.FileNames;
-import tr.edu.gsu.nerwip.tools.file.FileTools;
 
 /**
  * This class implements a specific type of NER tool:
@@ -103,6 +113,26 @@ public abstract class AbstractCombiner extends AbstractRecognizer
 	 */
 	public abstract String getModelPath();
 	
+	/**
+	 * Returns the files used by this combiner (category
+	 * proportions and vote weights), as well as the model 
+	 * files of the combined NER tools. Files which are not
+	 * used in the current configuration are simply recorded
+	 * as missing in the cache manifests.
+	 * 
+	 * @return
+	 * 		List of the model files.
+	 */
+	@Override
+	public List<File> getModelFiles()
+	{	List<File> result = new ArrayList<File>();
+		result.add(new File(getCategoryProportionsPath()));
+		result.add(new File(getVoteWeightsPath()));
+		for(AbstractRecognizer recognizer: recognizers)
+			result.addAll(recognizer.getModelFiles());
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// CONVERTER		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -206,6 +236,139 @@ public abstract class AbstractCombiner extends AbstractRecognizer
 	/** NER tools used by this combiner */
 	protected final List<AbstractRecognizer> recognizers = new ArrayList<AbstractRecognizer>();
 
+	/** Maximal number of NER tools applied at the same time (the value {@code 1} means the tools are applied sequentially) */
+	protected int threadNbr = 1;
+	/** Maximal duration allowed for each NER tool on one article, in ms ({@code 0} for no limit) */
+	protected long recognizerTimeout = 0;
+	/** Threads used to apply the NER tools concurrently (created on first use) */
+	private ExecutorService executor = null;
+	/** Tasks interrupted before completion (time limit exceeded, or failure of another tool), whose NER tool may still be running */
+	private final List<RecognizerTask> abandonedTasks = new ArrayList<RecognizerTask>();
+	
+	/**
+	 * Changes the maximal number of NER tools
+	 * this combiner applies at the same time. 
+	 * The value {@code 1} (default) means the tools
+	 * are applied sequentially.
+	 * <br/>
+	 * The threads are created when first needed, and
+	 * then reused for all the articles, until 
+	 * {@link #shutdownThreads()} is called.
+	 * 
+	 * @param threadNbr
+	 * 		New number of threads.
+	 */
+	public synchronized void setThreadNumber(int threadNbr)
+	{	if(threadNbr<1)
+			throw new IllegalArgumentException("The number of threads must be at least 1 ("+threadNbr+")");
+		if(threadNbr!=this.threadNbr)
+			shutdownThreads();
+		this.threadNbr = threadNbr;
+	}
+	
+	/**
+	 * Returns the maximal number of NER tools
+	 * this combiner applies at the same time.
+	 * 
+	 * @return
+	 * 		Number of threads used.
+	 */
+	public int getThreadNumber()
+	{	return threadNbr;
+	}
+	
+	/**
+	 * Changes the maximal duration allowed
+	 * for each NER tool, when processing one
+	 * article. It is counted from the moment
+	 * the tool actually starts. This limit is
+	 * enforced only when the tools are applied
+	 * concurrently (i.e. more than one thread).
+	 * <br/>
+	 * A tool exceeding this limit is interrupted, but
+	 * it may ignore the interruption and keep running
+	 * in the background. Since most tools are not 
+	 * thread-safe, this combiner then refuses to process
+	 * other articles until the tool actually stops. The 
+	 * same holds for the tools interrupted because another
+	 * one failed.
+	 * 
+	 * @param recognizerTimeout
+	 * 		Duration in ms, or {@code 0} for no limit.
+	 */
+	public void setRecognizerTimeout(long recognizerTimeout)
+	{	this.recognizerTimeout = recognizerTimeout;
+	}
+	
+	/**
+	 * Returns the maximal duration allowed
+	 * for each NER tool, when processing one
+	 * article.
+	 * 
+	 * @return
+	 * 		Duration in ms, or {@code 0} for no limit.
+	 */
+	public long getRecognizerTimeout()
+	{	return recognizerTimeout;
+	}
+	
+	/**
+	 * Returns the threads used to apply the NER tools
+	 * concurrently, after having created them if necessary.
+	 * They do not prevent the JVM from exiting.
+	 * 
+	 * @return
+	 * 		The executor of this combiner.
+	 */
+	private synchronized ExecutorService getExecutor()
+	{	if(executor==null)
+		{	executor = Executors.newFixedThreadPool(threadNbr, new ThreadFactory()
+			{	@Override
+				public Thread newThread(Runnable runnable)
+				{	// a tool stuck after its time limit must not prevent the JVM from exiting
+					Thread result = new Thread(runnable);
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	/**
+	 * Releases the threads used to apply the 
+	 * NER tools concurrently. This should be called
+	 * once the combiner is not needed anymore. If it
+	 * is used again afterwards, new threads are created.
+	 */
+	public synchronized void shutdownThreads()
+	{	if(executor!=null)
+		{	executor.shutdownNow();
+			executor = null;
+		}
+	}
+	
+	/**
+	 * Checks whether some NER tool which was previously
+	 * interrupted (e.g. because it exceeded its time limit) 
+	 * is still running.
+	 * 
+	 * @throws RecognizerException
+	 * 		Some NER tool is still running in the background.
+	 */
+	private void checkAbandonedTasks() throws RecognizerException
+	{	synchronized(abandonedTasks)
+		{	Iterator<RecognizerTask> it = abandonedTasks.iterator();
+			while(it.hasNext())
+			{	RecognizerTask task = it.next();
+				if(task.running)
+					throw new RecognizerException(task.recognizer.getName()+" is still processing article "+task.article.getName()+", although it was interrupted");
+				else
+					it.remove();
+			}
+		}
+	}
+	
 	/**
 	 * Returns the list of recognizers used
 	 * by this combiner.
@@ -217,6 +380,15 @@ public abstract class AbstractCombiner extends AbstractRecognizer
 	{	return recognizers;
 	}
 	
+	/**
+	 * Warms up all the NER tools used by this combiner.
+	 */
+	@Override
+	public void warmUp()
+	{	for(AbstractRecognizer recognizer: recognizers)
+			recognizer.warmUp();
+	}
+	
 	/**
 	 * Creates the objects representing
 	 * the NER tools used by this combiner.
@@ -226,6 +398,191 @@ public abstract class AbstractCombiner extends AbstractRecognizer
 	 */
 	protected abstract void initRecognizers() throws RecognizerException;
 	
+	/**
+	 * Applies a single NER tool to the specified article,
+	 * and keeps only the entities whose type is handled
+	 * by this combiner.
+	 * 
+	 * @param recognizer
+	 * 		NER tool to apply.
+	 * @param article
+	 * 		Article to be processed.
+	 * @return
+	 * 		Filtered entities detected by the NER tool.
+	 * 
+	 * @throws RecognizerException
+	 * 		Problem while applying the NER tool. 
+	 */
+	protected Entities applyRecognizer(AbstractRecognizer recognizer, Article article) throws RecognizerException
+	{	// apply the NER tool
+		Entities result = recognizer.process(article);
+		// keep only the relevant types
+		logger.log("Filter entities by type");
+		filterType(result);
+		return result;
+	}
+	
+	/**
+	 * Applies all the NER tools of this combiner
+	 * at the same time, each one in its own thread
+	 * (up to {@link #threadNbr} threads). The method
+	 * returns when all the tools are done, or throws
+	 * an exception as soon as one of them fails or 
+	 * exceeds its time limit ({@link #recognizerTimeout}).
+	 * 
+	 * @param article
+	 * 		Article to be processed.
+	 * @return
+	 * 		Map of the filtered entities detected by each NER tool.
+	 * 
+	 * @throws RecognizerException
+	 * 		Problem while applying one of the NER tools. 
+	 */
+	protected Map<AbstractRecognizer,Entities> applyRecognizersConcurrently(final Article article) throws RecognizerException
+	{	logger.log("Using "+Math.min(threadNbr,recognizers.size())+" threads for "+recognizers.size()+" NER tools");
+		Map<AbstractRecognizer,Entities> result = new HashMap<AbstractRecognizer,Entities>();
+		
+		// submit all the NER tools
+		ExecutorService executor = getExecutor();
+		List<RecognizerTask> tasks = new ArrayList<RecognizerTask>();
+		try
+		{	for(AbstractRecognizer recognizer: recognizers)
+			{	RecognizerTask task = new RecognizerTask(recognizer,article);
+				task.future = executor.submit(task);
+				tasks.add(task);
+			}
+			
+			// collect their results
+			for(RecognizerTask task: tasks)
+			{	Entities temp = task.waitForResult();
+				result.put(task.recognizer,temp);
+			}
+		}
+		finally
+		{	// if some tool failed, the others are not needed anymore
+			for(RecognizerTask task: tasks)
+			{	if(!task.future.isDone())
+				{	task.future.cancel(true);
+					synchronized(abandonedTasks)
+					{	abandonedTasks.add(task);
+					}
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Applies one NER tool to an article, and
+	 * records when it started, so that its
+	 * time limit can be checked.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	private class RecognizerTask implements Callable<Entities>
+	{	
+		/**
+		 * Builds a new task for the specified
+		 * NER tool and article.
+		 * 
+		 * @param recognizer
+		 * 		NER tool to apply.
+		 * @param article
+		 * 		Article to be processed.
+		 */
+		public RecognizerTask(AbstractRecognizer recognizer, Article article)
+		{	this.recognizer = recognizer;
+			this.article = article;
+		}
+		
+		/** NER tool to apply */
+		private final AbstractRecognizer recognizer;
+		/** Article to process */
+		private final Article article;
+		/** Future representing the task once submitted */
+		private Future<Entities> future;
+		/** Time the task actually started ({@code 0} if not started yet) */
+		private volatile long startTime = 0;
+		/** Whether the NER tool is currently being applied (even if the task was cancelled) */
+		private volatile boolean running = false;
+		
+		@Override
+		public Entities call() throws Exception
+		{	Entities result;
+			running = true;
+			try
+			{	startTime = System.currentTimeMillis();
+				result = applyRecognizer(recognizer, article);
+			}
+			finally
+			{	running = false;
+			}
+			return result;
+		}
+		
+		/**
+		 * Waits for the task to complete, and
+		 * returns its result. If the time limit is
+		 * exceeded, the task is cancelled. 
+		 * 
+		 * @return
+		 * 		Entities detected by the NER tool.
+		 * 
+		 * @throws RecognizerException
+		 * 		Problem while applying the NER tool, or time limit exceeded.
+		 */
+		public Entities waitForResult() throws RecognizerException
+		{	Entities result = null;
+			
+			try
+			{	if(recognizerTimeout<=0)
+					result = future.get();
+				else
+				{	while(result==null)
+					{	// the limit is counted from the moment the tool actually starts
+						long wait = recognizerTimeout;
+						if(startTime>0)
+							wait = startTime + recognizerTimeout - System.currentTimeMillis();
+						if(wait<=0)
+							throw new TimeoutException();
+						try
+						{	result = future.get(wait,TimeUnit.MILLISECONDS);
+						}
+						catch(TimeoutException e)
+						{	if(startTime>0 && System.currentTimeMillis()-startTime>=recognizerTimeout)
+								throw e;
+						}
+					}
+				}
+			}
+			catch(TimeoutException e)
+			{	future.cancel(true);
+				synchronized(abandonedTasks)
+				{	abandonedTasks.add(this);
+				}
+				String msg = recognizer.getName()+" exceeded its time limit ("+recognizerTimeout+" ms) on article "+article.getName();
+				logger.log("ERROR: "+msg);
+				throw new RecognizerException(msg);
+			}
+			catch(InterruptedException e)
+			{	future.cancel(true);
+				throw new RecognizerException(e.getMessage());
+			}
+			catch(ExecutionException e)
+			{	Throwable cause = e.getCause();
+				if(cause instanceof RecognizerException)
+					throw (RecognizerException)cause;
+				else
+				{	e.printStackTrace();
+					throw new RecognizerException(cause.getMessage());
+				}
+			}
+			
+			return result;
+		}
+	}
+	
 	/**
 	 * Applies this combiner to the specified article,
 	 * and returns a list of the detected entities.
@@ -239,17 +596,18 @@ public abstract class AbstractCombiner extends AbstractRecognizer
 	 * 		Problem while applying the combiner. 
 	 */
 	protected Entities applyRecognizers(Article article) throws RecognizerException
-	{	logger.log("Apply each NER tool separately");
+	{	checkAbandonedTasks();
+		logger.log("Apply each NER tool separately");
 		logger.increaseOffset();
-		Map<AbstractRecognizer,Entities> entities = new HashMap<AbstractRecognizer,Entities>();
-		for(AbstractRecognizer recognizer: recognizers)
-		{	// apply the NER tool
-			Entities temp = recognizer.process(article);
-			// keep only the relevant types
-			logger.log("Filter entities by type");
-			filterType(temp);
-			// add to map
-			entities.put(recognizer, temp);
+		Map<AbstractRecognizer,Entities> entities;
+		if(threadNbr>1 && recognizers.size()>1)
+			entities = applyRecognizersConcurrently(article);
+		else
+		{	entities = new HashMap<AbstractRecognizer,Entities>();
+			for(AbstractRecognizer recognizer: recognizers)
+			{	Entities temp = applyRecognizer(recognizer, article);
+				entities.put(recognizer, temp);
+			}
 		}
 		logger.decreaseOffset();
 		
@@ -311,9 +669,11 @@ public abstract class AbstractCombiner extends AbstractRecognizer
 		Entities result = null;
 		
 		try
-		{	// checks if the result file already exists
-			File dataFile = converter.getXmlFile(article);
-			boolean processNeedeed = !dataFile.exists();
+		{	// checks if the result file already exists, and was computed from the current inputs
+			CacheManifest manifest = null;
+			if(CacheManifest.isEnabled())
+				manifest = CacheManifest.build(this,article);
+			boolean processNeedeed = !converter.hasUpToDateResults(article,binaryResults,manifest);
 			
 			// if needed, we process the text
 			if(!cache || processNeedeed)
@@ -322,14 +682,16 @@ public abstract class AbstractCombiner extends AbstractRecognizer
 				result = applyRecognizers(article);
 				
 				// record entities using our xml format
-				logger.log("Record entities using our XML format");
-				converter.writeXmlResults(article,result);
+				logger.log("Record entities using our "+(binaryResults?"binary":"XML")+" format");
+				converter.writeResults(article,result,binaryResults);
+				if(manifest!=null)
+					manifest.write(converter.getManifestFile(article));
 			}
 			
 			// if the results already exist, we fetch them
 			else
 			{	logger.log("Loading entities from cached file");
-				result = converter.readXmlResults(article);
+				result = converter.readResults(article,binaryResults);
 			}
 		}
 		catch(FileNotFoundException e)
@@ -560,6 +922,25 @@ public abstract class AbstractCombiner extends AbstractRecognizer
 	/////////////////////////////////////////////////////////////////
 	// CONVERSION		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	/** Segmenter used to break texts into words */
+	protected static final WordSegmenter WORD_SEGMENTER = new WordSegmenter();
+	
+	/**
+	 * Returns the words of the raw text of the specified
+	 * article, as identified by {@link #getWordListFromText(String)},
+	 * with their positions. This segmentation is computed only once 
+	 * and cached by the article.
+	 * 
+	 * @param article
+	 * 		Article to process.
+	 * @return
+	 * 		Annotation containing the words of the article.
+	 */
+	public TextAnnotation getWordAnnotation(Article article)
+	{	TextAnnotation result = article.getAnnotation(WORD_SEGMENTER);
+		return result;
+	}
+	
 	/**
 	 * Splits a text using whitespaces and punctuation.
 	 * Returns a list of strings corresponding (roughly)
@@ -625,6 +1006,6 @@ public abstract class AbstractCombiner extends AbstractRecognizer
 		if(!folder.exists())
 			folder.mkdirs();
 		
-		FileTools.writeTextFile(file, results);
+		AsyncFileWriter.write(file, results);
 	}
 }
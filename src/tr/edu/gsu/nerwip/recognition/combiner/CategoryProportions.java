@@ -119,8 +119,14 @@ public class CategoryProportions extends HashMap<ArticleCategory,Float>
 			// get article
 			logger.log("Retrieve article");
 			String name = folder.getName();
-			URL url = new URL("http://en.wikipedia.org/wiki/"+name);
-			Article article = retriever.process(url);
+			Article article;
+			// only the categories are needed here
+			if(Article.isCached(name))
+				article = Article.readMetadata(name);
+			else
+			{	URL url = new URL("http://en.wikipedia.org/wiki/"+name);
+				article = retriever.process(url);
+			}
 			
 			// process categories
 			List<ArticleCategory> cats = article.getCategories();
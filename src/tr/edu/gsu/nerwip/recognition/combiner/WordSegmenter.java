@@ -0,0 +1,109 @@
+package tr.edu.gsu.nerwip.recognition.combiner;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+import tr.edu.gsu.nerwip.data.article.TextAnnotation;
+import tr.edu.gsu.nerwip.data.article.TextSegmenter;
+
+/**
+ * Segmenter producing the same words as 
+ * {@link AbstractCombiner#getWordListFromText(String)}, 
+ * i.e. splitting the trimmed text using whitespaces and 
+ * punctuation, but also retaining the position of each word. 
+ * The whole text is considered as a single sentence.
+ * <br/>
+ * This class is stateless, and can therefore be shared.
+ * 
+ * @author Vincent Labatut
+ */
+public class WordSegmenter implements TextSegmenter
+{	
+	/////////////////////////////////////////////////////////////////
+	// NAME				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Name of this segmenter */
+	private static final String NAME = "Words";
+	
+	@Override
+	public String getSegmenterName()
+	{	return NAME;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// SEGMENTATION		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Characters separating words, i.e. those matched by {@code [\p{Punct}\s]} */
+	private static final String SEPARATORS = "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~ \t\n\u000B\f\r";
+	
+	/**
+	 * Checks whether the specified character
+	 * separates words.
+	 * 
+	 * @param c
+	 * 		Character to check.
+	 * @return
+	 * 		{@code true} iff the character is a separator.
+	 */
+	private boolean isSeparator(char c)
+	{	boolean result = SEPARATORS.indexOf(c)!=-1;
+		return result;
+	}
+	
+	@Override
+	public TextAnnotation segment(String text)
+	{	// same bounds as String.trim()
+		int start = 0;
+		int end = text.length();
+		while(start<end && text.charAt(start)<=' ')
+			start++;
+		while(start<end && text.charAt(end-1)<=' ')
+			end--;
+		
+		// identify the words
+		int[] starts = new int[(end-start+1)/2];
+		int[] ends = new int[starts.length];
+		int count = 0;
+		int pos = start;
+		while(pos<end)
+		{	while(pos<end && isSeparator(text.charAt(pos)))
+				pos++;
+			if(pos<end)
+			{	starts[count] = pos;
+				while(pos<end && !isSeparator(text.charAt(pos)))
+					pos++;
+				ends[count] = pos;
+				count++;
+			}
+		}
+		
+		int[] tokenStarts = new int[count];
+		int[] tokenEnds = new int[count];
+		System.arraycopy(starts, 0, tokenStarts, 0, count);
+		System.arraycopy(ends, 0, tokenEnds, 0, count);
+		int[] sentenceStarts = {start};
+		int[] sentenceEnds = {end};
+		TextAnnotation result = new TextAnnotation(text, sentenceStarts, sentenceEnds, tokenStarts, tokenEnds);
+		return result;
+	}
+}
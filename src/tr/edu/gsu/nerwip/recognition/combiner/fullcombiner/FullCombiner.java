@@ -31,6 +31,7 @@ import java.util.Map;
 import tr.edu.gsu.nerwip.data.article.Article;
 import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
 import tr.edu.gsu.nerwip.data.entity.Entities;
+import tr.edu.gsu.nerwip.data.entity.EntityIndex;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.recognition.AbstractRecognizer;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
@@ -226,9 +227,12 @@ public class FullCombiner extends AbstractCombiner
 		AbstractRecognizer combiner = recognizers.get(1);
 		Entities ents = entities.get(combiner);
 		List<AbstractEntity<?>> entList = ents.getEntities();
+		EntityIndex index = result.buildIndex();
 		for(AbstractEntity<?> entity: entList)
-		{	if(!result.isEntityOverlapping(entity))
-				result.addEntity(entity);
+		{	if(!entity.overlapsWithOne(index))
+			{	result.addEntity(entity);
+				index.add(entity);
+			}
 		}
 		
 		logger.decreaseOffset();
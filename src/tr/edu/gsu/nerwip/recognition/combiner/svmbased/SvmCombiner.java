@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -38,6 +39,7 @@ import libsvm.svm;
 import libsvm.svm_model;
 import libsvm.svm_node;
 import tr.edu.gsu.nerwip.data.article.Article;
+import tr.edu.gsu.nerwip.data.article.TextAnnotation;
 import tr.edu.gsu.nerwip.data.article.ArticleCategory;
 import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
 import tr.edu.gsu.nerwip.data.entity.Entities;
@@ -326,6 +328,13 @@ public class SvmCombiner extends AbstractCombiner
 		return result;
 	}
 	
+	@Override
+	public List<File> getModelFiles()
+	{	List<File> result = super.getModelFiles();
+		result.add(new File(getSvmModelPath()));
+		return result;
+	}
+	
 	/**
 	 * Loads the previously trained SVM model,
 	 * to be used by this class to combine
@@ -959,127 +968,95 @@ public class SvmCombiner extends AbstractCombiner
 	 * @param entities
 	 * 		Previously detected entities, to be compared with the article words.
 	 * @return
-	 * 		List of word-entity maps: each map corresponds to one word with at least
-	 * 		an overlap with a previously detected entity.
+	 * 		List of word-entity maps: each map corresponds to one word, and
+	 * 		contains its overlaps with the previously detected entities. Words
+	 * 		without any overlap share the same empty (unmodifiable) map.
 	 */
 	protected List<Map<AbstractRecognizer,WordEntity>> identifyWordEntityOverlaps(Article article, Map<AbstractRecognizer,Entities> entities)
 	{	List<Map<AbstractRecognizer,WordEntity>> result = new ArrayList<Map<AbstractRecognizer, WordEntity>>();
 		
 		// break text into words
-		String rawText = article.getRawText();
-		List<String> words = getWordListFromText(rawText);
-		logger.log("Break raw text into words: "+words.size()+" words found");
-		Iterator<String> itWord = words.iterator();
-		int wordStart = 0; 
-		int wordEnd = 0;
+		TextAnnotation words = getWordAnnotation(article);
+		int wordCount = words.getTokenCount();
+		logger.log("Break raw text into words: "+wordCount+" words found");
 		
-		// build an iterator for each NER tool
+		// build a cursor for each NER tool
 		logger.log("Build all needed structures");
-		List<AbstractRecognizer> recognizers = new ArrayList<AbstractRecognizer>(entities.keySet());
-		Map<AbstractRecognizer,Iterator<AbstractEntity<?>>> iterators = new HashMap<AbstractRecognizer,Iterator<AbstractEntity<?>>>();
-		Map<AbstractRecognizer,AbstractEntity<?>> currentEntities = new HashMap<AbstractRecognizer,AbstractEntity<?>>();
-		Map<AbstractRecognizer,Integer> currentIndices = new HashMap<AbstractRecognizer,Integer>();
-		Iterator<AbstractRecognizer> itR = recognizers.iterator();
-		while(itR.hasNext())
-		{	AbstractRecognizer recognizer = itR.next();
-			Entities e = entities.get(recognizer);
-			Iterator<AbstractEntity<?>> it = e.getEntities().iterator();
-			if(it.hasNext())
-			{	AbstractEntity<?> entity = it.next();
-				currentEntities.put(recognizer, entity);
-				currentIndices.put(recognizer, 0);
-				iterators.put(recognizer,it);
-			}
-			else
-			{	itR.remove();
+		int size = entities.size();
+		AbstractRecognizer recognizers[] = new AbstractRecognizer[size];
+		AbstractEntity<?> entityArrays[][] = new AbstractEntity<?>[size][];
+		int cursors[] = new int[size];
+		int active = 0;
+		for(Entry<AbstractRecognizer,Entities> entry: entities.entrySet())
+		{	AbstractRecognizer recognizer = entry.getKey();
+			List<AbstractEntity<?>> list = entry.getValue().getEntities();
+			if(list.isEmpty())
 				logger.log("WARNING: NER tool "+recognizer+" did not find any entity for this article, which is possibly worth checking");
+			else
+			{	recognizers[active] = recognizer;
+				entityArrays[active] = list.toArray(new AbstractEntity<?>[list.size()]);
+				active++;
 			}
 		}
 		
 		// process each word in the text
 		logger.log("Process separately each word in the text");
-		logger.increaseOffset();
-		while(itWord.hasNext() && !iterators.isEmpty())
+		Map<AbstractRecognizer,WordEntity> noEntity = Collections.emptyMap();
+		int w = 0;
+		while(w<wordCount && active>0)
 		{	// get the next word
-			String word = itWord.next();
-			wordStart = rawText.indexOf(word,wordEnd);
-			wordEnd = wordStart + word.length();
-//			logger.log("Processing word \""+word+"\" ("+wordStart+"-"+wordEnd+")");
-			logger.increaseOffset();
+			int wordStart = words.getTokenStart(w);
+			int wordEnd = words.getTokenEnd(w);
+			w++;
 			
 			// get entities containing this word or overlapping it
-//			logger.log("Comparing the word to each NER output");
-			logger.increaseOffset();
-			Map<AbstractRecognizer,WordEntity> wordEntities = new HashMap<AbstractRecognizer,WordEntity>();
-//			Map<AbstractRecognizer,EntityType> ovTypes = new HashMap<AbstractRecognizer,EntityType>();
-//			Map<AbstractRecognizer,AbstractEntity<?>> ovEntities = new HashMap<AbstractRecognizer,AbstractEntity<?>>();
-//			Map<AbstractRecognizer,Boolean> ovBeginnings = new HashMap<AbstractRecognizer,Boolean>();
-			Iterator<AbstractRecognizer> itRec = recognizers.iterator();
-			while(itRec.hasNext())
-			{	AbstractRecognizer recognizer = itRec.next();
-//				logger.log("Managing NER "+recognizer);
-				logger.increaseOffset();
-				AbstractEntity<?> currentEntity = currentEntities.get(recognizer);
-				Iterator<AbstractEntity<?>> it = iterators.get(recognizer);
-				PositionRelation posRel;
+			Map<AbstractRecognizer,WordEntity> wordEntities = noEntity;
+			int r = 0;
+			while(r<active)
+			{	AbstractEntity<?> array[] = entityArrays[r];
+				int cursor = cursors[r];
+				AbstractEntity<?> currentEntity = array[cursor];
+				PositionRelation posRel = PositionRelation.getRelation(currentEntity,wordStart,wordEnd);
 				
 				// go to the appropriate entity for the current NER tool
-				do
-				{	posRel = PositionRelation.getRelation(currentEntity,wordStart,wordEnd);
-//					logger.log("Current entity [posRel="+posRel+"]: "+currentEntity);
-					if(posRel==PositionRelation.COMPLETE_PRECEDES && it.hasNext())
-					{	currentEntity = it.next();
-						currentEntities.put(recognizer, currentEntity);
-					}
+				while(posRel==PositionRelation.COMPLETE_PRECEDES && cursor<array.length-1)
+				{	cursor++;
+					currentEntity = array[cursor];
+					posRel = PositionRelation.getRelation(currentEntity,wordStart,wordEnd);
 				}
-				while(posRel==PositionRelation.COMPLETE_PRECEDES && it.hasNext());
+				cursors[r] = cursor;
 				
 				// if no more entities, remove NER tool from list
 				if(posRel==PositionRelation.COMPLETE_PRECEDES)
-				{	
-//					logger.log(posRel+" >> no more entity >> "+recognizer+" is removed from the list");
-					itRec.remove();
-					iterators.remove(recognizer);
-					currentEntities.remove(recognizer);
-					currentIndices.remove(recognizer);
+				{	active--;
+					for(int i=r;i<active;i++)
+					{	recognizers[i] = recognizers[i+1];
+						entityArrays[i] = entityArrays[i+1];
+						cursors[i] = cursors[i+1];
+					}
 				}
 				
 				// if the entity does not overlap, ignore it for now
 				else if(posRel==PositionRelation.COMPLETE_SUCCEDES)
-				{	
-//					logger.log(posRel+" >> no overlap >> nothing to do ");
-				}
+					r++;
 				
 				// otherwise we work on the overlap
 				else
 				{	WordEntity wordEntity = new WordEntity();
 					int entityStart = currentEntity.getStartPos();
-					if(wordStart<=entityStart)
-					{	wordEntity.setBeginning(true);
-//						logger.log(posRel+" word is at the beginning of the entity");
-					}
-					else
-					{	wordEntity.setBeginning(false);
-//						logger.log(posRel+" word is inside the entity");
-					}
+					wordEntity.setBeginning(wordStart<=entityStart);
 					wordEntity.setStartPosition(wordStart);
 					wordEntity.setEndPosition(wordEnd);
 					wordEntity.setEntity(currentEntity);
-					wordEntities.put(recognizer, wordEntity);
+					if(wordEntities==noEntity)
+						wordEntities = new HashMap<AbstractRecognizer,WordEntity>();
+					wordEntities.put(recognizers[r], wordEntity);
+					r++;
 				}
-				
-				logger.decreaseOffset();
 			}
 			
-//			if(wordEntities.isEmpty())
-//				logger.log("No entity at all found for the considered word");
-//			else
-				result.add(wordEntities);
-			
-			logger.decreaseOffset();
-			logger.decreaseOffset();
+			result.add(wordEntities);
 		}
-		logger.decreaseOffset();
 		
 		return result;
 	}
@@ -519,9 +519,7 @@ public class SvmTrainer
 		Boolean prevBeginning = null;
 		EntityType prevType = null;
 		for(Map<AbstractRecognizer,WordEntity> weMap: wordEntities)
-		{	Map<AbstractRecognizer,WordEntity> estimations = weMap;
-			
-			if(weMap.isEmpty())
+		{	if(weMap.isEmpty())
 			{	prevBeginning = null;
 				prevType = null;
 			}
@@ -529,19 +527,17 @@ public class SvmTrainer
 			else
 			{	WordEntity refWe = weMap.get(null);
 				
-				// remove reference word-entity
+				// the reference word-entity does not need to be removed, since
+				// the combiner only looks up the word-entities of its own tools
 				if(refWe!=null)
 				{	String word = rawText.substring(refWe.getStartPosition(),refWe.getEndPosition());
 					logger.log("Processing word \""+word+"\" ("+refWe.getEntity()+")");
-					
-					estimations = new HashMap<AbstractRecognizer, WordEntity>(weMap);
-					estimations.remove(null);
 				}
 				else
 					logger.log("Reference word is empty");
 				
 				// convert entities
-				convertEntityWordToSvm(result,index,article,prevType,prevBeginning,refWe,estimations);
+				convertEntityWordToSvm(result,index,article,prevType,prevBeginning,refWe,weMap);
 				
 				// update previous info
 				if(refWe==null)
@@ -24,7 +24,6 @@ package tr.edu.gsu.nerwip.recognition.external;
  * If not, see <http://www.gnu.org/licenses/>.
  */
 
-import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 
@@ -33,6 +32,7 @@ import org.xml.sax.SAXException;
 import tr.edu.gsu.nerwip.data.article.Article;
 import tr.edu.gsu.nerwip.data.entity.Entities;
 import tr.edu.gsu.nerwip.recognition.AbstractRecognizer;
+import tr.edu.gsu.nerwip.recognition.CacheManifest;
 import tr.edu.gsu.nerwip.recognition.ConverterException;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
 import tr.edu.gsu.nerwip.recognition.internal.AbstractInternalRecognizer;
@@ -82,9 +82,11 @@ public abstract class AbstractExternalRecognizer<T extends AbstractExternalConve
 		Entities result = null;
 		
 		try
-		{	// checks if the result file already exists
-			File dataFile = converter.getXmlFile(article);
-			boolean processNeedeed = !dataFile.exists();
+		{	// checks if the result file already exists, and was computed from the current inputs
+			CacheManifest manifest = null;
+			if(CacheManifest.isEnabled())
+				manifest = CacheManifest.build(this,article);
+			boolean processNeedeed = !converter.hasUpToDateResults(article,binaryResults,manifest);
 			
 			// if needed, we process the text
 			if(!cache || processNeedeed)
@@ -110,8 +112,10 @@ public abstract class AbstractExternalRecognizer<T extends AbstractExternalConve
 				filterRedundancy(result);
 				
 				// record entities using our xml format
-				logger.log("Record entities using our XML format");
-				converter.writeXmlResults(article,result);
+				logger.log("Record entities using our "+(binaryResults?"binary":"XML")+" format");
+				converter.writeResults(article,result,binaryResults);
+				if(manifest!=null)
+					manifest.write(converter.getManifestFile(article));
 				
 				// possibly remove the raw output file
 				if(outRawResults)
@@ -124,7 +128,7 @@ public abstract class AbstractExternalRecognizer<T extends AbstractExternalConve
 			
 			// if the results already exist, we fetch them
 			else
-			{	result = converter.readXmlResults(article);
+			{	result = converter.readResults(article,binaryResults);
 			}
 		}
 		catch (ConverterException e)
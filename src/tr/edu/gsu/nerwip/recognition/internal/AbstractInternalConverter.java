@@ -32,7 +32,7 @@ import tr.edu.gsu.nerwip.data.entity.Entities;
 import tr.edu.gsu.nerwip.recognition.AbstractConverter;
 import tr.edu.gsu.nerwip.recognition.ConverterException;
 import tr.edu.gsu.nerwip.recognition.RecognizerName;
-import tr.edu.gsu.nerwip.tools.file.FileTools;
+import tr.edu.gsu.nerwip.tools.file.AsyncFileWriter;
 
 /**
  * This class represents a converter for an internal NER tool,
@@ -102,7 +102,7 @@ public abstract class AbstractInternalConverter<T> extends AbstractConverter
 		if(!folder.exists())
 			folder.mkdirs();
 		
-		FileTools.writeTextFile(file, results);
+		AsyncFileWriter.write(file, results);
 	}
 
 	/**
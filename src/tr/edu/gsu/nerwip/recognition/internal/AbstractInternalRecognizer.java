@@ -24,7 +24,6 @@ package tr.edu.gsu.nerwip.recognition.internal;
  * If not, see <http://www.gnu.org/licenses/>.
  */
 
-import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 
@@ -34,6 +33,7 @@ import tr.edu.gsu.nerwip.data.article.Article;
 import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
 import tr.edu.gsu.nerwip.data.entity.Entities;
 import tr.edu.gsu.nerwip.recognition.AbstractRecognizer;
+import tr.edu.gsu.nerwip.recognition.CacheManifest;
 import tr.edu.gsu.nerwip.recognition.ConverterException;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
 
@@ -81,6 +81,14 @@ public abstract class AbstractInternalRecognizer<U,T extends AbstractInternalCon
 	 */
 	protected abstract void prepareRecognizer() throws RecognizerException;
 	
+	/**
+	 * Possibly performs some operations once the
+	 * recognizer has been applied. It is called after
+	 * each call to {@link #prepareRecognizer()}, even
+	 * if the detection failed.
+	 */
+	protected abstract void finishRecognizer();
+	
 	/////////////////////////////////////////////////////////////////
 	// CONVERTER		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -97,16 +105,24 @@ public abstract class AbstractInternalRecognizer<U,T extends AbstractInternalCon
 		Entities result = null;
 		
 		try
-		{	// checks if the result file already exists
-			File dataFile = converter.getXmlFile(article);
-			boolean processNeedeed = !dataFile.exists();
+		{	// checks if the result file already exists, and was computed from the current inputs
+			CacheManifest manifest = null;
+			if(CacheManifest.isEnabled())
+				manifest = CacheManifest.build(this,article);
+			boolean processNeedeed = !converter.hasUpToDateResults(article,binaryResults,manifest);
 			
 			// if needed, we process the text
 			if(!cache || processNeedeed)
 			{	// apply the NER tool
 				logger.log("Detect the entities");
 				prepareRecognizer();
-				U intRes = detectEntities(article);
+				U intRes;
+				try
+				{	intRes = detectEntities(article);
+				}
+				finally
+				{	finishRecognizer();
+				}
 				
 				// possibly record entities as they are outputted (useful for debug)
 				if(outRawResults)
@@ -140,14 +156,16 @@ public abstract class AbstractInternalRecognizer<U,T extends AbstractInternalCon
 				filterRedundancy(result);
 				
 				// record entities using our xml format
-				logger.log("Convert entities to our XML format");
-				converter.writeXmlResults(article,result);
+				logger.log("Convert entities to our "+(binaryResults?"binary":"XML")+" format");
+				converter.writeResults(article,result,binaryResults);
+				if(manifest!=null)
+					manifest.write(converter.getManifestFile(article));
 			}
 			
 			// if the results already exist, we fetch them
 			else
 			{	logger.log("Loading entities from cached file");
-				result = converter.readXmlResults(article);
+				result = converter.readResults(article,binaryResults);
 			}
 		}
 		catch (IOException e)
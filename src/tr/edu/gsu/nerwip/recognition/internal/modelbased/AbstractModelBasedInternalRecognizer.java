@@ -25,6 +25,11 @@ package tr.edu.gsu.nerwip.recognition.internal.modelbased;
  */
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
 
 import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
@@ -79,10 +84,148 @@ public abstract class AbstractModelBasedInternalRecognizer<U,T extends AbstractI
 	/////////////////////////////////////////////////////////////////
 	// MISC				/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	/** Number of detections currently performed by this recognizer (its model cannot be evicted meanwhile) */
+	private int activeDetections = 0;
+	/** 
+	 * Lock protecting the loading and eviction of the model. It is distinct from the 
+	 * monitor of the recognizer, which other classes can hold during the whole 
+	 * processing (e.g. {@link tr.edu.gsu.nerwip.recognition.BatchProcessor BatchProcessor}),
+	 * and {@link #evictModel()} only tries to acquire it, so that the {@link ModelRegistry}
+	 * never waits for a busy recognizer.
+	 */
+	private final ReentrantLock modelLock = new ReentrantLock();
+	
 	@Override
 	protected void prepareRecognizer() throws RecognizerException
-	{	if(!isLoadedModel())
-			loadModel();
+	{	// possibly report a failed background loading
+		RecognizerException e = warmUpException;
+		if(e!=null)
+		{	warmUpException = null;
+			e.printStackTrace();
+			logger.log("WARNING: could not load the model of "+getName()+" in the background, it is now loaded on demand");
+		}
+		
+		modelLock.lock();
+		try
+		{	if(!isLoadedModel())
+				loadModel();
+			else
+				ModelRegistry.touchModel(modelName);
+			activeDetections++;
+		}
+		finally
+		{	modelLock.unlock();
+		}
+		
+		// possibly make some room for the model (outside of the lock, to avoid deadlocks)
+		ModelRegistry.enforceMemoryBudget(modelName);
+	}
+	
+	@Override
+	protected void finishRecognizer()
+	{	modelLock.lock();
+		activeDetections--;
+		modelLock.unlock();
+	}
+	
+	/** Thread shared by all the recognizers to load their models in the background (created on first use) */
+	private static ExecutorService warmUpExecutor = null;
+	/** Background loading of the model, if any */
+	private Future<?> warmUpFuture = null;
+	/** Problem met during the background loading, if any (reported by the next call to {@link #prepareRecognizer()}) */
+	private volatile RecognizerException warmUpException = null;
+	
+	/**
+	 * Returns the thread shared by all the recognizers
+	 * to load their models in the background, after 
+	 * having created it if necessary. Using a single
+	 * long-lived thread avoids creating a new thread 
+	 * (and new log handlers) for each loading. This
+	 * thread does not prevent the JVM from exiting.
+	 * 
+	 * @return
+	 * 		The shared executor.
+	 */
+	private static synchronized ExecutorService getWarmUpExecutor()
+	{	if(warmUpExecutor==null)
+		{	warmUpExecutor = Executors.newSingleThreadExecutor(new ThreadFactory()
+			{	@Override
+				public Thread newThread(Runnable runnable)
+				{	Thread result = new Thread(runnable, "Model warm-up");
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+		return warmUpExecutor;
+	}
+	
+	/**
+	 * Starts loading the model in the background, 
+	 * typically right after the construction of the
+	 * recognizer when {@code loadModelOnDemand} is {@code true}.
+	 * The first call to {@link #prepareRecognizer()} then blocks 
+	 * only if the loading is still running. If the loading fails,
+	 * the problem is reported by {@code prepareRecognizer}, which
+	 * simply attempts the loading again (on demand).
+	 * <br/>
+	 * The models of all the recognizers are loaded one 
+	 * after the other, by the same background thread.
+	 */
+	@Override
+	public synchronized void warmUp()
+	{	if(!isLoadedModel() && (warmUpFuture==null || warmUpFuture.isDone()))
+		{	logger.log("Start loading the model of "+getName()+" in the background");
+			warmUpFuture = getWarmUpExecutor().submit(new Runnable()
+			{	@Override
+				public void run()
+				{	try
+					{	// the lock is held during the whole loading, which blocks prepareRecognizer meanwhile
+						V name;
+						modelLock.lock();
+						try
+						{	if(!isLoadedModel())
+								loadModel();
+							name = modelName;
+						}
+						finally
+						{	modelLock.unlock();
+						}
+						ModelRegistry.enforceMemoryBudget(name);
+					}
+					catch(RecognizerException e)
+					{	warmUpException = e;
+					}
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Resets the model of this recognizer, in order
+	 * to free some memory, unless this recognizer is
+	 * currently applying, loading or preparing it. The 
+	 * model will be reloaded automatically the next time 
+	 * it is needed. This method is invoked by the 
+	 * {@link ModelRegistry}. It never blocks, so it can be 
+	 * called while holding the lock of another recognizer.
+	 * 
+	 * @return
+	 * 		{@code true} iff the model was actually reset.
+	 */
+	boolean evictModel()
+	{	boolean result = modelLock.tryLock();
+		if(result)
+		{	try
+			{	result = activeDetections==0;
+				if(result && isLoadedModel())
+					resetModel();
+			}
+			finally
+			{	modelLock.unlock();
+			}
+		}
+		return result;
 	}
 	
 	/////////////////////////////////////////////////////////////////
@@ -114,6 +257,9 @@ public abstract class AbstractModelBasedInternalRecognizer<U,T extends AbstractI
     /**
      * Changes the predefined model 
      * used for detecting entities.
+     * If the model is being loaded in the
+     * background, this method waits for the
+     * end of the loading.
      * 
      * @param modelName
      * 		Internal representation of the predefined model to use.
@@ -124,16 +270,27 @@ public abstract class AbstractModelBasedInternalRecognizer<U,T extends AbstractI
     public void setModelName(V modelName) throws RecognizerException
     {	logger.increaseOffset();
     	
-    	// updat emodel name
-    	this.modelName = modelName;
-    	
-		// possibly load model data
-		if(loadModelOnDemand)
-		{	logger.log("Model will be loaded on demand");
-			resetModel();
-		}
-		else
-			loadModel();
+    	// the lock prevents a background loading or a detection from using the model meanwhile
+    	modelLock.lock();
+    	try
+    	{	// release the previous model (it might be shared, cf. ModelRegistry)
+	    	if(isLoadedModel())
+	    		resetModel();
+	    	
+	    	// updat emodel name
+	    	this.modelName = modelName;
+	    	
+			// possibly load model data
+			if(loadModelOnDemand)
+			{	logger.log("Model will be loaded on demand");
+				resetModel();
+			}
+			else
+				loadModel();
+    	}
+    	finally
+    	{	modelLock.unlock();
+    	}
 	
 		// update handled types
 		logger.log("Update handled types");
@@ -152,7 +309,9 @@ public abstract class AbstractModelBasedInternalRecognizer<U,T extends AbstractI
 	protected abstract boolean isLoadedModel();
 
 	/**
-	 * Loads the model data.
+	 * Loads the model data. Models which can be shared
+	 * between several recognizers should be obtained
+	 * through the {@link ModelRegistry}.
 	 * 
 	 * @throws RecognizerException
      * 		Problem while loading the model data.
@@ -161,6 +320,8 @@ public abstract class AbstractModelBasedInternalRecognizer<U,T extends AbstractI
 
 	/**
 	 * Resets the previously loaded model.
+	 * If the model was obtained through the {@link ModelRegistry},
+	 * it must be released here.
 	 */
 	protected abstract void resetModel();
 }
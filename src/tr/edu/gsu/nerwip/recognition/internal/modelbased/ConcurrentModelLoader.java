@@ -0,0 +1,229 @@
+package tr.edu.gsu.nerwip.recognition.internal.modelbased;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+import tr.edu.gsu.nerwip.tools.time.TimeFormatting;
+
+/**
+ * Loads the independent files constituting a model
+ * at the same time, each one in its own thread, and
+ * logs the time needed to load each file.
+ * <br/>
+ * The threads are shared by all the loaders, and live 
+ * as long as the application. So, reloading a model (e.g. 
+ * after it was evicted from the {@link ModelRegistry})
+ * does not create new threads. For the same reason, the 
+ * messages are logged by the calling thread only.
+ * <br/>
+ * Typical use: submit all the files with {@link #submit(String, Callable)},
+ * get the loaded objects with {@link #getResult(Future)}, and 
+ * finally call {@link #close()}.
+ * 
+ * @author Vincent Labatut
+ */
+public class ConcurrentModelLoader
+{	
+	/**
+	 * Builds a new loader. The number of files 
+	 * loaded at once is limited by the number 
+	 * of available processors, for all the 
+	 * loaders taken together.
+	 * 
+	 * @param modelName
+	 * 		Name of the model being loaded (only used for logging).
+	 */
+	public ConcurrentModelLoader(Object modelName)
+	{	this.modelName = modelName;
+		startTime = System.currentTimeMillis();
+		logger.log("Load model "+modelName+" using up to "+THREAD_NBR+" threads");
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+	
+	/////////////////////////////////////////////////////////////////
+	// THREADS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Maximal number of files loaded at the same time, for all the loaders */
+	private static final int THREAD_NBR = Runtime.getRuntime().availableProcessors();
+	/** Threads shared by all the loaders (created on first use) */
+	private static ExecutorService executor = null;
+	
+	/**
+	 * Returns the threads shared by all the loaders,
+	 * after having created them if necessary. These 
+	 * threads do not prevent the JVM from exiting.
+	 * 
+	 * @return
+	 * 		The shared executor.
+	 */
+	private static synchronized ExecutorService getExecutor()
+	{	if(executor==null)
+		{	executor = Executors.newFixedThreadPool(THREAD_NBR, new ThreadFactory()
+			{	@Override
+				public Thread newThread(Runnable runnable)
+				{	Thread result = new Thread(runnable);
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOADING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Name of the model being loaded */
+	private final Object modelName;
+	/** Time the loading started */
+	private final long startTime;
+	/** Files submitted to this loader, and not retrieved yet */
+	private final Map<Future<?>,LoadingTask<?>> tasks = new HashMap<Future<?>,LoadingTask<?>>();
+	
+	/**
+	 * Loads one model file, and records
+	 * the time needed to do so.
+	 * 
+	 * @param <T>
+	 * 		Class of the loaded object.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	private static class LoadingTask<T> implements Callable<T>
+	{	
+		/**
+		 * Builds a new task for the specified file.
+		 * 
+		 * @param fileName
+		 * 		Name of the file (only used for logging).
+		 * @param task
+		 * 		Code actually loading the file.
+		 */
+		public LoadingTask(String fileName, Callable<T> task)
+		{	this.fileName = fileName;
+			this.task = task;
+		}
+		
+		/** Name of the file */
+		private final String fileName;
+		/** Code actually loading the file */
+		private final Callable<T> task;
+		/** Time needed to load the file, in ms */
+		private long duration = 0;
+		
+		@Override
+		public T call() throws Exception
+		{	long start = System.currentTimeMillis();
+			T result = task.call();
+			duration = System.currentTimeMillis() - start;
+			return result;
+		}
+	}
+	
+	/**
+	 * Starts loading a model file.
+	 * 
+	 * @param <T>
+	 * 		Class of the loaded object.
+	 * @param fileName
+	 * 		Name of the file (only used for logging).
+	 * @param task
+	 * 		Code actually loading the file.
+	 * @return
+	 * 		Future representing the loaded object.
+	 */
+	public <T> Future<T> submit(String fileName, Callable<T> task)
+	{	LoadingTask<T> loadingTask = new LoadingTask<T>(fileName, task);
+		Future<T> result = getExecutor().submit(loadingTask);
+		tasks.put(result, loadingTask);
+		return result;
+	}
+	
+	/**
+	 * Waits for some file to be loaded,
+	 * and returns the corresponding object.
+	 * 
+	 * @param <T>
+	 * 		Class of the loaded object.
+	 * @param future
+	 * 		Future returned when submitting the file.
+	 * @return
+	 * 		The loaded object.
+	 * 
+	 * @throws IOException
+	 * 		Problem while loading the file.
+	 */
+	public <T> T getResult(Future<T> future) throws IOException
+	{	T result;
+		try
+		{	result = future.get();
+		}
+		catch(InterruptedException e)
+		{	throw new IOException(e);
+		}
+		catch(ExecutionException e)
+		{	Throwable cause = e.getCause();
+			if(cause instanceof IOException)
+				throw (IOException)cause;
+			else if(cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			else if(cause instanceof Error)
+				throw (Error)cause;
+			else
+				throw new IOException(cause);
+		}
+		LoadingTask<?> task = tasks.remove(future);
+		logger.log("Model "+modelName+": file "+task.fileName+" loaded in "+task.duration+" ms");
+		return result;
+	}
+	
+	/**
+	 * Logs the total loading time. Files 
+	 * still being loaded are abandoned.
+	 */
+	public void close()
+	{	for(Future<?> future: tasks.keySet())
+			future.cancel(true);
+		tasks.clear();
+		long duration = System.currentTimeMillis() - startTime;
+		logger.log("Loading of model "+modelName+" took "+TimeFormatting.formatDuration(duration)+" ("+duration+" ms)");
+	}
+}
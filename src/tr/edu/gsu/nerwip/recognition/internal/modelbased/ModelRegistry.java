@@ -0,0 +1,444 @@
+package tr.edu.gsu.nerwip.recognition.internal.modelbased;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import tr.edu.gsu.nerwip.recognition.RecognizerException;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+import tr.edu.gsu.nerwip.tools.time.TimeFormatting;
+
+/**
+ * Process-wide registry of the models used by the
+ * model-based recognizers. A model is identified by 
+ * its name (e.g. a {@code StanfordModelName} value), 
+ * and is loaded only once, whatever the number of 
+ * recognizers using it (for instance the Stanford 
+ * instances of both {@code VoteCombiner} and 
+ * {@code SvmCombiner}).
+ * <br/>
+ * The registry counts the references to each model:
+ * a recognizer gets the model through {@link #acquireModel},
+ * and must give it back through {@link #releaseModel}
+ * (typically in its {@code resetModel} method). When
+ * the last reference is released, the model is removed 
+ * from the registry and can be garbage collected.
+ * <br/>
+ * The registry also acts as a cache with a memory budget
+ * (cf. {@link #setMemoryBudget(long)}). When the loaded models
+ * exceed this budget, the least recently used ones are evicted,
+ * i.e. the recognizers using them are asked to reset their model 
+ * (see {@link AbstractModelBasedInternalRecognizer#evictModel()}).
+ * A model currently being applied is never evicted. The evicted 
+ * models are reloaded transparently the next time they are needed.
+ * <br/>
+ * The shared models must be handled as read-only objects.
+ * 
+ * @author Vincent Labatut
+ */
+public class ModelRegistry
+{	
+	/////////////////////////////////////////////////////////////////
+	// LOGGING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+	
+	/////////////////////////////////////////////////////////////////
+	// LOADER			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Object able to load some model data,
+	 * used by the registry the first time
+	 * the model is requested.
+	 * 
+	 * @param <T>
+	 * 		Class of the loaded model.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	public interface ModelLoader<T>
+	{	/**
+		 * Loads the model data.
+		 * 
+		 * @return
+		 * 		The loaded model.
+		 * 
+		 * @throws RecognizerException
+		 * 		Problem while loading the model data.
+		 */
+		public T loadModel() throws RecognizerException;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ENTRIES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Models currently registered, indexed by model name */
+	private static final Map<Object,ModelEntry> ENTRIES = new HashMap<Object,ModelEntry>();
+	/** Counter used to date the accesses to the models */
+	private static long accessCounter = 0;
+	
+	/**
+	 * Model registered in this class,
+	 * with its users and statistics.
+	 */
+	private static class ModelEntry
+	{	/** Model data ({@code null} if not loaded yet) */
+		Object data = null;
+		/** Recognizers currently holding the model */
+		final Set<AbstractModelBasedInternalRecognizer<?,?,?>> holders = Collections.newSetFromMap(new IdentityHashMap<AbstractModelBasedInternalRecognizer<?,?,?>,Boolean>());
+		/** Estimated heap size of the model, in bytes */
+		long size = 0;
+		/** Duration of the model loading, in ms */
+		long loadTime = 0;
+		/** Number of times the model was requested after its loading */
+		long hits = 0;
+		/** Date of the last access to the model (value of {@link ModelRegistry#accessCounter}) */
+		long lastAccess = 0;
+	}
+	
+	/**
+	 * Returns the model associated to the specified
+	 * name, and registers the specified recognizer as
+	 * one of its users. If the model is not loaded yet, 
+	 * the specified loader is used to get it. Only one
+	 * thread loads a given model, the others wait for
+	 * it to be available. Distinct models can be loaded 
+	 * at the same time, though.
+	 * <br/>
+	 * Each call must be matched by a call to 
+	 * {@link #releaseModel(Object, AbstractModelBasedInternalRecognizer)}.
+	 * 
+	 * @param <T>
+	 * 		Class of the model.
+	 * @param modelName
+	 * 		Name of the model.
+	 * @param holder
+	 * 		Recognizer requesting the model.
+	 * @param loader
+	 * 		Object used to load the model, if needed.
+	 * @return
+	 * 		The shared model.
+	 * 
+	 * @throws RecognizerException
+	 * 		Problem while loading the model data.
+	 */
+	public static <T> T acquireModel(Object modelName, AbstractModelBasedInternalRecognizer<?,?,?> holder, ModelLoader<T> loader) throws RecognizerException
+	{	// get the entry and reserve it
+		ModelEntry entry;
+		synchronized(ENTRIES)
+		{	entry = ENTRIES.get(modelName);
+			if(entry==null)
+			{	entry = new ModelEntry();
+				ENTRIES.put(modelName,entry);
+			}
+			entry.holders.add(holder);
+			entry.lastAccess = ++accessCounter;
+		}
+		
+		// possibly load the model
+		synchronized(entry)
+		{	if(entry.data==null)
+			{	logger.log("Model "+modelName+" not loaded yet: loading it");
+				Runtime runtime = Runtime.getRuntime();
+				long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+				long startTime = System.currentTimeMillis();
+				try
+				{	entry.data = loader.loadModel();
+				}
+				catch(RecognizerException e)
+				{	releaseModel(modelName,holder);
+					throw e;
+				}
+				entry.loadTime = System.currentTimeMillis() - startTime;
+				long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+				entry.size = Math.max(0,usedAfter-usedBefore);
+				logger.log("Model "+modelName+" loaded in "+TimeFormatting.formatDuration(entry.loadTime)+" (~"+(entry.size/(1024*1024))+" MB)");
+			}
+			else
+			{	synchronized(ENTRIES)
+				{	entry.hits++;
+					logger.log("Model "+modelName+" already loaded: sharing it ("+entry.holders.size()+" references)");
+				}
+			}
+			
+			@SuppressWarnings("unchecked")
+			T result = (T)entry.data;
+			return result;
+		}
+	}
+	
+	/**
+	 * Indicates the specified model is about to be
+	 * used, in order to update its statistics (the
+	 * least recently used models are the first evicted).
+	 * 
+	 * @param modelName
+	 * 		Name of the model.
+	 */
+	public static void touchModel(Object modelName)
+	{	synchronized(ENTRIES)
+		{	ModelEntry entry = ENTRIES.get(modelName);
+			if(entry!=null)
+			{	entry.hits++;
+				entry.lastAccess = ++accessCounter;
+			}
+		}
+	}
+	
+	/**
+	 * Unregisters the specified recognizer as a user
+	 * of the specified model. If there is no user left,
+	 * the model is removed from the registry.
+	 * 
+	 * @param modelName
+	 * 		Name of the model.
+	 * @param holder
+	 * 		Recognizer releasing the model.
+	 */
+	public static void releaseModel(Object modelName, AbstractModelBasedInternalRecognizer<?,?,?> holder)
+	{	synchronized(ENTRIES)
+		{	ModelEntry entry = ENTRIES.get(modelName);
+			if(entry==null || !entry.holders.remove(holder))
+				logger.log("WARNING: trying to release model "+modelName+", which is not held by this recognizer");
+			else if(entry.holders.isEmpty())
+			{	logger.log("Model "+modelName+" not used anymore: removing it");
+				ENTRIES.remove(modelName);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of recognizers currently
+	 * using the specified model.
+	 * 
+	 * @param modelName
+	 * 		Name of the model.
+	 * @return
+	 * 		Number of references, {@code 0} if the model is not registered.
+	 */
+	public static int getReferenceCount(Object modelName)
+	{	int result = 0;
+		synchronized(ENTRIES)
+		{	ModelEntry entry = ENTRIES.get(modelName);
+			if(entry!=null)
+				result = entry.holders.size();
+		}
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// MEMORY BUDGET	/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Maximal heap size of the loaded models, in bytes ({@code 0} for no limit) */
+	private static long memoryBudget = 0;
+	
+	/**
+	 * Changes the maximal heap size the loaded
+	 * models are allowed to occupy. The sizes
+	 * are estimated when loading the models, by
+	 * measuring the heap before and after.
+	 * The budget is enforced the next time a model
+	 * is used.
+	 * 
+	 * @param memoryBudget
+	 * 		Budget in bytes, or {@code 0} for no limit.
+	 */
+	public static void setMemoryBudget(long memoryBudget)
+	{	synchronized(ENTRIES)
+		{	ModelRegistry.memoryBudget = memoryBudget;
+		}
+	}
+	
+	/**
+	 * Returns the maximal heap size the loaded
+	 * models are allowed to occupy.
+	 * 
+	 * @return
+	 * 		Budget in bytes, or {@code 0} for no limit.
+	 */
+	public static long getMemoryBudget()
+	{	synchronized(ENTRIES)
+		{	return memoryBudget;
+		}
+	}
+	
+	/**
+	 * Returns the estimated heap size of all
+	 * the currently loaded models.
+	 * 
+	 * @return
+	 * 		Size in bytes.
+	 */
+	public static long getLoadedSize()
+	{	long result = 0;
+		synchronized(ENTRIES)
+		{	for(ModelEntry entry: ENTRIES.values())
+				result = result + entry.size;
+		}
+		return result;
+	}
+	
+	/**
+	 * Evicts the least recently used models until the
+	 * loaded models fit in the memory budget. The recognizers
+	 * holding an evicted model are asked to reset it. Those 
+	 * currently applying (or loading) the model refuse, in which 
+	 * case the model stays loaded. This request does not block,
+	 * so this method can be called while holding the lock of a 
+	 * recognizer (e.g. in {@link tr.edu.gsu.nerwip.recognition.BatchProcessor BatchProcessor}).
+	 * 
+	 * @param modelName
+	 * 		Name of the model which is about to be used,
+	 * 		and must therefore not be evicted.
+	 */
+	public static void enforceMemoryBudget(Object modelName)
+	{	Set<Object> tried = new HashSet<Object>();
+		boolean goOn = true;
+		while(goOn)
+		{	Object victim = null;
+			List<AbstractModelBasedInternalRecognizer<?,?,?>> holders = null;
+			
+			// select the least recently used model
+			synchronized(ENTRIES)
+			{	long total = 0;
+				for(ModelEntry entry: ENTRIES.values())
+					total = total + entry.size;
+				if(memoryBudget>0 && total>memoryBudget)
+				{	ModelEntry lru = null;
+					for(Entry<Object,ModelEntry> e: ENTRIES.entrySet())
+					{	Object name = e.getKey();
+						ModelEntry entry = e.getValue();
+						if(!name.equals(modelName) && !tried.contains(name) && entry.data!=null
+							&& (lru==null || entry.lastAccess<lru.lastAccess))
+						{	victim = name;
+							lru = entry;
+						}
+					}
+					if(lru!=null)
+					{	logger.log("Loaded models ("+(total/(1024*1024))+" MB) exceed the budget ("+(memoryBudget/(1024*1024))+" MB): evicting model "+victim);
+						holders = new ArrayList<AbstractModelBasedInternalRecognizer<?,?,?>>(lru.holders);
+						tried.add(victim);
+					}
+				}
+			}
+			
+			// evict it (outside of the registry lock, since the recognizers lock themselves)
+			if(holders==null)
+				goOn = false;
+			else
+			{	for(AbstractModelBasedInternalRecognizer<?,?,?> holder: holders)
+				{	if(!holder.evictModel())
+						logger.log("Model "+victim+" is currently used by "+holder.getName()+": cannot evict it");
+				}
+			}
+		}
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// STATISTICS		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Returns the estimated heap size of the 
+	 * specified model.
+	 * 
+	 * @param modelName
+	 * 		Name of the model.
+	 * @return
+	 * 		Size in bytes, {@code 0} if the model is not loaded.
+	 */
+	public static long getModelSize(Object modelName)
+	{	long result = 0;
+		synchronized(ENTRIES)
+		{	ModelEntry entry = ENTRIES.get(modelName);
+			if(entry!=null)
+				result = entry.size;
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the time needed to load the
+	 * specified model.
+	 * 
+	 * @param modelName
+	 * 		Name of the model.
+	 * @return
+	 * 		Duration in ms, {@code 0} if the model is not loaded.
+	 */
+	public static long getModelLoadTime(Object modelName)
+	{	long result = 0;
+		synchronized(ENTRIES)
+		{	ModelEntry entry = ENTRIES.get(modelName);
+			if(entry!=null)
+				result = entry.loadTime;
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the number of times the specified
+	 * model was requested since it was loaded.
+	 * 
+	 * @param modelName
+	 * 		Name of the model.
+	 * @return
+	 * 		Number of hits, {@code 0} if the model is not loaded.
+	 */
+	public static long getModelHits(Object modelName)
+	{	long result = 0;
+		synchronized(ENTRIES)
+		{	ModelEntry entry = ENTRIES.get(modelName);
+			if(entry!=null)
+				result = entry.hits;
+		}
+		return result;
+	}
+	
+	/**
+	 * Logs the size, load time and number of hits
+	 * of each currently loaded model.
+	 */
+	public static void logStatistics()
+	{	synchronized(ENTRIES)
+		{	logger.log("Loaded models: "+ENTRIES.size()+" (budget: "+(memoryBudget>0?(memoryBudget/(1024*1024))+" MB":"none")+")");
+			logger.increaseOffset();
+			for(Entry<Object,ModelEntry> e: ENTRIES.entrySet())
+			{	ModelEntry entry = e.getValue();
+				logger.log(e.getKey()+": ~"+(entry.size/(1024*1024))+" MB, loaded in "+TimeFormatting.formatDuration(entry.loadTime)+", "+entry.hits+" hits, "+entry.holders.size()+" references");
+			}
+			logger.decreaseOffset();
+		}
+	}
+}
@@ -0,0 +1,405 @@
+package tr.edu.gsu.nerwip.recognition.internal.modelbased;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import tr.edu.gsu.nerwip.recognition.CacheManifest;
+import tr.edu.gsu.nerwip.tools.file.FileNames;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+
+/**
+ * Optional layer allowing to load the models faster.
+ * The first time a model file is loaded, an equivalent 
+ * but uncompressed copy of this file (a <i>snapshot</i>) 
+ * is written in {@link FileNames#FO_SNAPSHOTS}. The following 
+ * times, this snapshot is loaded instead of the original
+ * file, which avoids decompressing the data at each start.
+ * <br/>
+ * The name of the snapshot contains the checksum of the
+ * original file, so that a modified model file is never
+ * replaced by an outdated snapshot: a new snapshot is 
+ * then created, and the old one is deleted.
+ * <br/>
+ * The checksum of a model file is recorded in a manifest, together
+ * with the size and date of the file: it is processed again only 
+ * when one of them changes, instead of each time the model is loaded.
+ * <br/>
+ * This layer is disabled by default (cf. {@link #setEnabled(boolean)}).
+ * 
+ * @author Vincent Labatut
+ */
+public class ModelSnapshots
+{	
+	/////////////////////////////////////////////////////////////////
+	// LOGGING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+	
+	/////////////////////////////////////////////////////////////////
+	// ENABLED			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Whether the snapshots should be used */
+	private static volatile boolean enabled = false;
+	
+	/**
+	 * Enables/disables the use of snapshots
+	 * when loading the models.
+	 * 
+	 * @param enabled
+	 * 		{@code true} to use the snapshots.
+	 */
+	public static void setEnabled(boolean enabled)
+	{	ModelSnapshots.enabled = enabled;
+	}
+	
+	/**
+	 * Indicates whether the snapshots are used
+	 * when loading the models.
+	 * 
+	 * @return
+	 * 		{@code true} iff the snapshots are used.
+	 */
+	public static boolean isEnabled()
+	{	return enabled;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// WRITERS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Object able to produce the snapshot
+	 * of a certain kind of model file.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	public interface SnapshotWriter
+	{	/**
+		 * Writes the snapshot of the source file 
+		 * in the target file.
+		 * 
+		 * @param source
+		 * 		Original model file.
+		 * @param target
+		 * 		Snapshot file.
+		 * 
+		 * @throws IOException
+		 * 		Problem while reading the source or writing the target.
+		 */
+		public void writeSnapshot(File source, File target) throws IOException;
+	}
+	
+	/** Snapshot of a gzipped file (e.g. Stanford serialized classifiers): the decompressed content */
+	public static final SnapshotWriter GZIP_WRITER = new SnapshotWriter()
+	{	@Override
+		public void writeSnapshot(File source, File target) throws IOException
+		{	InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(source)));
+			try
+			{	OutputStream out = new BufferedOutputStream(new FileOutputStream(target));
+				try
+				{	byte buffer[] = new byte[BUFFER_SIZE];
+					int n;
+					while((n=in.read(buffer))!=-1)
+						out.write(buffer,0,n);
+				}
+				finally
+				{	out.close();
+				}
+			}
+			finally
+			{	in.close();
+			}
+		}
+	};
+	
+	/** Snapshot of a zip file (e.g. OpenNLP models): the same archive, without compression */
+	public static final SnapshotWriter ZIP_WRITER = new SnapshotWriter()
+	{	@Override
+		public void writeSnapshot(File source, File target) throws IOException
+		{	ZipFile zipFile = new ZipFile(source);
+			try
+			{	ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(target)));
+				try
+				{	out.setMethod(ZipOutputStream.STORED);
+					Enumeration<? extends ZipEntry> entries = zipFile.entries();
+					while(entries.hasMoreElements())
+					{	ZipEntry entry = entries.nextElement();
+						byte data[] = readFully(zipFile.getInputStream(entry));
+						CRC32 crc = new CRC32();
+						crc.update(data);
+						ZipEntry copy = new ZipEntry(entry.getName());
+						copy.setMethod(ZipEntry.STORED);
+						copy.setSize(data.length);
+						copy.setCompressedSize(data.length);
+						copy.setCrc(crc.getValue());
+						out.putNextEntry(copy);
+						out.write(data);
+						out.closeEntry();
+					}
+				}
+				finally
+				{	out.close();
+				}
+			}
+			finally
+			{	zipFile.close();
+			}
+		}
+	};
+	
+	/////////////////////////////////////////////////////////////////
+	// SNAPSHOTS		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Size of the buffers used when reading files */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/** Extension of the snapshot files */
+	private static final String EXTENSION = ".snapshot";
+	/** Key of the size of the model file, in the manifest */
+	private static final String KEY_SIZE = "size";
+	/** Key of the date of the model file, in the manifest */
+	private static final String KEY_DATE = "date";
+	/** Key of the checksum of the model file, in the manifest */
+	private static final String KEY_CHECKSUM = "checksum";
+	
+	/**
+	 * Returns the file which should actually be loaded
+	 * instead of the specified model file. If snapshots are
+	 * disabled, this is the model file itself. Otherwise, this 
+	 * is its snapshot, which is created first if it does not 
+	 * exist yet, or if it does not match the checksum of the 
+	 * model file. If the snapshot cannot be created, the 
+	 * model file is returned.
+	 * 
+	 * @param source
+	 * 		Original model file.
+	 * @param writer
+	 * 		Object used to create the snapshot, if needed.
+	 * @return
+	 * 		The file to load.
+	 */
+	public static File getFileToLoad(File source, SnapshotWriter writer)
+	{	File result = source;
+		
+		if(enabled)
+		{	try
+			{	String checksum = getChecksum(source);
+				String prefix = getSnapshotPrefix(source);
+				File snapshot = new File(FileNames.FO_SNAPSHOTS + File.separator + prefix + checksum + EXTENSION);
+				if(snapshot.exists())
+				{	logger.log("Using snapshot "+snapshot+" instead of "+source);
+					result = snapshot;
+				}
+				else
+				{	logger.log("No up-to-date snapshot for "+source+": creating it");
+					createSnapshot(source, snapshot, prefix, writer);
+					result = snapshot;
+				}
+			}
+			catch(IOException e)
+			{	e.printStackTrace();
+				logger.log("WARNING: could not use a snapshot for "+source+", loading the original file");
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the checksum of the specified model file. It
+	 * is read from the manifest of the snapshots if the size 
+	 * and date of the file did not change since it was recorded.
+	 * Otherwise, it is processed and the manifest is updated.
+	 * 
+	 * @param source
+	 * 		Original model file.
+	 * @return
+	 * 		Hexadecimal representation of its checksum.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the file or its manifest.
+	 */
+	private static String getChecksum(File source) throws IOException
+	{	String size = Long.toString(source.length());
+		String date = Long.toString(source.lastModified());
+		// the prefix already ends with a dot
+		String name = getSnapshotPrefix(source) + FileNames.EX_MANIFEST.substring(1);
+		File manifestFile = new File(FileNames.FO_SNAPSHOTS + File.separator + name);
+		
+		String result = null;
+		CacheManifest manifest = CacheManifest.read(manifestFile);
+		if(manifest!=null && size.equals(manifest.get(KEY_SIZE)) && date.equals(manifest.get(KEY_DATE)))
+			result = manifest.get(KEY_CHECKSUM);
+		
+		if(result==null)
+		{	result = computeChecksum(source);
+			manifest = new CacheManifest();
+			manifest.put(KEY_SIZE, size);
+			manifest.put(KEY_DATE, date);
+			manifest.put(KEY_CHECKSUM, result);
+			manifest.write(manifestFile);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Writes the snapshot of the specified file, then
+	 * removes the outdated snapshots of the same file.
+	 * The snapshot is first written in a temporary file, 
+	 * which is then renamed: other threads or processes
+	 * never see a partial snapshot.
+	 * 
+	 * @param source
+	 * 		Original model file.
+	 * @param snapshot
+	 * 		Snapshot file.
+	 * @param prefix
+	 * 		Prefix common to all the snapshots of this file.
+	 * @param writer
+	 * 		Object used to create the snapshot.
+	 * 
+	 * @throws IOException
+	 * 		Problem while writing the snapshot.
+	 */
+	private static void createSnapshot(File source, File snapshot, final String prefix, SnapshotWriter writer) throws IOException
+	{	File folder = snapshot.getParentFile();
+		folder.mkdirs();
+		
+		// write the snapshot
+		long startTime = System.currentTimeMillis();
+		File temp = File.createTempFile(prefix, ".tmp", folder);
+		try
+		{	writer.writeSnapshot(source, temp);
+			Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{	temp.delete();
+		}
+		long duration = System.currentTimeMillis() - startTime;
+		logger.log("Snapshot "+snapshot+" created in "+duration+" ms");
+		
+		// remove the outdated snapshots (only the exact pattern, so that
+		// the snapshots of a file whose name extends this one are kept)
+		Pattern pattern = Pattern.compile(Pattern.quote(prefix) + "[0-9a-f]{8}" + Pattern.quote(EXTENSION));
+		File files[] = folder.listFiles();
+		for(File file: files)
+		{	String name = file.getName();
+			if(pattern.matcher(name).matches() && !file.equals(snapshot))
+			{	logger.log("Removing outdated snapshot "+file);
+				file.delete();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the prefix of the name of the snapshots of
+	 * the specified file. It is based on the path of the
+	 * file, so that two model files with the same name 
+	 * do not share the same snapshots.
+	 * 
+	 * @param source
+	 * 		Original model file.
+	 * @return
+	 * 		Prefix of the names of its snapshots.
+	 */
+	private static String getSnapshotPrefix(File source)
+	{	String path = source.getPath();
+		String result = path.replace(File.separatorChar,'_').replace(':','_') + ".";
+		return result;
+	}
+	
+	/**
+	 * Processes the CRC32 checksum of the specified file.
+	 * 
+	 * @param file
+	 * 		File of interest.
+	 * @return
+	 * 		Hexadecimal representation of its checksum.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 */
+	public static String computeChecksum(File file) throws IOException
+	{	CRC32 crc = new CRC32();
+		InputStream in = new FileInputStream(file);
+		try
+		{	byte buffer[] = new byte[BUFFER_SIZE];
+			int n;
+			while((n=in.read(buffer))!=-1)
+				crc.update(buffer,0,n);
+		}
+		finally
+		{	in.close();
+		}
+		String result = String.format("%08x",crc.getValue());
+		return result;
+	}
+	
+	/**
+	 * Reads the whole content of a stream,
+	 * and closes it.
+	 * 
+	 * @param in
+	 * 		Stream to read.
+	 * @return
+	 * 		Content of the stream.
+	 * 
+	 * @throws IOException
+	 * 		Problem while reading the stream.
+	 */
+	private static byte[] readFully(InputStream in) throws IOException
+	{	ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try
+		{	byte buffer[] = new byte[BUFFER_SIZE];
+			int n;
+			while((n=in.read(buffer))!=-1)
+				out.write(buffer,0,n);
+		}
+		finally
+		{	in.close();
+		}
+		byte result[] = out.toByteArray();
+		return result;
+	}
+}
@@ -24,6 +24,7 @@ package tr.edu.gsu.nerwip.recognition.internal.modelbased.illinois;
  * If not, see <http://www.gnu.org/licenses/>.
  */
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Vector;
@@ -42,6 +43,8 @@ import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
 import tr.edu.gsu.nerwip.recognition.RecognizerName;
 import tr.edu.gsu.nerwip.recognition.internal.modelbased.AbstractModelBasedInternalRecognizer;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ModelRegistry;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ModelRegistry.ModelLoader;
 import tr.edu.gsu.nerwip.recognition.internal.modelbased.illinois.IllinoisConverter;
 
 /**
@@ -111,6 +114,12 @@ public class Illinois extends AbstractModelBasedInternalRecognizer<Data,Illinois
 		return result;
 	}
 
+	@Override
+	public List<File> getModelFiles()
+	{	List<File> result = modelName.getDataFiles();
+		return result;
+	}
+
 	/////////////////////////////////////////////////////////////////
 	// ENTITIES			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -124,6 +133,8 @@ public class Illinois extends AbstractModelBasedInternalRecognizer<Data,Illinois
 	/////////////////////////////////////////////////////////////////
 	// PREDEFINED MODEL 	/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	/** Predefined models, shared through the {@link ModelRegistry} */
+	private SparseNetworkLearner[] models;
 	/** First level predefined model, used for NER */
     private NETaggerLevel1 tagger1;
 	/** Second level predefined model, used for NER */
@@ -137,7 +148,11 @@ public class Illinois extends AbstractModelBasedInternalRecognizer<Data,Illinois
     
     @Override
 	protected void resetModel()
-    {	tagger1 = null;
+    {	if(models!=null)
+    	{	ModelRegistry.releaseModel(modelName,this);
+    		models = null;
+    	}
+    	tagger1 = null;
     	tagger2 = null;
     }
 
@@ -146,14 +161,20 @@ public class Illinois extends AbstractModelBasedInternalRecognizer<Data,Illinois
     {	logger.increaseOffset();
 		logger.log("Load model data");
 		
-    	SparseNetworkLearner[] models;
-		try
-		{	models = modelName.loadData();
-		}
-		catch (Exception e)
-		{	e.printStackTrace();
-			throw new RecognizerException(e.getMessage());
-		}
+		models = ModelRegistry.acquireModel(modelName, this, new ModelLoader<SparseNetworkLearner[]>()
+		{	@Override
+			public SparseNetworkLearner[] loadModel() throws RecognizerException
+			{	SparseNetworkLearner[] result;
+				try
+				{	result = modelName.loadData();
+				}
+				catch (Exception e)
+				{	e.printStackTrace();
+					throw new RecognizerException(e.getMessage());
+				}
+				return result;
+			}
+		});
     	tagger1 = (NETaggerLevel1) models[0];
     	tagger2 = (NETaggerLevel2) models[1];
     	
@@ -177,7 +198,10 @@ public class Illinois extends AbstractModelBasedInternalRecognizer<Data,Illinois
 		
 		try
 		{	ExpressiveFeaturesAnnotator.annotate(result);
-    		Decoder.annotateDataBIO(result,tagger1,tagger2);
+			// the taggers are shared with the other instances using the same model
+			synchronized(models)
+    		{	Decoder.annotateDataBIO(result,tagger1,tagger2);
+    		}
 		}
 		catch(Exception e)
 		{	e.printStackTrace();
@@ -27,12 +27,15 @@ package tr.edu.gsu.nerwip.recognition.internal.modelbased.illinois;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import LBJ2.learn.SparseNetworkLearner;
 import edu.illinois.cs.cogcomp.LbjNer.LbjFeatures.NETaggerLevel1;
 import edu.illinois.cs.cogcomp.LbjNer.LbjFeatures.NETaggerLevel2;
 import edu.illinois.cs.cogcomp.LbjNer.LbjTagger.Parameters;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ConcurrentModelLoader;
 import tr.edu.gsu.nerwip.tools.file.FileNames;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
@@ -138,6 +141,24 @@ public enum IllinoisModelName
 	{	return modelFile;
 	}
 	
+	/**
+	 * Returns all the files this model is
+	 * built from (configuration and model data).
+	 * 
+	 * @return
+	 * 		List of the files constituting the model.
+	 */
+	public List<File> getDataFiles()
+	{	List<File> result = new ArrayList<File>();
+		result.add(new File(FileNames.FO_ILLINOIS_CONFIGS + File.separator + configFile));
+		String path = FileNames.FO_ILLINOIS_MODELS + File.separator + modelFile;
+		result.add(new File(path+".level1"));
+		result.add(new File(path+".level1.lex"));
+		result.add(new File(path+".level2"));
+		result.add(new File(path+".level2.lex"));
+		return result;
+	}
+	
 	/**
 	 * Loads the data corresponding to the
 	 * model represented by this symbol.
@@ -152,12 +173,30 @@ public enum IllinoisModelName
 	{	// first read the configuration file
 		loadConfig();
 		
-		// then load the models
+		// then load the models (both levels at the same time)
 		SparseNetworkLearner result[] = new SparseNetworkLearner[2];
-		{	String path = FileNames.FO_ILLINOIS_MODELS + File.separator + modelFile;
+		{	final String path = FileNames.FO_ILLINOIS_MODELS + File.separator + modelFile;
 			logger.log("Read the model files associated to the selected model ("+this+") "+path);
-			result[0] = new NETaggerLevel1(path+".level1",path+".level1.lex");
-			result[1] = new NETaggerLevel2(path+".level2",path+".level2.lex");
+			ConcurrentModelLoader loader = new ConcurrentModelLoader(this);
+			try
+			{	Future<NETaggerLevel1> level1 = loader.submit(modelFile+".level1", new Callable<NETaggerLevel1>()
+				{	@Override
+					public NETaggerLevel1 call() throws Exception
+					{	return new NETaggerLevel1(path+".level1",path+".level1.lex");
+					}
+				});
+				Future<NETaggerLevel2> level2 = loader.submit(modelFile+".level2", new Callable<NETaggerLevel2>()
+				{	@Override
+					public NETaggerLevel2 call() throws Exception
+					{	return new NETaggerLevel2(path+".level2",path+".level2.lex");
+					}
+				});
+				result[0] = loader.getResult(level1);
+				result[1] = loader.getResult(level2);
+			}
+			finally
+			{	loader.close();
+			}
 		}
 		
 		return result;
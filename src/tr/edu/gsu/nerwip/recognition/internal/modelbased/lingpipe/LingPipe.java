@@ -29,21 +29,26 @@ import com.aliasi.chunk.ChunkFactory;
 import com.aliasi.chunk.Chunker;
 import com.aliasi.chunk.Chunking;
 import com.aliasi.chunk.ChunkingImpl;
-import com.aliasi.sentences.IndoEuropeanSentenceModel;
-import com.aliasi.sentences.SentenceChunker;
-import com.aliasi.sentences.SentenceModel;
-import com.aliasi.tokenizer.IndoEuropeanTokenizerFactory;
-import com.aliasi.tokenizer.TokenizerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import tr.edu.gsu.nerwip.data.article.Article;
+import tr.edu.gsu.nerwip.data.article.TextAnnotation;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
 import tr.edu.gsu.nerwip.recognition.RecognizerName;
 import tr.edu.gsu.nerwip.recognition.internal.modelbased.AbstractModelBasedInternalRecognizer;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ModelRegistry;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ModelRegistry.ModelLoader;
 
 /**
  * This class acts as an interface with the LingPipe library.
@@ -118,6 +123,12 @@ public class LingPipe extends AbstractModelBasedInternalRecognizer<Chunking, Lin
 		return result;
 	}
 
+	@Override
+	public List<File> getModelFiles()
+	{	List<File> result = modelName.getDataFiles();
+		return result;
+	}
+
 	/////////////////////////////////////////////////////////////////
 	// ENTITIES			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -133,8 +144,8 @@ public class LingPipe extends AbstractModelBasedInternalRecognizer<Chunking, Lin
 	/////////////////////////////////////////////////////////////////
     /** Whether or not the text should be processed one sentence at once */
     private boolean splitSentences;
-    /** Object used to detect sentences */
-	private Chunker sentenceChunker;
+    /** Object used to detect sentences (thread-safe, so shared by all instances) */
+	private static final LingPipeSegmenter SEGMENTER = new LingPipeSegmenter();
 	/** Object used to detect entities */
 	private Chunker chunker;
    
@@ -146,38 +157,148 @@ public class LingPipe extends AbstractModelBasedInternalRecognizer<Chunking, Lin
     
     @Override
 	protected void resetModel()
-    {	chunker = null;
+    {	if(chunker!=null)
+    	{	ModelRegistry.releaseModel(modelName,this);
+    		chunker = null;
+    	}
     }
 
 	@Override
 	protected void loadModel() throws RecognizerException
-    {	// sentence chunker
-		//if(splitSentences)
-    	{	logger.log("Build sentence splitter");
-			TokenizerFactory tokenizerFactory = new IndoEuropeanTokenizerFactory();
-			SentenceModel sentenceModel = new IndoEuropeanSentenceModel();
-			sentenceChunker = new SentenceChunker(tokenizerFactory,sentenceModel);
-    	}
-    	
-    	// word chunker
-    	try
-    	{	chunker = modelName.loadData();
-		}
-    	catch (ClassNotFoundException e)
-    	{	e.printStackTrace();
-    		throw new RecognizerException(e.getMessage());
+    {	// word chunker (compiled LingPipe chunkers are thread-safe, so it is simply shared)
+		chunker = ModelRegistry.acquireModel(modelName, this, new ModelLoader<Chunker>()
+		{	@Override
+			public Chunker loadModel() throws RecognizerException
+			{	Chunker result;
+		    	try
+		    	{	result = modelName.loadData();
+				}
+		    	catch (ClassNotFoundException e)
+		    	{	e.printStackTrace();
+		    		throw new RecognizerException(e.getMessage());
+				}
+		    	catch (IOException e)
+		    	{	e.printStackTrace();
+					throw new RecognizerException(e.getMessage());
+				}
+		    	return result;
+			}
+		});
+    }
+	
+	/////////////////////////////////////////////////////////////////
+	// THREADS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Maximal number of threads used to process the sentences of an article (the value {@code 1} means they are processed sequentially) */
+	private int threadNbr = 1;
+	/** Threads used to process the sentences concurrently (created on first use) */
+	private ExecutorService executor = null;
+	/** Whether each processed sentence should be logged (only when processing sentences sequentially) */
+	private boolean sentenceLogging = true;
+	/** Minimal number of sentences processed by each worker thread */
+	private static final int MIN_BLOCK_SIZE = 8;
+	/** Number of sentence blocks per thread (several blocks allow balancing the workload) */
+	private static final int BLOCKS_PER_THREAD = 4;
+	
+	/**
+	 * Changes the maximal number of threads used
+	 * to process the sentences of an article, when
+	 * {@code splitSentences} is {@code true}. The value 
+	 * {@code 1} means the sentences are processed
+	 * sequentially. Otherwise, the chunker (which is 
+	 * thread-safe) is applied concurrently to blocks
+	 * of sentences, and the detected entities are the
+	 * same as in the sequential case.
+	 * <br/>
+	 * The threads are created when first needed, and
+	 * then reused for all the articles, until 
+	 * {@link #shutdownThreads()} is called.
+	 * 
+	 * @param threadNbr
+	 * 		New number of threads.
+	 */
+	public synchronized void setThreadNumber(int threadNbr)
+	{	if(threadNbr<1)
+			throw new IllegalArgumentException("The number of threads must be at least 1 ("+threadNbr+")");
+		if(threadNbr!=this.threadNbr)
+			shutdownThreads();
+		this.threadNbr = threadNbr;
+	}
+	
+	/**
+	 * Returns the maximal number of threads used
+	 * to process the sentences of an article.
+	 * 
+	 * @return
+	 * 		Number of threads used.
+	 */
+	public int getThreadNumber()
+	{	return threadNbr;
+	}
+	
+	/**
+	 * Returns the threads used to process the sentences
+	 * concurrently, after having created them if necessary.
+	 * They do not prevent the JVM from exiting.
+	 * 
+	 * @return
+	 * 		The executor of this recognizer.
+	 */
+	private synchronized ExecutorService getExecutor()
+	{	if(executor==null)
+		{	executor = Executors.newFixedThreadPool(threadNbr, new ThreadFactory()
+			{	@Override
+				public Thread newThread(Runnable runnable)
+				{	Thread result = new Thread(runnable);
+					result.setDaemon(true);
+					return result;
+				}
+			});
 		}
-    	catch (IOException e)
-    	{	e.printStackTrace();
-			throw new RecognizerException(e.getMessage());
+		return executor;
+	}
+	
+	/**
+	 * Releases the threads used to process the
+	 * sentences concurrently. This should be called
+	 * once the recognizer is not needed anymore. If it
+	 * is used again afterwards, new threads are created.
+	 */
+	public synchronized void shutdownThreads()
+	{	if(executor!=null)
+		{	executor.shutdownNow();
+			executor = null;
 		}
-    }
+	}
+	
+	/**
+	 * Changes whether each processed sentence is logged.
+	 * Disabling this speeds up the processing of long 
+	 * articles. Sentences processed concurrently are
+	 * never logged individually.
+	 * 
+	 * @param sentenceLogging
+	 * 		{@code true} to log each sentence.
+	 */
+	public void setSentenceLogging(boolean sentenceLogging)
+	{	this.sentenceLogging = sentenceLogging;
+	}
+	
+	/**
+	 * Indicates whether each processed sentence is logged.
+	 * 
+	 * @return
+	 * 		{@code true} iff each sentence is logged.
+	 */
+	public boolean isSentenceLogging()
+	{	return sentenceLogging;
+	}
 	
 	/////////////////////////////////////////////////////////////////
 	// PROCESSING	 		/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
 	@Override
-	protected Chunking detectEntities(Article article)
+	protected Chunking detectEntities(Article article) throws RecognizerException
 	{	logger.increaseOffset();
 		String text = article.getRawText();
 		Chunking result = null;
@@ -185,33 +306,23 @@ public class LingPipe extends AbstractModelBasedInternalRecognizer<Chunking, Lin
 		// split sentences (seems to improves performance)
 		if(splitSentences)
 		{	logger.log("Split text into sentences");
-			Chunking sentences = sentenceChunker.chunk(text);
+			TextAnnotation sentences = article.getAnnotation(SEGMENTER);
+			int sentenceNbr = sentences.getSentenceCount();
 			ChunkingImpl res = new ChunkingImpl(text);
 			
 			// process each sentence separately
-			logger.log("Process each sentence separately");
-			logger.increaseOffset();
-			for(Chunk sentence: sentences.chunkSet())
-			{	// get sentence text
-				int startIndex = sentence.start();
-				int endIndex = sentence.end();
-				logger.log("Process sentence ["+startIndex+","+endIndex+"]");
-				String sentenceStr = text.substring(startIndex,endIndex);
-				
-				// look for entities
-				Chunking words = chunker.chunk(sentenceStr);
-				logger.log("Found "+words.chunkSet().size()+" raw words");
-				// add them to final result
-				for(Chunk word: words.chunkSet())
-				{	int start = word.start() + startIndex;
-					int end = word.end() + startIndex;
-					String type = word.type();
-					double score = word.score();
-					Chunk temp = ChunkFactory.createChunk(start, end, type, score);
-					res.add(temp);
-				}
+			int blockNbr = Math.min(threadNbr*BLOCKS_PER_THREAD, sentenceNbr/MIN_BLOCK_SIZE);
+			if(threadNbr==1 || blockNbr<2)
+			{	logger.log("Process each sentence separately");
+				logger.increaseOffset();
+				List<Chunk> chunks = processSentences(sentences, 0, sentenceNbr, sentenceLogging);
+				res.addAll(chunks);
+				logger.decreaseOffset();
+			}
+			else
+			{	logger.log("Process the "+sentenceNbr+" sentences in "+blockNbr+" blocks, using "+threadNbr+" threads");
+				processSentencesConcurrently(sentences, blockNbr, res);
 			}
-			logger.decreaseOffset();
 			result = res;
 		}
 
@@ -223,4 +334,105 @@ public class LingPipe extends AbstractModelBasedInternalRecognizer<Chunking, Lin
 		logger.decreaseOffset();
 		return result;
 	}
+	
+	/**
+	 * Splits the sentences of the article into contiguous blocks, 
+	 * and applies the chunker to them concurrently. The entities 
+	 * are then added to the result in the order of the text.
+	 * 
+	 * @param sentences
+	 * 		Sentences of the article.
+	 * @param blockNbr
+	 * 		Number of sentence blocks.
+	 * @param result
+	 * 		Chunking completed with the detected entities.
+	 * 
+	 * @throws RecognizerException
+	 * 		Problem while processing a block of sentences.
+	 */
+	private void processSentencesConcurrently(final TextAnnotation sentences, int blockNbr, ChunkingImpl result) throws RecognizerException
+	{	int sentenceNbr = sentences.getSentenceCount();
+		ExecutorService executor = getExecutor();
+		List<Future<List<Chunk>>> futures = new ArrayList<Future<List<Chunk>>>();
+		try
+		{	// submit the blocks
+			for(int b=0;b<blockNbr;b++)
+			{	final int first = (int)((long)sentenceNbr * b / blockNbr);
+				final int last = (int)((long)sentenceNbr * (b+1) / blockNbr);
+				Future<List<Chunk>> future = executor.submit(new Callable<List<Chunk>>()
+				{	@Override
+					public List<Chunk> call() throws Exception
+					{	List<Chunk> result = processSentences(sentences, first, last, false);
+						return result;
+					}
+				});
+				futures.add(future);
+			}
+			
+			// add their results in the order of the text
+			for(Future<List<Chunk>> future: futures)
+			{	List<Chunk> chunks = future.get();
+				result.addAll(chunks);
+			}
+		}
+		catch (InterruptedException e)
+		{	Thread.currentThread().interrupt();
+			throw new RecognizerException("Interrupted while processing the sentences");
+		}
+		catch (ExecutionException e)
+		{	Throwable cause = e.getCause();
+			cause.printStackTrace();
+			throw new RecognizerException(cause.getMessage());
+		}
+		finally
+		{	// stop the remaining blocks in case of problem (no effect otherwise)
+			for(Future<List<Chunk>> future: futures)
+				future.cancel(true);
+		}
+	}
+	
+	/**
+	 * Applies the chunker to a range of sentences, and 
+	 * returns the detected entities, using positions 
+	 * relative to the whole text.
+	 * 
+	 * @param sentences
+	 * 		Sentences of the article.
+	 * @param firstSentence
+	 * 		Index of the first sentence to process.
+	 * @param lastSentence
+	 * 		Index following the last sentence to process.
+	 * @param log
+	 * 		Whether each sentence should be logged.
+	 * @return
+	 * 		List of the detected entities, in the order of the text.
+	 */
+	private List<Chunk> processSentences(TextAnnotation sentences, int firstSentence, int lastSentence, boolean log)
+	{	List<Chunk> result = new ArrayList<Chunk>();
+		
+		for(int s=firstSentence;s<lastSentence;s++)
+		{	// get sentence text
+			int startIndex = sentences.getSentenceStart(s);
+			int endIndex = sentences.getSentenceEnd(s);
+			if(log)
+				logger.log("Process sentence ["+startIndex+","+endIndex+"]");
+			String sentenceStr = sentences.getSentenceString(s);
+			
+			// look for entities
+			Chunking words = chunker.chunk(sentenceStr);
+			if(log)
+				logger.log("Found "+words.chunkSet().size()+" raw words");
+			// add them to final result
+			for(Chunk word: words.chunkSet())
+			{	int start = word.start() + startIndex;
+				int end = word.end() + startIndex;
+				String type = word.type();
+				double score = word.score();
+				Chunk temp = ChunkFactory.createChunk(start, end, type, score);
+				result.add(temp);
+			}
+		}
+		
+		return result;
+	}
 }
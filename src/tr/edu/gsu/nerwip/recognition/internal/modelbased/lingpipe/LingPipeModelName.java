@@ -37,6 +37,7 @@ import com.aliasi.util.AbstractExternalizable;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
@@ -109,6 +110,33 @@ public enum LingPipeModelName
 		return result;
 	}
 	
+	/**
+	 * Returns all the files this model is
+	 * built from: the serialized chunker, or
+	 * the lists used to build the dictionary.
+	 * 
+	 * @return
+	 * 		List of the files constituting the model.
+	 */
+	public List<File> getDataFiles()
+	{	List<File> result = new ArrayList<File>();
+		switch(this)
+		{	case PREDEFINED_MODEL:
+			case NERWIP_MODEL:
+				result.add(getModelFile());
+				break;
+			case EXACT_DICTIONARY:
+			case APPROX_DICTIONARY:
+				for(EntityType type: HANDLED_TYPES)
+				{	String typeStr = type.toString().toLowerCase(Locale.ENGLISH);
+					String filePath = FileNames.FO_CUSTOM_LISTS + File.separator + typeStr + "s" + FileNames.EX_TXT;
+					result.add(new File(filePath));
+				}
+				break;
+		}
+		return result;
+	}
+	
 	/**
 	 * Loads the data corresponding to the
 	 * LingPipe model represented by this symbol.
@@ -0,0 +1,119 @@
+package tr.edu.gsu.nerwip.recognition.internal.modelbased.lingpipe;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+import java.util.Set;
+
+import com.aliasi.chunk.Chunk;
+import com.aliasi.chunk.Chunker;
+import com.aliasi.sentences.IndoEuropeanSentenceModel;
+import com.aliasi.sentences.SentenceChunker;
+import com.aliasi.sentences.SentenceModel;
+import com.aliasi.tokenizer.IndoEuropeanTokenizerFactory;
+import com.aliasi.tokenizer.Tokenizer;
+import com.aliasi.tokenizer.TokenizerFactory;
+
+import tr.edu.gsu.nerwip.data.article.TextAnnotation;
+import tr.edu.gsu.nerwip.data.article.TextSegmenter;
+
+/**
+ * Segmenter relying on the LingPipe Indo-European
+ * tokenizer and sentence model, like in {@link LingPipe}.
+ * <br/>
+ * These LingPipe objects are thread-safe, so
+ * this segmenter can be shared.
+ * 
+ * @author Vincent Labatut
+ */
+public class LingPipeSegmenter implements TextSegmenter
+{	
+	/**
+	 * Builds a new segmenter.
+	 */
+	public LingPipeSegmenter()
+	{	tokenizerFactory = IndoEuropeanTokenizerFactory.INSTANCE;
+		SentenceModel sentenceModel = new IndoEuropeanSentenceModel();
+		sentenceChunker = new SentenceChunker(tokenizerFactory,sentenceModel);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// NAME				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Name of this segmenter */
+	private static final String NAME = "LingPipe_IndoEuropean";
+	
+	@Override
+	public String getSegmenterName()
+	{	return NAME;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// SEGMENTATION		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Object used to split text into words */
+	private final TokenizerFactory tokenizerFactory;
+	/** Object used to detect sentences */
+	private final Chunker sentenceChunker;
+	
+	@Override
+	public TextAnnotation segment(String text)
+	{	// split sentences
+		Set<Chunk> sentences = sentenceChunker.chunk(text).chunkSet();
+		int[] sentenceStarts = new int[sentences.size()];
+		int[] sentenceEnds = new int[sentences.size()];
+		int s = 0;
+		for(Chunk sentence: sentences)
+		{	sentenceStarts[s] = sentence.start();
+			sentenceEnds[s] = sentence.end();
+			s++;
+		}
+		
+		// split tokens
+		char[] chars = text.toCharArray();
+		Tokenizer tokenizer = tokenizerFactory.tokenizer(chars, 0, chars.length);
+		int[] tokenStarts = new int[16];
+		int[] tokenEnds = new int[16];
+		int count = 0;
+		while(tokenizer.nextToken()!=null)
+		{	if(count==tokenStarts.length)
+			{	int[] temp = new int[2*count];
+				System.arraycopy(tokenStarts, 0, temp, 0, count);
+				tokenStarts = temp;
+				temp = new int[2*count];
+				System.arraycopy(tokenEnds, 0, temp, 0, count);
+				tokenEnds = temp;
+			}
+			tokenStarts[count] = tokenizer.lastTokenStartPosition();
+			tokenEnds[count] = tokenizer.lastTokenEndPosition();
+			count++;
+		}
+		int[] starts = new int[count];
+		int[] ends = new int[count];
+		System.arraycopy(tokenStarts, 0, starts, 0, count);
+		System.arraycopy(tokenEnds, 0, ends, 0, count);
+		
+		TextAnnotation result = new TextAnnotation(text, sentenceStarts, sentenceEnds, starts, ends);
+		return result;
+	}
+}
@@ -24,6 +24,7 @@ package tr.edu.gsu.nerwip.recognition.internal.modelbased.opennlp;
  * If not, see <http://www.gnu.org/licenses/>.
  */
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -31,17 +32,27 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import opennlp.tools.namefind.NameFinderME;
+import opennlp.tools.namefind.TokenNameFinderModel;
 import opennlp.tools.sentdetect.SentenceDetectorME;
 import opennlp.tools.tokenize.Tokenizer;
 import opennlp.tools.util.InvalidFormatException;
 import opennlp.tools.util.Span;
 import tr.edu.gsu.nerwip.data.article.Article;
+import tr.edu.gsu.nerwip.data.article.TextAnnotation;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
 import tr.edu.gsu.nerwip.recognition.RecognizerName;
 import tr.edu.gsu.nerwip.recognition.internal.modelbased.AbstractModelBasedInternalRecognizer;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ModelRegistry;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ModelRegistry.ModelLoader;
 
 /**
  * This class acts as an interface with the Apache OpenNLP tool.
@@ -104,6 +115,12 @@ public class OpenNlp extends AbstractModelBasedInternalRecognizer<Map<EntityType
 		return result;
 	}
 
+	@Override
+	public List<File> getModelFiles()
+	{	List<File> result = modelName.getDataFiles();
+		return result;
+	}
+
 	/////////////////////////////////////////////////////////////////
 	// ENTITIES			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -117,50 +134,231 @@ public class OpenNlp extends AbstractModelBasedInternalRecognizer<Map<EntityType
 	/////////////////////////////////////////////////////////////////
 	// MODELS			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	/** Shared models (cf. {@link ModelRegistry}), from which the following objects are built */
+	private OpenNlpModels sharedModels;
 	/** Object used to split text into sentences */
 	private SentenceDetectorME sentenceDetector;
 	/** Object used to split sentences into words */
 	private Tokenizer tokenizer;
-	/** Models used by OpenNLP to detect entities */
-	private Map<NameFinderME,EntityType> models;
+	/** Name finders used by OpenNLP to detect entities (when processing sentences sequentially) */
+	private NameFinders nameFinders;
+	/** Object used to split articles into sentences and tokens, based on the two previous tools */
+	private OpenNlpSegmenter segmenter;
 
     @Override
 	protected boolean isLoadedModel()
-    {	boolean result = sentenceDetector!=null && tokenizer!=null && models!=null;
+    {	boolean result = sentenceDetector!=null && tokenizer!=null && nameFinders!=null;
     	return result;
     }
     
     @Override
 	protected void resetModel()
-    {	sentenceDetector = null;
+    {	if(sharedModels!=null)
+    	{	ModelRegistry.releaseModel(modelName,this);
+    		sharedModels = null;
+    	}
+    	sentenceDetector = null;
     	tokenizer = null;
-    	models = null;
+    	nameFinders = null;
+    	segmenter = null;
+    	synchronized(nameFinderPool)
+    	{	nameFinderPool.clear();
+    	}
     }
 	
 	@Override
 	protected void loadModel() throws RecognizerException
 	{	logger.increaseOffset();
 		
-		try
-		{	// load secondary objects	
-			sentenceDetector = modelName.loadSentenceDetector();
-			tokenizer = modelName.loadTokenizer();
-			
-			// load main models
-			models = modelName.loadNerModels();
-		} 
-		catch (InvalidFormatException e)
-		{	e.printStackTrace();
-			throw new RecognizerException(e.getMessage());
-		}
-		catch (IOException e)
-		{	e.printStackTrace();
-			throw new RecognizerException(e.getMessage());
-		}
+		// get the shared models
+		sharedModels = ModelRegistry.acquireModel(modelName, this, new ModelLoader<OpenNlpModels>()
+		{	@Override
+			public OpenNlpModels loadModel() throws RecognizerException
+			{	OpenNlpModels result;
+				try
+				{	result = modelName.loadModels();
+				} 
+				catch (InvalidFormatException e)
+				{	e.printStackTrace();
+					throw new RecognizerException(e.getMessage());
+				}
+				catch (IOException e)
+				{	e.printStackTrace();
+					throw new RecognizerException(e.getMessage());
+				}
+				return result;
+			}
+		});
+		
+		// the OpenNLP tools are stateful, so they are not shared
+		sentenceDetector = sharedModels.buildSentenceDetector();
+		tokenizer = sharedModels.buildTokenizer();
+		nameFinders = new NameFinders(sharedModels);
+		segmenter = new OpenNlpSegmenter(modelName, sentenceDetector, tokenizer);
 		
 		logger.decreaseOffset();
 	}
 	
+	/////////////////////////////////////////////////////////////////
+	// NAME FINDERS		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Name finders available for the worker threads (cf. {@link #threadNbr}) */
+	private final List<NameFinders> nameFinderPool = new ArrayList<NameFinders>();
+	
+	/**
+	 * Set of name finders built from the shared models, 
+	 * sorted according to {@link #TYPE_PRIORITIES} (models 
+	 * handling other types are ignored). The OpenNLP name 
+	 * finders are stateful, so one set cannot be used by
+	 * several threads at once.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	private static class NameFinders
+	{	
+		/**
+		 * Builds a new set of name finders.
+		 * 
+		 * @param sharedModels
+		 * 		Models used to build the name finders.
+		 */
+		public NameFinders(OpenNlpModels sharedModels)
+		{	List<NameFinderME> f = new ArrayList<NameFinderME>();
+			List<EntityType> t = new ArrayList<EntityType>();
+			for(EntityType type: TYPE_PRIORITIES)
+			{	for(Entry<TokenNameFinderModel,EntityType> entry: sharedModels.getNerModels().entrySet())
+				{	if(entry.getValue()==type)
+					{	f.add(new NameFinderME(entry.getKey()));
+						t.add(type);
+					}
+				}
+			}
+			finders = f.toArray(new NameFinderME[f.size()]);
+			types = t.toArray(new EntityType[t.size()]);
+		}
+		
+		/** Name finders, in the order they must be applied */
+		private final NameFinderME finders[];
+		/** Entity type handled by each name finder */
+		private final EntityType types[];
+	}
+	
+	/**
+	 * Takes a set of name finders from the pool,
+	 * or builds a new one if the pool is empty.
+	 * 
+	 * @return
+	 * 		A set of name finders.
+	 */
+	private NameFinders borrowNameFinders()
+	{	NameFinders result = null;
+		synchronized(nameFinderPool)
+		{	if(!nameFinderPool.isEmpty())
+				result = nameFinderPool.remove(nameFinderPool.size()-1);
+		}
+		if(result==null)
+			result = new NameFinders(sharedModels);
+		return result;
+	}
+	
+	/**
+	 * Puts back a set of name finders in the pool,
+	 * so that it can be used by another worker.
+	 * 
+	 * @param finders
+	 * 		Set of name finders previously borrowed.
+	 */
+	private void returnNameFinders(NameFinders finders)
+	{	synchronized(nameFinderPool)
+		{	nameFinderPool.add(finders);
+		}
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// THREADS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Maximal number of threads used to process the sentences of an article (the value {@code 1} means they are processed sequentially) */
+	private int threadNbr = 1;
+	/** Threads used to process the sentences concurrently (created on first use) */
+	private ExecutorService executor = null;
+	/** Minimal number of sentences processed by each worker thread */
+	private static final int MIN_BLOCK_SIZE = 8;
+	/** Number of sentence blocks per thread (several blocks allow balancing the workload) */
+	private static final int BLOCKS_PER_THREAD = 4;
+	
+	/**
+	 * Changes the maximal number of threads used
+	 * to process the sentences of an article. The
+	 * value {@code 1} means the sentences are processed
+	 * sequentially. Otherwise, each thread uses its own
+	 * name finders, and the detected entities are the
+	 * same as in the sequential case.
+	 * <br/>
+	 * This is only worth it for long articles, and
+	 * when this recognizer is not already applied 
+	 * concurrently to several articles.
+	 * <br/>
+	 * The threads are created when first needed, and
+	 * then reused for all the articles, until 
+	 * {@link #shutdownThreads()} is called.
+	 * 
+	 * @param threadNbr
+	 * 		New number of threads.
+	 */
+	public synchronized void setThreadNumber(int threadNbr)
+	{	if(threadNbr<1)
+			throw new IllegalArgumentException("The number of threads must be at least 1 ("+threadNbr+")");
+		if(threadNbr!=this.threadNbr)
+			shutdownThreads();
+		this.threadNbr = threadNbr;
+	}
+	
+	/**
+	 * Returns the maximal number of threads used
+	 * to process the sentences of an article.
+	 * 
+	 * @return
+	 * 		Number of threads used.
+	 */
+	public int getThreadNumber()
+	{	return threadNbr;
+	}
+	
+	/**
+	 * Returns the threads used to process the sentences
+	 * concurrently, after having created them if necessary.
+	 * They do not prevent the JVM from exiting.
+	 * 
+	 * @return
+	 * 		The executor of this recognizer.
+	 */
+	private synchronized ExecutorService getExecutor()
+	{	if(executor==null)
+		{	executor = Executors.newFixedThreadPool(threadNbr, new ThreadFactory()
+			{	@Override
+				public Thread newThread(Runnable runnable)
+				{	Thread result = new Thread(runnable);
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	/**
+	 * Releases the threads used to process the
+	 * sentences concurrently. This should be called
+	 * once the recognizer is not needed anymore. If it
+	 * is used again afterwards, new threads are created.
+	 */
+	public synchronized void shutdownThreads()
+	{	if(executor!=null)
+		{	executor.shutdownNow();
+			executor = null;
+		}
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// PROCESSING	 		/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -172,62 +370,146 @@ public class OpenNlp extends AbstractModelBasedInternalRecognizer<Map<EntityType
 	{	logger.increaseOffset();
 		Map<EntityType,List<Span>> result = new HashMap<EntityType, List<Span>>();
 		
-		// split sentences
-		logger.log("Process each sentence");
-		String text = article.getRawText();
-		Span sentenceSpans[] = sentenceDetector.sentPosDetect(text);
-		for(Span sentenceSpan: sentenceSpans)
-		{	int startSentPos = sentenceSpan.getStart();
-			int endSentPos = sentenceSpan.getEnd();
-			String sentence = text.substring(startSentPos,endSentPos);
+		// split sentences and tokens (possibly already done for this article)
+		TextAnnotation annotation = article.getAnnotation(segmenter);
+		int sentenceNbr = annotation.getSentenceCount();
+		if(sentenceNbr>0)
+		{	for(EntityType type: TYPE_PRIORITIES)
+				result.put(type, new ArrayList<Span>());
+		}
+		
+		// process the sentences
+		int blockNbr = Math.min(threadNbr*BLOCKS_PER_THREAD, sentenceNbr/MIN_BLOCK_SIZE);
+		if(threadNbr==1 || blockNbr<2)
+		{	logger.log("Process each sentence");
+			processSentences(annotation, 0, sentenceNbr, nameFinders, result);
+		}
+		else
+		{	logger.log("Process the "+sentenceNbr+" sentences in "+blockNbr+" blocks, using "+threadNbr+" threads");
+			processSentencesConcurrently(annotation, blockNbr, result);
+		}
+		
+	    logger.decreaseOffset();
+		return result;
+	}
+	
+	/**
+	 * Splits the sentences of the article into contiguous blocks, 
+	 * and processes them concurrently. Each block uses its own
+	 * name finders, borrowed from the pool. The entities are then
+	 * merged in the order of the text.
+	 * 
+	 * @param annotation
+	 * 		Sentences and tokens of the article.
+	 * @param blockNbr
+	 * 		Number of sentence blocks.
+	 * @param result
+	 * 		Map completed with the detected entities.
+	 * 
+	 * @throws RecognizerException
+	 * 		Problem while processing a block of sentences.
+	 */
+	private void processSentencesConcurrently(final TextAnnotation annotation, int blockNbr, Map<EntityType,List<Span>> result) throws RecognizerException
+	{	int sentenceNbr = annotation.getSentenceCount();
+		ExecutorService executor = getExecutor();
+		List<Future<Map<EntityType,List<Span>>>> futures = new ArrayList<Future<Map<EntityType,List<Span>>>>();
+		try
+		{	// submit the blocks
+			for(int b=0;b<blockNbr;b++)
+			{	final int first = (int)((long)sentenceNbr * b / blockNbr);
+				final int last = (int)((long)sentenceNbr * (b+1) / blockNbr);
+				Future<Map<EntityType,List<Span>>> future = executor.submit(new Callable<Map<EntityType,List<Span>>>()
+				{	@Override
+					public Map<EntityType,List<Span>> call() throws Exception
+					{	Map<EntityType,List<Span>> result = new HashMap<EntityType, List<Span>>();
+						for(EntityType type: TYPE_PRIORITIES)
+							result.put(type, new ArrayList<Span>());
+						NameFinders finders = borrowNameFinders();
+						try
+						{	processSentences(annotation, first, last, finders, result);
+						}
+						finally
+						{	returnNameFinders(finders);
+						}
+						return result;
+					}
+				});
+				futures.add(future);
+			}
 			
-			// split tokens
-			String tokens[] = tokenizer.tokenize(sentence);
-			Span tokenSpans[] = tokenizer.tokenizePos(sentence);
+			// merge their results in the order of the text
+			for(Future<Map<EntityType,List<Span>>> future: futures)
+			{	Map<EntityType,List<Span>> temp = future.get();
+				for(EntityType type: TYPE_PRIORITIES)
+					result.get(type).addAll(temp.get(type));
+			}
+		}
+		catch (InterruptedException e)
+		{	Thread.currentThread().interrupt();
+			throw new RecognizerException("Interrupted while processing the sentences");
+		}
+		catch (ExecutionException e)
+		{	Throwable cause = e.getCause();
+			cause.printStackTrace();
+			throw new RecognizerException(cause.getMessage());
+		}
+		finally
+		{	// stop the remaining blocks in case of problem (no effect otherwise)
+			for(Future<Map<EntityType,List<Span>>> future: futures)
+				future.cancel(true);
+		}
+	}
+	
+	/**
+	 * Applies the specified name finders to a range of 
+	 * sentences, and adds the detected entities to the
+	 * result map. The name finders are reset after each
+	 * sentence, so the result of a sentence does not depend
+	 * on the previous ones.
+	 * 
+	 * @param annotation
+	 * 		Sentences and tokens of the article.
+	 * @param firstSentence
+	 * 		Index of the first sentence to process.
+	 * @param lastSentence
+	 * 		Index following the last sentence to process.
+	 * @param finders
+	 * 		Name finders used to detect the entities.
+	 * @param result
+	 * 		Map completed with the detected entities 
+	 * 		(one list for each type in {@link #TYPE_PRIORITIES}).
+	 */
+	private void processSentences(TextAnnotation annotation, int firstSentence, int lastSentence, NameFinders finders, Map<EntityType,List<Span>> result)
+	{	for(int s=firstSentence;s<lastSentence;s++)
+		{	// get the tokens
+			int firstToken = annotation.getSentenceFirstToken(s);
+			String tokens[] = annotation.getSentenceTokenStrings(s);
 			
 			// apply each model according to the type priorities
-//			logger.log("Process the models for each entity type");
-			for(EntityType type: TYPE_PRIORITIES)
-			{	List<Span> list = result.get(type);
-				if(list==null)
-				{	list = new ArrayList<Span>();
-					result.put(type,list);
-				}
+			for(int i=0;i<finders.finders.length;i++)
+			{	// detect entities
+				NameFinderME model = finders.finders[i];
+				List<Span> list = result.get(finders.types[i]);
+				Span nameSpans[] = model.find(tokens);
 				
-				for(Entry<NameFinderME,EntityType> entry: models.entrySet())
-				{	EntityType t = entry.getValue();
-					if(type==t)
-					{	// detect entities
-						NameFinderME model = entry.getKey();
-						Span nameSpans[] = model.find(tokens);
-						
-						// add them to result list
-						for(Span span: nameSpans)
-						{	// get start position
-							int first = span.getStart();
-							Span firstSpan = tokenSpans[first];
-							int startPos = firstSpan.getStart() + startSentPos;
-							// get end position
-							int last = span.getEnd() - 1;
-							Span lastSpan = tokenSpans[last];
-							int endPos = lastSpan.getEnd() + startSentPos;
-							// build new span
-							String typeStr = span.getType(); 
-							Span temp = new Span(startPos, endPos, typeStr);
-//System.out.println(span.toString());
-//System.out.println(text.substring(temp.getStart(),temp.getEnd()));
-							// add to list
-							list.add(temp);
-						}
-						
-						// reset model for next document
-						model.clearAdaptiveData();
-					}
+				// add them to result list
+				for(Span span: nameSpans)
+				{	// get start position
+					int first = firstToken + span.getStart();
+					int startPos = annotation.getTokenStart(first);
+					// get end position
+					int last = firstToken + span.getEnd() - 1;
+					int endPos = annotation.getTokenEnd(last);
+					// build new span
+					String typeStr = span.getType(); 
+					Span temp = new Span(startPos, endPos, typeStr);
+					// add to list
+					list.add(temp);
 				}
+				
+				// reset model for next sentence
+				model.clearAdaptiveData();
 			}
 		}
-		
-	    logger.decreaseOffset();
-		return result;
 	}
 }
@@ -31,15 +31,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
-import opennlp.tools.namefind.NameFinderME;
 import opennlp.tools.namefind.TokenNameFinderModel;
 import opennlp.tools.sentdetect.SentenceDetectorME;
 import opennlp.tools.sentdetect.SentenceModel;
-import opennlp.tools.tokenize.TokenizerME;
 import opennlp.tools.tokenize.TokenizerModel;
 import opennlp.tools.util.InvalidFormatException;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ConcurrentModelLoader;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ModelSnapshots;
 import tr.edu.gsu.nerwip.tools.file.FileNames;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
@@ -149,80 +151,176 @@ public enum OpenNlpModelName
 	private Map<String,EntityType> modelFiles;
 	
 	/**
-	 * Loads the sentence detector used by the
+	 * Returns a name identifying the sentence detector
+	 * and tokenizer used by this model. Two models sharing
+	 * the same files produce the same segmentation, which
+	 * can therefore be shared (cf. {@link OpenNlpSegmenter}).
+	 * 
+	 * @return
+	 * 		A string representing the segmentation files.
+	 */
+	public String getSegmentationName()
+	{	String result = sentenceDetectorFile + "+" + tokenizerFile;
+		return result;
+	}
+	
+	/**
+	 * Returns the file actually loaded for the specified
+	 * model file, i.e. possibly its snapshot (cf. {@link ModelSnapshots}).
+	 * 
+	 * @param name
+	 * 		Name of the model file.
+	 * @return
+	 * 		The file to load.
+	 */
+	private File getFileToLoad(String name)
+	{	String fileName = FileNames.FO_OPENNLP + File.separator + name;
+		File file = new File(fileName);
+		File result = ModelSnapshots.getFileToLoad(file, ModelSnapshots.ZIP_WRITER);
+		return result;
+	}
+	
+	/**
+	 * Loads the sentence model used by the
 	 * model represented by this symbol.
+	 * Unlike the sentence detector, it can
+	 * be shared by several threads.
 	 * 
 	 * @return
-	 * 		The OpenNLP sentence detector used by this model.
+	 * 		The OpenNLP sentence model used by this model.
 	 * 
 	 * @throws IOException
-	 * 		Problem while loading the sentence detector. 
+	 * 		Problem while loading the sentence model. 
 	 * @throws InvalidFormatException 
-	 * 		Problem while loading the sentence detector.
+	 * 		Problem while loading the sentence model.
 	 */
-	public SentenceDetectorME loadSentenceDetector() throws InvalidFormatException, IOException
-	{	String fileName = FileNames.FO_OPENNLP + File.separator + sentenceDetectorFile;
-		File file = new File(fileName);
+	public SentenceModel loadSentenceModel() throws InvalidFormatException, IOException
+	{	File file = getFileToLoad(sentenceDetectorFile);
 		
 		logger.log("Load sentence detector: "+file.toString());
-		SentenceModel sentenceModel;
-		sentenceModel = new SentenceModel(file);
-		SentenceDetectorME result = new SentenceDetectorME(sentenceModel);
+		SentenceModel result = new SentenceModel(file);
 		
 		return result;
 	}
 
 	/**
-	 * Loads the tokenizer used by the
+	 * Loads the sentence detector used by the
 	 * model represented by this symbol.
 	 * 
 	 * @return
-	 * 		The OpenNLP tokenizer used by this model.
+	 * 		The OpenNLP sentence detector used by this model.
 	 * 
 	 * @throws IOException
-	 * 		Problem while loading the tokenizer.
+	 * 		Problem while loading the sentence detector. 
 	 * @throws InvalidFormatException 
-	 * 		Problem while loading the tokenizer.
+	 * 		Problem while loading the sentence detector.
 	 */
-	public TokenizerME loadTokenizer() throws InvalidFormatException, IOException
-	{	String fileName = FileNames.FO_OPENNLP + File.separator + tokenizerFile;
-		File file = new File(fileName);
-		
-		logger.log("Load tokenizer: "+file.toString());
-		TokenizerModel model = new TokenizerModel(file);
-		TokenizerME result = new TokenizerME(model);
-		
+	public SentenceDetectorME loadSentenceDetector() throws InvalidFormatException, IOException
+	{	SentenceModel sentenceModel = loadSentenceModel();
+		SentenceDetectorME result = new SentenceDetectorME(sentenceModel);
 		return result;
 	}
 	
 	/**
-	 * Loads the map of name finders used by the
-	 * model represented by this symbol.
+	 * Starts loading the name finder models, 
+	 * using the specified loader. The snapshots
+	 * are checked by the calling thread, which
+	 * also performs the logging.
+	 * 
+	 * @param loader
+	 * 		Object used to load the files concurrently.
+	 * @return
+	 * 		Map of futures representing the models, associated to their types.
+	 */
+	private Map<Future<TokenNameFinderModel>,EntityType> submitNerModels(ConcurrentModelLoader loader)
+	{	Map<Future<TokenNameFinderModel>,EntityType> result = new HashMap<Future<TokenNameFinderModel>,EntityType>();
+		for(Entry<String,EntityType> entry: modelFiles.entrySet())
+		{	final File file = getFileToLoad(entry.getKey());
+			EntityType type = entry.getValue();
+			logger.log("Load model: "+file.toString());
+			Future<TokenNameFinderModel> future = loader.submit(entry.getKey(), new Callable<TokenNameFinderModel>()
+			{	@Override
+				public TokenNameFinderModel call() throws Exception
+				{	TokenNameFinderModel result = new TokenNameFinderModel(file);
+					return result;
+				}
+			});
+			result.put(future,type);
+		}
+		return result;
+	}
+	
+	/**
+	 * Waits for the name finder models 
+	 * to be loaded, and returns them.
 	 * 
+	 * @param loader
+	 * 		Object used to load the files concurrently.
+	 * @param futures
+	 * 		Map of futures representing the models, associated to their types.
 	 * @return
-	 * 		The OpenNLP name finders used by this model.
+	 * 		Map of name finder models associated to their types.
+	 * 
+	 * @throws IOException
+	 * 		Problem while loading the models.
+	 */
+	private Map<TokenNameFinderModel,EntityType> collectNerModels(ConcurrentModelLoader loader, Map<Future<TokenNameFinderModel>,EntityType> futures) throws IOException
+	{	Map<TokenNameFinderModel,EntityType> result = new HashMap<TokenNameFinderModel,EntityType>();
+		for(Entry<Future<TokenNameFinderModel>,EntityType> entry: futures.entrySet())
+		{	TokenNameFinderModel model = loader.getResult(entry.getKey());
+			result.put(model,entry.getValue());
+		}
+		return result;
+	}
+	
+	/**
+	 * Loads all the models (sentence detection,
+	 * tokenization and NER) represented by 
+	 * this symbol, under a form which can be 
+	 * shared by several threads.
+	 * <br/>
+	 * All the model files are loaded concurrently.
+	 * 
+	 * @return
+	 * 		The OpenNLP models used by this model.
 	 * 
 	 * @throws IOException 
 	 * 		Problem while loading the models.
 	 * @throws InvalidFormatException
 	 * 		Problem while loading the models.
 	 */
-	public Map<NameFinderME, EntityType> loadNerModels() throws InvalidFormatException, IOException
-	{	logger.log("Load name finder models");
-		logger.increaseOffset();
-		
-		Map<NameFinderME, EntityType> result = new HashMap<NameFinderME,EntityType>();
-		for(Entry<String,EntityType> entry: modelFiles.entrySet())
-		{	String fileName = FileNames.FO_OPENNLP + File.separator + entry.getKey();
-			EntityType type = entry.getValue();
-			File file = new File(fileName);
-			logger.log("Load model: "+file.toString());
-			TokenNameFinderModel model = new TokenNameFinderModel(file);
-			NameFinderME nameFinder = new NameFinderME(model);
-			result.put(nameFinder,type);
+	public OpenNlpModels loadModels() throws InvalidFormatException, IOException
+	{	OpenNlpModels result;
+		ConcurrentModelLoader loader = new ConcurrentModelLoader(this);
+		try
+		{	// start loading all the files
+			final File sentenceFile = getFileToLoad(sentenceDetectorFile);
+			logger.log("Load sentence detector: "+sentenceFile.toString());
+			Future<SentenceModel> sentenceFuture = loader.submit(sentenceDetectorFile, new Callable<SentenceModel>()
+			{	@Override
+				public SentenceModel call() throws Exception
+				{	return new SentenceModel(sentenceFile);
+				}
+			});
+			final File tokenizerFile = getFileToLoad(this.tokenizerFile);
+			logger.log("Load tokenizer: "+tokenizerFile.toString());
+			Future<TokenizerModel> tokenizerFuture = loader.submit(this.tokenizerFile, new Callable<TokenizerModel>()
+			{	@Override
+				public TokenizerModel call() throws Exception
+				{	return new TokenizerModel(tokenizerFile);
+				}
+			});
+			Map<Future<TokenNameFinderModel>,EntityType> nerFutures = submitNerModels(loader);
+			
+			// wait for them
+			SentenceModel sentenceModel = loader.getResult(sentenceFuture);
+			TokenizerModel tokenizerModel = loader.getResult(tokenizerFuture);
+			Map<TokenNameFinderModel,EntityType> nerModels = collectNerModels(loader, nerFutures);
+			result = new OpenNlpModels(sentenceModel, tokenizerModel, nerModels);
+		}
+		finally
+		{	loader.close();
 		}
-		logger.decreaseOffset();
-	
 		return result;
 	}
 
@@ -248,6 +346,23 @@ public enum OpenNlpModelName
 		return result;
 	}
 	
+	/**
+	 * Returns all the files this model is
+	 * built from: sentence detector, tokenizer
+	 * and NER models.
+	 * 
+	 * @return
+	 * 		List of the files constituting the model.
+	 */
+	public List<File> getDataFiles()
+	{	List<File> result = new ArrayList<File>();
+		result.add(new File(FileNames.FO_OPENNLP + File.separator + sentenceDetectorFile));
+		result.add(new File(FileNames.FO_OPENNLP + File.separator + tokenizerFile));
+		for(String key: modelFiles.keySet())
+			result.add(new File(FileNames.FO_OPENNLP + File.separator + key));
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// ENTITY TYPES		/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -0,0 +1,117 @@
+package tr.edu.gsu.nerwip.recognition.internal.modelbased.opennlp;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.Collections;
+import java.util.Map;
+
+import opennlp.tools.namefind.TokenNameFinderModel;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import tr.edu.gsu.nerwip.data.entity.EntityType;
+
+/**
+ * Set of OpenNLP models corresponding to an {@link OpenNlpModelName}.
+ * These models are read-only, and can therefore be shared by
+ * several {@link OpenNlp} instances and threads. On the contrary, 
+ * the tools built from them (sentence detector, tokenizer, name
+ * finders) are stateful, so each user must get its own ones,
+ * through the {@code build...} methods.
+ * 
+ * @author Vincent Labatut
+ */
+public class OpenNlpModels
+{	
+	/**
+	 * Builds a new set of models.
+	 * 
+	 * @param sentenceModel
+	 * 		Model used to detect sentences.
+	 * @param tokenizerModel
+	 * 		Model used to split sentences into tokens.
+	 * @param nerModels
+	 * 		Models used to detect entities, with their types.
+	 */
+	public OpenNlpModels(SentenceModel sentenceModel, TokenizerModel tokenizerModel, Map<TokenNameFinderModel,EntityType> nerModels)
+	{	this.sentenceModel = sentenceModel;
+		this.tokenizerModel = tokenizerModel;
+		this.nerModels = Collections.unmodifiableMap(nerModels);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// SENTENCES		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Model used to detect sentences */
+	private final SentenceModel sentenceModel;
+	
+	/**
+	 * Builds a new sentence detector based on
+	 * the shared sentence model.
+	 * 
+	 * @return
+	 * 		A new OpenNLP sentence detector.
+	 */
+	public SentenceDetectorME buildSentenceDetector()
+	{	SentenceDetectorME result = new SentenceDetectorME(sentenceModel);
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// TOKENS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Model used to split sentences into tokens */
+	private final TokenizerModel tokenizerModel;
+	
+	/**
+	 * Builds a new tokenizer based on
+	 * the shared tokenizer model.
+	 * 
+	 * @return
+	 * 		A new OpenNLP tokenizer.
+	 */
+	public TokenizerME buildTokenizer()
+	{	TokenizerME result = new TokenizerME(tokenizerModel);
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ENTITIES			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Models used to detect entities, with their types */
+	private final Map<TokenNameFinderModel,EntityType> nerModels;
+	
+	/**
+	 * Returns the NER models, associated
+	 * to the types of entities they detect.
+	 * 
+	 * @return
+	 * 		An unmodifiable map of models.
+	 */
+	public Map<TokenNameFinderModel,EntityType> getNerModels()
+	{	return nerModels;
+	}
+}
@@ -0,0 +1,113 @@
+package tr.edu.gsu.nerwip.recognition.internal.modelbased.opennlp;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+import opennlp.tools.sentdetect.SentenceDetector;
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.util.Span;
+import tr.edu.gsu.nerwip.data.article.TextAnnotation;
+import tr.edu.gsu.nerwip.data.article.TextSegmenter;
+
+/**
+ * Segmenter relying on the OpenNLP sentence detector
+ * and tokenizer. Tokens are identified separately in 
+ * each sentence, like in {@link OpenNlp}.
+ * <br/>
+ * The OpenNLP tools are not thread-safe, so
+ * this segmenter should not be shared.
+ * 
+ * @author Vincent Labatut
+ */
+public class OpenNlpSegmenter implements TextSegmenter
+{	
+	/**
+	 * Builds a segmenter relying on the specified
+	 * OpenNLP tools.
+	 * 
+	 * @param modelName
+	 * 		Model the tools were built from.
+	 * @param sentenceDetector
+	 * 		Object used to split text into sentences.
+	 * @param tokenizer
+	 * 		Object used to split sentences into words.
+	 */
+	public OpenNlpSegmenter(OpenNlpModelName modelName, SentenceDetector sentenceDetector, Tokenizer tokenizer)
+	{	name = "OpenNlp_" + modelName.getSegmentationName();
+		this.sentenceDetector = sentenceDetector;
+		this.tokenizer = tokenizer;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// NAME				/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Name of this segmenter */
+	private final String name;
+	
+	@Override
+	public String getSegmenterName()
+	{	return name;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// SEGMENTATION		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Object used to split text into sentences */
+	private final SentenceDetector sentenceDetector;
+	/** Object used to split sentences into words */
+	private final Tokenizer tokenizer;
+	
+	@Override
+	public TextAnnotation segment(String text)
+	{	// split sentences
+		Span sentenceSpans[] = sentenceDetector.sentPosDetect(text);
+		int[] sentenceStarts = new int[sentenceSpans.length];
+		int[] sentenceEnds = new int[sentenceSpans.length];
+		Span tokenSpans[][] = new Span[sentenceSpans.length][];
+		int count = 0;
+		for(int s=0;s<sentenceSpans.length;s++)
+		{	sentenceStarts[s] = sentenceSpans[s].getStart();
+			sentenceEnds[s] = sentenceSpans[s].getEnd();
+			String sentence = text.substring(sentenceStarts[s],sentenceEnds[s]);
+			
+			// split tokens
+			tokenSpans[s] = tokenizer.tokenizePos(sentence);
+			count = count + tokenSpans[s].length;
+		}
+		
+		// use absolute token positions
+		int[] tokenStarts = new int[count];
+		int[] tokenEnds = new int[count];
+		int t = 0;
+		for(int s=0;s<sentenceSpans.length;s++)
+		{	for(Span span: tokenSpans[s])
+			{	tokenStarts[t] = span.getStart() + sentenceStarts[s];
+				tokenEnds[t] = span.getEnd() + sentenceStarts[s];
+				t++;
+			}
+		}
+		
+		TextAnnotation result = new TextAnnotation(text, sentenceStarts, sentenceEnds, tokenStarts, tokenEnds);
+		return result;
+	}
+}
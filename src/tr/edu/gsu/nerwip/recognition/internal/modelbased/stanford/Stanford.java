@@ -24,17 +24,34 @@ package tr.edu.gsu.nerwip.recognition.internal.modelbased.stanford;
  * If not, see <http://www.gnu.org/licenses/>.
  */
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import edu.stanford.nlp.ie.AbstractSequenceClassifier;
 import edu.stanford.nlp.ie.crf.CRFClassifier;
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetBeginAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetEndAnnotation;
 import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.objectbank.ObjectBank;
 import tr.edu.gsu.nerwip.data.article.Article;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
 import tr.edu.gsu.nerwip.recognition.RecognizerName;
 import tr.edu.gsu.nerwip.recognition.internal.modelbased.AbstractModelBasedInternalRecognizer;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ModelRegistry;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ModelRegistry.ModelLoader;
 
 /**
  * This class acts as an interface with Stanford Named Entity Recognizer.
@@ -100,6 +117,13 @@ public class Stanford extends AbstractModelBasedInternalRecognizer<List<List<Cor
 		return result;
 	}
 
+	@Override
+	public List<File> getModelFiles()
+	{	List<File> result = new ArrayList<File>();
+		result.add(new File(modelName.getModelFile()));
+		return result;
+	}
+
 	/////////////////////////////////////////////////////////////////
 	// ENTITIES TYPES	/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -113,7 +137,7 @@ public class Stanford extends AbstractModelBasedInternalRecognizer<List<List<Cor
 	/////////////////////////////////////////////////////////////////
 	// PREDEFINED MODEL 	/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
-	/** Cache the classifier, so that we don't have to load it several times */
+	/** Cache the classifier, so that we don't have to load it several times (it is shared through the {@link ModelRegistry}) */
 	private CRFClassifier<CoreLabel> classifier;
 
     @Override
@@ -124,7 +148,10 @@ public class Stanford extends AbstractModelBasedInternalRecognizer<List<List<Cor
     
     @Override
 	protected void resetModel()
-    {	classifier = null;
+    {	if(classifier!=null)
+    	{	ModelRegistry.releaseModel(modelName,this);
+    		classifier = null;
+    	}
     }
 
 	@Override
@@ -133,25 +160,487 @@ public class Stanford extends AbstractModelBasedInternalRecognizer<List<List<Cor
     	
     	// load classifier
 		logger.log("Load model");
-    	try
-    	{	classifier = modelName.loadData();
+		classifier = ModelRegistry.acquireModel(modelName, this, new ModelLoader<CRFClassifier<CoreLabel>>()
+		{	@Override
+			public CRFClassifier<CoreLabel> loadModel() throws RecognizerException
+			{	CRFClassifier<CoreLabel> result;
+		    	try
+		    	{	result = modelName.loadData();
+				}
+		    	catch (ClassCastException e)
+		    	{	e.printStackTrace();
+		    		throw new RecognizerException(e.getMessage());
+				}
+		    	catch (ClassNotFoundException e)
+		    	{	e.printStackTrace();
+					throw new RecognizerException(e.getMessage());
+				}
+		    	catch (IOException e)
+		    	{	e.printStackTrace();
+					throw new RecognizerException(e.getMessage());
+				}
+		    	return result;
+			}
+		});
+    	    	
+    	logger.decreaseOffset();
+    }
+    
+	/** Field of the Stanford classifiers containing the known lowercase words, or {@code null} if it cannot be accessed */
+	private static final Field KNOWN_LC_WORDS_FIELD = getKnownLCWordsField();
+	
+	/**
+	 * Retrieves the field of the Stanford classifiers
+	 * containing the known lowercase words, and makes
+	 * it accessible. This field is not part of the API: 
+	 * its name is the one used in Stanford NER 1.2.7
+	 * (the version distributed with Nerwip).
+	 * 
+	 * @return
+	 * 		The field, or {@code null} if it cannot be accessed.
+	 */
+	private static Field getKnownLCWordsField()
+	{	Field result;
+		try
+		{	result = AbstractSequenceClassifier.class.getDeclaredField("knownLCWords");
+			result.setAccessible(true);
 		}
-    	catch (ClassCastException e)
-    	{	e.printStackTrace();
-    		throw new RecognizerException(e.getMessage());
+		catch(NoSuchFieldException e)
+		{	result = null;
 		}
-    	catch (ClassNotFoundException e)
-    	{	e.printStackTrace();
-			throw new RecognizerException(e.getMessage());
+		catch(SecurityException e)
+		{	result = null;
 		}
-    	catch (IOException e)
-    	{	e.printStackTrace();
-			throw new RecognizerException(e.getMessage());
+		return result;
+	}
+	
+	/**
+	 * The classifier updates its set of known lowercase words
+	 * while reading a text (some word shapes depend on it). This 
+	 * set is restored from the model file, so depending on the 
+	 * version of Stanford which produced it, it may not be thread-safe.
+	 * This method replaces it by a concurrent set with the same
+	 * content (only once for each classifier), so that several 
+	 * windows can be read at the same time (see {@link #setThreadNumber(int)}).
+	 * It is therefore only called when windows are processed 
+	 * concurrently. The classifier lock is held meanwhile, since
+	 * the classifier can be shared with other recognizers.
+	 * 
+	 * @param classifier
+	 * 		Classifier of interest.
+	 * @return
+	 * 		{@code true} iff the set of the classifier is now
+	 * 		thread-safe, {@code false} if it could not be accessed.
+	 */
+	@SuppressWarnings("unchecked")
+	private static boolean makeKnownLCWordsConcurrent(CRFClassifier<CoreLabel> classifier)
+	{	boolean result = false;
+		if(KNOWN_LC_WORDS_FIELD!=null)
+		{	synchronized(classifier)
+			{	try
+				{	Set<String> knownLCWords = (Set<String>)KNOWN_LC_WORDS_FIELD.get(classifier);
+					if(knownLCWords!=null)
+					{	// the class identifies the sets already replaced (a wrapper could hide a non thread-safe map)
+						if(!(knownLCWords instanceof ConcurrentSkipListSet))
+						{	Set<String> concurrentSet = new ConcurrentSkipListSet<String>(knownLCWords);
+							KNOWN_LC_WORDS_FIELD.set(classifier, concurrentSet);
+						}
+						result = true;
+					}
+				}
+				catch(IllegalAccessException e)
+				{	e.printStackTrace();
+				}
+			}
 		}
-    	    	
-    	logger.decreaseOffset();
-    }
+		return result;
+	}
     
+	/////////////////////////////////////////////////////////////////
+	// WINDOWS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Maximal length of the text classified at once, in characters ({@code 0} for no limit) */
+	private int windowSize = 0;
+	/** Memory allowed for the texts being classified at the same time, in bytes ({@code 0} for no limit) */
+	private long memoryBudget = 0;
+	/** Maximal number of windows classified at the same time (the value {@code 1} means they are processed sequentially) */
+	private int threadNbr = 1;
+	/** Threads used to classify the windows concurrently (created on first use) */
+	private ExecutorService executor = null;
+	/** Number of characters each window shares with the previous and next ones */
+	private static final int WINDOW_MARGIN = 1000;
+	/** Smallest window size allowed, in characters */
+	private static final int MIN_WINDOW_SIZE = 4*WINDOW_MARGIN;
+	/** Rough estimation of the memory needed to classify one character of text, in bytes */
+	private static final int BYTES_PER_CHAR = 500;
+	
+	/**
+	 * Changes the maximal length of the text classified 
+	 * at once. Longer texts are split into overlapping windows, 
+	 * each one classified separately. The sentences are then 
+	 * stitched back, with the same offsets as when processing 
+	 * the whole text at once. If the windows do not agree on 
+	 * the sentence boundaries, the whole text is processed at once.
+	 * 
+	 * @param windowSize
+	 * 		Window size in characters, or {@code 0} for no limit.
+	 */
+	public void setWindowSize(int windowSize)
+	{	if(windowSize!=0 && windowSize<MIN_WINDOW_SIZE)
+			throw new IllegalArgumentException("The window size must be 0 or at least "+MIN_WINDOW_SIZE+" ("+windowSize+")");
+		this.windowSize = windowSize;
+	}
+	
+	/**
+	 * Returns the maximal length of the text classified 
+	 * at once, as set by {@link #setWindowSize(int)}.
+	 * 
+	 * @return
+	 * 		Window size in characters, or {@code 0} for no limit.
+	 */
+	public int getWindowSize()
+	{	return windowSize;
+	}
+	
+	/**
+	 * Changes the memory allowed for the texts being classified 
+	 * at the same time. The window size is reduced accordingly, 
+	 * depending on the number of threads (but it cannot be smaller
+	 * than {@value #MIN_WINDOW_SIZE} characters). This is a rough
+	 * estimation, which does not include the model itself, nor the
+	 * labels of the already processed windows.
+	 * 
+	 * @param memoryBudget
+	 * 		Memory in bytes, or {@code 0} for no limit.
+	 */
+	public void setMemoryBudget(long memoryBudget)
+	{	if(memoryBudget<0)
+			throw new IllegalArgumentException("The memory budget cannot be negative ("+memoryBudget+")");
+		this.memoryBudget = memoryBudget;
+	}
+	
+	/**
+	 * Returns the memory allowed for the texts 
+	 * being classified at the same time.
+	 * 
+	 * @return
+	 * 		Memory in bytes, or {@code 0} for no limit.
+	 */
+	public long getMemoryBudget()
+	{	return memoryBudget;
+	}
+	
+	/**
+	 * Changes the maximal number of windows classified 
+	 * at the same time. The value {@code 1} means they are 
+	 * processed sequentially. Otherwise, the tokenization 
+	 * of the windows is performed concurrently, but the 
+	 * classifier itself is still applied to one sentence 
+	 * at once, since it is shared and not thread-safe.
+	 * The tokenization also updates a set of the classifier, 
+	 * which is made thread-safe the first time windows are 
+	 * processed concurrently. If this is not possible (e.g. 
+	 * other version of Stanford), the tokenization is performed
+	 * under the classifier lock too.
+	 * <br/>
+	 * Note that when the model relies on known lowercase 
+	 * words (some word shapes do), Stanford updates this
+	 * list while reading the text. Like when processing 
+	 * several articles, the results can then slightly
+	 * depend on the order in which the windows are read. 
+	 * <br/>
+	 * The threads are created when first needed, and
+	 * then reused for all the articles, until 
+	 * {@link #shutdownThreads()} is called.
+	 * 
+	 * @param threadNbr
+	 * 		New number of threads.
+	 */
+	public synchronized void setThreadNumber(int threadNbr)
+	{	if(threadNbr<1)
+			throw new IllegalArgumentException("The number of threads must be at least 1 ("+threadNbr+")");
+		if(threadNbr!=this.threadNbr)
+			shutdownThreads();
+		this.threadNbr = threadNbr;
+	}
+	
+	/**
+	 * Returns the maximal number of windows
+	 * classified at the same time.
+	 * 
+	 * @return
+	 * 		Number of threads used.
+	 */
+	public int getThreadNumber()
+	{	return threadNbr;
+	}
+	
+	/**
+	 * Returns the threads used to classify the windows
+	 * concurrently, after having created them if necessary.
+	 * They do not prevent the JVM from exiting.
+	 * 
+	 * @return
+	 * 		The executor of this recognizer.
+	 */
+	private synchronized ExecutorService getExecutor()
+	{	if(executor==null)
+		{	executor = Executors.newFixedThreadPool(threadNbr, new ThreadFactory()
+			{	@Override
+				public Thread newThread(Runnable runnable)
+				{	Thread result = new Thread(runnable);
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+		return executor;
+	}
+	
+	/**
+	 * Releases the threads used to classify the
+	 * windows concurrently. This should be called
+	 * once the recognizer is not needed anymore. If it
+	 * is used again afterwards, new threads are created.
+	 */
+	public synchronized void shutdownThreads()
+	{	if(executor!=null)
+		{	executor.shutdownNow();
+			executor = null;
+		}
+	}
+	
+	/**
+	 * Processes the window size actually used,
+	 * considering both the specified size and
+	 * the memory budget.
+	 * 
+	 * @return
+	 * 		Window size in characters, or {@code 0} for no limit.
+	 */
+	private int getEffectiveWindowSize()
+	{	long result = windowSize;
+		if(memoryBudget>0)
+		{	long size = Math.max(MIN_WINDOW_SIZE, memoryBudget / ((long)BYTES_PER_CHAR*threadNbr));
+			if(result==0 || size<result)
+				result = size;
+		}
+		return (int)Math.min(Integer.MAX_VALUE, result);
+	}
+	
+	/**
+	 * Sentences of a window whose first token starts 
+	 * in the core of the window, i.e. in the part which 
+	 * is not shared with the previous and next windows.
+	 * 
+	 * @author Vincent Labatut
+	 */
+	private static class WindowResult
+	{	/** Classified sentences, with offsets relative to the whole text */
+		private final List<List<CoreLabel>> sentences = new ArrayList<List<CoreLabel>>();
+		/** Start of the first sentence located in the core (or after it), {@code -1} if none */
+		private int firstStart = -1;
+		/** Start of the first sentence located after the core, {@code -1} if none */
+		private int nextStart = -1;
+		/** Whether the window is consistent, i.e. its core is surrounded by complete sentences */
+		private boolean consistent = true;
+	}
+	
+	/**
+	 * Splits the text into overlapping windows, classifies 
+	 * them (possibly concurrently) and stitches the resulting
+	 * sentences.
+	 * 
+	 * @param text
+	 * 		Text to process.
+	 * @param size
+	 * 		Maximal length of a window.
+	 * @return
+	 * 		Classified sentences, or {@code null} if the 
+	 * 		windows do not agree on the sentence boundaries.
+	 * 
+	 * @throws RecognizerException
+	 * 		Problem while classifying a window.
+	 */
+	private List<List<CoreLabel>> classifyWindows(final String text, int size) throws RecognizerException
+	{	List<List<CoreLabel>> result = new ArrayList<List<CoreLabel>>();
+		
+		// split the text into window cores, each one with margins on both sides
+		final int margin = Math.min(WINDOW_MARGIN, size/4);
+		int step = size - 2*margin;
+		final int windowNbr = (text.length() + step - 1) / step;
+		final int cores[] = new int[windowNbr+1];
+		for(int w=0;w<windowNbr;w++)
+			cores[w] = w*step;
+		cores[windowNbr] = text.length();
+		logger.log("Process the text ("+text.length()+" chars) using "+windowNbr+" windows of at most "+size+" chars");
+		
+		// classify the windows
+		List<WindowResult> windows = new ArrayList<WindowResult>();
+		if(threadNbr==1)
+		{	for(int w=0;w<windowNbr;w++)
+			{	WindowResult window = classifyWindow(text, cores[w], cores[w+1], margin, false);
+				windows.add(window);
+			}
+		}
+		else
+		{	// the windows can be read without the classifier lock only if its known lowercase words are thread-safe
+			final boolean concurrentReading = makeKnownLCWordsConcurrent(classifier);
+			ExecutorService executor = getExecutor();
+			List<Future<WindowResult>> futures = new ArrayList<Future<WindowResult>>();
+			try
+			{	for(int w=0;w<windowNbr;w++)
+				{	final int coreStart = cores[w];
+					final int coreEnd = cores[w+1];
+					Future<WindowResult> future = executor.submit(new Callable<WindowResult>()
+					{	@Override
+						public WindowResult call() throws Exception
+						{	WindowResult result = classifyWindow(text, coreStart, coreEnd, margin, concurrentReading);
+							return result;
+						}
+					});
+					futures.add(future);
+				}
+				for(Future<WindowResult> future: futures)
+					windows.add(future.get());
+			}
+			catch (InterruptedException e)
+			{	Thread.currentThread().interrupt();
+				throw new RecognizerException("Interrupted while processing the windows");
+			}
+			catch (ExecutionException e)
+			{	Throwable cause = e.getCause();
+				cause.printStackTrace();
+				throw new RecognizerException(cause.getMessage());
+			}
+			finally
+			{	// stop the remaining windows in case of problem (no effect otherwise)
+				for(Future<WindowResult> future: futures)
+					future.cancel(true);
+			}
+		}
+		
+		// stitch the windows, checking they agree on the sentence boundaries
+		WindowResult previous = null;
+		Iterator<WindowResult> it = windows.iterator();
+		while(result!=null && it.hasNext())
+		{	WindowResult window = it.next();
+			if(!window.consistent || (previous!=null && previous.nextStart!=window.firstStart))
+				result = null;
+			else
+			{	result.addAll(window.sentences);
+				previous = window;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Classifies the sentences of the specified window which
+	 * start in its core. The other sentences are only used as a
+	 * context for the tokenizer and sentence splitter.
+	 * 
+	 * @param text
+	 * 		Whole text.
+	 * @param coreStart
+	 * 		Start of the window core.
+	 * @param coreEnd
+	 * 		End of the window core.
+	 * @param margin
+	 * 		Number of characters shared with the previous and next windows.
+	 * @param concurrentReading
+	 * 		Whether the window can be read without holding the classifier lock.
+	 * @return
+	 * 		The classified sentences of the core.
+	 */
+	private WindowResult classifyWindow(String text, int coreStart, int coreEnd, int margin, boolean concurrentReading)
+	{	WindowResult result = new WindowResult();
+		int windowStart = Math.max(0, coreStart-margin);
+		int windowEnd = Math.min(text.length(), coreEnd+margin);
+		// avoid cutting words in the margins (the fragments would be added to the known lowercase words)
+		while(windowStart>0 && windowStart<coreStart && !Character.isWhitespace(text.charAt(windowStart)))
+			windowStart++;
+		while(windowEnd<text.length() && windowEnd>coreEnd && !Character.isWhitespace(text.charAt(windowEnd)))
+			windowEnd--;
+		String windowText = text.substring(windowStart,windowEnd);
+		
+		// the documents are tokenized and processed lazily by the object bank, 
+		// which updates the known lowercase words of the classifier: unless this 
+		// set was made thread-safe, we must hold the classifier lock meanwhile
+		boolean before;
+		if(concurrentReading)
+			before = readWindow(windowText, windowStart, coreStart, coreEnd, result);
+		else
+		{	synchronized(classifier)
+			{	before = readWindow(windowText, windowStart, coreStart, coreEnd, result);
+			}
+		}
+		
+		// the core must be preceded and followed by complete sentences (unless it is at the beginning/end of the text)
+		if(result.firstStart==-1)
+			result.firstStart = result.nextStart;
+		if(windowStart>0 && !before)
+			result.consistent = false;
+		if(windowEnd<text.length() && result.nextStart==-1)
+			result.consistent = false;
+		
+		return result;
+	}
+	
+	/**
+	 * Reads the sentences of a window, and classifies 
+	 * those starting in its core.
+	 * 
+	 * @param windowText
+	 * 		Text of the window.
+	 * @param windowStart
+	 * 		Position of the window in the whole text.
+	 * @param coreStart
+	 * 		Start of the window core.
+	 * @param coreEnd
+	 * 		End of the window core.
+	 * @param result
+	 * 		Object completed with the classified sentences of the core.
+	 * @return
+	 * 		{@code true} iff a sentence starts before the core.
+	 */
+	private boolean readWindow(String windowText, int windowStart, int coreStart, int coreEnd, WindowResult result)
+	{	boolean before = false;
+		ObjectBank<List<CoreLabel>> documents = classifier.makeObjectBankFromString(windowText, classifier.plainTextReaderAndWriter());
+		Iterator<List<CoreLabel>> it = documents.iterator();
+		while(result.nextStart==-1 && result.consistent && it.hasNext())
+		{	List<CoreLabel> document = it.next();
+			if(document.isEmpty())
+				result.consistent = false;
+			else
+			{	int start = document.get(0).get(CharacterOffsetBeginAnnotation.class) + windowStart;
+				// sentence in the left margin
+				if(start<coreStart)
+					before = true;
+				// sentence after the core
+				else if(start>=coreEnd)
+					result.nextStart = start;
+				// sentence in the core
+				else
+				{	if(result.firstStart==-1)
+						result.firstStart = start;
+					// the classifier is shared with the other instances using the same model
+					synchronized(classifier)
+					{	classifier.classify(document);
+					}
+					for(CoreLabel word: document)
+					{	word.set(CharacterOffsetBeginAnnotation.class, word.get(CharacterOffsetBeginAnnotation.class)+windowStart);
+						word.set(CharacterOffsetEndAnnotation.class, word.get(CharacterOffsetEndAnnotation.class)+windowStart);
+					}
+					result.sentences.add(new ArrayList<CoreLabel>(document));
+				}
+			}
+		}
+		
+		return before;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// PROCESSING	 		/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -160,9 +649,22 @@ public class Stanford extends AbstractModelBasedInternalRecognizer<List<List<Cor
 	{	logger.increaseOffset();
 		List<List<CoreLabel>> result = null;
 		
-		// aply to raw text
+		// possibly split the text into windows
 		String text = article.getRawText();
-		result = classifier.classify(text);
+		int size = getEffectiveWindowSize();
+		if(size>0 && text.length()>size)
+		{	result = classifyWindows(text, size);
+			if(result==null)
+				logger.log("WARNING: the windows do not agree on the sentence boundaries, the whole text is processed at once");
+		}
+		
+		// aply to raw text
+		if(result==null)
+		{	// the classifier is shared with the other instances using the same model
+			synchronized(classifier)
+			{	result = classifier.classify(text);
+			}
+		}
 		
 		logger.decreaseOffset();
 		return result;
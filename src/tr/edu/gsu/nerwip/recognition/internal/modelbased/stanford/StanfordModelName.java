@@ -33,6 +33,7 @@ import edu.stanford.nlp.ie.crf.CRFClassifier;
 import edu.stanford.nlp.ling.CoreLabel;
 
 import tr.edu.gsu.nerwip.data.entity.EntityType;
+import tr.edu.gsu.nerwip.recognition.internal.modelbased.ModelSnapshots;
 import tr.edu.gsu.nerwip.tools.file.FileNames;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
 import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
@@ -148,6 +149,9 @@ public enum StanfordModelName
 	{	String path = getModelFile();
 		logger.log("Get the model from file "+path);
 		File file = new File(path);
+		// possibly use an uncompressed snapshot
+		if(file.getName().endsWith(".gz"))
+			file = ModelSnapshots.getFileToLoad(file, ModelSnapshots.GZIP_WRITER);
 		CRFClassifier<CoreLabel> result = CRFClassifier.getClassifier(file);
 		return result;
 	}
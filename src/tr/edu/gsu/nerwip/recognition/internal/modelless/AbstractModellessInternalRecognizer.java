@@ -67,4 +67,9 @@ public abstract class AbstractModellessInternalRecognizer<U,T extends AbstractIn
 	protected void prepareRecognizer() throws RecognizerException
 	{	// nothing to do here
 	}
+	
+	@Override
+	protected void finishRecognizer()
+	{	// nothing to do here
+	}
 }
@@ -24,19 +24,14 @@ package tr.edu.gsu.nerwip.recognition.internal.modelless.dateextractor;
  * If not, see <http://www.gnu.org/licenses/>.
  */
 
-import java.text.DateFormat;
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 
 import tr.edu.gsu.nerwip.data.article.Article;
-import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
 import tr.edu.gsu.nerwip.data.entity.EntityDate;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
@@ -50,7 +45,7 @@ import tr.edu.gsu.nerwip.recognition.internal.modelless.wikipediadater.Wikipedia
  * <br/>
  * However it is not efficient enough on WP articles, because
  * it incorrectly recognizes many irrelevent expressions as 
- * dates. This is partly due to the too many {@link SimpleDateFormat} 
+ * dates. This is partly due to the too many {@link DatePattern}s
  * it relies uppon. A more suitable tool was tailored for
  * Wikipedia articles, cf. {@link WikipediaDater}.
  * 
@@ -108,39 +103,53 @@ public class DateExtractor extends AbstractModellessInternalRecognizer<List<Enti
 	// PATTERNS		 		/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
 	/** Patterns used to detect full dates */
-	private static final List<SimpleDateFormat> DAY_MONTH_YEAR_PATTERNS = Arrays.asList(
-		new SimpleDateFormat("dd MMMM yyyy",Locale.ENGLISH),
-		new SimpleDateFormat("dd MMMM, yyyy",Locale.ENGLISH),
-		new SimpleDateFormat("MMMM dd, yyyy",Locale.ENGLISH),
-		new SimpleDateFormat("dd/MMMM/yyyy",Locale.ENGLISH),
-		new SimpleDateFormat("dd.MMMM.yyyy",Locale.ENGLISH),
-		new SimpleDateFormat("dd-MMMM-yyyy",Locale.ENGLISH),
-		new SimpleDateFormat("dd MM yyyy",Locale.ENGLISH), 
-		new SimpleDateFormat("dd/MM/yyyy",Locale.ENGLISH),
-		new SimpleDateFormat("dd.MM.yyyy",Locale.ENGLISH),
-		new SimpleDateFormat("yyyyy.MMMMM.dd",Locale.ENGLISH)
+	private static final List<DatePattern> DAY_MONTH_YEAR_PATTERNS = Arrays.asList(
+		new DatePattern("dd MMMM yyyy"),
+		new DatePattern("dd MMMM, yyyy"),
+		new DatePattern("MMMM dd, yyyy"),
+		new DatePattern("dd/MMMM/yyyy"),
+		new DatePattern("dd.MMMM.yyyy"),
+		new DatePattern("dd-MMMM-yyyy"),
+		new DatePattern("dd MM yyyy"), 
+		new DatePattern("dd/MM/yyyy"),
+		new DatePattern("dd.MM.yyyy"),
+		new DatePattern("yyyyy.MMMMM.dd")
 	);
 	/** Patterns used to detect dates with only month and year (no day) */ 
-	private static final List<SimpleDateFormat> MONTH_YEAR_PATTERNS = Arrays.asList(
-		new SimpleDateFormat("MMMM yyyy",Locale.ENGLISH),
-		new SimpleDateFormat("MMM yyyy",Locale.ENGLISH)
+	private static final List<DatePattern> MONTH_YEAR_PATTERNS = Arrays.asList(
+		new DatePattern("MMMM yyyy"),
+		new DatePattern("MMM yyyy")
 	);
 	/** Patterns used to detect dates with only day and month (no year) */ 
-	private static final List<SimpleDateFormat> DAY_MONTH_PATTERNS = Arrays.asList(
-		new SimpleDateFormat("dd MMMM",Locale.ENGLISH)
+	private static final List<DatePattern> DAY_MONTH_PATTERNS = Arrays.asList(
+		new DatePattern("dd MMMM")
 	);
 	/** Patterns used to detect dates with only month (no day, no year) */
-	private static final List<SimpleDateFormat> MONTH_PATTERNS = Arrays.asList(
-			new SimpleDateFormat("MMMM",Locale.ENGLISH)
+	private static final List<DatePattern> MONTH_PATTERNS = Arrays.asList(
+			new DatePattern("MMMM")
 	);
 	/** Patterns used to detect dates with only year (no day, no month) */
-	private static final List<SimpleDateFormat> YEAR_PATTERNS = Arrays.asList(
-			new SimpleDateFormat("yyyy",Locale.ENGLISH)
+	private static final List<DatePattern> YEAR_PATTERNS = Arrays.asList(
+			new DatePattern("yyyy")
+	);
+	/** Groups of patterns, by decreasing priority */
+	private static final List<List<DatePattern>> PATTERN_GROUPS = Arrays.asList(
+		DAY_MONTH_YEAR_PATTERNS,
+		MONTH_YEAR_PATTERNS,
+		DAY_MONTH_PATTERNS,
+		MONTH_PATTERNS,
+		YEAR_PATTERNS
 	);
 
 	/////////////////////////////////////////////////////////////////
 	// PROCESSING	 		/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	@Override
+	public boolean isThreadSafe()
+	{	// the patterns are immutable, and each call uses its own calendar
+		return true;
+	}
+	
 	@Override
 	protected List<EntityDate> detectEntities(Article article) throws RecognizerException
 	{	logger.increaseOffset();
@@ -148,106 +157,64 @@ public class DateExtractor extends AbstractModellessInternalRecognizer<List<Enti
 		
 		String text = article.getRawText();
 		
-		logger.log("Process day-month-year patterns");
-		extractDatePattern(text,result,DAY_MONTH_YEAR_PATTERNS,true,true,true);
-		
-		logger.log("Process month-year patterns");
-		extractDatePattern(text,result,MONTH_YEAR_PATTERNS,false,true,true);
-		
-		logger.log("Process day-month patterns");
-		extractDatePattern(text,result,DAY_MONTH_PATTERNS,true,true,false);
-		
-		logger.log("Process month patterns");
-		extractDatePattern(text,result,MONTH_PATTERNS,false,true,false);
-		
-		logger.log("Process year patterns");
-		extractDatePattern(text,result,YEAR_PATTERNS,false,false,true);
+		logger.log("Process all the pattern groups (day-month-year, month-year, day-month, month, year)");
+		List<List<EntityDate>> groupEntities = extractDates(text);
+		for(List<EntityDate> entities: groupEntities)
+			result.addAll(entities);
 		
 		logger.decreaseOffset();
 		return result;
 	}
 	
 	/**
-	 * Applies the specified list of patterns,
-	 * in order to detect classic dates.
+	 * Scans the text in order to detect classic dates. All the
+	 * groups of patterns are applied during the same pass over 
+	 * the text. For each group, a date can start only on a word 
+	 * beginning, and not inside a date previously detected by 
+	 * the same group. In a group, the first pattern matching
+	 * at a given position is used.
+	 * <br/>
+	 * This method can be used concurrently by several threads.
 	 * 
 	 * @param text
 	 * 		Whole text of the article.
-	 * @param entities
-	 * 		List of already detected dates.
-	 * @param patterns
-	 * 		List of patterns to apply.
-	 * @param dayFlag
-	 * 		Whether or not the pattern allows retrieving day numbers.
-	 * @param monthFlag
-	 * 		Whether or not the pattern allows retrieving month numbers.
-	 * @param yearFlag
-	 * 		Whether or not the pattern allows retrieving years numbers.
+	 * @return
+	 * 		A list of detected dates for each group of patterns,
+	 * 		in the order of {@link #PATTERN_GROUPS}.
 	 */
-	public void extractDatePattern(String text, List<EntityDate> entities, List<SimpleDateFormat> patterns, boolean dayFlag, boolean monthFlag, boolean yearFlag)
-	{	ParsePosition pos = new ParsePosition(0);
-		List<AbstractEntity<?>> temp = new ArrayList<AbstractEntity<?>>();
+	public List<List<EntityDate>> extractDates(String text)
+	{	List<List<EntityDate>> result = new ArrayList<List<EntityDate>>();
+		int[] lastEnds = new int[PATTERN_GROUPS.size()];
+		for(int g=0;g<PATTERN_GROUPS.size();g++)
+		{	result.add(new ArrayList<EntityDate>());
+			lastEnds[g] = -1;
+		}
+		Calendar calendar = Calendar.getInstance(Locale.ENGLISH);
+		RecognizerName source = getName();
 		
-		while(pos.getIndex()<text.length())
-		{	int startPos = pos.getIndex();
-//if(startPos<text.length()-3 && text.substring(startPos,startPos+3).equalsIgnoreCase("nov"))
-//	System.out.println();
-//if(startPos<text.length()-14 && text.substring(startPos,startPos+14).equalsIgnoreCase("82nd battalion"))
-//	System.out.print("");
-			if((startPos==0 || isSeparator(text,startPos-1))
-				&& !isSeparator(text, startPos)	
-				&& !positionAlreadyUsed(startPos,temp))
-			{	Date date = null;
-				int endPos = -1;
-				
-				// find a date
-				Iterator<SimpleDateFormat> it = patterns.iterator();
-				while(it.hasNext() && date==null)
-				{	DateFormat df = it.next();
-					df.setLenient(false); // strict respect of the format
-					date = df.parse(text, pos);
-					endPos = pos.getIndex();
-//					if(date!=null)
-//					{	// we ignore numeric values of 1 or 2 digits
-//						// (years of the form "92" are very rare)
-//						if(endPos-startPos<3)
-//							date = null;
-//						else if(endPos-startPos==3)
-//						{	// we ignore numeric values of 3 digits
-//							if(!Character.isLetter(text.charAt(startPos)) 
-//								// we ignore months abbreviations included in words
-//								|| endPos<text.length() && !isSeparator(text, endPos))
-//								date = null;
-//						}
-//					}
-				}
-				
-				// build the corresponding entity
-				if(date!=null) 
-				{	// build date
-					Calendar calendar = Calendar.getInstance(Locale.ENGLISH);
-					calendar.setTime(date);
-					int year = 0;
-					if(yearFlag)
-						year = calendar.get(Calendar.YEAR);
-					int month = 0;
-					if(monthFlag)
-							month = calendar.get(Calendar.MONTH) + 1;
-					int day = 0;
-					if(dayFlag)
-						day = calendar.get(Calendar.DAY_OF_MONTH);
-					tr.edu.gsu.nerwip.tools.time.Date value = new tr.edu.gsu.nerwip.tools.time.Date(day,month,year);
-					
-					// build entity
-					String valueStr = text.substring(startPos, endPos);
-					EntityDate entity = new EntityDate(startPos, endPos, getName(), valueStr, value); 
-					entities.add(entity);
-					temp.add(entity);
+		for(int startPos=0;startPos<text.length();startPos++)
+		{	if((startPos==0 || isSeparator(text,startPos-1))
+				&& !isSeparator(text, startPos))
+			{	for(int g=0;g<PATTERN_GROUPS.size();g++)
+				{	// a date cannot start inside (or right after) another date of the same group
+					if(startPos>lastEnds[g])
+					{	EntityDate entity = null;
+						Iterator<DatePattern> it = PATTERN_GROUPS.get(g).iterator();
+						while(it.hasNext() && entity==null)
+						{	DatePattern pattern = it.next();
+							entity = pattern.parse(text, startPos, calendar, source);
+						}
+						
+						if(entity!=null)
+						{	result.get(g).add(entity);
+							lastEnds[g] = Math.max(lastEnds[g], entity.getEndPos());
+						}
+					}
 				}
 			}
-			pos.setIndex(startPos+1);
 		}
-
+		
+		return result;
 	}
 
 	/////////////////////////////////////////////////////////////////
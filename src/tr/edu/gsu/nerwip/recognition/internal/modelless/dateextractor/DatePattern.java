@@ -0,0 +1,516 @@
+package tr.edu.gsu.nerwip.recognition.internal.modelless.dateextractor;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+import java.math.BigInteger;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import tr.edu.gsu.nerwip.data.entity.EntityDate;
+import tr.edu.gsu.nerwip.recognition.RecognizerName;
+import tr.edu.gsu.nerwip.tools.time.Date;
+
+/**
+ * Compiled date pattern, used by {@link DateExtractor}. Patterns
+ * are expressed using the syntax of {@link SimpleDateFormat}, restricted
+ * to the day ({@code d}), month ({@code M}) and year ({@code y}) letters.
+ * Any other character is a literal.
+ * <br/>
+ * Parsing reproduces the strict (non-lenient) behavior of 
+ * {@link SimpleDateFormat} for the English locale, but without
+ * the associated cost (number format, calendar builder, date 
+ * object...). Moreover, an instance does not have any state, so
+ * it can be shared between threads, unlike {@link SimpleDateFormat}.
+ * 
+ * @author Vincent Labatut
+ */
+public class DatePattern
+{	
+	/**
+	 * Compiles the specified pattern.
+	 * 
+	 * @param pattern
+	 * 		Pattern expressed using the {@link SimpleDateFormat} syntax.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 		If the pattern contains unsupported letters.
+	 */
+	public DatePattern(String pattern)
+	{	this.pattern = pattern;
+		
+		List<Integer> kindList = new ArrayList<Integer>();
+		StringBuilder literalList = new StringBuilder();
+		int i = 0;
+		while(i<pattern.length())
+		{	char c = pattern.charAt(i);
+			int count = 1;
+			while(i+count<pattern.length() && pattern.charAt(i+count)==c)
+				count++;
+			
+			if(c=='d')
+			{	kindList.add(DAY);
+				literalList.append(' ');
+				hasDay = true;
+				i = i + count;
+			}
+			else if(c=='M')
+			{	if(count>2)
+					kindList.add(MONTH_NAME);
+				else
+					kindList.add(MONTH_NUMBER);
+				literalList.append(' ');
+				hasMonth = true;
+				i = i + count;
+			}
+			else if(c=='y')
+			{	kindList.add(YEAR);
+				literalList.append(' ');
+				hasYear = true;
+				i = i + count;
+			}
+			else if(Character.isLetter(c) || c=='\'')
+				throw new IllegalArgumentException("Unsupported character '"+c+"' in pattern \""+pattern+"\"");
+			else
+			{	kindList.add(LITERAL);
+				literalList.append(c);
+				i++;
+			}
+		}
+		
+		kinds = new int[kindList.size()];
+		for(int k=0;k<kinds.length;k++)
+			kinds[k] = kindList.get(k);
+		literals = literalList.toString().toCharArray();
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PATTERN			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Original pattern */
+	private String pattern;
+	/** Element corresponding to a literal character */
+	private static final int LITERAL = 0;
+	/** Element corresponding to a day number */
+	private static final int DAY = 1;
+	/** Element corresponding to a month number */
+	private static final int MONTH_NUMBER = 2;
+	/** Element corresponding to a month name (long or short) */
+	private static final int MONTH_NAME = 3;
+	/** Element corresponding to a year number */
+	private static final int YEAR = 4;
+	/** Kinds of the successive elements of this pattern */
+	private int[] kinds;
+	/** Characters corresponding to the literal elements (unused for the other elements) */
+	private char[] literals;
+	/** Whether this pattern contains a day */
+	private boolean hasDay = false;
+	/** Whether this pattern contains a month */
+	private boolean hasMonth = false;
+	/** Whether this pattern contains a year */
+	private boolean hasYear = false;
+	
+	@Override
+	public String toString()
+	{	return pattern;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// SYMBOLS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Symbols used when parsing numbers */
+	private static final DecimalFormatSymbols SYMBOLS = DecimalFormatSymbols.getInstance(Locale.ENGLISH);
+	/** String representing a NaN value */
+	private static final String NAN = SYMBOLS.getNaN();
+	/** String representing an infinite value */
+	private static final String INFINITY = SYMBOLS.getInfinity();
+	/** String representing the exponent */
+	private static final String EXPONENT = SYMBOLS.getExponentSeparator();
+	/** Minus sign */
+	private static final char MINUS = SYMBOLS.getMinusSign();
+	/** Zero digit */
+	private static final char ZERO = SYMBOLS.getZeroDigit();
+	/** Month names (long and short), by decreasing length */
+	private static final String[] MONTH_NAMES;
+	/** Month numbers (from 0) corresponding to the month names */
+	private static final int[] MONTH_VALUES;
+	
+	static
+	{	// same names as SimpleDateFormat when parsing months
+		Calendar calendar = Calendar.getInstance(Locale.ENGLISH);
+		Map<String,Integer> map = new HashMap<String,Integer>();
+		map.putAll(calendar.getDisplayNames(Calendar.MONTH, Calendar.SHORT, Locale.ENGLISH));
+		map.putAll(calendar.getDisplayNames(Calendar.MONTH, Calendar.LONG, Locale.ENGLISH));
+		
+		// the longest matching name must be found first
+		List<String> names = new ArrayList<String>(map.keySet());
+		Collections.sort(names,new Comparator<String>()
+		{	@Override
+			public int compare(String s1, String s2)
+			{	int result = s2.length() - s1.length();
+				if(result==0)
+					result = s1.compareTo(s2);
+				return result;
+			}
+		});
+		MONTH_NAMES = names.toArray(new String[names.size()]);
+		MONTH_VALUES = new int[MONTH_NAMES.length];
+		for(int i=0;i<MONTH_NAMES.length;i++)
+			MONTH_VALUES[i] = map.get(MONTH_NAMES[i]);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PARSING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Tries to parse a date starting exactly at the specified
+	 * position in the text. The method returns the same date
+	 * (and the same end position) as {@link SimpleDateFormat#parse(String, java.text.ParsePosition)}
+	 * would, in non-lenient mode.
+	 * <br/>
+	 * The calendar is used only to validate the date, and is 
+	 * modified by this method. It is provided by the caller so that
+	 * it can be reused, since building one is relatively costly.
+	 * 
+	 * @param text
+	 * 		Text to parse.
+	 * @param startPos
+	 * 		Position of the first character of the date.
+	 * @param calendar
+	 * 		Calendar used for validation.
+	 * @param source
+	 * 		Recognizer to be associated to the entity.
+	 * @return
+	 * 		The corresponding entity, or {@code null} if no
+	 * 		valid date could be found at this position.
+	 */
+	public EntityDate parse(String text, int startPos, Calendar calendar, RecognizerName source)
+	{	EntityDate result = null;
+		int[] values = new int[YEAR+1];
+		
+		// process each element in turn
+		int pos = startPos;
+		int k = 0;
+		while(pos>=0 && k<kinds.length)
+		{	if(kinds[k]==LITERAL)
+			{	if(pos<text.length() && text.charAt(pos)==literals[k])
+					pos++;
+				else
+					pos = -1;
+			}
+			else
+				pos = parseField(text, pos, kinds[k], values);
+			k++;
+		}
+		
+		// check the date is valid
+		if(pos>=0)
+		{	calendar.setLenient(false);
+			calendar.clear();
+			if(hasYear)
+				calendar.set(Calendar.YEAR, values[YEAR]);
+			if(hasMonth)
+				calendar.set(Calendar.MONTH, values[MONTH_NAME]);
+			if(hasDay)
+				calendar.set(Calendar.DAY_OF_MONTH, values[DAY]);
+			try
+			{	calendar.getTime();
+				
+				// build the entity
+				int day = 0;
+				if(hasDay)
+					day = values[DAY];
+				int month = 0;
+				if(hasMonth)
+					month = values[MONTH_NAME] + 1;
+				int year = 0;
+				if(hasYear)
+					year = values[YEAR];
+				Date value = new Date(day,month,year);
+				String valueStr = text.substring(startPos, pos);
+				result = new EntityDate(startPos, pos, source, valueStr, value);
+			}
+			catch(IllegalArgumentException e)
+			{	// invalid date: nothing to do
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Parses a field of the date. Like in {@link SimpleDateFormat},
+	 * spaces and tabs are first skipped, but month names must
+	 * nevertheless appear at the original position. The value
+	 * is stored in the specified array: the month (from 0)
+	 * is stored at position {@link #MONTH_NAME}, whatever
+	 * the kind of month field.
+	 * 
+	 * @param text
+	 * 		Text to parse.
+	 * @param start
+	 * 		Position of the field in the text.
+	 * @param kind
+	 * 		Kind of field.
+	 * @param values
+	 * 		Array used to store the parsed values.
+	 * @return
+	 * 		Position following the field, or {@code -1}
+	 * 		if the field could not be parsed.
+	 */
+	private int parseField(String text, int start, int kind, int[] values)
+	{	int result = -1;
+		
+		// skip spaces
+		int pos = start;
+		while(pos<text.length() && (text.charAt(pos)==' ' || text.charAt(pos)=='\t'))
+			pos++;
+		
+		if(pos<text.length())
+		{	if(kind==MONTH_NAME)
+			{	int i = 0;
+				while(result<0 && i<MONTH_NAMES.length)
+				{	String name = MONTH_NAMES[i];
+					if(text.regionMatches(true, start, name, 0, name.length()))
+					{	values[MONTH_NAME] = MONTH_VALUES[i];
+						result = start + name.length();
+					}
+					i++;
+				}
+			}
+			else
+			{	result = parseNumber(text, pos, values, kind);
+				if(kind==MONTH_NUMBER && result>=0)
+				{	values[MONTH_NAME] = values[MONTH_NUMBER] - 1;
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Parses an integer the same way the number format of
+	 * {@link SimpleDateFormat} does (including the signs, exponents 
+	 * and special values it accepts, and the truncation to {@code int}).
+	 * <br/>
+	 * One exception: some JDK versions truncate the exponent itself
+	 * to an {@code int}, which gives arbitrary values when it does not
+	 * fit (e.g. {@code 1E4294967297} is parsed as {@code 10}). Here, such
+	 * exponents are handled as such, so the number is infinite or null.
+	 * 
+	 * @param text
+	 * 		Text to parse.
+	 * @param start
+	 * 		Position of the number in the text.
+	 * @param values
+	 * 		Array used to store the parsed value.
+	 * @param index
+	 * 		Position of the value in the array.
+	 * @return
+	 * 		Position following the number, or {@code -1}
+	 * 		if no number could be parsed.
+	 */
+	private static int parseNumber(String text, int start, int[] values, int index)
+	{	int result = -1;
+		
+		if(text.regionMatches(start, NAN, 0, NAN.length()))
+		{	values[index] = 0;
+			result = start + NAN.length();
+		}
+		else
+		{	int pos = start;
+			boolean negative = pos<text.length() && text.charAt(pos)==MINUS;
+			if(negative)
+				pos++;
+			
+			if(text.regionMatches(pos, INFINITY, 0, INFINITY.length()))
+			{	if(negative)
+					values[index] = Integer.MIN_VALUE;
+				else
+					values[index] = Integer.MAX_VALUE;
+				result = pos + INFINITY.length();
+			}
+			else
+			{	int digitStart = pos;
+				int digitEnd = scanDigits(text, pos);
+				if(digitEnd>digitStart)
+				{	result = digitEnd;
+					
+					// possibly parse an exponent
+					long exponent = 0;
+					if(text.regionMatches(digitEnd, EXPONENT, 0, EXPONENT.length()))
+					{	int expPos = digitEnd + EXPONENT.length();
+						boolean expNegative = expPos<text.length() && text.charAt(expPos)==MINUS;
+						if(expNegative)
+							expPos++;
+						int expEnd = scanDigits(text, expPos);
+						if(expEnd>expPos)
+						{	BigInteger exp = new BigInteger(getDigits(text, expPos, expEnd));
+							if(expNegative)
+								exp = exp.negate();
+							if(exp.bitLength()<64)
+							{	// larger exponents give the same result, and cannot overflow later
+								exponent = Math.max(-Integer.MAX_VALUE, Math.min(Integer.MAX_VALUE, exp.longValue()));
+								result = expEnd;
+							}
+						}
+					}
+					
+					// compute the value
+					int digitCount = digitEnd - digitStart;
+					if(!negative && exponent==0 && digitCount<=9)
+					{	int value = 0;
+						for(int i=digitStart;i<digitEnd;i++)
+							value = value*10 + getDigit(text.charAt(i));
+						values[index] = value;
+					}
+					else
+						values[index] = computeValue(getDigits(text, digitStart, digitEnd), negative, exponent);
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the position of the first character
+	 * which is not a digit, starting from the specified
+	 * position.
+	 * 
+	 * @param text
+	 * 		Text to scan.
+	 * @param start
+	 * 		Starting position.
+	 * @return
+	 * 		Position of the first non-digit character.
+	 */
+	private static int scanDigits(String text, int start)
+	{	int result = start;
+		while(result<text.length() && getDigit(text.charAt(result))>=0)
+			result++;
+		return result;
+	}
+	
+	/**
+	 * Returns the value of the specified digit, using the same
+	 * rules as {@link java.text.DecimalFormat} (i.e. any Unicode digit).
+	 * 
+	 * @param c
+	 * 		Character to convert.
+	 * @return
+	 * 		Value of the digit, or {@code -1} if the character is not a digit.
+	 */
+	private static int getDigit(char c)
+	{	int result = c - ZERO;
+		if(result<0 || result>9)
+			result = Character.digit(c, 10);
+		return result;
+	}
+	
+	/**
+	 * Converts the specified sequence of digits
+	 * to a string containing only ASCII digits.
+	 * 
+	 * @param text
+	 * 		Text containing the digits.
+	 * @param start
+	 * 		Position of the first digit.
+	 * @param end
+	 * 		Position following the last digit.
+	 * @return
+	 * 		ASCII version of the digits.
+	 */
+	private static String getDigits(String text, int start, int end)
+	{	char[] result = new char[end-start];
+		for(int i=start;i<end;i++)
+			result[i-start] = (char)('0' + getDigit(text.charAt(i)));
+		return new String(result);
+	}
+	
+	/**
+	 * Computes the {@code int} value of a number in the general 
+	 * case, like {@link java.text.DecimalFormat} does: the number is
+	 * handled as a {@code long} if it is integral and fits, and as
+	 * a {@code double} otherwise, before being cast to an {@code int}.
+	 * 
+	 * @param digits
+	 * 		ASCII digits of the number.
+	 * @param negative
+	 * 		Whether the number is negative.
+	 * @param exponent
+	 * 		Decimal exponent applied to the number.
+	 * @return
+	 * 		The corresponding {@code int} value.
+	 */
+	private static int computeValue(String digits, boolean negative, long exponent)
+	{	int result;
+		
+		// remove the leading and trailing zeros
+		int first = 0;
+		while(first<digits.length() && digits.charAt(first)=='0')
+			first++;
+		int last = digits.length();
+		while(last>first && digits.charAt(last-1)=='0')
+			last--;
+		String significant = digits.substring(first,last);
+		int count = significant.length();
+		long decimalAt = digits.length() - first + exponent;
+		
+		if(count==0)
+			result = 0;
+		else
+		{	BigInteger value = null;
+			if(decimalAt>=count && decimalAt<=19)
+			{	StringBuilder sb = new StringBuilder(significant);
+				for(int i=count;i<decimalAt;i++)
+					sb.append('0');
+				value = new BigInteger(sb.toString());
+				if(negative)
+					value = value.negate();
+				if(value.bitLength()>63)
+					value = null;
+			}
+			
+			if(value!=null)
+				result = value.intValue();
+			else
+			{	double d = Double.parseDouble("."+significant+"E"+decimalAt);
+				if(negative)
+					d = -d;
+				result = (int)d;
+			}
+		}
+		
+		return result;
+	}
+}
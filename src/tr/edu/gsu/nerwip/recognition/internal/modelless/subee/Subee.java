@@ -54,6 +54,7 @@ import org.htmlparser.util.ParserException;
 
 import tr.edu.gsu.nerwip.data.article.Article;
 import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
+import tr.edu.gsu.nerwip.data.entity.EntityIndex;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
 import tr.edu.gsu.nerwip.recognition.RecognizerName;
@@ -62,6 +63,7 @@ import tr.edu.gsu.nerwip.tools.file.FileNames;
 import tr.edu.gsu.nerwip.tools.file.FileTools;
 import tr.edu.gsu.nerwip.tools.freebase.FbCommonTools;
 import tr.edu.gsu.nerwip.tools.freebase.FbTypeTools;
+import tr.edu.gsu.nerwip.tools.string.MultiStringMatcher;
 import tr.edu.gsu.nerwip.tools.string.StringTools;
 
 /**
@@ -816,20 +818,35 @@ public class Subee extends AbstractModellessInternalRecognizer<List<AbstractEnti
 //		});
 //		temp.addAll(sureEntities);
 		
-		// look for additional occurrences
+		// build a single automaton for all the entity strings
+		logger.log("Build the automaton");
+		List<String> strings = new ArrayList<String>();
+		Map<String,Integer> indices = new HashMap<String,Integer>();
+		for(AbstractEntity<?> entity: sureEntities)
+		{	String valueStr = entity.getStringValue();
+			if(!valueStr.isEmpty() && !indices.containsKey(valueStr))
+			{	indices.put(valueStr,strings.size());
+				strings.add(valueStr);
+			}
+		}
+		MultiStringMatcher matcher = new MultiStringMatcher(strings);
+		
+		// look for all the strings in a single pass
 		logger.log("Look for additional occurrences");
+		List<List<int[]>> occurrences = new ArrayList<List<int[]>>();
+		for(int i=0;i<strings.size();i++)
+			occurrences.add(new ArrayList<int[]>());
+		for(int[] occurrence: matcher.findWords(rawText))
+			occurrences.get(occurrence[0]).add(occurrence);
+		
+		// build the corresponding entities (in the order of the sure entities)
 		for(AbstractEntity<?> entity: sureEntities)
 		{	String valueStr = entity.getStringValue();
-			
-			// look for the entity in the text
-			String escapedStr = Pattern.quote(valueStr);
-			Pattern p = Pattern.compile("\\b"+escapedStr+"\\b");
-			Matcher m = p.matcher(rawText);
-			while(m.find())
-			{	int startPos = m.start();
-//				// don't use the same position for several entities
-//				if(!positionAlreadyUsed(startPos, result))	// this test is now done later 
-				{	int endPos = m.end();
+			Integer index = indices.get(valueStr);
+			if(index!=null)
+			{	for(int[] occurrence: occurrences.get(index))
+				{	int startPos = occurrence[1];
+					int endPos = occurrence[2];
 					EntityType type = entity.getType();
 					AbstractEntity<?> ent = AbstractEntity.build(type, startPos, endPos, RecognizerName.SUBEE, valueStr);
 					result.add(ent);
@@ -870,9 +887,9 @@ public class Subee extends AbstractModellessInternalRecognizer<List<AbstractEnti
 		
 		// add to the result only the possible entities with no overlap with sure ones
 		logger.log("Adding remaining entities to the sure ones, avoiding overlaps)");
+		EntityIndex sureIndex = new EntityIndex(sureEntities);
 		for(AbstractEntity<?> entity: possibleEntities)
-		{	AbstractEntity<?> e = positionAlreadyUsed(entity, sureEntities);
-			if(e==null)
+		{	if(!sureIndex.isOverlapping(entity))
 				result.add(entity);
 		}
 	
@@ -27,16 +27,16 @@ package tr.edu.gsu.nerwip.recognition.internal.modelless.wikipediadater;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import tr.edu.gsu.nerwip.data.article.Article;
-import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
 import tr.edu.gsu.nerwip.data.entity.EntityDate;
+import tr.edu.gsu.nerwip.data.entity.EntityIndex;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
 import tr.edu.gsu.nerwip.recognition.RecognizerException;
 import tr.edu.gsu.nerwip.recognition.RecognizerName;
 import tr.edu.gsu.nerwip.recognition.internal.modelless.AbstractModellessInternalRecognizer;
+import tr.edu.gsu.nerwip.tools.string.PatternScanner;
 
 /**
  * Detects most date formats used in Wikipedia articles.
@@ -177,125 +177,161 @@ public class WikipediaDater extends AbstractModellessInternalRecognizer<List<Ent
 	/** Represents special days such as regligious fests, etc. */
 	private static final String EXPR_SPECIAL_DAY ="(((M|)ay (D|d)ay)|((C|c)hristmas (D|d)ay)|((N|n)ew (Y|y)ear's (D|d)ay)|(9/11))";
 	
-	/** List of patterns used to detect dates based on the previous regexps */
-	private static final List<Pattern> PATTERNS = Arrays.asList(
+	/** Characters a qualifier can start with */
+	private static final String FIRST_QUALIFIER = "eml";
+	/** Characters a special day can start with (including "ay Day") */
+	private static final String FIRST_SPECIAL_DAY = "MaCcNn9";
+	/** Characters a long century can start with */
+	private static final String FIRST_CENTURY_LONG = "tefsn";
+	/** Characters a short century can start with */
+	private static final String FIRST_CENTURY_SHORT = "12";
+	/** Characters a day or an anniversary can start with */
+	private static final String FIRST_DIGIT = "0123456789";
+	/** Characters a long month (any case) can start with */
+	private static final String FIRST_MONTH_LONG_BOTH = "JFMASONDjfmasond";
+	/** Characters a long month (upper case) can start with */
+	private static final String FIRST_MONTH_LONG_UPPER = "JFMASOND";
+	/** Characters a short month can start with */
+	private static final String FIRST_MONTH_SHORT = "JFMASONDjfmasond";
+	/** Characters a "from" expression can start with */
+	private static final String FIRST_FROM = "f";
+	/** Characters a full year or decade can start with */
+	private static final String FIRST_YEAR_FULL = "12";
+	/** Characters a short decade can start with */
+	private static final String FIRST_DECADE_SHORT = "0123456789'";
+	/** Characters a short year can start with */
+	private static final String FIRST_YEAR_SHORT = "'";
+	
+	/** Scanner applying the patterns used to detect dates based on the previous regexps */
+	private static final PatternScanner SCANNER = new PatternScanner();
+	
+	static
+	{	// the order of the patterns defines their priority
 		// "late May, 2010" or "late May 2010" or "late may, 2010" or "late may 2010" or
-		Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"), FIRST_QUALIFIER);
 		// "late April of 1968" or "april of 1968"
-		Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_MONTH_LONG_BOTH+" of "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_MONTH_LONG_BOTH+" of "+EXPR_YEAR_FULL+"\\b"), FIRST_QUALIFIER);
 		// "late April" or "april"
-		Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_MONTH_LONG_BOTH+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_MONTH_LONG_BOTH+"\\b"), FIRST_QUALIFIER);
 		
 		// "early 1990s"
-		Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_DECADE_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_DECADE_FULL+"\\b"), FIRST_QUALIFIER);
 		// "early 90s" or "early '90s"
-		Pattern.compile("\\b"+EXPR_QUALIFIER+"'?"+EXPR_DECADE_SHORT+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_QUALIFIER+"'?"+EXPR_DECADE_SHORT+"\\b"), FIRST_QUALIFIER);
 		
 		// "May Day 2001"
-		Pattern.compile("\\b"+EXPR_SPECIAL_DAY+" "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_SPECIAL_DAY+" "+EXPR_YEAR_FULL+"\\b"), FIRST_SPECIAL_DAY);
 		// "May Day"
-		Pattern.compile("\\b"+EXPR_SPECIAL_DAY),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_SPECIAL_DAY), FIRST_SPECIAL_DAY);
 
 		// "twentieth-century" or "twentieth century"
-		Pattern.compile("\\b"+EXPR_CENTURY_LONG+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_CENTURY_LONG+"\\b"), FIRST_CENTURY_LONG);
 		// "11th-century" or "11th century"
-		Pattern.compile("\\b"+EXPR_CENTURY_SHORT+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_CENTURY_SHORT+"\\b"), FIRST_CENTURY_SHORT);
 		
 		// "40th-anniversary" or "40th anniversary"
-		Pattern.compile("\\b"+EXPR_ANNIVERSARY_SHORT+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_ANNIVERSARY_SHORT+"\\b"), FIRST_DIGIT);
 		
 		// "18-20 April 1889" or "18-20 April, 1889" or "18-20 april 1889" or "18-20 april, 1889" 
-		Pattern.compile("\\b"+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"), FIRST_DIGIT);
 		// "4-6 October" or "4-6 october"
-		Pattern.compile("\\b"+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+"\\b"), FIRST_DIGIT);
 		// "12 to 21 August, 2013" or "12 to 21 august, 2013" or "12 to 21 August 2013" or "12 to 21 august 2013"
-		Pattern.compile("\\b"+EXPR_DAY_INT+" to "+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_DAY_INT+" to "+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"), FIRST_DIGIT);
 		// "12 to 21 August" or "12 to 21 august"
-		Pattern.compile("\\b"+EXPR_DAY_INT+" to "+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_DAY_INT+" to "+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+"\\b"), FIRST_DIGIT);
 		
 		// "20 April 1889" or "20 April, 1889" or "20 april 1889" or "20 april, 1889" 
-		Pattern.compile("\\b"+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"), FIRST_DIGIT);
 		// "5 Sep 1887" or "5 sep 1887"
-		Pattern.compile("\\b"+EXPR_DAY_INT+" "+EXPR_MONTH_SHORT+" "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_DAY_INT+" "+EXPR_MONTH_SHORT+" "+EXPR_YEAR_FULL+"\\b"), FIRST_DIGIT);
 		// "4 of October, 1975" or "4 of october, 1975" or "4 of October 1975" or "4 of october 1975"
-		Pattern.compile("\\b"+EXPR_DAY_INT+" of "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_DAY_INT+" of "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"), FIRST_DIGIT);
 		// "6 October" or "6 october"
-		Pattern.compile("\\b"+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+"\\b"), FIRST_DIGIT);
 
 		// "10th of April 2004" or "10th of april 2004"
-		Pattern.compile("\\b"+EXPR_DAY_ORDINAL+" of "+EXPR_MONTH_LONG_BOTH+" "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_DAY_ORDINAL+" of "+EXPR_MONTH_LONG_BOTH+" "+EXPR_YEAR_FULL+"\\b"), FIRST_DIGIT);
 		// "10th of April" or "10th of april"
-		Pattern.compile("\\b"+EXPR_DAY_ORDINAL+" of "+EXPR_MONTH_LONG_BOTH+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_DAY_ORDINAL+" of "+EXPR_MONTH_LONG_BOTH+"\\b"), FIRST_DIGIT);
 		
 		// "October 25–26, 1821" or "october 25–26, 1821" or "October 25–26 1821" or "october 25–26 1821"
-		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"), FIRST_MONTH_LONG_BOTH);
 		// "October 25–26, 1821" or "october 25–26, 1821" or "October 25–26 1821" or "october 25–26 1821"
-		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"), FIRST_MONTH_LONG_BOTH);
 		// "March 6 and 8, 1918" or "march 6 and 8, 1918" or "March 6 and 8 1918" or "march 6 and 8 1918"
-		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+" and "+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+" and "+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"), FIRST_MONTH_LONG_BOTH);
 		
 		// "May 30, 1914" or "may 30, 1914" or "May 30 1914" or "may 30 1914"
-		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"), FIRST_MONTH_LONG_BOTH);
 		// "December 4 of 1922" or "december 4 of 1922"
-		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+" of "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+" of "+EXPR_YEAR_FULL+"\\b"), FIRST_MONTH_LONG_BOTH);
 		// "December 9th 2010" or "december 9th 2010" or "December 9th, 2010" or "december 9th, 2010"
-		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_ORDINAL+",? "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_ORDINAL+",? "+EXPR_YEAR_FULL+"\\b"), FIRST_MONTH_LONG_BOTH);
 		// "February the 20th of 2010" or "february the 20th of 2010"
-		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" the "+EXPR_DAY_ORDINAL+" of "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" the "+EXPR_DAY_ORDINAL+" of "+EXPR_YEAR_FULL+"\\b"), FIRST_MONTH_LONG_BOTH);
 		// "October 6" or "october 6"
-		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+"\\b"), FIRST_MONTH_LONG_BOTH);
 		
 		// "October, 1926" or "October 1926" or "october, 1926" or "october 1926"
-		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"), FIRST_MONTH_LONG_BOTH);
 		// "April of 1968" or "april of 1968"
-		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" of "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" of "+EXPR_YEAR_FULL+"\\b"), FIRST_MONTH_LONG_BOTH);
 		// "April"
-		Pattern.compile("\\b"+EXPR_MONTH_LONG_UPPER+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_LONG_UPPER+"\\b"), FIRST_MONTH_LONG_UPPER);
 		
 		// "Sep-Dec 1996" or "sep-dec 1996" or "Sep-dec 1996" or "sep-Dec 1996"
-		Pattern.compile("\\b"+EXPR_MONTH_SHORT+EXPR_HYPHEN+EXPR_MONTH_SHORT+" "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_SHORT+EXPR_HYPHEN+EXPR_MONTH_SHORT+" "+EXPR_YEAR_FULL+"\\b"), FIRST_MONTH_SHORT);
 		// "Dec 1996" or "dec 1996"
-		Pattern.compile("\\b"+EXPR_MONTH_SHORT+" "+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_MONTH_SHORT+" "+EXPR_YEAR_FULL+"\\b"), FIRST_MONTH_SHORT);
 		
 		// "from 2002 to 06"
-		Pattern.compile("\\bfrom "+EXPR_YEAR_FULL+" to "+EXPR_YEAR_SHORT+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\bfrom "+EXPR_YEAR_FULL+" to "+EXPR_YEAR_SHORT+"\\b"), FIRST_FROM);
 
 		// "1990s"
-		Pattern.compile("\\b"+EXPR_DECADE_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_DECADE_FULL+"\\b"), FIRST_YEAR_FULL);
 		// "1977-85"
-		Pattern.compile("\\b"+EXPR_YEAR_FULL+EXPR_HYPHEN+EXPR_YEAR_SHORT+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_YEAR_FULL+EXPR_HYPHEN+EXPR_YEAR_SHORT+"\\b"), FIRST_YEAR_FULL);
 		// "2002-3"
-		Pattern.compile("\\b"+EXPR_YEAR_FULL+EXPR_HYPHEN+"\\d\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_YEAR_FULL+EXPR_HYPHEN+"\\d\\b"), FIRST_YEAR_FULL);
 		// "2010"
-		Pattern.compile("\\b"+EXPR_YEAR_FULL+"\\b"),
+		SCANNER.addPattern(Pattern.compile("\\b"+EXPR_YEAR_FULL+"\\b"), FIRST_YEAR_FULL);
 		
 		// "90s" or "'90s"
-		Pattern.compile("(\\b|')"+EXPR_DECADE_SHORT+"\\b"),
+		SCANNER.addPattern(Pattern.compile("(\\b|')"+EXPR_DECADE_SHORT+"\\b"), FIRST_DECADE_SHORT);
 		// "'83"
-		Pattern.compile("'"+EXPR_YEAR_SHORT+"\\b")
-	);
+		SCANNER.addPattern(Pattern.compile("'"+EXPR_YEAR_SHORT+"\\b"), FIRST_YEAR_SHORT);
+	}
 
 	/////////////////////////////////////////////////////////////////
 	// PROCESSING	 		/////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	@Override
+	public boolean isThreadSafe()
+	{	// the patterns are immutable, and each call uses its own matchers
+		return true;
+	}
+	
 	@Override
 	protected List<EntityDate> detectEntities(Article article) throws RecognizerException
 	{	logger.increaseOffset();
 		List<EntityDate> result = new ArrayList<EntityDate>();
-		List<AbstractEntity<?>> temp = new ArrayList<AbstractEntity<?>>();
+		EntityIndex index = new EntityIndex();
 		String text = article.getRawText();
 		
-		logger.log("Process each registered pattern");
-		for(Pattern pattern: PATTERNS)
-		{	Matcher matcher = pattern.matcher(text);
-			while(matcher.find())
-			{	int startPos = matcher.start();
-				int endPos = matcher.end();
-				String valueStr = matcher.group();
+		logger.log("Apply all the registered patterns");
+		List<List<int[]>> matches = SCANNER.scan(text);
+		
+		logger.log("Keep the non-overlapping matches, by order of priority");
+		for(List<int[]> patternMatches: matches)
+		{	for(int[] match: patternMatches)
+			{	int startPos = match[0];
+				int endPos = match[1];
+				String valueStr = text.substring(startPos, endPos);
 				EntityDate entity = new EntityDate(startPos, endPos, getName(), valueStr);
-				if(positionAlreadyUsed(entity,temp)==null)
+				if(!index.isOverlapping(entity))
 				{	result.add(entity);
-					temp.add(entity);
+					index.add(entity);
 				}
 			}
 		}
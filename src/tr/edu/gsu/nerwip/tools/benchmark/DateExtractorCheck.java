@@ -0,0 +1,372 @@
+package tr.edu.gsu.nerwip.tools.benchmark;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.text.DateFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import tr.edu.gsu.nerwip.data.article.Article;
+import tr.edu.gsu.nerwip.data.entity.EntityDate;
+import tr.edu.gsu.nerwip.evaluation.ArticleList;
+import tr.edu.gsu.nerwip.recognition.RecognizerName;
+import tr.edu.gsu.nerwip.recognition.internal.modelless.dateextractor.DateExtractor;
+import tr.edu.gsu.nerwip.tools.corpus.ArticleLists;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+
+/**
+ * Checks the single-pass {@link DateExtractor} detects the same
+ * dates as its previous version, which applied each group of 
+ * {@link SimpleDateFormat} patterns in a separate pass (reproduced
+ * here). Both are applied to the articles of the output folder,
+ * to their concatenation, and to a text containing edge cases
+ * (invalid days, calendar cutover, signs, exponents, non-ASCII 
+ * digits...). The dates are compared by position, string and value,
+ * and both versions are timed.
+ * <br/>
+ * Note: numbers whose exponent does not fit in an {@code int} are
+ * not handled like in the previous version on some JDKs (cf. 
+ * {@code DatePattern}), so they are not part of the edge cases.
+ *  
+ * @author Vincent Labatut
+ */
+public class DateExtractorCheck
+{	
+	/**
+	 * Launches the check.
+	 * 
+	 * @param args
+	 * 		None needed.
+	 * 
+	 * @throws Exception
+	 * 		Problem while reading the articles.
+	 */
+	public static void main(String[] args) throws Exception
+	{	logger.setName("Date-Extractor-Check");
+		checkCorpus();
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGER		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+
+	/////////////////////////////////////////////////////////////////
+	// DATA			/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Text containing edge cases */
+	private static final String EDGE_CASES = 
+		"31 February 1900, 29 February 1900, 29 February 2000, 5 October 1582, 15 October 1582, "
+		+ "30 Feb, 31 Apr, Jan 1999, January 1999, Sept 1999, September, May, may, MAY 12, "
+		+ "12/03/1999 12.03.1999 12-March-1999 12 03 1999 1999.March.12 1999.Mar.12, "
+		+ "-12 March 1999, 12 March -1999, 12 March 1E3, 1E-2 March 1999, 2E2, 1E, 1E-, "
+		+ "NaN, Infinity, -Infinity, 99999999999, 1234567890123456789012, "
+		+ "١٩٩٩, १२ March १९९९, "
+		+ "March  12,  1999 and March 12 , 1999 and 3 march,1999 and 7 juLY 1789. "
+		+ "0 January 0, 00 January 0000, 32 January 2000, 2000, 1, 12";
+	
+	/////////////////////////////////////////////////////////////////
+	// PREVIOUS VERSION	/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Patterns used to detect full dates */
+	private static final List<SimpleDateFormat> DAY_MONTH_YEAR_PATTERNS = Arrays.asList(
+		new SimpleDateFormat("dd MMMM yyyy",Locale.ENGLISH),
+		new SimpleDateFormat("dd MMMM, yyyy",Locale.ENGLISH),
+		new SimpleDateFormat("MMMM dd, yyyy",Locale.ENGLISH),
+		new SimpleDateFormat("dd/MMMM/yyyy",Locale.ENGLISH),
+		new SimpleDateFormat("dd.MMMM.yyyy",Locale.ENGLISH),
+		new SimpleDateFormat("dd-MMMM-yyyy",Locale.ENGLISH),
+		new SimpleDateFormat("dd MM yyyy",Locale.ENGLISH), 
+		new SimpleDateFormat("dd/MM/yyyy",Locale.ENGLISH),
+		new SimpleDateFormat("dd.MM.yyyy",Locale.ENGLISH),
+		new SimpleDateFormat("yyyyy.MMMMM.dd",Locale.ENGLISH)
+	);
+	/** Patterns used to detect dates with only month and year (no day) */ 
+	private static final List<SimpleDateFormat> MONTH_YEAR_PATTERNS = Arrays.asList(
+		new SimpleDateFormat("MMMM yyyy",Locale.ENGLISH),
+		new SimpleDateFormat("MMM yyyy",Locale.ENGLISH)
+	);
+	/** Patterns used to detect dates with only day and month (no year) */ 
+	private static final List<SimpleDateFormat> DAY_MONTH_PATTERNS = Arrays.asList(
+		new SimpleDateFormat("dd MMMM",Locale.ENGLISH)
+	);
+	/** Patterns used to detect dates with only month (no day, no year) */
+	private static final List<SimpleDateFormat> MONTH_PATTERNS = Arrays.asList(
+		new SimpleDateFormat("MMMM",Locale.ENGLISH)
+	);
+	/** Patterns used to detect dates with only year (no day, no month) */
+	private static final List<SimpleDateFormat> YEAR_PATTERNS = Arrays.asList(
+		new SimpleDateFormat("yyyy",Locale.ENGLISH)
+	);
+	
+	/**
+	 * Previous version of the date detection.
+	 * 
+	 * @param text
+	 * 		Text to process.
+	 * @return
+	 * 		Detected dates.
+	 */
+	private static List<EntityDate> extractDatesPrevious(String text)
+	{	List<EntityDate> result = new ArrayList<EntityDate>();
+		extractDatePattern(text,result,DAY_MONTH_YEAR_PATTERNS,true,true,true);
+		extractDatePattern(text,result,MONTH_YEAR_PATTERNS,false,true,true);
+		extractDatePattern(text,result,DAY_MONTH_PATTERNS,true,true,false);
+		extractDatePattern(text,result,MONTH_PATTERNS,false,true,false);
+		extractDatePattern(text,result,YEAR_PATTERNS,false,false,true);
+		return result;
+	}
+	
+	/**
+	 * Previous version of the application of a 
+	 * group of patterns.
+	 * 
+	 * @param text
+	 * 		Whole text of the article.
+	 * @param entities
+	 * 		List of already detected dates.
+	 * @param patterns
+	 * 		List of patterns to apply.
+	 * @param dayFlag
+	 * 		Whether or not the pattern allows retrieving day numbers.
+	 * @param monthFlag
+	 * 		Whether or not the pattern allows retrieving month numbers.
+	 * @param yearFlag
+	 * 		Whether or not the pattern allows retrieving years numbers.
+	 */
+	private static void extractDatePattern(String text, List<EntityDate> entities, List<SimpleDateFormat> patterns, boolean dayFlag, boolean monthFlag, boolean yearFlag)
+	{	ParsePosition pos = new ParsePosition(0);
+		List<EntityDate> temp = new ArrayList<EntityDate>();
+		
+		while(pos.getIndex()<text.length())
+		{	int startPos = pos.getIndex();
+			if((startPos==0 || isSeparator(text,startPos-1))
+				&& !isSeparator(text, startPos)	
+				&& !positionAlreadyUsed(startPos,temp))
+			{	Date date = null;
+				int endPos = -1;
+				
+				// find a date
+				Iterator<SimpleDateFormat> it = patterns.iterator();
+				while(it.hasNext() && date==null)
+				{	DateFormat df = it.next();
+					df.setLenient(false); // strict respect of the format
+					date = df.parse(text, pos);
+					endPos = pos.getIndex();
+				}
+				
+				// build the corresponding entity
+				if(date!=null) 
+				{	Calendar calendar = Calendar.getInstance(Locale.ENGLISH);
+					calendar.setTime(date);
+					int year = 0;
+					if(yearFlag)
+						year = calendar.get(Calendar.YEAR);
+					int month = 0;
+					if(monthFlag)
+							month = calendar.get(Calendar.MONTH) + 1;
+					int day = 0;
+					if(dayFlag)
+						day = calendar.get(Calendar.DAY_OF_MONTH);
+					tr.edu.gsu.nerwip.tools.time.Date value = new tr.edu.gsu.nerwip.tools.time.Date(day,month,year);
+					String valueStr = text.substring(startPos, endPos);
+					EntityDate entity = new EntityDate(startPos, endPos, RecognizerName.DATEEXTRACTOR, valueStr, value); 
+					entities.add(entity);
+					temp.add(entity);
+				}
+			}
+			pos.setIndex(startPos+1);
+		}
+	}
+	
+	/**
+	 * Checks if the character at the specified
+	 * position is a separator, i.e. not a letter
+	 * or a digit.
+	 * 
+	 * @param text
+	 * 		The complete text.
+	 * @param position
+	 * 		The position of the character of interest.
+	 * @return
+	 * 		{@code true} iff the character is not a letter or a digit.
+	 */
+	private static boolean isSeparator(String text, int position)
+	{	char c = text.charAt(position);
+		boolean result = !Character.isDigit(c) && !Character.isLetter(c);
+		return result;
+	}
+	
+	/**
+	 * Checks if the specified position is located
+	 * inside (or right after) one of the specified dates.
+	 * 
+	 * @param pos
+	 * 		Position of interest.
+	 * @param entities
+	 * 		Dates already detected.
+	 * @return
+	 * 		{@code true} iff the position is already used.
+	 */
+	private static boolean positionAlreadyUsed(int pos, List<EntityDate> entities)
+	{	boolean result = false;
+		Iterator<EntityDate> it = entities.iterator();
+		while(it.hasNext() && !result)
+		{	EntityDate entity = it.next();
+			result = pos>=entity.getStartPos() && pos<=entity.getEndPos();
+		}
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PROCESS		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Current version of the date detection.
+	 * 
+	 * @param extractor
+	 * 		Date extractor.
+	 * @param text
+	 * 		Text to process.
+	 * @return
+	 * 		Detected dates.
+	 */
+	private static List<EntityDate> extractDatesCurrent(DateExtractor extractor, String text)
+	{	List<EntityDate> result = new ArrayList<EntityDate>();
+		for(List<EntityDate> entities: extractor.extractDates(text))
+			result.addAll(entities);
+		return result;
+	}
+	
+	/**
+	 * Returns a string representing the specified dates,
+	 * including their positions, strings and values.
+	 * 
+	 * @param entities
+	 * 		Dates of interest.
+	 * @return
+	 * 		Strings representing the dates.
+	 */
+	private static List<String> describe(List<EntityDate> entities)
+	{	List<String> result = new ArrayList<String>();
+		for(EntityDate entity: entities)
+			result.add(entity.getStartPos()+"-"+entity.getEndPos()+" '"+entity.getStringValue()+"' "+entity.getValue().exportToString());
+		return result;
+	}
+	
+	/**
+	 * Compares both versions on the specified text.
+	 * 
+	 * @param extractor
+	 * 		Date extractor.
+	 * @param name
+	 * 		Name of the text (for logging).
+	 * @param text
+	 * 		Text to process.
+	 * @param durations
+	 * 		Processing times of both versions (updated by this method).
+	 * @return
+	 * 		Number of dates detected by the previous version, 
+	 * 		or {@code -1} if both versions differ.
+	 */
+	private static int compare(DateExtractor extractor, String name, String text, long durations[])
+	{	long start = System.nanoTime();
+		List<String> previous = describe(extractDatesPrevious(text));
+		durations[0] = durations[0] + System.nanoTime() - start;
+		start = System.nanoTime();
+		List<String> current = describe(extractDatesCurrent(extractor,text));
+		durations[1] = durations[1] + System.nanoTime() - start;
+		
+		int result = previous.size();
+		if(!previous.equals(current))
+		{	result = -1;
+			logger.log("ERROR: different dates for "+name+" ("+previous.size()+" vs. "+current.size()+")");
+			logger.increaseOffset();
+			List<String> missing = new ArrayList<String>(previous);
+			missing.removeAll(current);
+			for(String date: missing)
+				logger.log("Only in the previous version: "+date);
+			List<String> additional = new ArrayList<String>(current);
+			additional.removeAll(previous);
+			for(String date: additional)
+				logger.log("Only in the current version: "+date);
+			logger.decreaseOffset();
+		}
+		return result;
+	}
+	
+	/**
+	 * Applies both versions to all the articles of
+	 * the output folder, and compares their results.
+	 * 
+	 * @throws Exception
+	 * 		Problem while reading the articles.
+	 */
+	public static void checkCorpus() throws Exception
+	{	logger.log("Compare both versions of the date extractor");
+		logger.increaseOffset();
+		
+		DateExtractor extractor = new DateExtractor();
+		ArticleList folders = ArticleLists.getArticleList();
+		StringBuilder allText = new StringBuilder();
+		int dateNbr = 0;
+		int differentNbr = 0;
+		long durations[] = {0, 0};
+		for(File folder: folders)
+		{	Article article = Article.read(folder.getName());
+			String text = article.getRawText();
+			allText.append(text).append("\n\n");
+			int nbr = compare(extractor, folder.getName(), text, durations);
+			if(nbr<0)
+				differentNbr++;
+			else
+				dateNbr = dateNbr + nbr;
+		}
+		logger.log("Articles: "+folders.size()+", dates: "+dateNbr+", articles with differences: "+differentNbr);
+		logger.log("Processing time: previous "+(durations[0]/1000000)+" ms vs. current "+(durations[1]/1000000)+" ms");
+		
+		durations = new long[]{0, 0};
+		int nbr = compare(extractor, "the concatenated articles", allText.toString(), durations);
+		if(nbr>=0)
+			logger.log("Concatenated articles ("+allText.length()+" chars): same "+nbr+" dates");
+		logger.log("Processing time: previous "+(durations[0]/1000000)+" ms vs. current "+(durations[1]/1000000)+" ms");
+		
+		nbr = compare(extractor, "the edge cases", EDGE_CASES, durations);
+		if(nbr>=0)
+			logger.log("Edge cases: same "+nbr+" dates");
+		
+		logger.decreaseOffset();
+	}
+}
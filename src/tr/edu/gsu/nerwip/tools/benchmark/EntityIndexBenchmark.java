@@ -0,0 +1,292 @@
+package tr.edu.gsu.nerwip.tools.benchmark;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
+import tr.edu.gsu.nerwip.data.entity.Entities;
+import tr.edu.gsu.nerwip.data.entity.EntityIndex;
+import tr.edu.gsu.nerwip.data.entity.EntityPerson;
+import tr.edu.gsu.nerwip.recognition.RecognizerName;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+
+/**
+ * Benchmark comparing the linear overlap scans previously used
+ * to filter redundant entities (cf. {@code AbstractRecognizer.filterRedundancy})
+ * with the {@link EntityIndex} now used, on synthetic texts containing
+ * many overlapping entities. Both filters are first checked to 
+ * return the same entities, in the same order. The overlap checks 
+ * of {@link Entities#isEntityOverlapping(AbstractEntity)} are also
+ * compared with a linear scan.
+ * <br/>
+ * Both filters are reproduced here without logging, which
+ * would otherwise dominate the processing time.
+ * <br/>
+ * Parameters: list of entity numbers (default: 1000, 5000 and 20000).
+ *  
+ * @author Vincent Labatut
+ */
+public class EntityIndexBenchmark
+{	
+	/**
+	 * Launches the benchmark.
+	 * 
+	 * @param args
+	 * 		Possibly the numbers of entities to process.
+	 */
+	public static void main(String[] args)
+	{	logger.setName("Entity-Index-Benchmark");
+		int sizes[] = {1000, 5000, 20000};
+		if(args.length>0)
+		{	sizes = new int[args.length];
+			for(int i=0;i<args.length;i++)
+				sizes[i] = Integer.parseInt(args[i]);
+		}
+		
+		checkEquivalence(2000);
+		for(int size: sizes)
+			benchmark(size);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGER		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+
+	/////////////////////////////////////////////////////////////////
+	// DATA			/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Number of repetitions of each timed operation */
+	private static final int REPETITIONS = 5;
+	
+	/**
+	 * Generates a list of random entities, with a density
+	 * such that each entity overlaps several others.
+	 * 
+	 * @param random
+	 * 		Random number generator.
+	 * @param size
+	 * 		Number of entities.
+	 * @return
+	 * 		List of entities, in no particular order.
+	 */
+	private static List<AbstractEntity<?>> generateEntities(Random random, int size)
+	{	List<AbstractEntity<?>> result = new ArrayList<AbstractEntity<?>>();
+		int textLength = size * 8;
+		for(int i=0;i<size;i++)
+		{	int start = random.nextInt(textLength);
+			int end = start + 1 + random.nextInt(30);
+			AbstractEntity<?> entity = new EntityPerson(start, end, RecognizerName.SUBEE, "e"+i);
+			result.add(entity);
+		}
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// FILTERS		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Linear version of the redundancy filter: for each 
+	 * entity, the whole list of retained entities is scanned.
+	 * 
+	 * @param entities
+	 * 		List of entities to filter.
+	 * @return
+	 * 		Filtered list.
+	 */
+	private static List<AbstractEntity<?>> filterLinear(List<AbstractEntity<?>> entities)
+	{	List<AbstractEntity<?>> result = new ArrayList<AbstractEntity<?>>();
+		for(AbstractEntity<?> entity1: entities)
+		{	AbstractEntity<?> entity2 = findLinear(entity1, result);
+			boolean pass = false;
+			while(!pass && entity2!=null)
+			{	int length1 = entity1.getEndPos() - entity1.getStartPos();
+				int length2 = entity2.getEndPos() - entity2.getStartPos();
+				if(length1>length2)
+					result.remove(entity2);
+				else
+					pass = true;
+				entity2 = findLinear(entity1, result);
+			}
+			if(!pass)
+				result.add(entity1);
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the first entity of the list overlapping
+	 * the specified one, by scanning the whole list.
+	 * 
+	 * @param entity
+	 * 		Entity of interest.
+	 * @param entities
+	 * 		List of entities.
+	 * @return
+	 * 		The first overlapping entity, or {@code null} if none.
+	 */
+	private static AbstractEntity<?> findLinear(AbstractEntity<?> entity, List<AbstractEntity<?>> entities)
+	{	AbstractEntity<?> result = null;
+		Iterator<AbstractEntity<?>> it = entities.iterator();
+		while(result==null && it.hasNext())
+		{	AbstractEntity<?> temp = it.next();
+			if(temp.overlapsWith(entity))
+				result = temp;
+		}
+		return result;
+	}
+	
+	/**
+	 * Indexed version of the redundancy filter, 
+	 * as performed in {@code AbstractRecognizer}.
+	 * 
+	 * @param entities
+	 * 		List of entities to filter.
+	 * @return
+	 * 		Filtered list.
+	 */
+	private static List<AbstractEntity<?>> filterIndexed(List<AbstractEntity<?>> entities)
+	{	EntityIndex index = new EntityIndex();
+		for(AbstractEntity<?> entity1: entities)
+		{	AbstractEntity<?> entity2 = index.getFirstOverlappingEntity(entity1);
+			boolean pass = false;
+			while(!pass && entity2!=null)
+			{	int length1 = entity1.getEndPos() - entity1.getStartPos();
+				int length2 = entity2.getEndPos() - entity2.getStartPos();
+				if(length1>length2)
+					index.remove(entity2);
+				else
+					pass = true;
+				entity2 = index.getFirstOverlappingEntity(entity1);
+			}
+			if(!pass)
+				index.add(entity1);
+		}
+		List<AbstractEntity<?>> result = index.getEntities();
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PROCESS		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Checks both filters, as well as both overlap 
+	 * checks, return the same results on random lists 
+	 * of various sizes.
+	 * 
+	 * @param caseNbr
+	 * 		Number of random lists.
+	 */
+	public static void checkEquivalence(int caseNbr)
+	{	logger.log("Compare the linear and indexed versions on "+caseNbr+" random lists");
+		logger.increaseOffset();
+		
+		Random random = new Random(0);
+		int filterErrors = 0;
+		int checkErrors = 0;
+		for(int c=0;c<caseNbr;c++)
+		{	List<AbstractEntity<?>> entities = generateEntities(random, 1+random.nextInt(200));
+			
+			// filters
+			List<AbstractEntity<?>> linear = filterLinear(entities);
+			List<AbstractEntity<?>> indexed = filterIndexed(entities);
+			if(!linear.equals(indexed))
+				filterErrors++;
+			
+			// overlap checks, while incrementally building the list
+			Entities list = new Entities();
+			for(AbstractEntity<?> entity: entities)
+			{	if(list.isEntityOverlapping(entity)!=entity.overlapsWithOne(list.getEntities()))
+					checkErrors++;
+				list.addEntity(entity);
+			}
+		}
+		
+		if(filterErrors==0 && checkErrors==0)
+			logger.log("Both versions return the same results");
+		else
+			logger.log("ERROR: the filters differ on "+filterErrors+" lists, and the overlap checks on "+checkErrors+" entities");
+		logger.decreaseOffset();
+	}
+	
+	/**
+	 * Measures the time needed by both filters, and by both
+	 * overlap checks, on a random list of entities. 
+	 * 
+	 * @param size
+	 * 		Number of entities in the list.
+	 */
+	public static void benchmark(int size)
+	{	logger.log("Benchmark on "+size+" entities ("+REPETITIONS+" repetitions)");
+		logger.increaseOffset();
+		
+		Random random = new Random(size);
+		List<AbstractEntity<?>> entities = generateEntities(random, size);
+		
+		// filters
+		long start = System.nanoTime();
+		int kept = 0;
+		for(int r=0;r<REPETITIONS;r++)
+			kept = filterLinear(entities).size();
+		long linearDuration = (System.nanoTime() - start) / (1000000*REPETITIONS);
+		start = System.nanoTime();
+		for(int r=0;r<REPETITIONS;r++)
+			filterIndexed(entities);
+		long indexedDuration = (System.nanoTime() - start) / (1000000*REPETITIONS);
+		logger.log("Redundancy filter ("+kept+" entities kept): linear "+linearDuration+" ms vs. indexed "+indexedDuration+" ms");
+		
+		// overlap checks
+		start = System.nanoTime();
+		int overlapping = 0;
+		for(int r=0;r<REPETITIONS;r++)
+		{	overlapping = 0;
+			List<AbstractEntity<?>> list = new ArrayList<AbstractEntity<?>>();
+			for(AbstractEntity<?> entity: entities)
+			{	if(entity.overlapsWithOne(list))
+					overlapping++;
+				list.add(entity);
+			}
+		}
+		linearDuration = (System.nanoTime() - start) / (1000000*REPETITIONS);
+		start = System.nanoTime();
+		for(int r=0;r<REPETITIONS;r++)
+		{	Entities list = new Entities();
+			for(AbstractEntity<?> entity: entities)
+			{	list.isEntityOverlapping(entity);
+				list.addEntity(entity);
+			}
+		}
+		indexedDuration = (System.nanoTime() - start) / (1000000*REPETITIONS);
+		logger.log("Overlap checks ("+overlapping+" overlapping entities): linear "+linearDuration+" ms vs. indexed "+indexedDuration+" ms");
+		
+		logger.decreaseOffset();
+	}
+}
@@ -0,0 +1,251 @@
+package tr.edu.gsu.nerwip.tools.benchmark;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
+import tr.edu.gsu.nerwip.data.entity.Entities;
+import tr.edu.gsu.nerwip.evaluation.ArticleList;
+import tr.edu.gsu.nerwip.recognition.NoiseFilter;
+import tr.edu.gsu.nerwip.tools.corpus.ArticleLists;
+import tr.edu.gsu.nerwip.tools.file.FileNames;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+
+/**
+ * Microbenchmark comparing the {@link NoiseFilter} with the
+ * linear scans of word lists and the regular expression previously 
+ * used by {@code AbstractRecognizer.filterNoise} (reproduced here).
+ * Both are applied to the strings of all the entities found in the
+ * output folder (reference and recognizer outputs), plus some
+ * case-folding edge cases. They are first checked to give the
+ * same results, then timed.
+ * <br/>
+ * Parameters: number of timed passes over the strings (default: 200).
+ *  
+ * @author Vincent Labatut
+ */
+public class NoiseFilterBenchmark
+{	
+	/**
+	 * Launches the benchmark.
+	 * 
+	 * @param args
+	 * 		Possibly the number of passes.
+	 * 
+	 * @throws Exception
+	 * 		Problem while reading the entities.
+	 */
+	public static void main(String[] args) throws Exception
+	{	logger.setName("Noise-Filter-Benchmark");
+		int passNbr = 200;
+		if(args.length>0)
+			passNbr = Integer.parseInt(args[0]);
+		
+		List<String> strings = loadStrings();
+		checkEquivalence(strings);
+		benchmark(strings, passNbr);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGER		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+
+	/////////////////////////////////////////////////////////////////
+	// DATA			/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Strings added to the corpus entities, to check the case folding */
+	private static final List<String> EDGE_CASES = Arrays.asList(
+		"", "A", "THE", "The", "tHe", "I", "İ", "ı", "In", "İn", "ın", 
+		"HERSELF", "Herſelf", "ſhe", "K", "K", "1984", "12-03", "-", "é", "a1"
+	);
+	
+	/**
+	 * Retrieves the strings of all the entities
+	 * found in the output folder.
+	 * 
+	 * @return
+	 * 		List of entity strings.
+	 * 
+	 * @throws Exception
+	 * 		Problem while reading the entities.
+	 */
+	private static List<String> loadStrings() throws Exception
+	{	List<String> result = new ArrayList<String>(EDGE_CASES);
+		ArticleList folders = ArticleLists.getArticleList();
+		for(File folder: folders)
+		{	List<File> files = new ArrayList<File>();
+			files.add(new File(folder, FileNames.FI_ENTITY_LIST));
+			for(File subfolder: folder.listFiles())
+				files.add(new File(subfolder, FileNames.FI_ENTITY_LIST));
+			for(File file: files)
+			{	if(file.exists())
+				{	Entities entities = Entities.readFromXml(file);
+					for(AbstractEntity<?> entity: entities.getEntities())
+						result.add(entity.getStringValue());
+				}
+			}
+		}
+		logger.log("Number of strings: "+result.size());
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PREVIOUS VERSION	/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Previous list of forbidden words */	
+	private static final List<String> EXCLUSION_LIST = Arrays.asList(
+		"a", "an",
+		"i", "in",
+		"the"
+	);
+	/** Previous list of pronouns */	
+	private static final List<String> PRONOUN_LIST = Arrays.asList(
+		"i", "me", "my", "mine",
+		"you", "your", "yours",
+		"he", "him", "himself", "his",
+		"she", "her", "herself", "hers", 
+		"it", "its",
+		"they", "them", "their"
+	);
+	
+	/**
+	 * Previous test of the stop-words and pronouns.
+	 * 
+	 * @param list
+	 * 		List of words.
+	 * @param text
+	 * 		String to check.
+	 * @return
+	 * 		{@code true} iff the string belongs to the list.
+	 */
+	private static boolean isInList(List<String> list, String text)
+	{	boolean result = false;
+		Iterator<String> it = list.iterator();
+		while(it.hasNext() && !result)
+		{	String word = it.next();
+			result = word.equalsIgnoreCase(text);
+		}
+		return result;
+	}
+	
+	/**
+	 * Previous test of the numbers.
+	 * 
+	 * @param string
+	 * 		String to analyze.
+	 * @return
+	 * 		{@code true} iff the string contains no letter.
+	 */
+	private static boolean hasNoLetter(String string)
+	{	Pattern r = Pattern.compile("[a-zA-Z]");
+		Matcher m = r.matcher(string);
+		boolean result = !m.find();
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PROCESS		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Checks both versions give the same 
+	 * results for all the strings.
+	 * 
+	 * @param strings
+	 * 		Strings to check.
+	 */
+	public static void checkEquivalence(List<String> strings)
+	{	NoiseFilter filter = NoiseFilter.getDefaultFilter();
+		int errors = 0;
+		for(String string: strings)
+		{	if(isInList(EXCLUSION_LIST,string)!=filter.isStopWord(string)
+				|| isInList(PRONOUN_LIST,string)!=filter.isPronoun(string)
+				|| hasNoLetter(string)!=filter.isNumber(string))
+			{	errors++;
+				logger.log("ERROR: different results for '"+string+"'");
+			}
+		}
+		if(errors==0)
+			logger.log("Both versions give the same results");
+	}
+	
+	/**
+	 * Measures the time needed by both versions
+	 * to process all the strings.
+	 * 
+	 * @param strings
+	 * 		Strings to process.
+	 * @param passNbr
+	 * 		Number of passes over the strings.
+	 */
+	public static void benchmark(List<String> strings, int passNbr)
+	{	logger.log("Benchmark ("+passNbr+" passes)");
+		logger.increaseOffset();
+		NoiseFilter filter = NoiseFilter.getDefaultFilter();
+		
+		for(int round=0;round<2;round++)
+		{	String label;
+			if(round==0)
+				label = "warm-up";
+			else
+				label = "timed";
+			
+			// previous version
+			int count = 0;
+			long start = System.nanoTime();
+			for(int p=0;p<passNbr;p++)
+			{	for(String string: strings)
+				{	if(isInList(EXCLUSION_LIST,string) || isInList(PRONOUN_LIST,string) || hasNoLetter(string))
+						count++;
+				}
+			}
+			long previousDuration = System.nanoTime() - start;
+			
+			// current version
+			start = System.nanoTime();
+			for(int p=0;p<passNbr;p++)
+			{	for(String string: strings)
+				{	if(filter.isStopWord(string) || filter.isPronoun(string) || filter.isNumber(string))
+						count--;
+				}
+			}
+			long currentDuration = System.nanoTime() - start;
+			
+			long total = (long)passNbr * strings.size();
+			logger.log("Round "+round+" ("+label+", balance "+count+"): previous "+(previousDuration/total)+" ns/string vs. current "+(currentDuration/total)+" ns/string");
+		}
+		
+		logger.decreaseOffset();
+	}
+}
@@ -0,0 +1,223 @@
+package tr.edu.gsu.nerwip.tools.benchmark;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import tr.edu.gsu.nerwip.data.article.Article;
+import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
+import tr.edu.gsu.nerwip.data.entity.Entities;
+import tr.edu.gsu.nerwip.evaluation.ArticleList;
+import tr.edu.gsu.nerwip.tools.corpus.ArticleLists;
+import tr.edu.gsu.nerwip.tools.file.FileNames;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+import tr.edu.gsu.nerwip.tools.string.MultiStringMatcher;
+
+/**
+ * Benchmark comparing the {@link MultiStringMatcher} used by 
+ * {@code Subee} to look for the additional occurrences of the
+ * entities, with the previous method, which used one regular 
+ * expression per entity (reproduced here).
+ * <br/>
+ * For each article of the output folder, the strings of the 
+ * reference entities play the role of the sure entities. Both
+ * methods must find the same occurrences. They are then timed
+ * on each article, and on the concatenation of all the articles
+ * (possibly repeated), with the strings of all the articles.
+ * <br/>
+ * Parameters: number of repetitions of the concatenated text (default: 1 and 4).
+ *  
+ * @author Vincent Labatut
+ */
+public class OccurrenceMatcherBenchmark
+{	
+	/**
+	 * Launches the benchmark.
+	 * 
+	 * @param args
+	 * 		Possibly the numbers of repetitions of the concatenated text.
+	 * 
+	 * @throws Exception
+	 * 		Problem while reading the articles.
+	 */
+	public static void main(String[] args) throws Exception
+	{	logger.setName("Occurrence-Matcher-Benchmark");
+		int repetitions[] = {1, 4};
+		if(args.length>0)
+		{	repetitions = new int[args.length];
+			for(int i=0;i<args.length;i++)
+				repetitions[i] = Integer.parseInt(args[i]);
+		}
+		
+		processArticles(repetitions);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGER		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+
+	/////////////////////////////////////////////////////////////////
+	// SEARCH		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Previous method: one regular expression per string, each
+	 * one applied to the whole text.
+	 * 
+	 * @param strings
+	 * 		Strings to look for.
+	 * @param text
+	 * 		Text to search.
+	 * @return
+	 * 		For each string, the list of its occurrences, as {@code start:end}.
+	 */
+	private static List<List<String>> findWithRegexes(List<String> strings, String text)
+	{	List<List<String>> result = new ArrayList<List<String>>();
+		for(String string: strings)
+		{	List<String> occurrences = new ArrayList<String>();
+			String escapedStr = Pattern.quote(string);
+			Pattern p = Pattern.compile("\\b"+escapedStr+"\\b");
+			Matcher m = p.matcher(text);
+			while(m.find())
+				occurrences.add(m.start()+":"+m.end());
+			result.add(occurrences);
+		}
+		return result;
+	}
+	
+	/**
+	 * Current method: all the strings are looked 
+	 * for at once, using an automaton.
+	 * 
+	 * @param strings
+	 * 		Strings to look for.
+	 * @param text
+	 * 		Text to search.
+	 * @return
+	 * 		For each string, the list of its occurrences, as {@code start:end}.
+	 */
+	private static List<List<String>> findWithAutomaton(List<String> strings, String text)
+	{	List<List<String>> result = new ArrayList<List<String>>();
+		for(int i=0;i<strings.size();i++)
+			result.add(new ArrayList<String>());
+		MultiStringMatcher matcher = new MultiStringMatcher(strings);
+		for(int[] occurrence: matcher.findWords(text))
+			result.get(occurrence[0]).add(occurrence[1]+":"+occurrence[2]);
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PROCESS		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Applies both methods to each article, then 
+	 * to the concatenation of all the articles.
+	 * 
+	 * @param repetitions
+	 * 		Numbers of repetitions of the concatenated text.
+	 * 
+	 * @throws Exception
+	 * 		Problem while reading the articles.
+	 */
+	public static void processArticles(int repetitions[]) throws Exception
+	{	logger.log("Compare both methods on each article");
+		logger.increaseOffset();
+		
+		ArticleList folders = ArticleLists.getArticleList();
+		Set<String> allStrings = new LinkedHashSet<String>();
+		StringBuilder allText = new StringBuilder();
+		int differentNbr = 0;
+		int occurrenceNbr = 0;
+		long regexDuration = 0;
+		long automatonDuration = 0;
+		for(File folder: folders)
+		{	// get the text and the strings
+			Article article = Article.read(folder.getName());
+			String text = article.getRawText();
+			File file = new File(folder, FileNames.FI_ENTITY_LIST);
+			Entities entities = Entities.readFromXml(file);
+			Set<String> set = new LinkedHashSet<String>();
+			for(AbstractEntity<?> entity: entities.getEntities())
+			{	String valueStr = entity.getStringValue();
+				if(!valueStr.isEmpty())
+					set.add(valueStr);
+			}
+			List<String> strings = new ArrayList<String>(set);
+			allStrings.addAll(strings);
+			allText.append(text).append("\n\n");
+			
+			// apply both methods
+			long start = System.nanoTime();
+			List<List<String>> regexOccurrences = findWithRegexes(strings, text);
+			regexDuration = regexDuration + System.nanoTime() - start;
+			start = System.nanoTime();
+			List<List<String>> automatonOccurrences = findWithAutomaton(strings, text);
+			automatonDuration = automatonDuration + System.nanoTime() - start;
+			
+			for(List<String> list: regexOccurrences)
+				occurrenceNbr = occurrenceNbr + list.size();
+			if(!regexOccurrences.equals(automatonOccurrences))
+			{	differentNbr++;
+				logger.log("ERROR: different occurrences for article "+folder.getName());
+			}
+		}
+		logger.log("Articles: "+folders.size()+", occurrences: "+occurrenceNbr+", articles with differences: "+differentNbr);
+		logger.log("Processing time: regexes "+(regexDuration/1000000)+" ms vs. automaton "+(automatonDuration/1000000)+" ms");
+		logger.decreaseOffset();
+		
+		// concatenated text
+		List<String> strings = new ArrayList<String>(allStrings);
+		for(int repetition: repetitions)
+		{	StringBuilder sb = new StringBuilder();
+			for(int r=0;r<repetition;r++)
+				sb.append(allText);
+			String text = sb.toString();
+			logger.log("Compare both methods on the concatenated text ("+text.length()+" chars, "+strings.size()+" strings)");
+			logger.increaseOffset();
+			
+			long start = System.nanoTime();
+			List<List<String>> regexOccurrences = findWithRegexes(strings, text);
+			regexDuration = (System.nanoTime() - start) / 1000000;
+			start = System.nanoTime();
+			List<List<String>> automatonOccurrences = findWithAutomaton(strings, text);
+			automatonDuration = (System.nanoTime() - start) / 1000000;
+			
+			if(regexOccurrences.equals(automatonOccurrences))
+				logger.log("Same occurrences");
+			else
+				logger.log("ERROR: different occurrences");
+			logger.log("Processing time: regexes "+regexDuration+" ms vs. automaton "+automatonDuration+" ms");
+			logger.decreaseOffset();
+		}
+	}
+}
@@ -0,0 +1,355 @@
+package tr.edu.gsu.nerwip.tools.benchmark;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
+import tr.edu.gsu.nerwip.data.entity.Entities;
+import tr.edu.gsu.nerwip.evaluation.ArticleList;
+import tr.edu.gsu.nerwip.recognition.AbstractRecognizer;
+import tr.edu.gsu.nerwip.recognition.internal.modelless.wikipediadater.WikipediaDater;
+import tr.edu.gsu.nerwip.tools.corpus.ArticleLists;
+import tr.edu.gsu.nerwip.tools.file.FileNames;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+
+/**
+ * Checks the k-way merge performed by {@link Entities#identifyOverlaps(Map)}
+ * returns the same groups of entities as the algorithm it replaced,
+ * which is reproduced here. Both are applied to the articles of the 
+ * output folder: for each article, the tools are the reference 
+ * annotation, the outputs of the recognizers found in the article 
+ * folder, and several randomly degraded copies of the reference 
+ * (entities removed, bounds moved), representing the usual 
+ * disagreements between tools.
+ * <br/>
+ * The previous algorithm picked the first entity among tied starting 
+ * positions in {@code HashMap} order, and merged equal entities 
+ * detected by distinct tools, so only entities with distinct starting
+ * positions are kept (the others are ignored, and counted). It also
+ * dropped the current entity of the last remaining tool: this is the
+ * only difference expected here, and it is reported separately.
+ * <br/>
+ * Parameters: number of degraded copies of the reference (default: 4).
+ *  
+ * @author Vincent Labatut
+ */
+public class OverlapsCheck
+{	
+	/**
+	 * Launches the check.
+	 * 
+	 * @param args
+	 * 		Possibly the number of degraded copies.
+	 * 
+	 * @throws Exception
+	 * 		Problem while reading the entities.
+	 */
+	public static void main(String[] args) throws Exception
+	{	logger.setName("Overlaps-Check");
+		int copyNbr = 4;
+		if(args.length>0)
+			copyNbr = Integer.parseInt(args[0]);
+		
+		checkCorpus(copyNbr);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGER		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+
+	/////////////////////////////////////////////////////////////////
+	// DATA			/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Number of ignored entities, because of a starting position already used by another tool */
+	private static int ignoredNbr = 0;
+	
+	/**
+	 * Builds the entities processed for the specified article.
+	 * Each tool is represented by a distinct recognizer object,
+	 * only used as a key.
+	 * 
+	 * @param folder
+	 * 		Folder of the article.
+	 * @param copyNbr
+	 * 		Number of degraded copies of the reference.
+	 * @param random
+	 * 		Random number generator.
+	 * @return
+	 * 		Map of the entities associated to each tool.
+	 * 
+	 * @throws Exception
+	 * 		Problem while reading the entities.
+	 */
+	private static Map<AbstractRecognizer,Entities> buildEntities(File folder, int copyNbr, Random random) throws Exception
+	{	Map<AbstractRecognizer,Entities> result = new HashMap<AbstractRecognizer,Entities>();
+		Set<Integer> usedPositions = new HashSet<Integer>();
+		
+		// reference
+		File refFile = new File(folder, FileNames.FI_ENTITY_LIST);
+		Entities reference = Entities.readFromXml(refFile);
+		result.put(new WikipediaDater(), filterPositions(reference.getEntities(),usedPositions));
+		
+		// recognizers
+		File subfolders[] = folder.listFiles();
+		for(File subfolder: subfolders)
+		{	File file = new File(subfolder, FileNames.FI_ENTITY_LIST);
+			if(subfolder.isDirectory() && file.exists())
+			{	Entities entities = Entities.readFromXml(file);
+				result.put(new WikipediaDater(), filterPositions(entities.getEntities(),usedPositions));
+			}
+		}
+		
+		// degraded copies of the reference
+		for(int i=0;i<copyNbr;i++)
+		{	List<AbstractEntity<?>> list = new ArrayList<AbstractEntity<?>>();
+			for(AbstractEntity<?> entity: reference.getEntities())
+			{	if(random.nextInt(5)>0)
+				{	int startPos = entity.getStartPos() + random.nextInt(7) - 3;
+					int endPos = entity.getEndPos() + random.nextInt(7) - 3;
+					if(startPos<endPos && startPos>=0)
+					{	AbstractEntity<?> copy = AbstractEntity.build(entity.getType(), startPos, endPos, entity.getSource(), entity.getStringValue());
+						list.add(copy);
+					}
+				}
+			}
+			result.put(new WikipediaDater(), filterPositions(list,usedPositions));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Keeps only the entities whose starting position
+	 * is not already used by another entity.
+	 * 
+	 * @param entities
+	 * 		Entities to filter.
+	 * @param usedPositions
+	 * 		Starting positions already used (updated by this method).
+	 * @return
+	 * 		Filtered entities.
+	 */
+	private static Entities filterPositions(List<AbstractEntity<?>> entities, Set<Integer> usedPositions)
+	{	Entities result = new Entities();
+		for(AbstractEntity<?> entity: entities)
+		{	if(usedPositions.add(entity.getStartPos()))
+				result.addEntity(entity);
+			else
+				ignoredNbr++;
+		}
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PREVIOUS VERSION	/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Previous version of {@link Entities#identifyOverlaps(Map)}.
+	 * 
+	 * @param entities
+	 * 		Entities detected by several tools.
+	 * @return
+	 * 		List of maps of equivalent entities.
+	 */
+	private static List<Map<AbstractRecognizer,AbstractEntity<?>>> identifyOverlapsPrevious(Map<AbstractRecognizer,Entities> entities)
+	{	List<Map<AbstractRecognizer,AbstractEntity<?>>> result = new ArrayList<Map<AbstractRecognizer,AbstractEntity<?>>>();
+		
+		// sort all entities
+		for(Entities e: entities.values())
+			e.sortByPosition();
+		
+		// init iterators
+		Map<AbstractRecognizer,Iterator<AbstractEntity<?>>> iterators = new HashMap<AbstractRecognizer, Iterator<AbstractEntity<?>>>();
+		for(AbstractRecognizer recognizer: entities.keySet())
+		{	Entities e = entities.get(recognizer);
+			Iterator<AbstractEntity<?>> it = e.getEntities().iterator();
+			if(it.hasNext())
+				iterators.put(recognizer,it);
+		}
+		
+		// init current entities
+		Map<AbstractEntity<?>,AbstractRecognizer> current = new HashMap<AbstractEntity<?>, AbstractRecognizer>();
+		for(AbstractRecognizer recognizer: iterators.keySet())
+		{	Iterator<AbstractEntity<?>> it = iterators.get(recognizer);
+			AbstractEntity<?> entity = it.next();
+			current.put(entity,recognizer);
+		}
+		
+		// detect overlapping entities
+		while(iterators.size()>1)
+		{	// init map
+			Map<AbstractRecognizer,AbstractEntity<?>> map = new HashMap<AbstractRecognizer, AbstractEntity<?>>();
+			
+			// identify the first entity
+			Iterator<AbstractEntity<?>> it = current.keySet().iterator();
+			AbstractEntity<?> first = it.next();
+			while(it.hasNext())
+			{	AbstractEntity<?> entity = it.next();
+				if(entity.precedes(first))
+					first = entity;
+			}
+			
+			// compare other entities to the the first one
+			it = current.keySet().iterator();
+			Map<AbstractEntity<?>,AbstractRecognizer> newCurrent = new HashMap<AbstractEntity<?>, AbstractRecognizer>();
+			while(it.hasNext())
+			{	AbstractEntity<?> entity = it.next();
+				AbstractRecognizer recognizer = current.get(entity);
+				
+				if(entity.overlapsWith(first))
+				{	// update map
+					map.put(recognizer,entity);
+					
+					// update iterator and entity list
+					Iterator<AbstractEntity<?>> i = iterators.get(recognizer);
+					if(i.hasNext())
+					{	AbstractEntity<?> newEntity = i.next();
+						newCurrent.put(newEntity,recognizer);
+					}
+					else
+						iterators.remove(recognizer);
+				}
+				else
+					newCurrent.put(entity,recognizer);
+			}
+			
+			// update entity list
+			current = newCurrent;
+			
+			result.add(map);
+		}
+		
+		// add the remaining entities
+		if(!iterators.isEmpty())
+		{	Entry<AbstractRecognizer,Iterator<AbstractEntity<?>>> entry = iterators.entrySet().iterator().next();
+			AbstractRecognizer recognizer = entry.getKey();
+			Iterator<AbstractEntity<?>> it = entry.getValue();
+			while(it.hasNext())
+			{	Map<AbstractRecognizer,AbstractEntity<?>> map = new HashMap<AbstractRecognizer, AbstractEntity<?>>();
+				AbstractEntity<?> entity = it.next();
+				map.put(recognizer,entity);
+				result.add(map);
+			}
+		}
+		
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PROCESS		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Applies both versions to all the articles of
+	 * the output folder, and compares their results.
+	 * 
+	 * @param copyNbr
+	 * 		Number of degraded copies of the reference.
+	 * 
+	 * @throws Exception
+	 * 		Problem while reading the entities.
+	 */
+	public static void checkCorpus(int copyNbr) throws Exception
+	{	logger.log("Compare both versions of identifyOverlaps on the corpus ("+copyNbr+" degraded copies of the reference)");
+		logger.increaseOffset();
+		
+		Random random = new Random(0);
+		ArticleList folders = ArticleLists.getArticleList();
+		int identicalNbr = 0;
+		int droppedNbr = 0;
+		int differentNbr = 0;
+		long previousDuration = 0;
+		long currentDuration = 0;
+		for(File folder: folders)
+		{	Map<AbstractRecognizer,Entities> entities = buildEntities(folder, copyNbr, random);
+			
+			long start = System.nanoTime();
+			List<Map<AbstractRecognizer,AbstractEntity<?>>> previous = identifyOverlapsPrevious(entities);
+			previousDuration = previousDuration + System.nanoTime() - start;
+			start = System.nanoTime();
+			List<Map<AbstractRecognizer,AbstractEntity<?>>> current = Entities.identifyOverlaps(entities);
+			currentDuration = currentDuration + System.nanoTime() - start;
+			
+			if(current.equals(previous))
+				identicalNbr++;
+			else if(isDroppedEntity(previous,current))
+				droppedNbr++;
+			else
+			{	differentNbr++;
+				logger.log("ERROR: different groups for article "+folder.getName()+" ("+previous.size()+" vs. "+current.size()+" groups)");
+			}
+		}
+		
+		logger.log("Articles: "+folders.size()+" ("+ignoredNbr+" entities ignored because of shared starting positions)");
+		logger.log("Identical groups: "+identicalNbr);
+		logger.log("Identical groups, except the entity dropped by the previous version: "+droppedNbr);
+		logger.log("Different groups: "+differentNbr);
+		logger.log("Processing time: previous "+(previousDuration/1000000)+" ms vs. current "+(currentDuration/1000000)+" ms");
+		logger.decreaseOffset();
+	}
+	
+	/**
+	 * Checks if the current groups only differ from the 
+	 * previous ones by a single additional group containing 
+	 * only one entity, i.e. the entity dropped by the previous
+	 * version.
+	 * 
+	 * @param previous
+	 * 		Groups obtained with the previous version.
+	 * @param current
+	 * 		Groups obtained with the current version.
+	 * @return
+	 * 		{@code true} iff the only difference is the dropped entity.
+	 */
+	private static boolean isDroppedEntity(List<Map<AbstractRecognizer,AbstractEntity<?>>> previous, List<Map<AbstractRecognizer,AbstractEntity<?>>> current)
+	{	boolean result = false;
+		
+		if(current.size()==previous.size()+1)
+		{	int i = 0;
+			while(!result && i<current.size())
+			{	if(current.get(i).size()==1)
+				{	List<Map<AbstractRecognizer,AbstractEntity<?>>> temp = new ArrayList<Map<AbstractRecognizer,AbstractEntity<?>>>(current);
+					temp.remove(i);
+					result = temp.equals(previous);
+				}
+				i++;
+			}
+		}
+		
+		return result;
+	}
+}
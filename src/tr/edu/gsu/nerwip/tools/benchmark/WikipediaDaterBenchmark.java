@@ -0,0 +1,448 @@
+package tr.edu.gsu.nerwip.tools.benchmark;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import tr.edu.gsu.nerwip.data.article.Article;
+import tr.edu.gsu.nerwip.data.entity.EntityDate;
+import tr.edu.gsu.nerwip.data.entity.EntityIndex;
+import tr.edu.gsu.nerwip.evaluation.ArticleList;
+import tr.edu.gsu.nerwip.recognition.RecognizerException;
+import tr.edu.gsu.nerwip.recognition.RecognizerName;
+import tr.edu.gsu.nerwip.recognition.internal.modelless.wikipediadater.WikipediaDater;
+import tr.edu.gsu.nerwip.tools.corpus.ArticleLists;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+
+/**
+ * Compares the current version of the {@link WikipediaDater}, which 
+ * applies all its patterns in a single traversal of the text (cf.
+ * {@link tr.edu.gsu.nerwip.tools.string.PatternScanner PatternScanner}),
+ * with its previous version, which looked for the matches of each pattern
+ * separately (reproduced here).
+ * <br/>
+ * Both versions are first applied to the articles of the output folder, 
+ * and to random texts made of date-related words, in order to check they 
+ * detect the same dates. They are then timed on the concatenation of 
+ * the articles, repeated several times.
+ * <br/>
+ * Parameters: number of random texts (default: 10000), number of
+ * times the concatenated articles are repeated (default: 1).
+ *  
+ * @author Vincent Labatut
+ */
+public class WikipediaDaterBenchmark
+{	
+	/**
+	 * Launches the benchmark.
+	 * 
+	 * @param args
+	 * 		Optional number of random texts, and number of repetitions.
+	 * 
+	 * @throws Exception
+	 * 		Problem while reading the articles.
+	 */
+	public static void main(String[] args) throws Exception
+	{	logger.setName("Wikipedia-Dater-Benchmark");
+		
+		int textNbr = 10000;
+		if(args.length>0)
+			textNbr = Integer.parseInt(args[0]);
+		int repetitions = 1;
+		if(args.length>1)
+			repetitions = Integer.parseInt(args[1]);
+		
+		checkDater(textNbr, repetitions);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGER		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+
+	/////////////////////////////////////////////////////////////////
+	// DATA			/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Words used to build the random texts */
+	private static final String[] WORDS = 
+	{	"early", "mid", "late", "January", "february", "May", "may", "Day", "day", "Christmas", "New", "Year's", "9/11",
+		"Sep", "dec", "Dec", "of", "the", "to", "and", "from", "century", "anniversary", "twentieth", "twenty", "first",
+		"1", "4", "10th", "21st", "22nd", "31", "32", "40th", "90s", "1990s", "1977", "2002", "85", "3", "'83", "'90s",
+		"Paris", "born", "x1990", "1990x"
+	};
+	/** Separators used to build the random texts */
+	private static final String[] SEPARATORS = {" ", " ", " ", ", ", "-", "–", "/", "'", ". ", "\n"};
+	/** Number of words in a random text */
+	private static final int TEXT_LENGTH = 30;
+	/** Number of times each timing is repeated (the best one is kept) */
+	private static final int TIMING_REPEAT = 5;
+	
+	/**
+	 * Builds a random text made of date-related words.
+	 * 
+	 * @param random
+	 * 		Random number generator.
+	 * @return
+	 * 		The random text.
+	 */
+	private static String buildRandomText(Random random)
+	{	StringBuilder result = new StringBuilder();
+		for(int i=0;i<TEXT_LENGTH;i++)
+		{	result.append(WORDS[random.nextInt(WORDS.length)]);
+			result.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+		}
+		return result.toString();
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PREVIOUS VERSION	/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Represents various forms of hyphens (or equivalent characters) */
+	private static final String EXPR_HYPHEN = "(-|–|/)";
+	/** Qualifies a following date */
+	private static final String EXPR_QUALIFIER = "((early|mid|late)("+EXPR_HYPHEN+"| ))";
+	/** Represents a year of the form 1981 */
+	private static final String EXPR_YEAR_FULL = "((1\\d{3})|(20\\d{2}))";
+	/** Represents a year of the form 77 */
+	private static final String EXPR_YEAR_SHORT = "(\\d{2})";
+	/** Represents a decade of the form 1990s */
+	private static final String EXPR_DECADE_FULL = "((1\\d|20)\\d0s)";
+	/** Represents a decade of the form 90s */
+	private static final String EXPR_DECADE_SHORT = "(\\d0s)";
+	/** Represents a month of the form January (upper case) */
+	private static final String EXPR_MONTH_LONG_UPPER = "(January|February|March|April|May|June|July|August|September|October|November|December)";
+	/** Represents a month of the form january (lower case)*/
+	private static final String EXPR_MONTH_LONG_LOWER = "(january|february|march|april|may|june|july|august|september|october|november|december)";
+	/** Represents a month of the form January or january (any case) */
+	private static final String EXPR_MONTH_LONG_BOTH = "("+EXPR_MONTH_LONG_UPPER+"|"+EXPR_MONTH_LONG_LOWER+")";
+	/** Represents a month of the form jan */
+	private static final String EXPR_MONTH_SHORT = "((j|J)an|(f|F)eb|(m|M)ar|(a|A)pr|(m|M)ay|(j|J)un|(j|J)ul|(a|A)ug|(s|S)ep|(o|O)ct|(n|N)ov|(d|D)ec)";
+	/** Represents a month of the form 01 */
+	@SuppressWarnings("unused")
+	private static final String EXPR_MONTH_INT = "((0?\\d)|(1(0|1|2))";
+	/** Represents a day of the form 31 */
+	private static final String EXPR_DAY_INT = "(((0|1|2)?\\d)|30|31)";
+	/** Represents a day of the form 31st */
+	private static final String EXPR_DAY_ORDINAL = "(((((0|1|2)?[3-9])|10|11|12|20|30)th)|((0?2|22|32)nd)|((0?1|21|31)st))"; 
+	/** Represents a century of the form eleventh century */
+	private static final String EXPR_CENTURY_LONG = "((((ten|eleven|twelf|thirteen|fourteen|fifteen|sixteen|seventeen|eighteen|nineteen|twentie)th)|twenty("+EXPR_HYPHEN+"| )first)( |"+EXPR_HYPHEN+")century)";
+	/** Represents a century of the form 11th century */
+	private static final String EXPR_CENTURY_SHORT = "((((1\\d|20)th)|21st)( |"+EXPR_HYPHEN+")century)";
+	/** Represents an anniversary, of the form 40th anniversary */
+	private static final String EXPR_ANNIVERSARY_SHORT = "((\\d*(0th|1st|2nd|3rd|[4-9]th))( |"+EXPR_HYPHEN+")(a|A)nniversary)";
+	/** Represents special days such as regligious fests, etc. */
+	private static final String EXPR_SPECIAL_DAY ="(((M|)ay (D|d)ay)|((C|c)hristmas (D|d)ay)|((N|n)ew (Y|y)ear's (D|d)ay)|(9/11))";
+	
+	/** List of patterns used to detect dates based on the previous regexps */
+	private static final List<Pattern> PATTERNS = Arrays.asList(
+		// "late May, 2010" or "late May 2010" or "late may, 2010" or "late may 2010" or
+		Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		// "late April of 1968" or "april of 1968"
+		Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_MONTH_LONG_BOTH+" of "+EXPR_YEAR_FULL+"\\b"),
+		// "late April" or "april"
+		Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_MONTH_LONG_BOTH+"\\b"),
+		
+		// "early 1990s"
+		Pattern.compile("\\b"+EXPR_QUALIFIER+EXPR_DECADE_FULL+"\\b"),
+		// "early 90s" or "early '90s"
+		Pattern.compile("\\b"+EXPR_QUALIFIER+"'?"+EXPR_DECADE_SHORT+"\\b"),
+		
+		// "May Day 2001"
+		Pattern.compile("\\b"+EXPR_SPECIAL_DAY+" "+EXPR_YEAR_FULL+"\\b"),
+		// "May Day"
+		Pattern.compile("\\b"+EXPR_SPECIAL_DAY),
+
+		// "twentieth-century" or "twentieth century"
+		Pattern.compile("\\b"+EXPR_CENTURY_LONG+"\\b"),
+		// "11th-century" or "11th century"
+		Pattern.compile("\\b"+EXPR_CENTURY_SHORT+"\\b"),
+		
+		// "40th-anniversary" or "40th anniversary"
+		Pattern.compile("\\b"+EXPR_ANNIVERSARY_SHORT+"\\b"),
+		
+		// "18-20 April 1889" or "18-20 April, 1889" or "18-20 april 1889" or "18-20 april, 1889" 
+		Pattern.compile("\\b"+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		// "4-6 October" or "4-6 october"
+		Pattern.compile("\\b"+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+"\\b"),
+		// "12 to 21 August, 2013" or "12 to 21 august, 2013" or "12 to 21 August 2013" or "12 to 21 august 2013"
+		Pattern.compile("\\b"+EXPR_DAY_INT+" to "+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		// "12 to 21 August" or "12 to 21 august"
+		Pattern.compile("\\b"+EXPR_DAY_INT+" to "+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+"\\b"),
+		
+		// "20 April 1889" or "20 April, 1889" or "20 april 1889" or "20 april, 1889" 
+		Pattern.compile("\\b"+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		// "5 Sep 1887" or "5 sep 1887"
+		Pattern.compile("\\b"+EXPR_DAY_INT+" "+EXPR_MONTH_SHORT+" "+EXPR_YEAR_FULL+"\\b"),
+		// "4 of October, 1975" or "4 of october, 1975" or "4 of October 1975" or "4 of october 1975"
+		Pattern.compile("\\b"+EXPR_DAY_INT+" of "+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		// "6 October" or "6 october"
+		Pattern.compile("\\b"+EXPR_DAY_INT+" "+EXPR_MONTH_LONG_BOTH+"\\b"),
+
+		// "10th of April 2004" or "10th of april 2004"
+		Pattern.compile("\\b"+EXPR_DAY_ORDINAL+" of "+EXPR_MONTH_LONG_BOTH+" "+EXPR_YEAR_FULL+"\\b"),
+		// "10th of April" or "10th of april"
+		Pattern.compile("\\b"+EXPR_DAY_ORDINAL+" of "+EXPR_MONTH_LONG_BOTH+"\\b"),
+		
+		// "October 25–26, 1821" or "october 25–26, 1821" or "October 25–26 1821" or "october 25–26 1821"
+		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"),
+		// "October 25–26, 1821" or "october 25–26, 1821" or "October 25–26 1821" or "october 25–26 1821"
+		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+EXPR_HYPHEN+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"),
+		// "March 6 and 8, 1918" or "march 6 and 8, 1918" or "March 6 and 8 1918" or "march 6 and 8 1918"
+		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+" and "+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"),
+		
+		// "May 30, 1914" or "may 30, 1914" or "May 30 1914" or "may 30 1914"
+		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+",? "+EXPR_YEAR_FULL+"\\b"),
+		// "December 4 of 1922" or "december 4 of 1922"
+		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+" of "+EXPR_YEAR_FULL+"\\b"),
+		// "December 9th 2010" or "december 9th 2010" or "December 9th, 2010" or "december 9th, 2010"
+		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_ORDINAL+",? "+EXPR_YEAR_FULL+"\\b"),
+		// "February the 20th of 2010" or "february the 20th of 2010"
+		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" the "+EXPR_DAY_ORDINAL+" of "+EXPR_YEAR_FULL+"\\b"),
+		// "October 6" or "october 6"
+		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" "+EXPR_DAY_INT+"\\b"),
+		
+		// "October, 1926" or "October 1926" or "october, 1926" or "october 1926"
+		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+",? "+EXPR_YEAR_FULL+"\\b"),
+		// "April of 1968" or "april of 1968"
+		Pattern.compile("\\b"+EXPR_MONTH_LONG_BOTH+" of "+EXPR_YEAR_FULL+"\\b"),
+		// "April"
+		Pattern.compile("\\b"+EXPR_MONTH_LONG_UPPER+"\\b"),
+		
+		// "Sep-Dec 1996" or "sep-dec 1996" or "Sep-dec 1996" or "sep-Dec 1996"
+		Pattern.compile("\\b"+EXPR_MONTH_SHORT+EXPR_HYPHEN+EXPR_MONTH_SHORT+" "+EXPR_YEAR_FULL+"\\b"),
+		// "Dec 1996" or "dec 1996"
+		Pattern.compile("\\b"+EXPR_MONTH_SHORT+" "+EXPR_YEAR_FULL+"\\b"),
+		
+		// "from 2002 to 06"
+		Pattern.compile("\\bfrom "+EXPR_YEAR_FULL+" to "+EXPR_YEAR_SHORT+"\\b"),
+
+		// "1990s"
+		Pattern.compile("\\b"+EXPR_DECADE_FULL+"\\b"),
+		// "1977-85"
+		Pattern.compile("\\b"+EXPR_YEAR_FULL+EXPR_HYPHEN+EXPR_YEAR_SHORT+"\\b"),
+		// "2002-3"
+		Pattern.compile("\\b"+EXPR_YEAR_FULL+EXPR_HYPHEN+"\\d\\b"),
+		// "2010"
+		Pattern.compile("\\b"+EXPR_YEAR_FULL+"\\b"),
+		
+		// "90s" or "'90s"
+		Pattern.compile("(\\b|')"+EXPR_DECADE_SHORT+"\\b"),
+		// "'83"
+		Pattern.compile("'"+EXPR_YEAR_SHORT+"\\b")
+	);
+	
+	/**
+	 * Previous version of the date detection:
+	 * each pattern is applied separately.
+	 * 
+	 * @param text
+	 * 		Text to process.
+	 * @return
+	 * 		Detected dates.
+	 */
+	private static List<EntityDate> detectEntitiesPrevious(String text)
+	{	List<EntityDate> result = new ArrayList<EntityDate>();
+		EntityIndex index = new EntityIndex();
+		
+		for(Pattern pattern: PATTERNS)
+		{	Matcher matcher = pattern.matcher(text);
+			while(matcher.find())
+			{	int startPos = matcher.start();
+				int endPos = matcher.end();
+				String valueStr = matcher.group();
+				EntityDate entity = new EntityDate(startPos, endPos, RecognizerName.WIKIPEDIADATER, valueStr);
+				if(!index.isOverlapping(entity))
+				{	result.add(entity);
+					index.add(entity);
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// CURRENT VERSION	/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Gives access to the detection method
+	 * of the current version of the dater.
+	 */
+	private static class CurrentDater extends WikipediaDater
+	{	/**
+		 * Applies the current version of the dater.
+		 * 
+		 * @param text
+		 * 		Text to process.
+		 * @return
+		 * 		Detected dates.
+		 * 
+		 * @throws RecognizerException
+		 * 		Problem while detecting the dates.
+		 */
+		public List<EntityDate> detect(String text) throws RecognizerException
+		{	Article article = new Article("benchmark");
+			article.setRawText(text);
+			List<EntityDate> result = detectEntities(article);
+			return result;
+		}
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PROCESS		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Returns a string representing the specified dates.
+	 * 
+	 * @param entities
+	 * 		Dates of interest.
+	 * @return
+	 * 		Strings representing the dates.
+	 */
+	private static List<String> describe(List<EntityDate> entities)
+	{	List<String> result = new ArrayList<String>();
+		for(EntityDate entity: entities)
+			result.add(entity.getStartPos()+"-"+entity.getEndPos()+" '"+entity.getStringValue()+"'");
+		return result;
+	}
+	
+	/**
+	 * Compares both versions on the specified text.
+	 * 
+	 * @param dater
+	 * 		Current version of the dater.
+	 * @param name
+	 * 		Name of the text (for logging).
+	 * @param text
+	 * 		Text to process.
+	 * @return
+	 * 		Number of dates detected by the previous version, 
+	 * 		or {@code -1} if both versions differ.
+	 * 
+	 * @throws RecognizerException
+	 * 		Problem while detecting the dates.
+	 */
+	private static int compare(CurrentDater dater, String name, String text) throws RecognizerException
+	{	List<String> previous = describe(detectEntitiesPrevious(text));
+		logger.setEnabled(false);
+		List<String> current = describe(dater.detect(text));
+		logger.setEnabled(true);
+		
+		int result = previous.size();
+		if(!previous.equals(current))
+		{	result = -1;
+			logger.log("ERROR: different dates for "+name+" ("+previous.size()+" vs. "+current.size()+")");
+			logger.increaseOffset();
+			List<String> missing = new ArrayList<String>(previous);
+			missing.removeAll(current);
+			for(String date: missing)
+				logger.log("Only in the previous version: "+date);
+			List<String> additional = new ArrayList<String>(current);
+			additional.removeAll(previous);
+			for(String date: additional)
+				logger.log("Only in the current version: "+date);
+			logger.decreaseOffset();
+		}
+		return result;
+	}
+	
+	/**
+	 * Checks both versions detect the same dates, 
+	 * then compares their processing times.
+	 * 
+	 * @param textNbr
+	 * 		Number of random texts.
+	 * @param repetitions
+	 * 		Number of times the concatenated articles are repeated.
+	 * 
+	 * @throws Exception
+	 * 		Problem while reading the articles.
+	 */
+	public static void checkDater(int textNbr, int repetitions) throws Exception
+	{	logger.log("Compare both versions of the Wikipedia dater");
+		logger.increaseOffset();
+		CurrentDater dater = new CurrentDater();
+		
+		// articles
+		ArticleList folders = ArticleLists.getArticleList();
+		StringBuilder allText = new StringBuilder();
+		int dateNbr = 0;
+		int differentNbr = 0;
+		for(File folder: folders)
+		{	Article article = Article.read(folder.getName());
+			String text = article.getRawText();
+			allText.append(text).append("\n\n");
+			int nbr = compare(dater, folder.getName(), text);
+			if(nbr<0)
+				differentNbr++;
+			else
+				dateNbr = dateNbr + nbr;
+		}
+		logger.log("Articles: "+folders.size()+", dates: "+dateNbr+", articles with differences: "+differentNbr);
+		
+		// random texts
+		Random random = new Random(0);
+		dateNbr = 0;
+		differentNbr = 0;
+		for(int i=0;i<textNbr;i++)
+		{	String text = buildRandomText(random);
+			int nbr = compare(dater, "random text \""+text+"\"", text);
+			if(nbr<0)
+				differentNbr++;
+			else
+				dateNbr = dateNbr + nbr;
+		}
+		logger.log("Random texts: "+textNbr+", dates: "+dateNbr+", texts with differences: "+differentNbr);
+		
+		// timing
+		StringBuilder sb = new StringBuilder();
+		for(int r=0;r<repetitions;r++)
+			sb.append(allText);
+		String text = sb.toString();
+		long previousBest = Long.MAX_VALUE;
+		long currentBest = Long.MAX_VALUE;
+		logger.setEnabled(false);
+		for(int r=0;r<TIMING_REPEAT;r++)
+		{	long start = System.nanoTime();
+			detectEntitiesPrevious(text);
+			previousBest = Math.min(previousBest, System.nanoTime()-start);
+			start = System.nanoTime();
+			dater.detect(text);
+			currentBest = Math.min(currentBest, System.nanoTime()-start);
+		}
+		logger.setEnabled(true);
+		logger.log("Processing time on "+text.length()+" chars (best of "+TIMING_REPEAT+"): previous "+(previousBest/1000000)+" ms vs. current "+(currentBest/1000000)+" ms");
+		
+		logger.decreaseOffset();
+	}
+}
@@ -0,0 +1,242 @@
+package tr.edu.gsu.nerwip.tools.benchmark;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
+
+import tr.edu.gsu.nerwip.tools.file.FileNames;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+import tr.edu.gsu.nerwip.tools.time.TimeFormatting;
+import tr.edu.gsu.nerwip.tools.xml.XmlTools;
+
+/**
+ * Stress test for {@link XmlTools}: parses all the XML files of
+ * the corpus (properties and entities) from many threads at once,
+ * and checks the results are the same as when parsing them 
+ * sequentially. Each thread also writes the parsed documents 
+ * in its own temporary file, and parses them again.
+ * <br/>
+ * Parameters: number of threads (default: 16), and number of 
+ * passes over the corpus performed by each thread (default: 4).
+ *  
+ * @author Vincent Labatut
+ */
+public class XmlStressTest
+{	
+	/**
+	 * Launches the stress test.
+	 * 
+	 * @param args
+	 * 		Possibly the number of threads and the number of passes.
+	 * 
+	 * @throws Exception
+	 * 		Problem while accessing the files.
+	 */
+	public static void main(String[] args) throws Exception
+	{	logger.setName("Xml-Stress-Test");
+		int threadNbr = 16;
+		if(args.length>0)
+			threadNbr = Integer.parseInt(args[0]);
+		int passNbr = 4;
+		if(args.length>1)
+			passNbr = Integer.parseInt(args[1]);
+		
+		stressTest(threadNbr, passNbr);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGER		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+
+	/////////////////////////////////////////////////////////////////
+	// FILES		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Lists the XML files of the corpus, i.e. the properties
+	 * and entity files of each article, as well as the entity 
+	 * files produced by the recognizers.
+	 * 
+	 * @param files
+	 * 		List completed with the XML files.
+	 * @param schemas
+	 * 		List completed with the corresponding schema files.
+	 */
+	private static void listFiles(List<File> files, List<File> schemas)
+	{	File propertySchema = new File(FileNames.FO_SCHEMA + File.separator + FileNames.FI_PROPERTY_SCHEMA);
+		File entitySchema = new File(FileNames.FO_SCHEMA + File.separator + FileNames.FI_ENTITY_SCHEMA);
+		
+		File folders[] = new File(FileNames.FO_OUTPUT).listFiles();
+		for(File folder: folders)
+		{	if(folder.isDirectory())
+			{	File propertyFile = new File(folder, FileNames.FI_PROPERTIES);
+				if(propertyFile.exists())
+				{	files.add(propertyFile);
+					schemas.add(propertySchema);
+				}
+				File entityFile = new File(folder, FileNames.FI_ENTITY_LIST);
+				if(entityFile.exists())
+				{	files.add(entityFile);
+					schemas.add(entitySchema);
+				}
+				for(File subfolder: folder.listFiles())
+				{	entityFile = new File(subfolder, FileNames.FI_ENTITY_LIST);
+					if(subfolder.isDirectory() && entityFile.exists())
+					{	files.add(entityFile);
+						schemas.add(entitySchema);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Parses the specified file, and returns
+	 * its content as a string. The schema location
+	 * is ignored, since it depends on the location
+	 * of the file.
+	 * 
+	 * @param file
+	 * 		XML file.
+	 * @param schema
+	 * 		Schema of the file.
+	 * @return
+	 * 		String representation of the parsed document.
+	 * 
+	 * @throws Exception
+	 * 		Problem while parsing the file.
+	 */
+	private static String parse(File file, File schema) throws Exception
+	{	Element root = XmlTools.getRootFromFile(file, schema);
+		Namespace xsi = root.getNamespace("xsi");
+		if(xsi!=null)
+			root.removeAttribute("noNamespaceSchemaLocation", xsi);
+		XMLOutputter outputter = new XMLOutputter(Format.getCompactFormat());
+		String result = outputter.outputString(root);
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PROCESS		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Parses all the files sequentially, then again concurrently, 
+	 * and compares the results.
+	 * 
+	 * @param threadNbr
+	 * 		Number of threads.
+	 * @param passNbr
+	 * 		Number of times each thread processes all the files.
+	 * 
+	 * @throws Exception
+	 * 		Problem while accessing the files.
+	 */
+	public static void stressTest(final int threadNbr, final int passNbr) throws Exception
+	{	final List<File> files = new ArrayList<File>();
+		final List<File> schemas = new ArrayList<File>();
+		listFiles(files, schemas);
+		logger.log("Stress test on "+files.size()+" XML files, using "+threadNbr+" threads and "+passNbr+" passes");
+		logger.increaseOffset();
+		
+		// sequential reference
+		long start = System.currentTimeMillis();
+		final List<String> reference = new ArrayList<String>();
+		for(int i=0;i<files.size();i++)
+			reference.add(parse(files.get(i), schemas.get(i)));
+		long duration = System.currentTimeMillis() - start;
+		logger.log("Sequential parsing: "+TimeFormatting.formatDuration(duration)+" ("+duration+" ms)");
+		
+		// concurrent parsing
+		start = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(threadNbr);
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		try
+		{	for(int t=0;t<threadNbr;t++)
+			{	final int offset = t;
+				Future<Integer> future = executor.submit(new Callable<Integer>()
+				{	@Override
+					public Integer call() throws Exception
+					{	int result = 0;
+						File tempFile = File.createTempFile("nerwip-stress", ".xml");
+						try
+						{	for(int p=0;p<passNbr;p++)
+							{	// each thread starts at a different file
+								for(int j=0;j<files.size();j++)
+								{	int i = (j + offset*files.size()/threadNbr) % files.size();
+									File file = files.get(i);
+									File schema = schemas.get(i);
+									if(!parse(file,schema).equals(reference.get(i)))
+										result++;
+									
+									// write and read again
+									if(p==0)
+									{	Element root = (Element)XmlTools.getRootFromFile(file, schema).detach();
+										XmlTools.makeFileFromRoot(tempFile, schema, root);
+										if(!parse(tempFile,schema).equals(reference.get(i)))
+											result++;
+									}
+								}
+							}
+						}
+						finally
+						{	tempFile.delete();
+						}
+						return result;
+					}
+				});
+				futures.add(future);
+			}
+			
+			int errors = 0;
+			for(Future<Integer> future: futures)
+				errors = errors + future.get();
+			duration = System.currentTimeMillis() - start;
+			int parseNbr = threadNbr * (passNbr+1) * files.size();
+			logger.log("Concurrent parsing: "+parseNbr+" parses in "+TimeFormatting.formatDuration(duration)+" ("+duration+" ms)");
+			if(errors==0)
+				logger.log("All the concurrent parses match the sequential ones");
+			else
+				logger.log("ERROR: "+errors+" concurrent parses differ from the sequential ones");
+		}
+		finally
+		{	executor.shutdownNow();
+		}
+		
+		logger.decreaseOffset();
+	}
+}
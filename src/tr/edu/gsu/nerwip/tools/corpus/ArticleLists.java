@@ -50,6 +50,7 @@ import org.xml.sax.SAXException;
 
 import tr.edu.gsu.nerwip.data.article.Article;
 import tr.edu.gsu.nerwip.data.article.ArticleCategory;
+import tr.edu.gsu.nerwip.data.article.CorpusPack;
 import tr.edu.gsu.nerwip.data.entity.AbstractEntity;
 import tr.edu.gsu.nerwip.data.entity.Entities;
 import tr.edu.gsu.nerwip.data.entity.EntityType;
@@ -107,14 +108,46 @@ public class ArticleLists
 	 */
 	public static ArticleList getArticleList()
 	{	logger.log("Retrieving the list of articles");
-		File folder = new File(FileNames.FO_OUTPUT);
-		File articles[] = folder.listFiles(FileTools.FILTER_DIRECTORY);
-		List<File> list = Arrays.asList(articles);
-		Collections.sort(list);
+		List<File> list = getArticleFolders();
 		ArticleList result = new ArticleList("all", list);
 		return result;
 	}
 	
+	/**
+	 * Returns the sorted list of the article folders. If
+	 * the packed corpus is used, the list is obtained from
+	 * its index instead of the output folder (cf. {@link CorpusPack}). 
+	 * 
+	 * @return
+	 * 		A list of {@code File} objects.
+	 */
+	private static List<File> getArticleFolders()
+	{	List<File> result = null;
+		
+		// possibly use the packed corpus
+		try
+		{	CorpusPack pack = CorpusPack.getPack();
+			if(pack!=null)
+			{	result = new ArrayList<File>();
+				for(String name: pack.getArticleNames())
+					result.add(new File(FileNames.FO_OUTPUT + File.separator + name));
+			}
+		}
+		catch(IOException e)
+		{	e.printStackTrace();
+		}
+		
+		// otherwise, list the output folder
+		if(result==null)
+		{	File folder = new File(FileNames.FO_OUTPUT);
+			File articles[] = folder.listFiles(FileTools.FILTER_DIRECTORY);
+			result = Arrays.asList(articles);
+			Collections.sort(result);
+		}
+		
+		return result;
+	}
+	
 	/**
 	 * Returns the list of all articles listed 
 	 * in the specified file.
@@ -168,10 +201,7 @@ public class ArticleLists
 	{	logger.log("Retrieving the list of articles");
 		
 		// get the full list
-		File folder = new File(FileNames.FO_OUTPUT);
-		File articles[] = folder.listFiles(FileTools.FILTER_DIRECTORY);
-		List<File> list = Arrays.asList(articles);
-		Collections.sort(list);
+		List<File> list = getArticleFolders();
 		
 		// retain only half the list
 		ArticleList result;
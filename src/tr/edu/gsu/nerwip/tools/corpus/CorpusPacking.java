@@ -0,0 +1,118 @@
+package tr.edu.gsu.nerwip.tools.corpus;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import tr.edu.gsu.nerwip.data.article.CorpusPack;
+import tr.edu.gsu.nerwip.tools.file.FileNames;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+
+/**
+ * This class allows converting the corpus between its
+ * regular form (one folder per article) and its packed
+ * form (a single data file plus an index, cf. {@link CorpusPack}).
+ * <br/>
+ * Both files of the packed form are located in the output folder.
+ * Once the corpus is packed, the regular folders can be removed,
+ * and {@link CorpusPack#setEnabled(boolean)} must be called to
+ * make Nerwip use the pack.
+ *  
+ * @author Vincent Labatut
+ */
+public class CorpusPacking
+{	
+	/**
+	 * Packs the whole corpus, or unpacks it if
+	 * the {@code unpack} parameter is specified.
+	 * 
+	 * @param args
+	 * 		Possibly {@code unpack}.
+	 * 
+	 * @throws Exception
+	 * 		Problem while accessing the files.
+	 */
+	public static void main(String[] args) throws Exception
+	{	logger.setName("Corpus-Packing");
+		
+		if(args.length>0 && args[0].equals("unpack"))
+			unpackCorpus();
+		else
+			packCorpus();
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// LOGGER		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+
+	/////////////////////////////////////////////////////////////////
+	// PROCESS		/////////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Packs all the files of the output folder, 
+	 * in the output folder itself. The regular
+	 * files are not removed.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the files.
+	 */
+	public static void packCorpus() throws IOException
+	{	logger.log("Pack the corpus");
+		logger.increaseOffset();
+		
+		File folder = new File(FileNames.FO_OUTPUT);
+		File dataFile = new File(folder, FileNames.FI_CORPUS_DATA);
+		File indexFile = new File(folder, FileNames.FI_CORPUS_INDEX);
+		CorpusPack.pack(folder, dataFile, indexFile);
+		
+		logger.decreaseOffset();
+		logger.log("Packing over");
+	}
+	
+	/**
+	 * Extracts all the files of the packed corpus
+	 * into the output folder. The packed files are
+	 * not removed.
+	 * 
+	 * @throws IOException
+	 * 		Problem while accessing the files.
+	 */
+	public static void unpackCorpus() throws IOException
+	{	logger.log("Unpack the corpus");
+		logger.increaseOffset();
+		
+		File folder = new File(FileNames.FO_OUTPUT);
+		File dataFile = new File(folder, FileNames.FI_CORPUS_DATA);
+		File indexFile = new File(folder, FileNames.FI_CORPUS_INDEX);
+		CorpusPack.unpack(dataFile, indexFile, folder);
+		
+		logger.decreaseOffset();
+		logger.log("Unpacking over");
+	}
+}
@@ -0,0 +1,582 @@
+package tr.edu.gsu.nerwip.tools.file;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLogger;
+import tr.edu.gsu.nerwip.tools.log.HierarchicalLoggerManager;
+
+/**
+ * Write-behind layer used to record the results of the NER tools
+ * without putting the disk latency on the processing path.
+ * <br/>
+ * When enabled (cf. {@link #setEnabled(boolean)}), the files are 
+ * queued and recorded by a background thread, in the order they 
+ * were submitted. The queue is bounded: when it is full, the 
+ * submitting thread waits. The content of a file is fully built
+ * before being queued, so it does not depend on objects
+ * which could be modified later. Until a file is recorded,
+ * {@link #exists(File)} already considers it as existing, and
+ * {@link #waitFor(File)} allows waiting for it before reading it.
+ * <br/>
+ * In all cases, a file is first written in a temporary file located
+ * in the same folder, synchronized with the disk, then renamed. So, a 
+ * crash never leaves a partially written file. The folder is then also
+ * synchronized, so that the renaming itself is durable, except on the
+ * platforms which do not allow opening a folder (e.g. Windows): there,
+ * the renaming may be lost by a crash, leaving the previous version.
+ * <br/>
+ * A file which could not be recorded is kept in memory, and
+ * its recording is attempted again by {@link #flush()}, which 
+ * must be called at the end of a batch: it waits for all the
+ * pending files and reports the files which still could not be 
+ * recorded. It is also called when the JVM shuts down.
+ * <br/>
+ * This layer is disabled by default: files are then recorded
+ * directly by the calling thread.
+ * 
+ * @author Vincent Labatut
+ */
+public class AsyncFileWriter
+{	
+	/////////////////////////////////////////////////////////////////
+	// LOGGING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Common object used for logging */
+	private static HierarchicalLogger logger = HierarchicalLoggerManager.getHierarchicalLogger();
+	
+	/////////////////////////////////////////////////////////////////
+	// ENABLED			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Whether the files should be recorded in the background */
+	private static volatile boolean enabled = false;
+	
+	/**
+	 * Enables/disables the background recording. When
+	 * disabling it, the pending files are flushed first.
+	 * 
+	 * @param enabled
+	 * 		{@code true} to record the files in the background.
+	 * 
+	 * @throws IOException
+	 * 		Some pending files could not be recorded.
+	 */
+	public static void setEnabled(boolean enabled) throws IOException
+	{	if(!enabled)
+			flush();
+		AsyncFileWriter.enabled = enabled;
+	}
+	
+	/**
+	 * Indicates whether the files are recorded
+	 * in the background.
+	 * 
+	 * @return
+	 * 		{@code true} iff the background recording is enabled.
+	 */
+	public static boolean isEnabled()
+	{	return enabled;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// QUEUE			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Lock protecting the queue and the related structures */
+	private static final Object LOCK = new Object();
+	/** Files waiting to be recorded */
+	private static final LinkedList<PendingFile> queue = new LinkedList<PendingFile>();
+	/** Files which could not be recorded */
+	private static final List<PendingFile> failed = new ArrayList<PendingFile>();
+	/** Number of writes not completed yet, for each file */
+	private static final Map<File,Integer> pendingCounts = new HashMap<File,Integer>();
+	/** File currently recorded by the background thread */
+	private static PendingFile current = null;
+	/** Background thread recording the files */
+	private static Thread thread = null;
+	/** Maximal number of files in the queue */
+	private static int capacity = 256;
+	
+	/**
+	 * Changes the maximal number of files waiting
+	 * in the queue. When the queue is full, the 
+	 * submitting threads wait.
+	 * 
+	 * @param capacity
+	 * 		New capacity of the queue.
+	 */
+	public static void setCapacity(int capacity)
+	{	synchronized(LOCK)
+		{	AsyncFileWriter.capacity = capacity;
+			LOCK.notifyAll();
+		}
+	}
+	
+	/**
+	 * Returns the maximal number of files
+	 * waiting in the queue.
+	 * 
+	 * @return
+	 * 		Capacity of the queue.
+	 */
+	public static int getCapacity()
+	{	synchronized(LOCK)
+		{	return capacity;
+		}
+	}
+	
+	/**
+	 * File waiting to be recorded.
+	 */
+	private static class PendingFile
+	{	
+		/**
+		 * Builds a new pending file.
+		 * 
+		 * @param file
+		 * 		File to record.
+		 * @param content
+		 * 		Content of the file.
+		 */
+		public PendingFile(File file, byte content[])
+		{	this.file = file.getAbsoluteFile();
+			this.content = content;
+		}
+		
+		/** File to record */
+		public final File file;
+		/** Content of the file */
+		public final byte content[];
+	}
+	
+	/**
+	 * Updates the number of writes not completed
+	 * yet for the specified file. The lock must be held.
+	 * 
+	 * @param file
+	 * 		File of interest.
+	 * @param delta
+	 * 		Value added to the count.
+	 */
+	private static void updatePendingCount(File file, int delta)
+	{	Integer count = pendingCounts.get(file);
+		if(count==null)
+			count = 0;
+		count = count + delta;
+		if(count==0)
+			pendingCounts.remove(file);
+		else
+			pendingCounts.put(file,count);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// WRITING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Records the specified text in the specified file,
+	 * using the UTF-8 encoding (like {@link FileTools#writeTextFile(File, String)}).
+	 * 
+	 * @param file
+	 * 		File to record.
+	 * @param content
+	 * 		Text of the file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while recording the file.
+	 */
+	public static void write(File file, String content) throws IOException
+	{	byte bytes[] = content.getBytes("UTF-8");
+		write(file,bytes);
+	}
+	
+	/**
+	 * Records the specified content in the specified file,
+	 * either directly or in the background, depending on
+	 * whether the background recording is enabled.
+	 * 
+	 * @param file
+	 * 		File to record.
+	 * @param content
+	 * 		Content of the file (it must not be modified afterwards).
+	 * 
+	 * @throws IOException
+	 * 		Problem while recording the file.
+	 */
+	public static void write(File file, byte content[]) throws IOException
+	{	if(!enabled)
+		{	File absoluteFile = file.getAbsoluteFile();
+			synchronized(LOCK)
+			{	// previous versions are superseded
+				waitForQueue(absoluteFile);
+				discardFailed(absoluteFile);
+			}
+			writeAtomically(file,content);
+		}
+		else
+		{	PendingFile pendingFile = new PendingFile(file,content);
+			synchronized(LOCK)
+			{	try
+				{	while(queue.size()>=capacity)
+						LOCK.wait();
+				}
+				catch(InterruptedException e)
+				{	Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while waiting to record "+file,e);
+				}
+				queue.add(pendingFile);
+				updatePendingCount(pendingFile.file,+1);
+				startThread();
+				LOCK.notifyAll();
+			}
+		}
+	}
+	
+	/**
+	 * Records the specified content in a temporary file located in 
+	 * the same folder as the specified file, synchronizes it with
+	 * the disk, then renames it. This way, the file is either 
+	 * completely recorded, or left unchanged. The folder is finally
+	 * synchronized too, if the platform allows it.
+	 * 
+	 * @param file
+	 * 		File to record.
+	 * @param content
+	 * 		Content of the file.
+	 * 
+	 * @throws IOException
+	 * 		Problem while recording the file.
+	 */
+	public static void writeAtomically(File file, byte content[]) throws IOException
+	{	File folder = file.getAbsoluteFile().getParentFile();
+		if(!folder.exists())
+			folder.mkdirs();
+		
+		File tempFile = File.createTempFile("."+file.getName()+".", ".tmp", folder);
+		try
+		{	FileOutputStream out = new FileOutputStream(tempFile);
+			try
+			{	out.write(content);
+				out.getFD().sync();
+			}
+			finally
+			{	out.close();
+			}
+			
+			try
+			{	Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(AtomicMoveNotSupportedException e)
+			{	Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally
+		{	if(tempFile.exists())
+				tempFile.delete();
+		}
+		
+		syncFolder(folder);
+	}
+	
+	/**
+	 * Synchronizes the specified folder with the disk,
+	 * so that the files renamed in it are durably recorded.
+	 * Some platforms (e.g. Windows) do not allow opening 
+	 * a folder: the folder is then not synchronized.
+	 * 
+	 * @param folder
+	 * 		Folder to synchronize.
+	 */
+	private static void syncFolder(File folder)
+	{	try
+		{	FileChannel channel = FileChannel.open(folder.toPath(), StandardOpenOption.READ);
+			try
+			{	channel.force(true);
+			}
+			finally
+			{	channel.close();
+			}
+		}
+		catch(IOException e)
+		{	// not supported by this platform
+		}
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// READING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Indicates whether the specified file exists,
+	 * or is waiting to be recorded.
+	 * 
+	 * @param file
+	 * 		File of interest.
+	 * @return
+	 * 		{@code true} iff the file exists or will exist.
+	 */
+	public static boolean exists(File file)
+	{	boolean result = file.exists();
+		if(!result)
+		{	synchronized(LOCK)
+			{	result = pendingCounts.containsKey(file.getAbsoluteFile());
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Waits until the pending writes of the specified 
+	 * file are completed, so that it can be read. If 
+	 * the file could not be recorded previously, its 
+	 * recording is attempted again. 
+	 * 
+	 * @param file
+	 * 		File of interest.
+	 * 
+	 * @throws IOException
+	 * 		The file could not be recorded.
+	 */
+	public static void waitFor(File file) throws IOException
+	{	File absoluteFile = file.getAbsoluteFile();
+		synchronized(LOCK)
+		{	waitForQueue(absoluteFile);
+			
+			// only failed writes remain
+			if(pendingCounts.containsKey(absoluteFile))
+				retryFailed(absoluteFile);
+		}
+	}
+	
+	/**
+	 * Waits until the specified file is neither waiting in
+	 * the queue nor currently recorded. The lock must be held.
+	 * 
+	 * @param file
+	 * 		File of interest (absolute).
+	 * 
+	 * @throws IOException
+	 * 		The thread was interrupted while waiting.
+	 */
+	private static void waitForQueue(File file) throws IOException
+	{	try
+		{	while(isQueued(file))
+				LOCK.wait();
+		}
+		catch(InterruptedException e)
+		{	Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for "+file,e);
+		}
+	}
+	
+	/**
+	 * Indicates whether the specified file is waiting in the
+	 * queue, or currently recorded. The lock must be held.
+	 * 
+	 * @param file
+	 * 		File of interest (absolute).
+	 * @return
+	 * 		{@code true} iff the file is queued.
+	 */
+	private static boolean isQueued(File file)
+	{	boolean result = current!=null && current.file.equals(file);
+		for(PendingFile pendingFile: queue)
+			result = result || pendingFile.file.equals(file);
+		return result;
+	}
+	
+	/**
+	 * Forgets the failed recordings of the specified file,
+	 * because a more recent version was successfully recorded. 
+	 * The lock must be held.
+	 * 
+	 * @param file
+	 * 		File of interest (absolute).
+	 */
+	private static void discardFailed(File file)
+	{	Iterator<PendingFile> it = failed.iterator();
+		while(it.hasNext())
+		{	PendingFile pendingFile = it.next();
+			if(pendingFile.file.equals(file))
+			{	it.remove();
+				updatePendingCount(file,-1);
+			}
+		}
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// FLUSH			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Waits until all the pending files are recorded. The files which
+	 * could not be recorded in the background are recorded again. This
+	 * method must be called at the end of a batch.
+	 * 
+	 * @throws IOException
+	 * 		Some files still could not be recorded (they are kept in memory).
+	 */
+	public static void flush() throws IOException
+	{	synchronized(LOCK)
+		{	try
+			{	while(!queue.isEmpty() || current!=null)
+					LOCK.wait();
+			}
+			catch(InterruptedException e)
+			{	Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while flushing the pending files",e);
+			}
+			
+			retryFailed(null);
+		}
+	}
+	
+	/**
+	 * Attempts again to record the files which could not be
+	 * recorded in the background. The lock must be held.
+	 * 
+	 * @param file
+	 * 		File of interest, or {@code null} for all the files.
+	 * 
+	 * @throws IOException
+	 * 		Some files still could not be recorded (they are kept in memory).
+	 */
+	private static void retryFailed(File file) throws IOException
+	{	List<PendingFile> remaining = new ArrayList<PendingFile>();
+		IOException exception = null;
+		for(PendingFile pendingFile: failed)
+		{	if(file==null || pendingFile.file.equals(file))
+			{	try
+				{	writeAtomically(pendingFile.file,pendingFile.content);
+					updatePendingCount(pendingFile.file,-1);
+				}
+				catch(IOException e)
+				{	logger.log("ERROR: could not record file "+pendingFile.file+" ("+e.getMessage()+")");
+					remaining.add(pendingFile);
+					if(exception==null)
+						exception = e;
+				}
+			}
+			else
+				remaining.add(pendingFile);
+		}
+		failed.clear();
+		failed.addAll(remaining);
+		LOCK.notifyAll();
+		
+		if(exception!=null)
+			throw new IOException("Some files could not be recorded, they are kept in memory",exception);
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// THREAD			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Starts the background thread, if it is not
+	 * running yet. The lock must be held.
+	 */
+	private static void startThread()
+	{	if(thread==null)
+		{	thread = new Thread(new Runnable()
+			{	@Override
+				public void run()
+				{	processQueue();
+				}
+			}, "Results writer");
+			thread.setDaemon(true);
+			thread.start();
+			
+			// pending files are recorded before the JVM stops
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable()
+			{	@Override
+				public void run()
+				{	try
+					{	flush();
+					}
+					catch(IOException e)
+					{	e.printStackTrace();
+					}
+				}
+			}, "Results writer flush"));
+		}
+	}
+	
+	/**
+	 * Records the queued files, one after the other,
+	 * and waits for new ones when the queue is empty.
+	 */
+	private static void processQueue()
+	{	while(true)
+		{	// get the next file
+			PendingFile pendingFile;
+			synchronized(LOCK)
+			{	while(queue.isEmpty())
+				{	try
+					{	LOCK.wait();
+					}
+					catch(InterruptedException e)
+					{	// the thread is a daemon: it just keeps waiting
+					}
+				}
+				pendingFile = queue.removeFirst();
+				current = pendingFile;
+				LOCK.notifyAll();
+			}
+			
+			// record it
+			boolean success;
+			try
+			{	writeAtomically(pendingFile.file,pendingFile.content);
+				success = true;
+			}
+			catch(IOException e)
+			{	logger.log("WARNING: could not record file "+pendingFile.file+" in the background, it is kept for later ("+e.getMessage()+")");
+				success = false;
+			}
+			
+			// update the state
+			synchronized(LOCK)
+			{	if(success)
+				{	updatePendingCount(pendingFile.file,-1);
+					discardFailed(pendingFile.file);
+				}
+				else
+					failed.add(pendingFile);
+				current = null;
+				LOCK.notifyAll();
+			}
+		}
+	}
+}
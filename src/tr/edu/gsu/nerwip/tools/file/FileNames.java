@@ -75,12 +75,16 @@ public class FileNames
 				public final static String FO_STANFORD_MODELS = FO_STANFORD + File.separator + "models";
 				/** Folder of Stanford clusters */
 				public final static String FO_STANFORD_CLUSTERS = FO_STANFORD + File.separator + "clusters";
+			/** Folder of model snapshots (fast-loading copies of the model files) */
+			public final static String FO_SNAPSHOTS = FO_NER + File.separator + "snapshots";
 			/** Folder of Subee resources */
 			public final static String FO_SUBEE = FO_NER + File.separator + "subee";
 			/** Folder of SVM combiner resources */
 			public final static String FO_SVMCOMBINER = FO_NER + File.separator + "svmcombiner";
 			/** Folder of vote combiner resources */
 			public final static String FO_VOTECOMBINER = FO_NER + File.separator + "votecombiner";
+		/** Folder containing the lists used to filter noise from the detected entities, one subfolder by language */
+		public final static String FO_NOISE = FO_RESOURCES + File.separator + "noise";
 		/** Folder containing retrieval-related data */
 		public final static String FO_RETRIEVAL = FO_RESOURCES + File.separator + "retrieval";
 		/** Folder containing the XML schemas */
@@ -107,10 +111,22 @@ public class FileNames
 	public final static String FI_RAW_TEXT = "raw" + FileNames.EX_TXT;
 	/** File containing the text with hyperlinks */
 	public final static String FI_LINKED_TEXT = "linked" + FileNames.EX_TXT;
+	/** File containing the stop-words of a language */
+	public final static String FI_STOP_WORDS = "stopwords" + FileNames.EX_TXT;
+	/** File containing the pronouns of a language */
+	public final static String FI_PRONOUNS = "pronouns" + FileNames.EX_TXT;
 	/** File containing the reference entities */
 	public final static String FI_REFERENCE_TEXT = "reference" + FileNames.EX_TXT;
 	/** File containing the entities estimated by a NER tool, in a normalized format */
 	public final static String FI_ENTITY_LIST = "entities.xml";
+	/** File containing the entities estimated by a NER tool, in a compact binary format */
+	public final static String FI_ENTITY_BINARY = "entities" + FileNames.EX_BIN;
+	/** Manifest describing the inputs the cached entities were computed from */
+	public final static String FI_ENTITY_MANIFEST = "entities" + FileNames.EX_MANIFEST;
+	/** File containing all the files of the corpus, packed together */
+	public final static String FI_CORPUS_DATA = "corpus" + FileNames.EX_PACK;
+	/** File containing the index of the packed corpus */
+	public final static String FI_CORPUS_INDEX = "corpus" + FileNames.EX_INDEX;
 	/** XML schema file used to store keys */
 	public final static String FI_KEY_LIST = "keys.xml";
 	/** File containing the entities estimated by a NER tool, in a tool-specific format */
@@ -147,6 +163,14 @@ public class FileNames
 	/////////////////////////////////////////////////////////////////
 	/** Text file extension */
 	public final static String EX_TXT = ".txt";
+	/** Binary file extension */
+	public final static String EX_BIN = ".bin";
+	/** Cache manifest file extension */
+	public final static String EX_MANIFEST = ".manifest";
+	/** Index file extension */
+	public final static String EX_INDEX = ".idx";
+	/** Packed data file extension */
+	public final static String EX_PACK = ".pack";
 	/** XML file extension */
 	public final static String EX_XML = ".xml";
 }
@@ -31,6 +31,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
@@ -134,8 +135,39 @@ public class FileTools
 	 * 		Problem while accessing the file.
 	 */
 	public static String readTextFile(File file) throws FileNotFoundException
+	{	Scanner scanner = FileTools.openTextFileRead(file);
+		String result = readText(scanner);
+		return result;
+	}
+	
+	/**
+	 * Reads the specified stream as a text file and returns 
+	 * a String object. The text is processed exactly like
+	 * in {@link #readTextFile(File)}. The stream is closed.
+	 * 
+	 * @param stream
+	 * 		Stream to be read.
+	 * @return
+	 * 		String corresponding to the stream content.
+	 */
+	public static String readTextStream(InputStream stream)
+	{	InputStreamReader isr = new InputStreamReader(stream);
+		Scanner scanner = new Scanner(isr);
+		String result = readText(scanner);
+		return result;
+	}
+	
+	/**
+	 * Reads all the lines available through the specified
+	 * scanner, then closes it.
+	 * 
+	 * @param scanner
+	 * 		Scanner to be read.
+	 * @return
+	 * 		String corresponding to the content, each line ending with {@code \n}.
+	 */
+	private static String readText(Scanner scanner)
 	{	StringBuffer temp = new StringBuffer();
-		Scanner scanner = FileTools.openTextFileRead(file);
 		
 		while(scanner.hasNextLine())
 		{	String line = scanner.nextLine();
@@ -0,0 +1,393 @@
+package tr.edu.gsu.nerwip.tools.string;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton used to look for a whole set of literal
+ * strings in a text, in a single pass. The automaton is built once,
+ * then can be applied to any number of texts. 
+ * <br/>
+ * Each occurrence can also be checked against word boundaries,
+ * using exactly the same definition as the {@code \b} construct
+ * of {@link java.util.regex.Pattern}. This allows replacing
+ * a series of {@code \bliteral\b} regular expressions by
+ * a single automaton, without changing the results.
+ *  
+ * @author Vincent Labatut
+ */
+public class MultiStringMatcher
+{	
+	/**
+	 * Builds the automaton for the specified strings. 
+	 * The index of a string in this list is used as its 
+	 * identifier in the matches returned later. Duplicate
+	 * strings are allowed, but only the first one
+	 * is ever reported.
+	 * 
+	 * @param patterns
+	 * 		Strings to look for. They must not be empty.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 		If one of the strings is empty.
+	 */
+	public MultiStringMatcher(List<String> patterns)
+	{	this.patterns = new ArrayList<String>(patterns);
+		buildTrie();
+		buildLinks();
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// PATTERNS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Strings looked for */
+	private List<String> patterns;
+	
+	/**
+	 * Returns the string associated to the 
+	 * specified index.
+	 * 
+	 * @param index
+	 * 		Index of the string.
+	 * @return
+	 * 		The corresponding string.
+	 */
+	public String getPattern(int index)
+	{	String result = patterns.get(index);
+		return result;
+	}
+	
+	/**
+	 * Returns the number of strings handled
+	 * by this automaton.
+	 * 
+	 * @return
+	 * 		Number of strings.
+	 */
+	public int getPatternCount()
+	{	int result = patterns.size();
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// AUTOMATON		/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Sorted labels of the outgoing transitions of each state */
+	private char[][] labels;
+	/** Targets of the outgoing transitions of each state (same order as the labels) */
+	private int[][] targets;
+	/** Failure link of each state */
+	private int[] failures;
+	/** Closest state (through failure links) corresponding to a complete string, or -1 */
+	private int[] outputs;
+	/** Index of the string ending at each state, or -1 */
+	private int[] ends;
+	/** Depth of each state (i.e. length of the corresponding prefix) */
+	private int[] depths;
+	
+	/**
+	 * Builds the trie containing all the strings,
+	 * and stores it under a compact form
+	 * (sorted transition tables).
+	 */
+	private void buildTrie()
+	{	// build the trie using maps
+		List<Map<Character,Integer>> children = new ArrayList<Map<Character,Integer>>();
+		List<Integer> endList = new ArrayList<Integer>();
+		List<Integer> depthList = new ArrayList<Integer>();
+		children.add(new HashMap<Character,Integer>());
+		endList.add(-1);
+		depthList.add(0);
+		for(int i=0;i<patterns.size();i++)
+		{	String pattern = patterns.get(i);
+			if(pattern.isEmpty())
+				throw new IllegalArgumentException("Empty strings cannot be looked for");
+			int state = 0;
+			for(int j=0;j<pattern.length();j++)
+			{	Character c = pattern.charAt(j);
+				Integer next = children.get(state).get(c);
+				if(next==null)
+				{	next = children.size();
+					children.get(state).put(c,next);
+					children.add(new HashMap<Character,Integer>());
+					endList.add(-1);
+					depthList.add(j+1);
+				}
+				state = next;
+			}
+			if(endList.get(state)==-1)
+				endList.set(state,i);
+		}
+		
+		// convert it to arrays
+		int size = children.size();
+		labels = new char[size][];
+		targets = new int[size][];
+		ends = new int[size];
+		depths = new int[size];
+		for(int s=0;s<size;s++)
+		{	Map<Character,Integer> map = children.get(s);
+			char[] lbl = new char[map.size()];
+			int k = 0;
+			for(Character c: map.keySet())
+			{	lbl[k] = c;
+				k++;
+			}
+			Arrays.sort(lbl);
+			int[] tgt = new int[lbl.length];
+			for(k=0;k<lbl.length;k++)
+				tgt[k] = map.get(lbl[k]);
+			labels[s] = lbl;
+			targets[s] = tgt;
+			ends[s] = endList.get(s);
+			depths[s] = depthList.get(s);
+		}
+	}
+	
+	/**
+	 * Completes the trie with the failure and output
+	 * links, using a breadth-first traversal.
+	 */
+	private void buildLinks()
+	{	int size = labels.length;
+		failures = new int[size];
+		outputs = new int[size];
+		outputs[0] = -1;
+		
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		for(int child: targets[0])
+		{	failures[child] = 0;
+			outputs[child] = -1;
+			queue.add(child);
+		}
+		while(!queue.isEmpty())
+		{	int state = queue.poll();
+			for(int k=0;k<labels[state].length;k++)
+			{	char c = labels[state][k];
+				int child = targets[state][k];
+				
+				// failure: longest proper suffix also present in the trie
+				int f = failures[state];
+				int next = getTransition(f,c);
+				while(next<0 && f!=0)
+				{	f = failures[f];
+					next = getTransition(f,c);
+				}
+				if(next<0)
+					next = 0;
+				failures[child] = next;
+				
+				// output: closest complete string among these suffixes
+				if(ends[next]>=0)
+					outputs[child] = next;
+				else
+					outputs[child] = outputs[next];
+				
+				queue.add(child);
+			}
+		}
+	}
+	
+	/**
+	 * Returns the target of the transition labeled
+	 * with the specified character, for the specified
+	 * state.
+	 * 
+	 * @param state
+	 * 		Source state.
+	 * @param c
+	 * 		Label of the transition.
+	 * @return
+	 * 		Target state, or -1 if there is no such transition.
+	 */
+	private int getTransition(int state, char c)
+	{	int result = -1;
+		int k = Arrays.binarySearch(labels[state],c);
+		if(k>=0)
+			result = targets[state][k];
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// MATCHING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Looks for all the occurrences of all the strings in the 
+	 * specified text, in a single pass. Occurrences can overlap. 
+	 * They are listed by increasing end position, and by decreasing 
+	 * length for the same end position. Each occurrence is represented 
+	 * by an array containing the index of the string, its start 
+	 * position and its end position (exclusive).
+	 * 
+	 * @param text
+	 * 		Text to process.
+	 * @return
+	 * 		List of occurrences.
+	 */
+	public List<int[]> findAll(String text)
+	{	List<int[]> result = new ArrayList<int[]>();
+		
+		int state = 0;
+		for(int i=0;i<text.length();i++)
+		{	char c = text.charAt(i);
+			int next = getTransition(state,c);
+			while(next<0 && state!=0)
+			{	state = failures[state];
+				next = getTransition(state,c);
+			}
+			if(next<0)
+				next = 0;
+			state = next;
+			
+			// report all the strings ending here
+			int s = state;
+			if(ends[s]<0)
+				s = outputs[s];
+			while(s>=0)
+			{	int end = i + 1;
+				int[] occurrence = {ends[s], end-depths[s], end};
+				result.add(occurrence);
+				s = outputs[s];
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Same as {@link #findAll(String)}, except occurrences are 
+	 * required to start and end on word boundaries, and the 
+	 * occurrences of the same string cannot overlap. 
+	 * For each string, the result is therefore the same as 
+	 * calling {@link java.util.regex.Matcher#find()} repeatedly
+	 * with the regular expression {@code \bstring\b}.
+	 * 
+	 * @param text
+	 * 		Text to process.
+	 * @return
+	 * 		List of occurrences.
+	 */
+	public List<int[]> findWords(String text)
+	{	List<int[]> result = new ArrayList<int[]>();
+		int[] lastEnds = new int[patterns.size()];
+		
+		for(int[] occurrence: findAll(text))
+		{	int index = occurrence[0];
+			int start = occurrence[1];
+			int end = occurrence[2];
+			// like Matcher.find, resume the search after the previous match
+			if(start>=lastEnds[index] 
+				&& isWordBoundary(text,start) && isWordBoundary(text,end))
+			{	result.add(occurrence);
+				lastEnds[index] = end;
+			}
+		}
+		
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// WORD BOUNDARIES	/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Checks whether the specified position in the text
+	 * is a word boundary, in the sense of the {@code \b}
+	 * construct of {@link java.util.regex.Pattern} (without
+	 * the {@code UNICODE_CHARACTER_CLASS} flag).
+	 * 
+	 * @param text
+	 * 		Text to consider.
+	 * @param position
+	 * 		Position in the text, between {@code 0} and its length.
+	 * @return
+	 * 		{@code true} iff the position is a word boundary.
+	 */
+	public static boolean isWordBoundary(String text, int position)
+	{	boolean left = false;
+		if(position>0)
+		{	int cp = Character.codePointBefore(text,position);
+			left = isWordCharacter(cp)
+				|| (Character.getType(cp)==Character.NON_SPACING_MARK && hasBaseCharacter(text,position-1));
+		}
+		
+		boolean right = false;
+		if(position<text.length())
+		{	int cp = Character.codePointAt(text,position);
+			right = isWordCharacter(cp)
+				|| (Character.getType(cp)==Character.NON_SPACING_MARK && hasBaseCharacter(text,position));
+		}
+		
+		boolean result = left ^ right;
+		return result;
+	}
+	
+	/**
+	 * Checks whether the specified code point is
+	 * considered as part of a word.
+	 * 
+	 * @param cp
+	 * 		Code point to check.
+	 * @return
+	 * 		{@code true} iff it is a letter, a digit or an underscore.
+	 */
+	private static boolean isWordCharacter(int cp)
+	{	boolean result = cp=='_' || Character.isLetterOrDigit(cp);
+		return result;
+	}
+	
+	/**
+	 * Checks whether the non-spacing marks preceding
+	 * the specified position (included) are attached 
+	 * to a letter or digit.
+	 * 
+	 * @param text
+	 * 		Text to consider.
+	 * @param position
+	 * 		Position of the last mark.
+	 * @return
+	 * 		{@code true} iff the marks are attached to a letter or digit.
+	 */
+	private static boolean hasBaseCharacter(String text, int position)
+	{	boolean result = false;
+		boolean goOn = true;
+		int x = position;
+		while(goOn && x>=0)
+		{	int cp = Character.codePointAt(text,x);
+			if(Character.isLetterOrDigit(cp))
+			{	result = true;
+				goOn = false;
+			}
+			else if(Character.getType(cp)!=Character.NON_SPACING_MARK)
+				goOn = false;
+			x--;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,262 @@
+package tr.edu.gsu.nerwip.tools.string;
+
+/*
+ * Nerwip - Named Entity Extraction in Wikipedia Pages
+ * Copyright 2011 Yasa Akbulut, Burcu Küpelioğlu & Vincent Labatut
+ * Copyright 2012 Burcu Küpelioğlu, Samet Atdağ & Vincent Labatut
+ * Copyright 2013 Samet Atdağ & Vincent Labatut
+ * Copyright 2014-15 Vincent Labatut
+ * 
+ * This file is part of Nerwip - Named Entity Extraction in Wikipedia Pages.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is free software: you can 
+ * redistribute it and/or modify it under the terms of the GNU General Public License 
+ * as published by the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * Nerwip - Named Entity Extraction in Wikipedia Pages is distributed in the hope 
+ * that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty 
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public 
+ * License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with Nerwip - Named Entity Extraction in Wikipedia Pages.  
+ * If not, see <http://www.gnu.org/licenses/>.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies a list of regular expressions to a text, in a single
+ * traversal. For each pattern, the result is the same as calling
+ * {@link Matcher#find()} repeatedly, but the patterns are tried
+ * only at the positions where they can possibly start.
+ * <br/>
+ * When registering a pattern, one can specify the characters
+ * a match can start with. A dispatch table built from these
+ * characters indicates which patterns must be tried at each 
+ * position. Moreover, a pattern starting with {@code \b} is tried 
+ * only on word boundaries. Patterns are then matched from this
+ * position only (anchored match), instead of searching the rest 
+ * of the text.
+ * <br/>
+ * The patterns must all be registered before the scanner is used.
+ * Scanning itself does not modify the object, so it can
+ * then be performed concurrently by several threads.
+ *  
+ * @author Vincent Labatut
+ */
+public class PatternScanner
+{	
+	/////////////////////////////////////////////////////////////////
+	// PATTERNS			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Registered patterns */
+	private final List<Pattern> patterns = new ArrayList<Pattern>();
+	/** Whether each pattern starts with a word boundary */
+	private final List<Boolean> boundaries = new ArrayList<Boolean>();
+	/** Characters each pattern can start with ({@code null} for any character) */
+	private final List<String> firstChars = new ArrayList<String>();
+	
+	/**
+	 * Registers a new pattern. Its index in the result
+	 * of {@link #scan(String)} corresponds to the order
+	 * of registration.
+	 * 
+	 * @param pattern
+	 * 		Regular expression to apply.
+	 * @param chars
+	 * 		All the characters a match of this pattern can start
+	 * 		with, or {@code null} if they are unknown. The scanner
+	 * 		misses matches starting with other characters.
+	 */
+	public void addPattern(Pattern pattern, String chars)
+	{	patterns.add(pattern);
+		boundaries.add(pattern.pattern().startsWith("\\b"));
+		firstChars.add(chars);
+		buildTables();
+	}
+	
+	/**
+	 * Returns the number of registered patterns.
+	 * 
+	 * @return
+	 * 		Number of patterns.
+	 */
+	public int getPatternCount()
+	{	int result = patterns.size();
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// DISPATCH			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/** Highest character handled through the array-based table */
+	private static final char TABLE_SIZE = 128;
+	/** Patterns to try for each ASCII character, by increasing index */
+	private int[][] asciiCandidates = new int[TABLE_SIZE][];
+	/** Patterns to try for the other characters, by increasing index */
+	private Map<Character,int[]> otherCandidates = new HashMap<Character,int[]>();
+	/** Patterns to try for any character (and at the end of the text) */
+	private int[] anyCandidates = new int[0];
+	
+	/**
+	 * Builds the dispatch tables from
+	 * the registered patterns.
+	 */
+	private void buildTables()
+	{	// patterns possibly starting anywhere
+		List<Integer> any = new ArrayList<Integer>();
+		for(int k=0;k<patterns.size();k++)
+		{	if(firstChars.get(k)==null)
+				any.add(k);
+		}
+		anyCandidates = toArray(any);
+		
+		// patterns starting with specific characters
+		Map<Character,List<Integer>> map = new HashMap<Character,List<Integer>>();
+		for(int k=0;k<patterns.size();k++)
+		{	String chars = firstChars.get(k);
+			if(chars!=null)
+			{	for(int i=0;i<chars.length();i++)
+				{	char c = chars.charAt(i);
+					List<Integer> list = map.get(c);
+					if(list==null)
+					{	list = new ArrayList<Integer>(any);
+						map.put(c,list);
+					}
+					if(!list.contains(k))
+						list.add(k);
+				}
+			}
+		}
+		
+		// convert them to arrays
+		asciiCandidates = new int[TABLE_SIZE][];
+		Arrays.fill(asciiCandidates, anyCandidates);
+		otherCandidates = new HashMap<Character,int[]>();
+		for(Map.Entry<Character,List<Integer>> entry: map.entrySet())
+		{	char c = entry.getKey();
+			int[] candidates = toArray(entry.getValue());
+			Arrays.sort(candidates);
+			if(c<TABLE_SIZE)
+				asciiCandidates[c] = candidates;
+			else
+				otherCandidates.put(c, candidates);
+		}
+	}
+	
+	/**
+	 * Converts a list of integers to an array.
+	 * 
+	 * @param list
+	 * 		List to convert.
+	 * @return
+	 * 		The corresponding array.
+	 */
+	private static int[] toArray(List<Integer> list)
+	{	int[] result = new int[list.size()];
+		for(int i=0;i<result.length;i++)
+			result[i] = list.get(i);
+		return result;
+	}
+	
+	/**
+	 * Returns the patterns which must be tried at the
+	 * specified position of the text.
+	 * 
+	 * @param text
+	 * 		Text to process.
+	 * @param position
+	 * 		Position in the text.
+	 * @return
+	 * 		Indices of the patterns to try.
+	 */
+	private int[] getCandidates(String text, int position)
+	{	int[] result = anyCandidates;
+		if(position<text.length())
+		{	char c = text.charAt(position);
+			if(c<TABLE_SIZE)
+				result = asciiCandidates[c];
+			else
+			{	int[] temp = otherCandidates.get(c);
+				if(temp!=null)
+					result = temp;
+			}
+		}
+		return result;
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// SCANNING			/////////////////////////////////////////////
+	/////////////////////////////////////////////////////////////////
+	/**
+	 * Applies all the patterns to the specified text, in a single
+	 * traversal. The result contains a list for each pattern
+	 * (in the registration order), containing its matches (by 
+	 * increasing position). Each match is represented by an array 
+	 * containing its start and end positions (exclusive). 
+	 * 
+	 * @param text
+	 * 		Text to process.
+	 * @return
+	 * 		Matches of each pattern.
+	 */
+	public List<List<int[]>> scan(String text)
+	{	int count = patterns.size();
+		List<List<int[]>> result = new ArrayList<List<int[]>>(count);
+		for(int k=0;k<count;k++)
+			result.add(new ArrayList<int[]>());
+		Matcher[] matchers = new Matcher[count];
+		int[] nextStarts = new int[count];
+		
+		for(int position=0;position<=text.length();position++)
+		{	int[] candidates = getCandidates(text, position);
+			int checkedBoundary = 0;	// 0: not checked, 1: boundary, -1: no boundary
+			for(int k: candidates)
+			{	// like Matcher.find, resume the search after the previous match
+				if(position>=nextStarts[k])
+				{	boolean possible = true;
+					if(boundaries.get(k))
+					{	if(checkedBoundary==0)
+						{	if(MultiStringMatcher.isWordBoundary(text, position))
+								checkedBoundary = 1;
+							else
+								checkedBoundary = -1;
+						}
+						possible = checkedBoundary>0;
+					}
+					
+					if(possible)
+					{	Matcher matcher = matchers[k];
+						if(matcher==null)
+						{	matcher = patterns.get(k).matcher(text);
+							matcher.useTransparentBounds(true);
+							matcher.useAnchoringBounds(false);
+							matchers[k] = matcher;
+						}
+						matcher.region(position, text.length());
+						if(matcher.lookingAt())
+						{	int start = matcher.start();
+							int end = matcher.end();
+							int[] match = {start, end};
+							result.get(k).add(match);
+							// an empty match forces to move forward
+							if(end==start)
+								nextStarts[k] = end + 1;
+							else
+								nextStarts[k] = end;
+						}
+					}
+				}
+			}
+		}
+		
+		return result;
+	}
+}
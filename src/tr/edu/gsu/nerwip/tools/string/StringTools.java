@@ -25,8 +25,6 @@ package tr.edu.gsu.nerwip.tools.string;
  */
 
 import java.util.Locale;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * This class contains various methods
@@ -104,17 +102,22 @@ public class StringTools
 	// LETTERS			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
 	/**
-	 * Checks if the specified string contains any letters.
+	 * Checks if the specified string contains no letter
+	 * (only the basic latin letters are considered).
 	 * 
 	 * @param string
 	 * 		String to analyze.
 	 * @return
-	 * 		{@code true} iff the string contains at least one letters.
+	 * 		{@code true} iff the string does not contain any letter.
 	 */
 	public static boolean hasNoLetter(String string)
-	{	Pattern r = Pattern.compile("[a-zA-Z]");
-		Matcher m = r.matcher(string);
-		boolean result = !m.find();
+	{	boolean result = true;
+		int i = 0;
+		while(result && i<string.length())
+		{	char c = string.charAt(i);
+			result = !(c>='a' && c<='z' || c>='A' && c<='Z');
+			i++;
+		}
 		return result;
 	}
 }
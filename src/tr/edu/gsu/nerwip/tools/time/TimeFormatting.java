@@ -33,6 +33,9 @@ import java.util.Locale;
  * This class contains a set of methods linked to time management.
  * They are mainly used by the log classes to add
  * time and date to log messages.
+ * <br/>
+ * The formats are shared, so their accesses are synchronized
+ * (these methods can be called from several threads at once).
  * 
  * @author Vincent Labatut
  */
@@ -54,7 +57,9 @@ public class TimeFormatting
 	 */
 	public static String formatCurrentHour()
 	{	Calendar cal = Calendar.getInstance();
-	    return HOUR_FORMAT.format(cal.getTime());
+		synchronized(HOUR_FORMAT)
+		{	return HOUR_FORMAT.format(cal.getTime());
+		}
 	}
 	
 	/////////////////////////////////////////////////////////////////
@@ -73,7 +78,10 @@ public class TimeFormatting
 	 */
 	public static String formatCurrentDate()
 	{	Calendar cal = Calendar.getInstance();
-		String result = DATE_FORMAT.format(cal.getTime());
+		String result;
+		synchronized(DATE_FORMAT)
+		{	result = DATE_FORMAT.format(cal.getTime());
+		}
 		return result;
 	}
 
@@ -86,7 +94,10 @@ public class TimeFormatting
 	 * 		A string representing the specified date.
 	 */
 	public static String formatDate(java.util.Date date)
-	{	String result = DATE_FORMAT.format(date);
+	{	String result;
+		synchronized(DATE_FORMAT)
+		{	result = DATE_FORMAT.format(date);
+		}
 		return result;
 	}
 	
@@ -103,7 +114,10 @@ public class TimeFormatting
 	 * 		Problem while parsing the string.
 	 */
 	public static java.util.Date parseDate(String dateStr) throws ParseException
-	{	java.util.Date result = DATE_FORMAT.parse(dateStr);
+	{	java.util.Date result;
+		synchronized(DATE_FORMAT)
+		{	result = DATE_FORMAT.parse(dateStr);
+		}
 		return result;
 	}
 	
@@ -123,7 +137,9 @@ public class TimeFormatting
 	 */
 	public static String formatCurrentTime()
 	{	Calendar cal = Calendar.getInstance();
-	    return TIME_FORMAT.format(cal.getTime());
+		synchronized(TIME_FORMAT)
+		{	return TIME_FORMAT.format(cal.getTime());
+		}
 	}
 	
 	/**
@@ -138,7 +154,9 @@ public class TimeFormatting
 	public static String formatTime(long time)
 	{	Calendar cal = Calendar.getInstance();
 		cal.setTimeInMillis(time);
-		return TIME_FORMAT.format(cal.getTime());
+		synchronized(TIME_FORMAT)
+		{	return TIME_FORMAT.format(cal.getTime());
+		}
 	}
 
 	/**
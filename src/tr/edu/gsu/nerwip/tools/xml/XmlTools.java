@@ -30,7 +30,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
@@ -53,6 +56,11 @@ import tr.edu.gsu.nerwip.tools.file.FileNames;
 
 /**
  * This class contains a set of methods related to XML managment.
+ * <br/>
+ * These methods can be called concurrently from several threads.
+ * The XML schemas are compiled only once and shared, whereas
+ * each thread gets its own document builders (which are not
+ * thread-safe).
  * 
  * @author Vincent Labatut
  */
@@ -61,10 +69,33 @@ public class XmlTools
 	/////////////////////////////////////////////////////////////////
 	// INITIALIZATION	/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
-	/** Maps of document builders, each one corresponding to a specifiec XML schema */
-	public static final HashMap<String,DocumentBuilder> DOCUMENT_BUILDERS = new HashMap<String,DocumentBuilder>();	
+	/** Map of the compiled XML schemas (thread-safe objects), indexed by file name */
+	private static final Map<String,Schema> SCHEMAS = new ConcurrentHashMap<String,Schema>();
+	/** Maps of document builders, each one corresponding to a specifiec XML schema, for each thread */
+	private static final ThreadLocal<Map<String,DocumentBuilder>> DOCUMENT_BUILDERS = new ThreadLocal<Map<String,DocumentBuilder>>()
+	{	@Override
+		protected Map<String,DocumentBuilder> initialValue()
+		{	return new HashMap<String,DocumentBuilder>();
+		}
+	};
+	
+	/** Handler used to turn all parsing problems into exceptions */
+	private static final ErrorHandler ERROR_HANDLER = new ErrorHandler()
+	{	@Override
+    	public void error(SAXParseException e) throws SAXException
+    	{   throw e;
+    	}
+    	@Override
+		public void fatalError(SAXParseException e) throws SAXException
+    	{   throw e;
+    	}
+    	@Override
+    	public void warning(SAXParseException e) throws SAXException
+    	{   throw e;
+    	}
+	};
 	
-	/** Populates the map of document builders */
+	/** Populates the map of schemas */
 	static
 	{	try
 		{	init();
@@ -72,37 +103,19 @@ public class XmlTools
 		catch (SAXException e)
 		{	e.printStackTrace();
 		}
-		catch (ParserConfigurationException e)
-		{	e.printStackTrace();
-		}
 	}
 
 	/**
 	 * Retrieves all schemas in the corresponding folder,
-	 * load them and put them in the {@code #DOCUMENT_BUILDERS} map.
+	 * compiles them and put them in the {@code #SCHEMAS} map.
 	 * 
 	 * @throws SAXException
 	 * 		Problem while retrieving one the schemas.
-	 * @throws ParserConfigurationException
-	 * 		Problem while retrieving one the schemas.
 	 */
-	public static void init() throws SAXException, ParserConfigurationException
+	public static void init() throws SAXException
 	{	// init
 		SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-	    schemaFactory.setErrorHandler(new ErrorHandler()
-	    {	@Override
-        	public void error(SAXParseException e) throws SAXException
-	    	{   throw e;
-	    	}
-	    	@Override
-    		public void fatalError(SAXParseException e) throws SAXException
-	    	{   throw e;
-	    	}
-	    	@Override
-        	public void warning(SAXParseException e) throws SAXException
-	    	{   throw e;
-	    	}
-	    });
+	    schemaFactory.setErrorHandler(ERROR_HANDLER);
 	    
 	    // loading all schemas
 //	    System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "org.apache.xerces.parsers.SAXParser");
@@ -113,31 +126,53 @@ public class XmlTools
 		{	if(files[i].isFile())
 			{	String name = files[i].getName();
 				Schema schema = schemaFactory.newSchema(files[i]);
-				// DOM parser
-				DocumentBuilderFactory documentBuilderfactory = DocumentBuilderFactory.newInstance();
-		        documentBuilderfactory.setNamespaceAware(true);
-		        documentBuilderfactory.setIgnoringElementContentWhitespace(true);
-		        documentBuilderfactory.setSchema(schema);
-		        DocumentBuilder builder = documentBuilderfactory.newDocumentBuilder();
-		        builder.setErrorHandler(new ErrorHandler()
-		        {   @Override
-		        	public void fatalError(SAXParseException e) throws SAXException
-		        	{   throw e;
-		        	}
-		        	@Override
-	        		public void error(SAXParseException e) throws SAXParseException
-			    	{   throw e;
-			    	}
-		        	@Override
-		        	public void warning(SAXParseException e) throws SAXParseException
-			        {   throw e;
-			        }
-				});
-				DOCUMENT_BUILDERS.put(name,builder);
+				SCHEMAS.put(name,schema);
 	        }
 		}
 	}
 	
+	/**
+	 * Returns the document builder associated to the specified
+	 * schema, for the current thread. It is created if it does
+	 * not exist yet. 
+	 * 
+	 * @param schemaName
+	 * 		Name of the schema file.
+	 * @return
+	 * 		A document builder which can be used by the current thread only.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while creating the builder.
+	 */
+	private static DocumentBuilder getDocumentBuilder(String schemaName) throws SAXException
+	{	Map<String,DocumentBuilder> builders = DOCUMENT_BUILDERS.get();
+		DocumentBuilder result = builders.get(schemaName);
+		
+		if(result==null)
+		{	Schema schema = SCHEMAS.get(schemaName);
+			if(schema==null)
+				throw new SAXException("Unknown XML schema "+schemaName);
+			
+			// DOM parser
+			DocumentBuilderFactory documentBuilderfactory = DocumentBuilderFactory.newInstance();
+	        documentBuilderfactory.setNamespaceAware(true);
+	        documentBuilderfactory.setIgnoringElementContentWhitespace(true);
+	        documentBuilderfactory.setSchema(schema);
+	        try
+	        {	result = documentBuilderfactory.newDocumentBuilder();
+	        }
+	        catch(ParserConfigurationException e)
+	        {	throw new SAXException(e);
+	        }
+	        result.setErrorHandler(ERROR_HANDLER);
+	        builders.put(schemaName,result);
+		}
+		else
+			result.reset();
+		
+		return result;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// ACCESS			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
@@ -162,21 +197,47 @@ public class XmlTools
 	{	// init
 		FileInputStream in = new FileInputStream(dataFile);
 		BufferedInputStream inBuff = new BufferedInputStream(in);
-		
-		// JAXP
-		DocumentBuilder bldr = DOCUMENT_BUILDERS.get(schemaFile.getName());
+		Element result = getRootFromStream(inBuff, dataFile.toString(), schemaFile);
+		return result;
+	}
+	
+	/**
+	 * Reads and parses an XML document from the specified
+	 * stream, using the specified XML schema file, and returns 
+	 * the result as a JDom object. The stream is closed.
+	 *  
+	 * @param stream
+	 * 		The stream containing the XML document.
+	 * @param name
+	 * 		Name of the document, used when reporting errors.
+	 * @param schemaFile
+	 * 		The XML schema file to be used for validation.
+	 * @return
+	 * 		A JDom {@link Element} corresponding to the result of the parsing.
+	 * 
+	 * @throws SAXException
+	 * 		Problem while parsing the XML document.
+	 * @throws IOException
+	 * 		Problem while reading the XML document.
+	 */
+	public static Element getRootFromStream(InputStream stream, String name, File schemaFile) throws SAXException, IOException
+	{	// JAXP
 		org.w3c.dom.Document doc;
 		try
-		{	doc = bldr.parse(inBuff);
+		{	DocumentBuilder bldr = getDocumentBuilder(schemaFile.getName());
+			doc = bldr.parse(stream);
 		}
 		catch (SAXException e)
-		{	System.out.println(dataFile+" : "+schemaFile);
+		{	System.out.println(name+" : "+schemaFile);
 			throw e;
 		}
 		catch (IOException e)
-		{	System.out.println(dataFile+" : "+schemaFile);
+		{	System.out.println(name+" : "+schemaFile);
 			throw e;
 		}
+		finally
+		{	stream.close();
+		}
 		
 		// JDOM
 		DOMBuilder builder = new DOMBuilder();
@@ -184,17 +245,41 @@ public class XmlTools
 		
         // root
 		Element result = document.getRootElement();
-		inBuff.close();
 		return result;
 	}
 
 	/////////////////////////////////////////////////////////////////
 	// CREATION			/////////////////////////////////////////////
 	/////////////////////////////////////////////////////////////////
+	/**
+	 * Returns the path of the specified schema, relatively
+	 * to the specified xml file. This is the location mentioned
+	 * in the xml file to bound it to its schema.
+	 * 
+	 * @param dataFile
+	 * 		The xml file to be created.
+	 * @param schemaFile
+	 * 		The xml schema to be mentioned.
+	 * @return
+	 * 		Path of the schema, relatively to the xml file.
+	 */
+	public static String getSchemaLocation(File dataFile, File schemaFile)
+	{	String result = schemaFile.getPath();
+		File tempFile = new File(dataFile.getPath()).getParentFile();
+		while(tempFile!=null)
+		{	tempFile = tempFile.getParentFile();
+			result = ".."+File.separator+result;
+		}
+		return result;
+	}
+	
 	/**
 	 * Creates a new xml file using the specified element
 	 * as a root. The schema path is used to bound the
 	 * resulting document to a specific, local schema.
+	 * <br/>
+	 * No shared object is involved, so this method
+	 * can be called concurrently.
 	 * 
 	 * @param dataFile
 	 * 		The xml file to be created.
@@ -215,12 +300,7 @@ public class XmlTools
 		Document document = new Document(root);
 		
 		// schema
-		String schemaPath = schemaFile.getPath();
-		File tempFile = new File(dataFile.getPath()).getParentFile();
-		while(tempFile!=null)
-		{	tempFile = tempFile.getParentFile();
-			schemaPath = ".."+File.separator+schemaPath;
-		}
+		String schemaPath = getSchemaLocation(dataFile, schemaFile);
 		// Namespace sch = Namespace.getNamespace("xsi","http://www.w3.org/2001/XMLSchema-instance");
 	    Namespace sch = Namespace.getNamespace("xsi",XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
 		root.addNamespaceDeclaration(sch);